@@ -0,0 +1,105 @@
+package org.icij.ftm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a file of FtM entities from NDJSON with {@link EntityStreamReader} compared to the binary format of
+ * {@link BinaryEntityWriter}, either fully decoded or reading one property of each entity.
+ * <p>
+ * The files are written once in the temporary directory. Each entity takes about 600 bytes of JSON: use
+ * {@code -p entities=5000000} for a file of 3 GB.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BinaryFormatBenchmark {
+    private static final String SCHEMA = "LegalEntity";
+
+    @Param({"100000"})
+    public int entities;
+
+    private List<JsonCodec<?>> jsonCodecs;
+    private List<BinaryCodec<?>> binaryCodecs;
+    private Path ndjson;
+    private Path binary;
+
+    @Setup
+    public void setUp() throws Exception {
+        ClassLoader classLoader = JsonCodecBenchmark.compileModels();
+        jsonCodecs = List.of((JsonCodec<?>) classLoader.loadClass("org.icij.ftm." + SCHEMA + "JsonCodec").getField("INSTANCE").get(null));
+        binaryCodecs = List.of((BinaryCodec<?>) classLoader.loadClass("org.icij.ftm." + SCHEMA + "BinaryCodec").getField("INSTANCE").get(null));
+
+        ndjson = Files.createTempFile("entities", ".ndjson");
+        try (BufferedWriter writer = Files.newBufferedWriter(ndjson)) {
+            for (int i = 0; i < entities; i++) {
+                writer.write(JsonCodecBenchmark.entity(i));
+                writer.write('\n');
+            }
+        }
+        binary = Files.createTempFile("entities", ".ftmb");
+        try (InputStream input = Files.newInputStream(ndjson);
+             EntityStreamReader reader = new EntityStreamReader(input, jsonCodecs);
+             BinaryEntityWriter writer = new BinaryEntityWriter(binary, binaryCodecs)) {
+            reader.read(entity -> {
+                writer.write(entity, EntityResolver.NONE);
+                return true;
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(ndjson);
+        Files.deleteIfExists(binary);
+    }
+
+    @Benchmark
+    public long load_json(Blackhole blackhole) throws IOException {
+        try (InputStream input = Files.newInputStream(ndjson); EntityStreamReader reader = new EntityStreamReader(input, jsonCodecs)) {
+            return reader.read(entity -> {
+                blackhole.consume(entity);
+                return true;
+            });
+        }
+    }
+
+    @Benchmark
+    public long load_binary(Blackhole blackhole) throws IOException {
+        try (BinaryEntityReader reader = new BinaryEntityReader(binary, binaryCodecs, EntityResolver.NONE)) {
+            reader.stream().map(BinaryEntity::toEntity).forEach(blackhole::consume);
+            return reader.count();
+        }
+    }
+
+    @Benchmark
+    public long scan_binary_name(Blackhole blackhole) throws IOException {
+        try (BinaryEntityReader reader = new BinaryEntityReader(binary, binaryCodecs, EntityResolver.NONE)) {
+            reader.stream().map(entity -> entity.get("name")).forEach(blackhole::consume);
+            return reader.count();
+        }
+    }
+}
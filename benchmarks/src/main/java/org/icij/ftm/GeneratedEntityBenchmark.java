@@ -0,0 +1,182 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction, property access, hashing and serialization of the generated records and classes, in each
+ * attribute mode.
+ * <p>
+ * The entities are read once from NDJSON at setup. The construction calls the generated constructor through a
+ * spreading method handle, with the arguments taken from the decoded entities. Each benchmark processes all the
+ * entities.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratedEntityBenchmark {
+    private static final String SCHEMA = "LegalEntity";
+
+    @Param({"REQUIRED", "FEATURED", "FULL"})
+    public Model.Mode mode;
+
+    @Param({"1000"})
+    public int entities;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private JsonCodec<Object> jsonCodec;
+    private BinaryCodec<Object> binaryCodec;
+    private PropertyAccessor<Object> accessor;
+    private EntityResolver resolver;
+    private MethodHandle constructor;
+    private byte[] ndjson;
+    private List<FtmEntity<Object>> decoded;
+    private Object[][] arguments;
+    private Path binary;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        ClassLoader classLoader = JsonCodecBenchmark.compileModels(mode);
+        jsonCodec = (JsonCodec<Object>) instance(classLoader, "JsonCodec");
+        binaryCodec = (BinaryCodec<Object>) instance(classLoader, "BinaryCodec");
+        accessor = (PropertyAccessor<Object>) instance(classLoader, "Accessor");
+        Class<?> modelClass = classLoader.loadClass("org.icij.ftm." + SCHEMA);
+        Constructor<?> modelConstructor = Arrays.stream(modelClass.getConstructors())
+                .filter(c -> c.getParameterCount() == accessor.properties().size()).findFirst().orElseThrow();
+        constructor = MethodHandles.lookup().unreflectConstructor(modelConstructor).asSpreader(Object[].class, modelConstructor.getParameterCount());
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        for (int i = 0; i < entities; i++) {
+            json.write(JsonCodecBenchmark.entity(i).getBytes());
+            json.write('\n');
+        }
+        ndjson = json.toByteArray();
+        // a first pass without references to resolve them in the second one
+        resolver = EntityResolver.NONE;
+        resolver = EntityResolver.of(readJson());
+        decoded = readJson();
+
+        Class<?>[] types = modelConstructor.getParameterTypes();
+        arguments = new Object[decoded.size()][];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = new Object[types.length];
+            for (int ordinal = 0; ordinal < types.length; ordinal++) {
+                Object value = accessor.get(decoded.get(i).value(), ordinal);
+                // absent primitives are zeros
+                arguments[i][ordinal] = value == null && types[ordinal].isPrimitive() ? Array.get(Array.newInstance(types[ordinal], 1), 0) : value;
+            }
+        }
+        binary = Files.createTempFile("entities", ".ftmb");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(binary);
+    }
+
+    @Benchmark
+    public void construct(Blackhole blackhole) throws Throwable {
+        for (Object[] entityArguments : arguments) {
+            blackhole.consume(constructor.invoke(entityArguments));
+        }
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) {
+        int properties = accessor.properties().size();
+        for (FtmEntity<Object> entity : decoded) {
+            for (int ordinal = 0; ordinal < properties; ordinal++) {
+                blackhole.consume(accessor.get(entity.value(), ordinal));
+            }
+        }
+    }
+
+    @Benchmark
+    public void for_each_present(Blackhole blackhole) {
+        for (FtmEntity<Object> entity : decoded) {
+            accessor.forEachPresent(entity.value(), (ordinal, value) -> blackhole.consume(value));
+        }
+    }
+
+    @Benchmark
+    public int hash_code() {
+        int hash = 0;
+        for (FtmEntity<Object> entity : decoded) {
+            hash += entity.value().hashCode();
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public List<FtmEntity<Object>> read_json() throws IOException {
+        return readJson();
+    }
+
+    @Benchmark
+    public int write_json() throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream(ndjson.length);
+        try (JsonGenerator generator = jsonFactory.createGenerator(json)) {
+            for (FtmEntity<Object> entity : decoded) {
+                FtmJson.write(entity, jsonCodec, generator, resolver);
+            }
+        }
+        return json.size();
+    }
+
+    @Benchmark
+    public long write_binary() throws IOException {
+        try (BinaryEntityWriter writer = new BinaryEntityWriter(binary, List.of(binaryCodec))) {
+            for (FtmEntity<Object> entity : decoded) {
+                writer.write(entity, resolver);
+            }
+            return writer.count();
+        }
+    }
+
+    private List<FtmEntity<Object>> readJson() throws IOException {
+        List<FtmEntity<Object>> entities = new ArrayList<>(this.entities);
+        try (JsonParser parser = jsonFactory.createParser(ndjson)) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                entities.add(FtmJson.read(parser, jsonCodec, resolver));
+            }
+        }
+        return entities;
+    }
+
+    private static Object instance(ClassLoader classLoader, String suffix) throws ReflectiveOperationException {
+        return classLoader.loadClass("org.icij.ftm." + SCHEMA + suffix).getField("INSTANCE").get(null);
+    }
+}
@@ -0,0 +1,118 @@
+package org.icij.ftm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.icij.ftm.Utils.propertiesFromMap;
+
+/**
+ * Generation steps of {@link Main} over the yaml files packaged in {@code schema/}: finding the parents,
+ * resolving the hierarchy of each model (concrete parent, interfaces, inherited attributes, types, ancestors)
+ * and generating the java sources.
+ * <p>
+ * With a scale greater than 1, the schema is made bigger with copies of the leaf schemata
+ * ({@code Company_1}, {@code Company_2}...) extending the same parents, as a larger FtM schema does.
+ * The yaml files are parsed once at setup.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+    @Param({"REQUIRED", "FEATURED", "FULL"})
+    public Model.Mode mode;
+
+    @Param({"1", "10"})
+    public int scale;
+
+    private List<Map<String, Object>> yamlContents;
+    private Map<String, Model> parents;
+    private List<Model> models;
+    private SourceGenerator sourceGenerator;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<Map<String, Object>> schemata = new ArrayList<>();
+        for (File yamlFile : JsonCodecBenchmark.schemaFiles()) {
+            schemata.add(Utils.getYamlContent(yamlFile));
+        }
+        yamlContents = scale(schemata, scale);
+        parents = Utils.findParents(yamlContents, mode);
+        models = resolveModels();
+        sourceGenerator = new SourceGenerator(propertiesFromMap(Map.of(
+                "parents", parents,
+                "models", models.stream().map(Model::name).toList(),
+                "attributeMode", mode.name())));
+    }
+
+    @Benchmark
+    public Map<String, Model> find_parents() {
+        return Utils.findParents(yamlContents, mode);
+    }
+
+    @Benchmark
+    public List<Model> resolve_models() {
+        return resolveModels();
+    }
+
+    @Benchmark
+    public void generate(Blackhole blackhole) {
+        for (Model model : models) {
+            blackhole.consume(sourceGenerator.generate(model));
+        }
+    }
+
+    private List<Model> resolveModels() {
+        List<Model> resolved = new ArrayList<>(yamlContents.size());
+        for (Map<String, Object> yamlContent : yamlContents) {
+            resolved.add(new Model(yamlContent, parents, mode).resolve());
+        }
+        return resolved;
+    }
+
+    /**
+     * @return the schemata with scale - 1 copies of each schema that is not extended
+     */
+    @SuppressWarnings("unchecked")
+    static List<Map<String, Object>> scale(List<Map<String, Object>> schemata, int scale) {
+        Set<String> extended = new HashSet<>();
+        for (Map<String, Object> schema : schemata) {
+            Map<String, Object> description = (Map<String, Object>) schema.values().iterator().next();
+            extended.addAll((List<String>) description.getOrDefault("extends", List.of()));
+        }
+        List<Map<String, Object>> scaled = new ArrayList<>(schemata);
+        for (int copy = 1; copy < scale; copy++) {
+            for (Map<String, Object> schema : schemata) {
+                String name = schema.keySet().iterator().next();
+                if (!extended.contains(name)) {
+                    Map<String, Object> schemaCopy = new LinkedHashMap<>();
+                    schemaCopy.put(name + "_" + copy, schema.get(name));
+                    scaled.add(schemaCopy);
+                }
+            }
+        }
+        return scaled;
+    }
+}
@@ -0,0 +1,255 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Parameter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.icij.ftm.Utils.propertiesFromMap;
+
+/**
+ * Reading and writing NDJSON FtM entities with the generated {@link JsonCodec} compared to the databind path:
+ * {@link ObjectMapper} to {@code Map<String, Object>} then a copy into the generated class.
+ * <p>
+ * The models and their codecs are generated and compiled in memory from the yaml files packaged in
+ * {@code schema/}. The copy of the databind path uses the constructor and the fields of the generated class
+ * resolved once at setup, as a hand-written copy would do.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+    private static final String SCHEMA = "LegalEntity";
+
+    @Param({"1000"})
+    public int entities;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final ObjectMapper objectMapper = new ObjectMapper(jsonFactory);
+    private JsonCodec<Object> codec;
+    private EntityResolver resolver;
+    private MethodHandle constructor;
+    private Parameter[] parameters;
+    private MethodHandle[] getters;
+    private boolean[] references;
+    private byte[] ndjson;
+    private List<FtmEntity<Object>> decoded;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        ClassLoader classLoader = compileModels();
+        codec = (JsonCodec<Object>) classLoader.loadClass("org.icij.ftm." + SCHEMA + "JsonCodec").getField("INSTANCE").get(null);
+        Class<?> modelClass = classLoader.loadClass("org.icij.ftm." + SCHEMA);
+        Constructor<?> modelConstructor = modelClass.getConstructors()[0];
+        parameters = modelConstructor.getParameters();
+        constructor = MethodHandles.lookup().unreflectConstructor(modelConstructor).asSpreader(Object[].class, parameters.length);
+        getters = new MethodHandle[parameters.length];
+        references = new boolean[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Class<?> type = parameters[i].getType();
+            references[i] = type != String.class && type != int.class && !FtmValue.class.isAssignableFrom(type);
+            Field field = findField(modelClass, parameters[i].getName());
+            field.setAccessible(true);
+            getters[i] = MethodHandles.lookup().unreflectGetter(field);
+        }
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        for (int i = 0; i < entities; i++) {
+            json.write(entity(i).getBytes());
+            json.write('\n');
+        }
+        ndjson = json.toByteArray();
+        // a first pass without references to resolve them in the second one
+        resolver = EntityResolver.of(readCodec());
+        decoded = readCodec();
+    }
+
+    @Benchmark
+    public List<FtmEntity<Object>> read_codec() throws IOException {
+        return readCodec();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<FtmEntity<Object>> read_databind() throws Throwable {
+        List<FtmEntity<Object>> entities = new ArrayList<>(this.entities);
+        try (MappingIterator<Map<String, Object>> maps = objectMapper.readerForMapOf(Object.class).readValues(ndjson)) {
+            while (maps.hasNext()) {
+                Map<String, Object> map = maps.next();
+                Map<String, Object> properties = (Map<String, Object>) map.get("properties");
+                Object[] arguments = new Object[parameters.length];
+                for (int i = 0; i < parameters.length; i++) {
+                    arguments[i] = convert(parameters[i].getType(), properties.get(parameterName(i)));
+                }
+                entities.add(new FtmEntity<>((String) map.get("id"), (String) map.get("schema"), constructor.invoke(arguments)));
+            }
+        }
+        return entities;
+    }
+
+    @Benchmark
+    public int write_codec() throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream(ndjson.length);
+        try (JsonGenerator generator = jsonFactory.createGenerator(json)) {
+            for (FtmEntity<Object> entity : decoded) {
+                FtmJson.write(entity, codec, generator, resolver);
+            }
+        }
+        return json.size();
+    }
+
+    @Benchmark
+    public int write_databind() throws Throwable {
+        ByteArrayOutputStream json = new ByteArrayOutputStream(ndjson.length);
+        try (JsonGenerator generator = jsonFactory.createGenerator(json)) {
+            for (FtmEntity<Object> entity : decoded) {
+                Map<String, Object> properties = new LinkedHashMap<>();
+                for (int i = 0; i < getters.length; i++) {
+                    Object value = getters[i].invoke(entity.value());
+                    String string = value == null || Integer.valueOf(0).equals(value) ? null : references[i] ? resolver.idOf(value) : value.toString();
+                    if (string != null && !string.isEmpty()) {
+                        properties.put(parameterName(i), List.of(string));
+                    }
+                }
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("id", entity.id());
+                map.put("schema", entity.schema());
+                map.put("properties", properties);
+                objectMapper.writeValue(generator, map);
+            }
+        }
+        return json.size();
+    }
+
+    private List<FtmEntity<Object>> readCodec() throws IOException {
+        List<FtmEntity<Object>> entities = new ArrayList<>(this.entities);
+        try (JsonParser parser = jsonFactory.createParser(ndjson)) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                entities.add(FtmJson.read(parser, codec, resolver == null ? EntityResolver.NONE : resolver));
+            }
+        }
+        return entities;
+    }
+
+    private Object convert(Class<?> type, Object values) {
+        Object value = values instanceof List<?> list ? (list.isEmpty() ? null : list.get(0)) : values;
+        if (type == int.class) {
+            try {
+                return value == null ? 0 : Integer.parseInt(value.toString());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        } else if (value == null || type == String.class) {
+            return value;
+        } else if (type == UrlValue.class) {
+            return UrlValue.of(value.toString());
+        } else if (type == EmailValue.class) {
+            return EmailValue.of(value.toString());
+        }
+        Object resolved = resolver.resolve(value.toString());
+        return type.isInstance(resolved) ? resolved : null;
+    }
+
+    // the parameter names are the sanitized property names
+    private String parameterName(int i) {
+        String name = parameters[i].getName();
+        return "caze".equals(name) ? "case" : name;
+    }
+
+    private static Field findField(Class<?> modelClass, String name) throws NoSuchFieldException {
+        for (Class<?> clazz = modelClass; clazz != null; clazz = clazz.getSuperclass()) {
+            try {
+                return clazz.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                // in a super class
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+
+    static String entity(int i) {
+        return String.format("""
+                {"id": "le-%d", "schema": "%s", "datasets": ["benchmark"], "properties": {\
+                "name": ["Legal entity %d"], "country": ["fr"], "alias": ["LE %d", "Entity %d"], \
+                "summary": ["A legal entity generated for the JSON codec benchmark"], "sourceUrl": ["https://example.org/%d"], \
+                "email": ["contact%d@example.org"], "phone": ["+33 1 23 45 67 89"], "website": ["https://le%d.example.org"], \
+                "incorporationDate": ["2001-02-03"], "registrationNumber": ["RN%08d"], "jurisdiction": ["fr"], \
+                "status": ["active"], "parent": ["le-%d"]}}""", i, SCHEMA, i, i, i, i, i, i, i, i / 2);
+    }
+
+    /**
+     * @return the class loader of the FULL models compiled in memory with their JSON and binary codecs
+     */
+    static ClassLoader compileModels() throws Exception {
+        return compileModels(Model.Mode.FULL);
+    }
+
+    /**
+     * @return the class loader of the models compiled in memory with their JSON and binary codecs and their accessors
+     */
+    static ClassLoader compileModels(Model.Mode mode) throws Exception {
+        File[] yamlFiles = schemaFiles();
+        ModelCatalog catalog = ModelCatalog.load(yamlFiles, mode, 1);
+        Properties properties = propertiesFromMap(Map.of(
+                "parents", catalog.parents(),
+                "models", Arrays.stream(yamlFiles).map(File::getName).map(s -> s.substring(0, s.indexOf("."))).toList(),
+                "attributeMode", mode.name(),
+                "interfaces", false,
+                "jsonCodecs", true,
+                "binaryCodecs", true,
+                "accessors", true));
+        SourceGenerator sourceGenerator = new SourceGenerator(properties);
+        List<SourceCompiler.Source> sources = new ArrayList<>();
+        for (File yamlFile : yamlFiles) {
+            sourceGenerator.generateFiles(catalog.model(yamlFile)).forEach((className, code) ->
+                    sources.add(new SourceCompiler.Source("org.icij.ftm." + className, code, yamlFile.toPath())));
+        }
+        SourceCompiler.Result result = new SourceCompiler().compile(sources);
+        if (!result.success()) {
+            throw new IllegalStateException("cannot compile generated sources:\n" + String.join("\n", result.diagnostics()));
+        }
+        return result.classLoader(JsonCodecBenchmark.class.getClassLoader());
+    }
+
+    /**
+     * @return the yaml files packaged in {@code schema/}
+     */
+    static File[] schemaFiles() throws IOException {
+        return SchemaSource.yamlFiles(new SchemaSource.ClasspathSource("schema").fetch()).stream().map(Path::toFile).toArray(File[]::new);
+    }
+}
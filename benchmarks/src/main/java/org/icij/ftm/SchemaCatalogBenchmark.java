@@ -0,0 +1,75 @@
+package org.icij.ftm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start time to the first metadata query: the {@link SchemaCatalog} packaged in the ftm.java jar compared to
+ * parsing the yaml files with snakeyaml.
+ * <p>
+ * Each fork measures a single call, so the classes are loaded and the code is interpreted as at the start of an
+ * application. The catalog of the jar is built from the schema of the ftm.java build ({@code --schemaSource}),
+ * the yaml files are the test models packaged in {@code schema/}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class SchemaCatalogBenchmark {
+    private List<File> yamlFiles;
+
+    @Setup
+    public void setUp() throws IOException {
+        yamlFiles = SchemaSource.yamlFiles(new SchemaSource.ClasspathSource("schema").fetch()).stream().map(Path::toFile).toList();
+    }
+
+    @Benchmark
+    public String catalog_first_query() {
+        return SchemaCatalog.get().schema("Company").property("parent").range();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public String yaml_first_query() throws IOException {
+        Map<String, Map<String, Object>> schemata = new HashMap<>();
+        for (File yamlFile : yamlFiles) {
+            Utils.getYamlContent(yamlFile).forEach((name, schema) -> schemata.put(name, (Map<String, Object>) schema));
+        }
+        return (String) property(schemata, "Company", "parent").get("range");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> property(Map<String, Map<String, Object>> schemata, String schemaName, String propertyName) {
+        Map<String, Object> schema = schemata.get(schemaName);
+        Map<String, Object> properties = (Map<String, Object>) schema.getOrDefault("properties", Map.of());
+        if (properties.containsKey(propertyName)) {
+            return (Map<String, Object>) properties.get(propertyName);
+        }
+        for (String parent : (List<String>) schema.getOrDefault("extends", List.of())) {
+            Map<String, Object> property = property(schemata, parent, propertyName);
+            if (property != null) {
+                return property;
+            }
+        }
+        return null;
+    }
+}
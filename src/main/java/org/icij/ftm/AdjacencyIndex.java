@@ -0,0 +1,329 @@
+package org.icij.ftm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * Graph of the references between entities in compressed sparse row (CSR) format, built from the
+ * {@link EdgeExtractor edge extractors} generated with {@code --edges true}.
+ * <p>
+ * The entities and the entities they reference are nodes with dense int ids, in order of appearance. The edges of
+ * a node are a range of two int arrays (neighbor node and label), indexed by an offsets array, for the outgoing
+ * edges (from an entity to the entities it references) and the incoming edges. A traversal reads these arrays
+ * without creating objects per edge.
+ * </p>
+ */
+public final class AdjacencyIndex {
+    /**
+     * Minimum size of a traversal frontier to expand it in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 10;
+
+    public enum Direction {OUT, IN, BOTH}
+
+    private final List<String> labels;
+    private final Map<String, Integer> nodes;
+    private final String[] ids;
+    private final Csr out;
+    private final Csr in;
+
+    private AdjacencyIndex(List<String> labels, Map<String, Integer> nodes, String[] ids, Csr out, Csr in) {
+        this.labels = labels;
+        this.nodes = nodes;
+        this.ids = ids;
+        this.out = out;
+        this.in = in;
+    }
+
+    /**
+     * @return the number of nodes
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return the number of edges
+     */
+    public int edgeCount() {
+        return out.neighbors.length;
+    }
+
+    /**
+     * @return the node of the entity id, or -1 if the id is not in the index
+     */
+    public int node(String id) {
+        return nodes.getOrDefault(id, -1);
+    }
+
+    public String id(int node) {
+        return ids[node];
+    }
+
+    /**
+     * @return the edge labels, <code>Schema:property</code>, by label id
+     */
+    public List<String> labels() {
+        return labels;
+    }
+
+    /**
+     * @return the id of the label, or -1 if there is no such edge label
+     */
+    public int label(String label) {
+        return labels.indexOf(label);
+    }
+
+    public int degree(int node, Direction direction) {
+        return switch (direction) {
+            case OUT -> out.degree(node);
+            case IN -> in.degree(node);
+            case BOTH -> out.degree(node) + in.degree(node);
+        };
+    }
+
+    /**
+     * Calls the visitor with each edge of the node, the outgoing edges first.
+     */
+    public void forEachEdge(int node, Direction direction, EdgeVisitor visitor) {
+        if (direction != Direction.IN) {
+            out.forEachEdge(node, visitor);
+        }
+        if (direction != Direction.OUT) {
+            in.forEachEdge(node, visitor);
+        }
+    }
+
+    /**
+     * @param labels the labels of the edges to follow, all if empty
+     * @return the neighbor of each edge of the node, with duplicates if several edges link the same nodes
+     */
+    public int[] neighbors(int node, Direction direction, int... labels) {
+        boolean[] followed = followed(labels);
+        IntStream.Builder neighbors = IntStream.builder();
+        forEachEdge(node, direction, (label, neighbor) -> {
+            if (followed == null || followed[label]) {
+                neighbors.add(neighbor);
+            }
+        });
+        return neighbors.build().toArray();
+    }
+
+    /**
+     * Breadth-first traversal from the seed nodes, each hop expanding the frontier in parallel when it is large.
+     * @param labels the labels of the edges to follow, all if empty
+     * @return the sorted nodes at a distance from 1 to hops of the seeds, without the seeds
+     */
+    public int[] neighborhood(int[] seeds, int hops, Direction direction, int... labels) {
+        boolean[] followed = followed(labels);
+        AtomicLongArray visited = new AtomicLongArray((size() + 63) >>> 6);
+        for (int seed : seeds) {
+            mark(visited, seed);
+        }
+        IntStream.Builder reached = IntStream.builder();
+        int[] frontier = seeds;
+        for (int hop = 0; hop < hops && frontier.length > 0; hop++) {
+            IntStream nodes = IntStream.of(frontier);
+            frontier = (frontier.length >= PARALLEL_THRESHOLD ? nodes.parallel() : nodes).mapMulti((node, consumer) -> {
+                if (direction != Direction.IN) {
+                    out.expand(node, followed, visited, consumer);
+                }
+                if (direction != Direction.OUT) {
+                    in.expand(node, followed, visited, consumer);
+                }
+            }).toArray();
+            for (int node : frontier) {
+                reached.add(node);
+            }
+        }
+        int[] neighborhood = reached.build().toArray();
+        Arrays.parallelSort(neighborhood);
+        return neighborhood;
+    }
+
+    public int[] neighborhood(int seed, int hops, Direction direction, int... labels) {
+        return neighborhood(new int[] {seed}, hops, direction, labels);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a label is not a label id
+     */
+    private boolean[] followed(int[] labels) {
+        if (labels.length == 0) {
+            return null;
+        }
+        boolean[] followed = new boolean[this.labels.size()];
+        for (int label : labels) {
+            if (label < 0 || label >= followed.length) {
+                throw new IllegalArgumentException(format("unknown label %d, the index has %d labels", label, followed.length));
+            }
+            followed[label] = true;
+        }
+        return followed;
+    }
+
+    /**
+     * @return true if the node was not visited yet
+     */
+    private static boolean mark(AtomicLongArray visited, int node) {
+        int word = node >>> 6;
+        long bit = 1L << node;
+        long current;
+        do {
+            current = visited.get(word);
+            if ((current & bit) != 0) {
+                return false;
+            }
+        } while (!visited.compareAndSet(word, current, current | bit));
+        return true;
+    }
+
+    public interface EdgeVisitor {
+        void visit(int label, int neighbor);
+    }
+
+    /**
+     * Edges of one direction: the edges of node n are from offsets[n] to offsets[n + 1] in neighbors and labels.
+     */
+    private record Csr(int[] offsets, int[] neighbors, int[] labels) {
+        static Csr of(int nodes, int edges, int[] from, int[] to, int[] edgeLabels) {
+            int[] offsets = new int[nodes + 1];
+            for (int i = 0; i < edges; i++) {
+                offsets[from[i] + 1]++;
+            }
+            for (int n = 0; n < nodes; n++) {
+                offsets[n + 1] += offsets[n];
+            }
+            int[] next = Arrays.copyOf(offsets, nodes);
+            int[] neighbors = new int[edges];
+            int[] labels = new int[edges];
+            for (int i = 0; i < edges; i++) {
+                int edge = next[from[i]]++;
+                neighbors[edge] = to[i];
+                labels[edge] = edgeLabels[i];
+            }
+            return new Csr(offsets, neighbors, labels);
+        }
+
+        int degree(int node) {
+            return offsets[node + 1] - offsets[node];
+        }
+
+        void forEachEdge(int node, EdgeVisitor visitor) {
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                visitor.visit(labels[edge], neighbors[edge]);
+            }
+        }
+
+        void expand(int node, boolean[] followed, AtomicLongArray visited, IntConsumer consumer) {
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                if ((followed == null || followed[labels[edge]]) && mark(visited, neighbors[edge])) {
+                    consumer.accept(neighbors[edge]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the edges of the entities, then builds the index. It is not thread safe.
+     */
+    public static final class Builder {
+        private final Map<String, EdgeExtractor<?>> extractors = new HashMap<>();
+        private final Map<String, int[]> labelIds = new HashMap<>();
+        private final List<String> labels = new ArrayList<>();
+        private final Map<String, Integer> nodes = new HashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        private final EntityResolver resolver;
+        private final EdgeExtractor.Visitor visitor = this::addEdge;
+        private int[] from = new int[1024];
+        private int[] to = new int[1024];
+        private int[] edgeLabels = new int[1024];
+        private int edges;
+        private int source;
+        private int[] sourceLabels;
+
+        /**
+         * @param resolver to get the ids of the referenced entities that are instances of the generated models
+         */
+        public Builder(Collection<? extends EdgeExtractor<?>> extractors, EntityResolver resolver) {
+            this.resolver = resolver;
+            for (EdgeExtractor<?> extractor : extractors) {
+                this.extractors.put(extractor.schema(), extractor);
+                labelIds.put(extractor.schema(), extractor.labels().stream().mapToInt(this::labelId).toArray());
+            }
+        }
+
+        /**
+         * Adds the entity as a node, with an edge to each entity it references. The references without id are skipped.
+         * @throws IllegalArgumentException if the entity has no id or there is no edge extractor for its schema
+         */
+        @SuppressWarnings("unchecked")
+        public <T> Builder add(FtmEntity<T> entity) {
+            EdgeExtractor<T> extractor = (EdgeExtractor<T>) extractors.get(entity.schema());
+            if (extractor == null) {
+                throw new IllegalArgumentException(format("no edge extractor for schema %s", entity.schema()));
+            }
+            if (entity.id() == null) {
+                throw new IllegalArgumentException("cannot index an entity without id");
+            }
+            source = node(entity.id());
+            sourceLabels = labelIds.get(entity.schema());
+            extractor.forEachEdge(entity.value(), resolver, visitor);
+            return this;
+        }
+
+        public Builder addAll(Stream<? extends FtmEntity<?>> entities) {
+            entities.sequential().forEach(this::add);
+            return this;
+        }
+
+        public AdjacencyIndex build() {
+            int size = ids.size();
+            return new AdjacencyIndex(List.copyOf(labels), new HashMap<>(nodes), ids.toArray(String[]::new),
+                    Csr.of(size, edges, from, to, edgeLabels), Csr.of(size, edges, to, from, edgeLabels));
+        }
+
+        private void addEdge(int label, String target) {
+            if (target == null) {
+                return;
+            }
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+                edgeLabels = Arrays.copyOf(edgeLabels, edges * 2);
+            }
+            from[edges] = source;
+            to[edges] = node(target);
+            edgeLabels[edges] = sourceLabels[label];
+            edges++;
+        }
+
+        private int node(String id) {
+            Integer node = nodes.putIfAbsent(id, ids.size());
+            if (node == null) {
+                ids.add(id);
+                return ids.size() - 1;
+            }
+            return node;
+        }
+
+        private int labelId(String label) {
+            int id = labels.indexOf(label);
+            if (id < 0) {
+                labels.add(label);
+                return labels.size() - 1;
+            }
+            return id;
+        }
+    }
+}
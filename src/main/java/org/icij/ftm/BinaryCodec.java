@@ -0,0 +1,39 @@
+package org.icij.ftm;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Binary codec of the properties of an FtM schema, generated by {@link BinaryCodecGenerator}.
+ * <p>
+ * Properties are identified by their ordinal: their index in {@link #properties()}, which is the order
+ * of the generated constructor. See {@link BinaryEntityWriter} for the file format.
+ * </p>
+ * @param <T> the generated record or class of the schema
+ */
+public interface BinaryCodec<T> {
+    /**
+     * @return the FtM schema name
+     */
+    String schema();
+
+    /**
+     * @return the property names by ordinal
+     */
+    List<String> properties();
+
+    /**
+     * @return the property types by ordinal
+     */
+    List<ValueType> types();
+
+    /**
+     * Writes the non-empty properties of the instance into the record.
+     */
+    void write(T instance, BinaryEntityWriter.Record record, EntityResolver resolver) throws IOException;
+
+    /**
+     * Builds the instance from all the properties of the entity.
+     */
+    T read(BinaryEntity entity, EntityResolver resolver);
+}
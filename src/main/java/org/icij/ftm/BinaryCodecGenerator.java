@@ -0,0 +1,119 @@
+package org.icij.ftm;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.lang.String.format;
+
+/**
+ * Generates the {@link BinaryCodec} of an instantiable model (record or non abstract class).
+ * <p>
+ * Property ordinals are the indexes of the constructor attributes, and each property is written to a
+ * {@link BinaryEntityWriter.Record} or read from a {@link BinaryEntity} with the method of its java type.
+ * </p>
+ */
+class BinaryCodecGenerator {
+    static final String SUFFIX = "BinaryCodec";
+    private final SourceGenerator sourceGenerator;
+
+    BinaryCodecGenerator(SourceGenerator sourceGenerator) {
+        this.sourceGenerator = sourceGenerator;
+    }
+
+    String generate(Model model) {
+        if (!sourceGenerator.isInstantiable(model)) {
+            throw new IllegalArgumentException(format("cannot generate a binary codec for %s: it is not instantiable", model.name()));
+        }
+        List<String> attributes = sourceGenerator.constructorAttributes(model);
+        String properties = attributes.stream().map(a -> format("\"%s\"", a)).collect(Collectors.joining(", "));
+        String types = attributes.stream().map(a -> "ValueType." + type(model, a)).collect(Collectors.joining(", "));
+        String writes = IntStream.range(0, attributes.size())
+                .mapToObj(i -> writeStatement(model, attributes.get(i), i))
+                .collect(Collectors.joining("\n        "));
+        String reads = IntStream.range(0, attributes.size())
+                .mapToObj(i -> readExpression(model, attributes.get(i), i))
+                .collect(Collectors.joining(",\n                "));
+
+        return sourceGenerator.packageDeclaration() + format("""
+                import java.util.List;
+
+                /**
+                 * Automatically generated binary codec for FtM model. Do not update this class.
+                 * @see <a href="https://github.com/alephdata/followthemoney/blob/main/followthemoney/schema/%s.yaml">%s</a>.
+                 */
+                public final class %s%s implements BinaryCodec<%s> {
+                    public static final %s%s INSTANCE = new %s%s();
+                    private static final List<String> PROPERTIES = List.of(%s);
+                    private static final List<ValueType> TYPES = List.of(%s);
+
+                    @Override
+                    public String schema() {
+                        return "%s";
+                    }
+
+                    @Override
+                    public List<String> properties() {
+                        return PROPERTIES;
+                    }
+
+                    @Override
+                    public List<ValueType> types() {
+                        return TYPES;
+                    }
+
+                    @Override
+                    public void write(%s instance, BinaryEntityWriter.Record record, EntityResolver resolver) {
+                        %s
+                    }
+
+                    @Override
+                    public %s read(BinaryEntity entity, EntityResolver resolver) {
+                        return new %s(
+                                %s);
+                    }
+                }
+                """, model.name(), model.name(),
+                model.name(), SUFFIX, model.name(),
+                model.name(), SUFFIX, model.name(), SUFFIX,
+                properties, types,
+                model.name(),
+                model.name(), writes,
+                model.name(), model.name(), reads);
+    }
+
+    private ValueType type(Model model, String attribute) {
+        return sourceGenerator.valueType(model.type(attribute));
+    }
+
+    private String readExpression(Model model, String attribute, int ordinal) {
+        ValueType type = type(model, attribute);
+        return switch (type) {
+            case STRING -> format("entity.string(%d)", ordinal);
+            case INT -> format("entity.integer(%d)", ordinal);
+            case LONG -> format("entity.longValue(%d)", ordinal);
+            case DOUBLE -> format("entity.doubleValue(%d)", ordinal);
+            case DECIMAL -> format("entity.decimal(%d)", ordinal);
+            case DATE -> format("entity.date(%d)", ordinal);
+            case URL, EMAIL, IP, IBAN -> format("%s.of(entity.string(%d))", sourceGenerator.javaType(model.type(attribute)), ordinal);
+            case COUNTRY, LANGUAGE, TOPIC -> format("FtmCode.of(ValueType.%s, entity.string(%d))", type, ordinal);
+            case ENTITY -> format("entity.reference(%d, resolver) instanceof %s resolved%d ? resolved%d : null",
+                    ordinal, sourceGenerator.javaType(model.type(attribute)), ordinal, ordinal);
+        };
+    }
+
+    private String writeStatement(Model model, String attribute, int ordinal) {
+        String value = sourceGenerator.accessor(model, "instance", attribute);
+        return switch (type(model, attribute)) {
+            case STRING -> format("record.string(%d, %s);", ordinal, value);
+            case INT -> format("record.integer(%d, %s);", ordinal, value);
+            case LONG -> format("record.longValue(%d, %s);", ordinal, value);
+            case DOUBLE -> format("record.doubleValue(%d, %s);", ordinal, value);
+            case DECIMAL -> format("record.decimal(%d, %s);", ordinal, value);
+            case DATE -> format("record.date(%d, %s);", ordinal, value);
+            case URL, EMAIL, IP, IBAN -> format("record.value(%d, %s);", ordinal, value);
+            case COUNTRY, LANGUAGE, TOPIC -> format("record.code(%d, %s);", ordinal, value);
+            case ENTITY -> format("record.reference(%d, %s, resolver);", ordinal, value);
+        };
+    }
+}
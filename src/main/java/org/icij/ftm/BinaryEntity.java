@@ -0,0 +1,235 @@
+package org.icij.ftm;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static java.lang.String.format;
+
+/**
+ * Entity of a binary file read by {@link BinaryEntityReader} or of an {@link EntityStore}: a view on the mapped record bytes.
+ * <p>
+ * The schema is read when the view is created, the id and the properties are decoded when accessed.
+ * Properties are accessed by their ordinal in {@link BinaryCodec#properties()}, or by name.
+ * </p>
+ */
+public final class BinaryEntity {
+    private final Source source;
+    private final ByteBuffer buffer;
+    private final int schemaIndex;
+    private final int idOffset;
+    private final int end;
+    private int[] positions;
+
+    BinaryEntity(Source source, ByteBuffer buffer, int offset, int length) {
+        this.source = source;
+        this.buffer = buffer;
+        long schema = readVarint(buffer, offset);
+        this.schemaIndex = (int) schema;
+        this.idOffset = offset + varintLength(schema);
+        this.end = offset + length;
+    }
+
+    public String schema() {
+        return source.schema(schemaIndex);
+    }
+
+    public String id() {
+        String id = stringAt(idOffset);
+        return id.isEmpty() ? null : id;
+    }
+
+    /**
+     * @return the codec of the schema, or null if the reader has no codec for it
+     */
+    public BinaryCodec<?> codec() {
+        return source.codec(schemaIndex);
+    }
+
+    /**
+     * @return the entity with the generated record or class built from all its properties
+     * @throws IllegalStateException if the reader has no codec for the schema
+     */
+    public FtmEntity<?> toEntity() {
+        return new FtmEntity<>(id(), schema(), checkedCodec().read(this, source.resolver()));
+    }
+
+    public boolean has(int ordinal) {
+        return position(ordinal) >= 0;
+    }
+
+    public boolean has(String property) {
+        int ordinal = checkedCodec().properties().indexOf(property);
+        return ordinal >= 0 && has(ordinal);
+    }
+
+    /**
+     * @return the decoded value of the property: a String, a boxed number, a BigDecimal, a packed {@link FtmDate} as a Long,
+     * a {@link FtmValue}, a {@link FtmCode} or the resolved entity. Null if the property is absent or unknown.
+     */
+    public Object get(String property) {
+        BinaryCodec<?> codec = checkedCodec();
+        int ordinal = codec.properties().indexOf(property);
+        if (ordinal < 0 || !has(ordinal)) {
+            return null;
+        }
+        ValueType type = codec.types().get(ordinal);
+        return switch (type) {
+            case STRING -> string(ordinal);
+            case INT -> integer(ordinal);
+            case LONG -> longValue(ordinal);
+            case DOUBLE -> doubleValue(ordinal);
+            case DECIMAL -> decimal(ordinal);
+            case DATE -> date(ordinal);
+            case COUNTRY, LANGUAGE, TOPIC -> FtmCode.of(type, string(ordinal));
+            case URL -> UrlValue.of(string(ordinal));
+            case EMAIL -> EmailValue.of(string(ordinal));
+            case IP -> IpValue.of(string(ordinal));
+            case IBAN -> IbanValue.of(string(ordinal));
+            case ENTITY -> reference(ordinal, source.resolver());
+        };
+    }
+
+    public String string(int ordinal) {
+        int position = position(ordinal);
+        return position < 0 ? null : stringAt(position);
+    }
+
+    public int integer(int ordinal) {
+        return (int) longValue(ordinal);
+    }
+
+    public long longValue(int ordinal) {
+        int position = numberPosition(ordinal);
+        if (position < 0) {
+            return 0;
+        }
+        long zigzag = readVarint(buffer, position);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    public double doubleValue(int ordinal) {
+        int position = numberPosition(ordinal);
+        return position < 0 ? 0 : Double.longBitsToDouble(buffer.getLong(position));
+    }
+
+    public BigDecimal decimal(int ordinal) {
+        String decimal = string(ordinal);
+        return decimal == null ? null : new BigDecimal(decimal);
+    }
+
+    /**
+     * @return the date packed by {@link FtmDate} or 0 if absent
+     */
+    public long date(int ordinal) {
+        int position = numberPosition(ordinal);
+        return position < 0 ? 0 : readVarint(buffer, position);
+    }
+
+    /**
+     * @return the entity referenced by the property or null if absent or unknown
+     */
+    public Object reference(int ordinal, EntityResolver resolver) {
+        String id = string(ordinal);
+        return id == null ? null : resolver.resolve(id);
+    }
+
+    @Override
+    public String toString() {
+        return format("%s[%s]", schema(), id());
+    }
+
+    private BinaryCodec<?> checkedCodec() {
+        BinaryCodec<?> codec = codec();
+        if (codec == null) {
+            throw new IllegalStateException(format("no binary codec for schema %s", schema()));
+        }
+        return codec;
+    }
+
+    /**
+     * Positions of the present values, computed on the first access by skipping the length-prefixed values.
+     * @return the position of the value or -1 if absent
+     */
+    private int position(int ordinal) {
+        if (positions == null) {
+            int properties = checkedCodec().properties().size();
+            int[] valuePositions = new int[properties];
+            Arrays.fill(valuePositions, -1);
+            int bitmap = skip(idOffset);
+            int position = bitmap + (properties + 7) / 8;
+            for (int i = 0; i < properties; i++) {
+                if ((buffer.get(bitmap + (i >> 3)) & (1 << (i & 7))) != 0) {
+                    valuePositions[i] = position;
+                    position = skip(position);
+                }
+            }
+            if (position != end) {
+                throw new IllegalStateException(format("invalid record for %s: %d bytes read, expected %d", schema(), position, end));
+            }
+            positions = valuePositions;
+        }
+        return ordinal < positions.length ? positions[ordinal] : -1;
+    }
+
+    private int numberPosition(int ordinal) {
+        int position = position(ordinal);
+        return position < 0 ? -1 : position + varintLength(readVarint(buffer, position));
+    }
+
+    private int skip(int position) {
+        long header = readVarint(buffer, position);
+        return position + varintLength(header) + ((header & 1) == 1 ? 0 : (int) (header >>> 1));
+    }
+
+    private String stringAt(int position) {
+        long header = readVarint(buffer, position);
+        if ((header & 1) == 1) {
+            return source.dictionaryString((int) (header >>> 1));
+        }
+        return utf8(buffer, position + varintLength(header), (int) (header >>> 1));
+    }
+
+    static String utf8(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static long readVarint(ByteBuffer buffer, int offset) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get(offset++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static int varintLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Schemata, codecs and string dictionary of the records, shared by their entities.
+     */
+    interface Source {
+        String schema(int index);
+
+        /**
+         * @return the codec of the schema, or null if there is none
+         */
+        BinaryCodec<?> codec(int index);
+
+        String dictionaryString(int index);
+
+        EntityResolver resolver();
+    }
+}
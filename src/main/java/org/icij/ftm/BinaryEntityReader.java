@@ -0,0 +1,202 @@
+package org.icij.ftm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.lang.String.format;
+
+/**
+ * Reads the entities of a file written by {@link BinaryEntityWriter}.
+ * <p>
+ * The file is memory-mapped by regions and the entities are {@link BinaryEntity} views on the mapped bytes:
+ * nothing is copied or decoded until a property is accessed. Dictionary strings are decoded once, on first use.
+ * </p>
+ */
+public class BinaryEntityReader implements Closeable {
+    static final long DEFAULT_REGION_SIZE = 1 << 30;
+    private static final int FOOTER_LENGTH = 3 * Long.BYTES + 4;
+
+    private final FileChannel channel;
+    private final long regionSize;
+    private final long recordsEnd;
+    private final long count;
+    private final String[] schemata;
+    private final BinaryCodec<?>[] codecs;
+    private final ByteBuffer dictionary;
+    private final int[] dictionaryOffsets;
+    private final String[] dictionaryStrings;
+    private final EntityResolver resolver;
+    private final BinaryEntity.Source source = new BinaryEntity.Source() {
+        @Override
+        public String schema(int index) {
+            return schemata[index];
+        }
+
+        @Override
+        public BinaryCodec<?> codec(int index) {
+            return codecs[index];
+        }
+
+        @Override
+        public String dictionaryString(int index) {
+            String string = dictionaryStrings[index];
+            if (string == null) {
+                // a race only decodes the same string twice
+                string = decode(dictionary, dictionaryOffsets[index]);
+                dictionaryStrings[index] = string;
+            }
+            return string;
+        }
+
+        @Override
+        public EntityResolver resolver() {
+            return resolver;
+        }
+    };
+
+    public BinaryEntityReader(Path file, Collection<? extends BinaryCodec<?>> codecs, EntityResolver resolver) throws IOException {
+        this(file, codecs, resolver, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * @param file binary entities file
+     * @param codecs codecs of the schemata to decode. Entities of other schemata only have an id and a schema.
+     * @param resolver resolver of the entity-range properties
+     * @param regionSize size of the mapped regions. A record cannot be larger than a region.
+     * @throws IOException if the file is not a binary entities file
+     */
+    BinaryEntityReader(Path file, Collection<? extends BinaryCodec<?>> codecs, EntityResolver resolver, long regionSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.regionSize = regionSize;
+        this.resolver = resolver;
+        try {
+            long size = channel.size();
+            if (size < BinaryEntityWriter.MAGIC.length + 1 + FOOTER_LENGTH) {
+                throw new IOException(format("%s is not a binary entities file", file));
+            }
+            ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, size - FOOTER_LENGTH, FOOTER_LENGTH);
+            byte[] magic = new byte[BinaryEntityWriter.MAGIC.length];
+            footer.get(3 * Long.BYTES, magic);
+            if (!Arrays.equals(magic, BinaryEntityWriter.MAGIC)) {
+                throw new IOException(format("%s is not a binary entities file", file));
+            }
+            recordsEnd = footer.getLong(0);
+            long dictionaryOffset = footer.getLong(Long.BYTES);
+            count = footer.getLong(2 * Long.BYTES);
+
+            ByteBuffer schemataBuffer = channel.map(FileChannel.MapMode.READ_ONLY, recordsEnd, dictionaryOffset - recordsEnd);
+            int[] schemataOffsets = offsets(schemataBuffer);
+            schemata = new String[schemataOffsets.length];
+            this.codecs = new BinaryCodec<?>[schemataOffsets.length];
+            Map<String, BinaryCodec<?>> codecsBySchema = new HashMap<>();
+            codecs.forEach(codec -> codecsBySchema.put(codec.schema(), codec));
+            for (int i = 0; i < schemata.length; i++) {
+                schemata[i] = decode(schemataBuffer, schemataOffsets[i]);
+                this.codecs[i] = codecsBySchema.get(schemata[i]);
+            }
+
+            dictionary = channel.map(FileChannel.MapMode.READ_ONLY, dictionaryOffset, size - FOOTER_LENGTH - dictionaryOffset);
+            dictionaryOffsets = offsets(dictionary);
+            dictionaryStrings = new String[dictionaryOffsets.length];
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of entities of the file
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return an iterator on the entities, in the written order
+     */
+    public Iterator<BinaryEntity> iterator() {
+        return new Iterator<>() {
+            private long next = BinaryEntityWriter.MAGIC.length + 1;
+            private ByteBuffer region;
+            private long regionStart;
+
+            @Override
+            public boolean hasNext() {
+                return next < recordsEnd;
+            }
+
+            @Override
+            public BinaryEntity next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long start = next;
+                try {
+                    map(start, Math.min(start + 10, recordsEnd));
+                    long length = BinaryEntity.readVarint(region, (int) (start - regionStart));
+                    long bodyStart = start + BinaryEntity.varintLength(length);
+                    map(start, bodyStart + length);
+                    next = bodyStart + length;
+                    return new BinaryEntity(source, region, (int) (bodyStart - regionStart), (int) length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(format("cannot map entity at offset %d", start), e);
+                }
+            }
+
+            private void map(long start, long end) throws IOException {
+                if (region == null || end > regionStart + region.limit()) {
+                    long size = Math.min(regionSize, recordsEnd - start);
+                    if (end - start > size) {
+                        throw new IOException(format("record at offset %d is larger than the region size %d", start, regionSize));
+                    }
+                    region = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                    regionStart = start;
+                }
+            }
+        };
+    }
+
+    /**
+     * @return a sequential stream of the entities
+     */
+    public Stream<BinaryEntity> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), count, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int[] offsets(ByteBuffer strings) {
+        long count = BinaryEntity.readVarint(strings, 0);
+        int[] offsets = new int[(int) count];
+        int offset = BinaryEntity.varintLength(count);
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = offset;
+            long length = BinaryEntity.readVarint(strings, offset);
+            offset += BinaryEntity.varintLength(length) + (int) length;
+        }
+        return offsets;
+    }
+
+    private static String decode(ByteBuffer strings, int offset) {
+        long length = BinaryEntity.readVarint(strings, offset);
+        return BinaryEntity.utf8(strings, offset + BinaryEntity.varintLength(length), (int) length);
+    }
+}
@@ -0,0 +1,341 @@
+package org.icij.ftm;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Writes FtM entities into a compact binary file, read with {@link BinaryEntityReader}.
+ * <p>
+ * File layout (varints are unsigned LEB128, longs are big endian):
+ * </p>
+ * <pre>
+ * header:     "FTMB" version(1 byte)
+ * records:    record*
+ * record:     varint(body length) body
+ * body:       varint(schema index) value(id) presence bitmap(ceil(properties / 8) bytes) value*
+ * value:      varint(dictionary index &lt;&lt; 1 | 1)  or  varint(length &lt;&lt; 1) bytes
+ * schemata:   varint(count) (varint(length) utf-8)*
+ * dictionary: varint(count) (varint(length) utf-8)*
+ * footer:     long(schemata offset) long(dictionary offset) long(entity count) "FTMB"
+ * </pre>
+ * <p>
+ * Values are present in the ordinal order of the {@link BinaryCodec} properties. Strings (as well as {@link FtmValue}s and
+ * entity ids) are UTF-8 bytes; short strings are stored once in the per-file dictionary and referenced by their
+ * index, as are decimals and {@link FtmCode}s. Integers are zig-zag varints, {@link FtmDate}s are varints and doubles
+ * are 8 bytes big endian. As each value is length-prefixed, a value can be skipped without decoding it.
+ * </p>
+ */
+public class BinaryEntityWriter implements Closeable {
+    static final byte[] MAGIC = "FTMB".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int MAX_DICTIONARY_STRING_LENGTH = 64;
+    static final int DEFAULT_MAX_DICTIONARY_SIZE = 1 << 20;
+
+    private final OutputStream output;
+    private final Map<String, BinaryCodec<?>> codecs = new HashMap<>();
+    private final Map<String, Integer> schemaIndexes = new HashMap<>();
+    private final List<String> schemata = new ArrayList<>();
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> dictionaryStrings = new ArrayList<>();
+    private final int maxDictionarySize;
+    private final Bytes body = new Bytes();
+    private final Bytes header = new Bytes();
+    private final Record record = new Record();
+    private long position;
+    private long count;
+
+    public BinaryEntityWriter(Path file, Collection<? extends BinaryCodec<?>> codecs) throws IOException {
+        this(file, codecs, DEFAULT_MAX_DICTIONARY_SIZE);
+    }
+
+    /**
+     * @param file the file to create or replace
+     * @param codecs codecs of the schemata to write
+     * @param maxDictionarySize number of strings kept in the dictionary. Once full, strings are written inline.
+     */
+    public BinaryEntityWriter(Path file, Collection<? extends BinaryCodec<?>> codecs, int maxDictionarySize) throws IOException {
+        for (BinaryCodec<?> codec : codecs) {
+            this.codecs.put(codec.schema(), codec);
+        }
+        this.maxDictionarySize = maxDictionarySize;
+        this.output = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        output.write(MAGIC);
+        output.write(VERSION);
+        position = MAGIC.length + 1;
+    }
+
+    /**
+     * Record encoder without file nor dictionary, used by {@link EntityStore}: all the strings are inline.
+     */
+    BinaryEntityWriter(Collection<? extends BinaryCodec<?>> codecs) {
+        for (BinaryCodec<?> codec : codecs) {
+            this.codecs.put(codec.schema(), codec);
+        }
+        this.maxDictionarySize = 0;
+        this.output = OutputStream.nullOutputStream();
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no codec for the schema of the entity
+     */
+    public <T> void write(FtmEntity<T> entity, EntityResolver resolver) throws IOException {
+        codec(entity.schema());
+        encode(entity, schemaIndexes.computeIfAbsent(entity.schema(), schema -> {
+            schemata.add(schema);
+            return schemata.size() - 1;
+        }), resolver);
+
+        header.reset();
+        header.writeVarint(body.length);
+        output.write(header.bytes, 0, header.length);
+        output.write(body.bytes, 0, body.length);
+        position += header.length + body.length;
+        count++;
+    }
+
+    /**
+     * Encodes the record body of the entity.
+     * @return the body, a view on the writer buffer that is valid until the next call
+     * @throws IllegalArgumentException if there is no codec for the schema of the entity
+     */
+    <T> ByteBuffer encode(FtmEntity<T> entity, int schemaIndex, EntityResolver resolver) throws IOException {
+        BinaryCodec<T> codec = codec(entity.schema());
+        record.start(codec.properties().size());
+        codec.write(entity.value(), record, resolver);
+
+        body.reset();
+        body.writeVarint(schemaIndex);
+        // ids are unique: never in the dictionary
+        writeInline(body, entity.id() == null ? "" : entity.id());
+        body.write(record.presence, 0, record.presenceLength);
+        body.write(record.values.bytes, 0, record.values.length);
+        return ByteBuffer.wrap(body.bytes, 0, body.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> BinaryCodec<T> codec(String schema) {
+        BinaryCodec<T> codec = (BinaryCodec<T>) codecs.get(schema);
+        if (codec == null) {
+            throw new IllegalArgumentException(format("no binary codec for schema %s", schema));
+        }
+        return codec;
+    }
+
+    /**
+     * @return the number of written entities
+     */
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (output) {
+            long schemataOffset = position;
+            writeStrings(schemata);
+            long dictionaryOffset = position;
+            writeStrings(dictionaryStrings);
+            Bytes footer = new Bytes();
+            footer.writeLong(schemataOffset);
+            footer.writeLong(dictionaryOffset);
+            footer.writeLong(count);
+            footer.write(MAGIC, 0, MAGIC.length);
+            output.write(footer.bytes, 0, footer.length);
+        }
+    }
+
+    private void writeStrings(List<String> strings) throws IOException {
+        Bytes bytes = new Bytes();
+        bytes.writeVarint(strings.size());
+        for (String string : strings) {
+            byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            bytes.writeVarint(utf8.length);
+            bytes.write(utf8, 0, utf8.length);
+            if (bytes.length > 1 << 16) {
+                flush(bytes);
+            }
+        }
+        flush(bytes);
+    }
+
+    private void flush(Bytes bytes) throws IOException {
+        output.write(bytes.bytes, 0, bytes.length);
+        position += bytes.length;
+        bytes.reset();
+    }
+
+    private void writeString(Bytes bytes, String value) {
+        Integer index = value.length() <= MAX_DICTIONARY_STRING_LENGTH ? dictionary.get(value) : null;
+        if (index == null && value.length() <= MAX_DICTIONARY_STRING_LENGTH && dictionaryStrings.size() < maxDictionarySize) {
+            index = dictionaryStrings.size();
+            dictionary.put(value, index);
+            dictionaryStrings.add(value);
+        }
+        if (index != null) {
+            bytes.writeVarint((long) index << 1 | 1);
+        } else {
+            writeInline(bytes, value);
+        }
+    }
+
+    private static void writeInline(Bytes bytes, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        bytes.writeVarint((long) utf8.length << 1);
+        bytes.write(utf8, 0, utf8.length);
+    }
+
+    /**
+     * Properties of the entity being written, filled by the generated codecs.
+     * Null values, empty strings and zero numbers are not written.
+     */
+    public final class Record {
+        private byte[] presence = new byte[8];
+        private int presenceLength;
+        private final Bytes values = new Bytes();
+        private final Bytes number = new Bytes();
+        private int lastOrdinal;
+
+        private void start(int properties) {
+            presenceLength = (properties + 7) / 8;
+            if (presence.length < presenceLength) {
+                presence = new byte[presenceLength];
+            }
+            Arrays.fill(presence, 0, presenceLength, (byte) 0);
+            values.reset();
+            lastOrdinal = -1;
+        }
+
+        public void string(int ordinal, String value) {
+            if (value != null && !value.isEmpty()) {
+                present(ordinal);
+                writeString(values, value);
+            }
+        }
+
+        public void integer(int ordinal, int value) {
+            longValue(ordinal, value);
+        }
+
+        public void longValue(int ordinal, long value) {
+            if (value != 0) {
+                present(ordinal);
+                number.reset();
+                number.writeVarint((value << 1) ^ (value >> 63));
+                writeNumber();
+            }
+        }
+
+        public void doubleValue(int ordinal, double value) {
+            if (value != 0) {
+                present(ordinal);
+                number.reset();
+                number.writeLong(Double.doubleToRawLongBits(value));
+                writeNumber();
+            }
+        }
+
+        public void decimal(int ordinal, BigDecimal value) {
+            if (value != null) {
+                string(ordinal, value.toString());
+            }
+        }
+
+        /**
+         * @param value a date packed by {@link FtmDate}
+         */
+        public void date(int ordinal, long value) {
+            if (value != 0) {
+                present(ordinal);
+                number.reset();
+                number.writeVarint(value);
+                writeNumber();
+            }
+        }
+
+        public void code(int ordinal, FtmCode value) {
+            if (value != null) {
+                string(ordinal, value.code());
+            }
+        }
+
+        public void value(int ordinal, FtmValue value) {
+            if (value != null) {
+                string(ordinal, value.value());
+            }
+        }
+
+        public void reference(int ordinal, Object value, EntityResolver resolver) {
+            if (value != null) {
+                string(ordinal, resolver.idOf(value));
+            }
+        }
+
+        private void writeNumber() {
+            values.writeVarint((long) number.length << 1);
+            values.write(number.bytes, 0, number.length);
+        }
+
+        private void present(int ordinal) {
+            if (ordinal <= lastOrdinal) {
+                throw new IllegalStateException(format("properties should be written in ordinal order, got %d after %d", ordinal, lastOrdinal));
+            }
+            lastOrdinal = ordinal;
+            presence[ordinal >> 3] |= (byte) (1 << (ordinal & 7));
+        }
+    }
+
+    /**
+     * Growable byte array.
+     */
+    private static final class Bytes {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        void write(byte[] source, int offset, int size) {
+            ensure(size);
+            System.arraycopy(source, offset, bytes, length, size);
+            length += size;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void ensure(int size) {
+            if (length + size > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + size));
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package org.icij.ftm;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Column of a {@link ColumnBatch}: the values of one property for all the rows, in little-endian buffers
+ * that are either growable heap buffers or slices of a memory-mapped batch file.
+ * <p>
+ * A presence bitmap tells which rows have a value: null values and zero numbers are absent, as in the generated types.
+ * Strings are stored as utf-8 bytes with the end offset of each row, and the low-cardinality strings
+ * ({@link Kind#DICTIONARY}) as the index of the value in the dictionary of the column, so that they can be
+ * grouped and counted without decoding them.
+ * </p>
+ */
+public final class Column {
+    private static final int INITIAL_ROWS = 64;
+
+    public enum Kind {
+        INT(Integer.BYTES), LONG(Long.BYTES), DOUBLE(Double.BYTES), STRING(Integer.BYTES), DICTIONARY(Integer.BYTES);
+
+        /** width of the value (or end offset) of a row, in bytes */
+        final int width;
+
+        Kind(int width) {
+            this.width = width;
+        }
+    }
+
+    private final Kind kind;
+    private final boolean mapped;
+    private final List<String> dictionary;
+    private final Map<String, Integer> indexes;
+    private ByteBuffer presence;
+    private ByteBuffer values;
+    private ByteBuffer bytes;
+    private int size;
+    private int byteSize;
+
+    Column(Kind kind) {
+        this.kind = kind;
+        this.mapped = false;
+        this.dictionary = kind == Kind.DICTIONARY ? new ArrayList<>() : List.of();
+        this.indexes = kind == Kind.DICTIONARY ? new HashMap<>() : Map.of();
+        this.presence = allocate(INITIAL_ROWS / Byte.SIZE);
+        this.values = allocate(INITIAL_ROWS * kind.width);
+        this.bytes = allocate(kind == Kind.STRING ? INITIAL_ROWS * 16 : 0);
+    }
+
+    /**
+     * Read-only column on the buffers of a mapped file.
+     */
+    Column(Kind kind, int size, ByteBuffer presence, ByteBuffer values, ByteBuffer bytes, List<String> dictionary) {
+        this.kind = kind;
+        this.mapped = true;
+        this.size = size;
+        this.presence = presence;
+        this.values = values;
+        this.bytes = bytes;
+        this.byteSize = bytes.capacity();
+        this.dictionary = Collections.unmodifiableList(dictionary);
+        this.indexes = Map.of();
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int row) {
+        checkRow(row);
+        return (presence.getLong(row / Long.SIZE * Long.BYTES) & 1L << row) == 0;
+    }
+
+    /**
+     * @return the number of rows with a value
+     */
+    public int count() {
+        int count = 0;
+        for (int word = 0; word < words(size); word++) {
+            count += Long.bitCount(presence.getLong(word * Long.BYTES));
+        }
+        return count;
+    }
+
+    /**
+     * @return the value of an {@link Kind#INT} column, 0 if null
+     */
+    public int getInt(int row) {
+        checkKind(Kind.INT);
+        checkRow(row);
+        return values.getInt(row * Integer.BYTES);
+    }
+
+    /**
+     * @return the value of a {@link Kind#LONG} column, 0 if null
+     */
+    public long getLong(int row) {
+        checkKind(Kind.LONG);
+        checkRow(row);
+        return values.getLong(row * Long.BYTES);
+    }
+
+    /**
+     * @return the value of a {@link Kind#DOUBLE} column, 0 if null
+     */
+    public double getDouble(int row) {
+        checkKind(Kind.DOUBLE);
+        checkRow(row);
+        return values.getDouble(row * Double.BYTES);
+    }
+
+    /**
+     * @return the value of a {@link Kind#STRING} or {@link Kind#DICTIONARY} column, null if null
+     */
+    public String getString(int row) {
+        if (kind == Kind.DICTIONARY) {
+            int index = index(row);
+            return index < 0 ? null : dictionary.get(index);
+        }
+        checkKind(Kind.STRING);
+        if (isNull(row)) {
+            return null;
+        }
+        int start = row == 0 ? 0 : values.getInt((row - 1) * Integer.BYTES);
+        byte[] utf8 = new byte[values.getInt(row * Integer.BYTES) - start];
+        bytes.get(start, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the index of the value of a {@link Kind#DICTIONARY} column in {@link #dictionary()}, -1 if null
+     */
+    public int index(int row) {
+        checkKind(Kind.DICTIONARY);
+        checkRow(row);
+        return values.getInt(row * Integer.BYTES);
+    }
+
+    /**
+     * @return the distinct values of a {@link Kind#DICTIONARY} column, in the order they were appended
+     */
+    public List<String> dictionary() {
+        checkKind(Kind.DICTIONARY);
+        return Collections.unmodifiableList(dictionary);
+    }
+
+    /**
+     * @return the number of rows of each value of a {@link Kind#DICTIONARY} column, by dictionary index
+     */
+    public int[] counts() {
+        checkKind(Kind.DICTIONARY);
+        int[] counts = new int[dictionary.size()];
+        for (int row = 0; row < size; row++) {
+            int index = values.getInt(row * Integer.BYTES);
+            if (index >= 0) {
+                counts[index]++;
+            }
+        }
+        return counts;
+    }
+
+    public void appendInt(int value) {
+        checkKind(Kind.INT);
+        int row = newRow(value != 0);
+        values.putInt(row * Integer.BYTES, value);
+    }
+
+    public void appendLong(long value) {
+        checkKind(Kind.LONG);
+        int row = newRow(value != 0);
+        values.putLong(row * Long.BYTES, value);
+    }
+
+    public void appendDouble(double value) {
+        checkKind(Kind.DOUBLE);
+        int row = newRow(value != 0);
+        values.putDouble(row * Double.BYTES, value);
+    }
+
+    /**
+     * Appends a value to a {@link Kind#STRING} or {@link Kind#DICTIONARY} column.
+     */
+    public void appendString(String value) {
+        if (kind == Kind.DICTIONARY) {
+            checkWritable();
+            int row = newRow(value != null);
+            values.putInt(row * Integer.BYTES, value == null ? -1 : indexes.computeIfAbsent(value, v -> {
+                dictionary.add(v);
+                return dictionary.size() - 1;
+            }));
+            return;
+        }
+        checkKind(Kind.STRING);
+        int row = newRow(value != null);
+        if (value != null) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            bytes = ensureCapacity(bytes, byteSize + utf8.length);
+            bytes.put(byteSize, utf8);
+            byteSize += utf8.length;
+        }
+        values.putInt(row * Integer.BYTES, byteSize);
+    }
+
+    /**
+     * @return the presence bitmap, the values and the string bytes, limited to the rows of the column
+     */
+    ByteBuffer[] buffers() {
+        return new ByteBuffer[] {
+                presence.slice(0, words(size) * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN),
+                values.slice(0, size * kind.width).order(ByteOrder.LITTLE_ENDIAN),
+                bytes.slice(0, byteSize).order(ByteOrder.LITTLE_ENDIAN)};
+    }
+
+    List<String> dictionaryValues() {
+        return dictionary;
+    }
+
+    static int words(int rows) {
+        return (rows + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private int newRow(boolean present) {
+        checkWritable();
+        int row = size;
+        presence = ensureCapacity(presence, words(row + 1) * Long.BYTES);
+        values = ensureCapacity(values, (row + 1) * kind.width);
+        if (present) {
+            int offset = row / Long.SIZE * Long.BYTES;
+            presence.putLong(offset, presence.getLong(offset) | 1L << row);
+        }
+        size++;
+        return row;
+    }
+
+    private void checkWritable() {
+        if (mapped) {
+            throw new IllegalStateException("cannot append to a mapped column");
+        }
+    }
+
+    private void checkKind(Kind expected) {
+        if (kind != expected) {
+            throw new IllegalStateException(format("expected a %s column, got %s", expected, kind));
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException(row);
+        }
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int capacity) {
+        if (capacity <= buffer.capacity()) {
+            return buffer;
+        }
+        ByteBuffer grown = allocate(Math.max(capacity, buffer.capacity() * 2));
+        grown.put(0, buffer, 0, buffer.capacity());
+        return grown;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
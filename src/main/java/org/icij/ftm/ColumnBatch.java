@@ -0,0 +1,244 @@
+package org.icij.ftm;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Entities of one schema stored by column (struct of arrays): one {@link Column} for the entity ids and one for each
+ * property, so that scans and aggregations over a property read contiguous buffers instead of entity objects.
+ * <p>
+ * The batches of the models are generated with {@code --batches true} ({@code <Model>Batch}): they append the
+ * entities of the model and have a typed accessor for each column. A batch can be written to a file and mapped
+ * back in memory with {@link #map(Path)}, the columns of a mapped batch then read the file without copy.
+ * </p>
+ * <p>
+ * File layout (little-endian, each part starts on 8 bytes):
+ * </p>
+ * <pre>
+ * header:  "FTMT" int(version) int(rows) int(columns) string(schema) column*
+ * column:  string(name) int(kind) int(string bytes) int(dictionary size) int(0)
+ *          presence(long per 64 rows) values(int or long per row) bytes(utf-8 strings) string(dictionary value)*
+ * string:  int(utf-8 length) utf-8 bytes
+ * </pre>
+ * <p>
+ * The values of a string column are the end offsets of the strings in its bytes, the values of a dictionary
+ * column the indexes of the strings in its dictionary, -1 for null.
+ * </p>
+ */
+public class ColumnBatch {
+    static final byte[] MAGIC = "FTMT".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    private static final int ALIGNMENT = Long.BYTES;
+
+    private final String schema;
+    private final List<String> names;
+    private final Column[] columns;
+    private int size;
+
+    /**
+     * Creates an empty batch.
+     * @param names the column names, with the same size as kinds
+     */
+    public ColumnBatch(String schema, List<String> names, List<Column.Kind> kinds) {
+        if (names.size() != kinds.size()) {
+            throw new IllegalArgumentException(format("%d column names for %d kinds", names.size(), kinds.size()));
+        }
+        this.schema = schema;
+        this.names = List.copyOf(names);
+        this.columns = kinds.stream().map(Column::new).toArray(Column[]::new);
+    }
+
+    private ColumnBatch(String schema, List<String> names, Column[] columns, int size) {
+        this.schema = schema;
+        this.names = List.copyOf(names);
+        this.columns = columns;
+        this.size = size;
+    }
+
+    /**
+     * Wraps the columns of a batch, used by the generated batches to type a mapped batch.
+     * @throws IllegalArgumentException if the batch does not have the schema and columns
+     */
+    protected ColumnBatch(ColumnBatch batch, String schema, List<String> names, List<Column.Kind> kinds) {
+        List<Column.Kind> batchKinds = Arrays.stream(batch.columns).map(Column::kind).toList();
+        if (!batch.schema.equals(schema) || !batch.names.equals(names) || !batchKinds.equals(kinds)) {
+            throw new IllegalArgumentException(format("expected a %s batch with columns %s, got a %s batch with columns %s",
+                    schema, names, batch.schema, batch.names));
+        }
+        this.schema = batch.schema;
+        this.names = batch.names;
+        this.columns = batch.columns;
+        this.size = batch.size;
+    }
+
+    public String schema() {
+        return schema;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    public List<String> names() {
+        return names;
+    }
+
+    public Column column(int index) {
+        return columns[index];
+    }
+
+    /**
+     * @throws IllegalArgumentException if the batch has no column with that name
+     */
+    public Column column(String name) {
+        int index = names.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException(format("no column %s in %s batch", name, schema));
+        }
+        return columns[index];
+    }
+
+    /**
+     * Ends the row whose values have been appended to each column.
+     * @throws IllegalStateException if a column has not exactly one more value
+     */
+    protected void endRow() {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].size() != size + 1) {
+                throw new IllegalStateException(format("column %s has %d rows, expected %d", names.get(i), columns[i].size(), size + 1));
+            }
+        }
+        size++;
+    }
+
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 3 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                    .put(MAGIC).putInt(VERSION).putInt(size).putInt(columns.length);
+            write(channel, header.flip());
+            writeString(channel, schema);
+            for (int i = 0; i < columns.length; i++) {
+                ByteBuffer[] buffers = columns[i].buffers();
+                List<String> dictionary = columns[i].dictionaryValues();
+                writeString(channel, names.get(i));
+                write(channel, ByteBuffer.allocate(4 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(columns[i].kind().ordinal()).putInt(buffers[2].capacity()).putInt(dictionary.size()).putInt(0).flip());
+                for (ByteBuffer buffer : buffers) {
+                    write(channel, buffer);
+                }
+                for (String value : dictionary) {
+                    writeString(channel, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the read-only batch of the file, mapped in memory
+     * @throws IOException if the file cannot be read or is not a batch file
+     * @throws IllegalArgumentException if the file is larger than 2GB
+     */
+    public static ColumnBatch map(Path path) throws IOException {
+        MappedByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = file.order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || buffer.getInt() != VERSION) {
+            throw new IOException(format("%s is not a column batch or has an unsupported version", path));
+        }
+        int size = buffer.getInt();
+        Column[] columns = new Column[buffer.getInt()];
+        String schema = readString(buffer);
+        List<String> names = new ArrayList<>(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            names.add(readString(buffer));
+            Column.Kind kind = Column.Kind.values()[buffer.getInt()];
+            int byteSize = buffer.getInt();
+            int dictionarySize = buffer.getInt();
+            buffer.getInt();
+            ByteBuffer presence = slice(buffer, Column.words(size) * Long.BYTES);
+            ByteBuffer values = slice(buffer, size * kind.width);
+            ByteBuffer bytes = slice(buffer, byteSize);
+            List<String> dictionary = new ArrayList<>(dictionarySize);
+            for (int j = 0; j < dictionarySize; j++) {
+                dictionary.add(readString(buffer));
+            }
+            columns[i] = new Column(kind, size, presence, values, bytes, dictionary);
+        }
+        return new ColumnBatch(schema, names, columns, size);
+    }
+
+    protected static String string(BigDecimal value) {
+        return value == null ? null : value.toString();
+    }
+
+    protected static String string(FtmValue value) {
+        return value == null ? null : value.value();
+    }
+
+    protected static String string(FtmCode value) {
+        return value == null ? null : value.code();
+    }
+
+    /**
+     * @return the id of the referenced entity
+     */
+    protected static String reference(Object value, EntityResolver resolver) {
+        return value == null ? null : resolver.idOf(value);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer slice = buffer.slice(buffer.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(buffer.position() + padded(length));
+        return slice;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        byte[] utf8 = new byte[length];
+        buffer.get(utf8);
+        buffer.position(buffer.position() + padded(Integer.BYTES + length) - Integer.BYTES - length);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(FileChannel channel, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        write(channel, ByteBuffer.allocate(Integer.BYTES + utf8.length).order(ByteOrder.LITTLE_ENDIAN).putInt(utf8.length).put(utf8).flip());
+    }
+
+    /**
+     * Writes the buffer and pads it to the alignment.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ByteBuffer padding = ByteBuffer.allocate(padded(length) - length);
+        while (padding.hasRemaining()) {
+            channel.write(padding);
+        }
+    }
+
+    private static int padded(int length) {
+        return (length + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
@@ -0,0 +1,114 @@
+package org.icij.ftm;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.lang.String.format;
+
+/**
+ * Generates the {@link ColumnBatch} of an instantiable model (record or non abstract class).
+ * <p>
+ * The first column is the entity id, followed by a column per constructor attribute. The code lists
+ * and the string properties of low-cardinality FtM types are dictionary-encoded.
+ * </p>
+ */
+class ColumnBatchGenerator {
+    static final String SUFFIX = "Batch";
+    static final Set<String> DICTIONARY_TYPES = Set.of("country", "language", "topic", "gender", "mimetype");
+    private final SourceGenerator sourceGenerator;
+
+    ColumnBatchGenerator(SourceGenerator sourceGenerator) {
+        this.sourceGenerator = sourceGenerator;
+    }
+
+    String generate(Model model) {
+        if (!sourceGenerator.isInstantiable(model)) {
+            throw new IllegalArgumentException(format("cannot generate a column batch for %s: it is not instantiable", model.name()));
+        }
+        List<String> attributes = sourceGenerator.constructorAttributes(model);
+        String names = attributes.stream().map(a -> format(", \"%s\"", a)).collect(Collectors.joining());
+        String kinds = attributes.stream().map(a -> ", Column.Kind." + kind(model, a)).collect(Collectors.joining());
+        String appends = IntStream.range(0, attributes.size())
+                .mapToObj(i -> appendStatement(model, attributes.get(i), i + 1))
+                .collect(Collectors.joining("\n        "));
+        String columns = IntStream.range(0, attributes.size())
+                .mapToObj(i -> format("""
+                        public Column %sColumn() {
+                                return column(%d);
+                            }""", SourceGenerator.sanitizedProp(attributes.get(i)), i + 1))
+                .collect(Collectors.joining("\n\n    "));
+
+        return sourceGenerator.packageDeclaration() + format("""
+                import java.io.IOException;
+                import java.nio.file.Path;
+                import java.util.List;
+
+                /**
+                 * Automatically generated column batch for FtM model. Do not update this class.
+                 * @see <a href="https://github.com/alephdata/followthemoney/blob/main/followthemoney/schema/%s.yaml">%s</a>.
+                 */
+                public final class %s%s extends ColumnBatch {
+                    private static final List<String> NAMES = List.of("id"%s);
+                    private static final List<Column.Kind> KINDS = List.of(Column.Kind.STRING%s);
+
+                    public %s%s() {
+                        super("%s", NAMES, KINDS);
+                    }
+
+                    private %s%s(ColumnBatch batch) {
+                        super(batch, "%s", NAMES, KINDS);
+                    }
+
+                    /**
+                     * @return the batch of a file written by {@link #write(Path)}, mapped in memory
+                     * @throws IllegalArgumentException if the file is not a batch of this model
+                     */
+                    public static %s%s map(Path path) throws IOException {
+                        return new %s%s(ColumnBatch.map(path));
+                    }
+
+                    public void append(String id, %s instance, EntityResolver resolver) {
+                        column(0).appendString(id);
+                        %s
+                        endRow();
+                    }
+
+                    public Column idColumn() {
+                        return column(0);
+                    }
+
+                    %s
+                }
+                """, model.name(), model.name(),
+                model.name(), SUFFIX, names, kinds,
+                model.name(), SUFFIX, model.name(),
+                model.name(), SUFFIX, model.name(),
+                model.name(), SUFFIX, model.name(), SUFFIX,
+                model.name(), appends, columns);
+    }
+
+    private Column.Kind kind(Model model, String attribute) {
+        return switch (sourceGenerator.valueType(model.type(attribute))) {
+            case STRING -> DICTIONARY_TYPES.contains(model.type(attribute)) ? Column.Kind.DICTIONARY : Column.Kind.STRING;
+            case INT -> Column.Kind.INT;
+            case LONG, DATE -> Column.Kind.LONG;
+            case DOUBLE -> Column.Kind.DOUBLE;
+            case COUNTRY, LANGUAGE, TOPIC -> Column.Kind.DICTIONARY;
+            case DECIMAL, URL, EMAIL, IP, IBAN, ENTITY -> Column.Kind.STRING;
+        };
+    }
+
+    private String appendStatement(Model model, String attribute, int column) {
+        String value = sourceGenerator.accessor(model, "instance", attribute);
+        return switch (sourceGenerator.valueType(model.type(attribute))) {
+            case STRING -> format("column(%d).appendString(%s);", column, value);
+            case INT -> format("column(%d).appendInt(%s);", column, value);
+            case LONG, DATE -> format("column(%d).appendLong(%s);", column, value);
+            case DOUBLE -> format("column(%d).appendDouble(%s);", column, value);
+            case DECIMAL, URL, EMAIL, IP, IBAN, COUNTRY, LANGUAGE, TOPIC -> format("column(%d).appendString(string(%s));", column, value);
+            case ENTITY -> format("column(%d).appendString(reference(%s, resolver));", column, value);
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package org.icij.ftm;
+
+import java.util.List;
+
+/**
+ * Extracts the references of the instances of an FtM schema to other entities, generated by {@link EdgeExtractorGenerator}.
+ * <p>
+ * Each property with an entity range is an edge label, named after the schema defining the property
+ * ({@code Ownership:owner}, {@code Interval:proof}...), so that an inherited property has the same label in all the
+ * schemata. An entity is a node with an edge to each referenced entity: an interval like an ownership has two
+ * edges, a sanction only one.
+ * </p>
+ * @param <T> the generated record or class of the schema
+ */
+public interface EdgeExtractor<T> {
+    /**
+     * @return the FtM schema name
+     */
+    String schema();
+
+    /**
+     * @return the edge labels by ordinal
+     */
+    List<String> labels();
+
+    /**
+     * Calls the visitor with the id of each referenced entity, in label order.
+     * @param resolver to get the ids of the referenced entities that are instances of the generated models
+     */
+    void forEachEdge(T instance, EntityResolver resolver, Visitor visitor);
+
+    interface Visitor {
+        /**
+         * @param target the id of the referenced entity, null if the resolver does not know it
+         */
+        void visit(int label, String target);
+    }
+}
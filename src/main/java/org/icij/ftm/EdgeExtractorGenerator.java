@@ -0,0 +1,96 @@
+package org.icij.ftm;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.lang.String.format;
+
+/**
+ * Generates the {@link EdgeExtractor} of an instantiable model (record or non abstract class).
+ * <p>
+ * The labels are the constructor attributes of type entity, as {@code <schema defining the property>:<property>}.
+ * A reference whose range is a generated model is converted to an id with the resolver, otherwise it is already
+ * the id. With the {@link SourceGenerator.Layout#MULTI} layout, all the values of each property are edges.
+ * </p>
+ */
+class EdgeExtractorGenerator {
+    static final String SUFFIX = "Edges";
+    private final SourceGenerator sourceGenerator;
+
+    EdgeExtractorGenerator(SourceGenerator sourceGenerator) {
+        this.sourceGenerator = sourceGenerator;
+    }
+
+    String generate(Model model) {
+        if (!sourceGenerator.isInstantiable(model)) {
+            throw new IllegalArgumentException(format("cannot generate an edge extractor for %s: it is not instantiable", model.name()));
+        }
+        List<String> references = references(model);
+        String labels = references.stream()
+                .map(a -> format("\"%s:%s\"", Objects.requireNonNullElse(model.schemaOf(a), model.name()), a))
+                .collect(Collectors.joining(", "));
+        String visits = IntStream.range(0, references.size())
+                .mapToObj(i -> visitStatement(model, references.get(i), i))
+                .collect(Collectors.joining("\n        "));
+
+        return sourceGenerator.packageDeclaration() + format("""
+                import java.util.List;
+
+                /**
+                 * Automatically generated edge extractor for FtM model. Do not update this class.
+                 * @see <a href="https://github.com/alephdata/followthemoney/blob/main/followthemoney/schema/%s.yaml">%s</a>.
+                 */
+                public final class %s%s implements EdgeExtractor<%s> {
+                    public static final %s%s INSTANCE = new %s%s();
+                    private static final List<String> LABELS = List.of(%s);
+
+                    @Override
+                    public String schema() {
+                        return "%s";
+                    }
+
+                    @Override
+                    public List<String> labels() {
+                        return LABELS;
+                    }
+
+                    @Override
+                    public void forEachEdge(%s instance, EntityResolver resolver, Visitor visitor) {
+                        %s
+                    }
+                }
+                """, model.name(), model.name(),
+                model.name(), SUFFIX, model.name(),
+                model.name(), SUFFIX, model.name(), SUFFIX,
+                labels,
+                model.name(),
+                model.name(), visits);
+    }
+
+    /**
+     * @return the constructor attributes of type entity
+     */
+    private List<String> references(Model model) {
+        return sourceGenerator.constructorAttributes(model).stream().filter(a -> {
+            Map<String, Object> property = model.property(a);
+            return property != null && "entity".equals(property.get("type"));
+        }).toList();
+    }
+
+    private String visitStatement(Model model, String attribute, int label) {
+        boolean entity = sourceGenerator.valueType(model.type(attribute)) == ValueType.ENTITY;
+        if (sourceGenerator.layout() == SourceGenerator.Layout.MULTI) {
+            String prop = SourceGenerator.sanitizedProp(attribute);
+            String value = format("instance.%s(i)", prop);
+            return format("""
+                    for (int i = 0; i < instance.%sCount(); i++) {
+                                visitor.visit(%d, %s);
+                            }""", prop, label, entity ? format("resolver.idOf(%s)", value) : value);
+        }
+        String value = sourceGenerator.accessor(model, "instance", attribute);
+        return format("if (%s != null) visitor.visit(%d, %s);", value, label, entity ? format("resolver.idOf(%s)", value) : value);
+    }
+}
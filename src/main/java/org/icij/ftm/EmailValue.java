@@ -0,0 +1,43 @@
+package org.icij.ftm;
+
+import java.util.Locale;
+
+/**
+ * FtM {@code email} property value. An email is valid if it has a non-empty local part and a domain with
+ * a dot, without spaces. It is normalized with a lower case domain.
+ */
+public final class EmailValue extends FtmValue {
+    public EmailValue(String value) {
+        super(value);
+    }
+
+    /**
+     * @return the value or null if the string is null or empty
+     */
+    public static EmailValue of(String value) {
+        return value == null || value.isEmpty() ? null : new EmailValue(value);
+    }
+
+    /**
+     * @return the lower case domain, or null if the email is invalid
+     */
+    public String domain() {
+        String normalized = normalized();
+        return normalized == null ? null : normalized.substring(normalized.lastIndexOf('@') + 1);
+    }
+
+    @Override
+    protected String normalize(String value) {
+        String email = value.trim();
+        int at = email.lastIndexOf('@');
+        if (at <= 0 || at == email.length() - 1 || email.chars().anyMatch(Character::isWhitespace)) {
+            return null;
+        }
+        String domain = email.substring(at + 1);
+        int dot = domain.indexOf('.');
+        if (dot <= 0 || dot == domain.length() - 1 || domain.indexOf('@') >= 0) {
+            return null;
+        }
+        return email.substring(0, at + 1) + domain.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,60 @@
+package org.icij.ftm;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Links entity-range properties (for example {@code Ownership.owner}) with the entities they reference.
+ * In JSON these properties are entity ids, in the generated types they are the referenced instances.
+ */
+public interface EntityResolver {
+    /**
+     * Resolver without entities: references are read as null and not written.
+     */
+    EntityResolver NONE = new EntityResolver() {
+        @Override
+        public Object resolve(String id) {
+            return null;
+        }
+
+        @Override
+        public String idOf(Object entity) {
+            return null;
+        }
+    };
+
+    /**
+     * @return the entity with the given id or null if unknown
+     */
+    Object resolve(String id);
+
+    /**
+     * @return the id of an entity or null if unknown
+     */
+    String idOf(Object entity);
+
+    /**
+     * @return a resolver for already read entities
+     */
+    static EntityResolver of(Collection<? extends FtmEntity<?>> entities) {
+        Map<String, Object> byId = new HashMap<>();
+        Map<Object, String> ids = new IdentityHashMap<>();
+        for (FtmEntity<?> entity : entities) {
+            byId.put(entity.id(), entity.value());
+            ids.put(entity.value(), entity.id());
+        }
+        return new EntityResolver() {
+            @Override
+            public Object resolve(String id) {
+                return byId.get(id);
+            }
+
+            @Override
+            public String idOf(Object entity) {
+                return ids.get(entity);
+            }
+        };
+    }
+}
@@ -0,0 +1,549 @@
+package org.icij.ftm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Embedded store of entities by id, in a directory, for datasets that do not fit in a heap map.
+ * <p>
+ * The entities are encoded with their {@link BinaryCodec} (the records of {@link BinaryEntityWriter}, with inline
+ * strings) and appended to a log that is memory-mapped by segments. An open-addressing hash index of the ids
+ * (linear probing, the 64 bits hash of the id and the log offset of its last record in each slot) is kept in
+ * another memory-mapped file, so a store reopens without reading the log nor rebuilding the index. The slots are
+ * mapped by regions of at most 2^26 slots (1 GiB), addressed with long offsets, so the index is not limited by
+ * the 2 GiB of a buffer. The schema of a record is its index in the schemata file. Files:
+ * </p>
+ * <pre>
+ * entities.log: "FTMS" version(1 byte) padding(3 bytes) (varint(body length) body)* in segments, a record never
+ *               spans two segments
+ * entities.idx: "FTMI" int(version) int(capacity) int(count) long(log end) int(segment size) int(0)
+ *               (long(hash) long(offset))[capacity], a 0 hash is an empty slot
+ * schemata:     one schema name per line
+ * </pre>
+ * <p>
+ * The integers of the index are little-endian.
+ * </p>
+ * <p>
+ * Writes are serialized, and readers can look ids up while entities are written: the slots are published with
+ * release writes after their record, and read with acquire reads. {@link #offset(String)} does not allocate, and
+ * {@link #get(String)} only allocates the {@link BinaryEntity} view, that decodes the properties when accessed.
+ * The files are durable after {@link #flush()} or {@link #close()}.
+ * </p>
+ */
+public final class EntityStore implements Closeable {
+    static final byte[] LOG_MAGIC = "FTMS".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] INDEX_MAGIC = "FTMI".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final String LOG_FILE = "entities.log";
+    static final String INDEX_FILE = "entities.idx";
+    static final String SCHEMATA_FILE = "schemata";
+    static final int DEFAULT_CAPACITY = 1 << 10;
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 26;
+    static final int DEFAULT_REGION_SLOTS = 1 << 26;
+    static final int MAX_CAPACITY = 1 << 30;
+    private static final int LOG_HEADER_LENGTH = Long.BYTES;
+    private static final int INDEX_HEADER_LENGTH = 32;
+    private static final int SLOT_LENGTH = 2 * Long.BYTES;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path directory;
+    private final FileChannel log;
+    private final int segmentSize;
+    private final int regionSlots;
+    private final Map<String, BinaryCodec<?>> codecs = new HashMap<>();
+    private final Map<String, Integer> schemaIndexes = new HashMap<>();
+    private final BinaryEntityWriter encoder;
+    private final EntityResolver resolver;
+    private final BinaryEntity.Source source = new BinaryEntity.Source() {
+        @Override
+        public String schema(int index) {
+            return schemata[index];
+        }
+
+        @Override
+        public BinaryCodec<?> codec(int index) {
+            return codecs.get(schemata[index]);
+        }
+
+        @Override
+        public String dictionaryString(int index) {
+            throw new IllegalStateException("the entity store records have no dictionary");
+        }
+
+        @Override
+        public EntityResolver resolver() {
+            return resolver;
+        }
+    };
+    // allocated once: the lookups do not allocate
+    private final IdMatcher ids = this::idAt;
+    private volatile String[] schemata;
+    private volatile MappedByteBuffer[] segments;
+    private volatile Index index;
+    private long logEnd;
+    private boolean closed;
+
+    private EntityStore(Path directory, Collection<? extends BinaryCodec<?>> codecs, EntityResolver resolver, int capacity, int segmentSize, int regionSlots) throws IOException {
+        this.directory = directory;
+        this.regionSlots = regionSlots;
+        this.resolver = resolver;
+        this.encoder = new BinaryEntityWriter(codecs);
+        codecs.forEach(codec -> this.codecs.put(codec.schema(), codec));
+        Files.createDirectories(directory);
+        Path schemataFile = directory.resolve(SCHEMATA_FILE);
+        schemata = Files.exists(schemataFile) ? Files.readAllLines(schemataFile).toArray(String[]::new) : new String[0];
+        for (int i = 0; i < schemata.length; i++) {
+            schemaIndexes.put(schemata[i], i);
+        }
+
+        Path indexFile = directory.resolve(INDEX_FILE);
+        boolean exists = Files.exists(indexFile);
+        index = exists ? Index.open(indexFile, regionSlots) : Index.create(indexFile, capacity, segmentSize, regionSlots);
+        this.segmentSize = index.segmentSize();
+        this.logEnd = exists ? index.logEnd() : LOG_HEADER_LENGTH;
+        this.log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            int segmentCount = (int) ((log.size() + this.segmentSize - 1) / this.segmentSize);
+            MappedByteBuffer[] mapped = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                mapped[i] = log.map(FileChannel.MapMode.READ_WRITE, (long) i * this.segmentSize, this.segmentSize);
+            }
+            segments = mapped;
+            if (segmentCount == 0) {
+                segment(0).put(0, LOG_MAGIC).put(LOG_MAGIC.length, (byte) VERSION);
+            } else if (!Arrays.equals(LOG_MAGIC, bytes(segments[0], LOG_MAGIC.length))
+                    || segments[0].get(LOG_MAGIC.length) != VERSION) {
+                throw new IOException(format("%s is not an entity store log or has an unsupported version", directory.resolve(LOG_FILE)));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the store of the directory, or creates it if the directory has no store.
+     * @param codecs codecs of the schemata to store and read
+     * @param resolver resolver of the entity-range properties, used to read them
+     */
+    public static EntityStore open(Path directory, Collection<? extends BinaryCodec<?>> codecs, EntityResolver resolver) throws IOException {
+        return open(directory, codecs, resolver, DEFAULT_CAPACITY, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param capacity initial number of index slots of a new store, a power of two
+     * @param segmentSize size of the log segments of a new store, the maximum size of a record
+     */
+    static EntityStore open(Path directory, Collection<? extends BinaryCodec<?>> codecs, EntityResolver resolver, int capacity, int segmentSize) throws IOException {
+        return open(directory, codecs, resolver, capacity, segmentSize, DEFAULT_REGION_SLOTS);
+    }
+
+    /**
+     * @param regionSlots number of index slots mapped by region, a power of two
+     */
+    static EntityStore open(Path directory, Collection<? extends BinaryCodec<?>> codecs, EntityResolver resolver, int capacity, int segmentSize, int regionSlots) throws IOException {
+        if (Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException(format("capacity should be a power of two up to %d, got %d", MAX_CAPACITY, capacity));
+        }
+        if (Integer.bitCount(regionSlots) != 1) {
+            throw new IllegalArgumentException(format("region slots should be a power of two, got %d", regionSlots));
+        }
+        return new EntityStore(directory, codecs, resolver, capacity, segmentSize, regionSlots);
+    }
+
+    /**
+     * Appends the entity to the log and indexes it. An entity replaces the entity with the same id.
+     * @return the log offset of the entity
+     * @throws IllegalArgumentException if the entity has no id, no codec or is larger than a log segment
+     * @throws IllegalStateException if the index is full, before the entity is appended
+     */
+    public synchronized <T> long put(FtmEntity<T> entity, EntityResolver resolver) throws IOException {
+        checkOpen();
+        if (entity.id() == null) {
+            throw new IllegalArgumentException("cannot store an entity without id");
+        }
+        Integer schemaIndex = schemaIndexes.get(entity.schema());
+        ByteBuffer body = encoder.encode(entity, schemaIndex == null ? schemata.length : schemaIndex, resolver);
+        int length = BinaryEntity.varintLength(body.remaining()) + body.remaining();
+        if (length > segmentSize) {
+            throw new IllegalArgumentException(format("entity %s is larger than the log segment size %d", entity.id(), segmentSize));
+        }
+        // the index grows before the record is appended, so that the log has no record the index does not point to
+        Index current = index;
+        if (2L * (current.count() + 1) > current.capacity) {
+            current = grow(current);
+        }
+        if (schemaIndex == null) {
+            addSchema(entity.schema());
+        }
+        long offset = logEnd % segmentSize + length > segmentSize ? (logEnd / segmentSize + 1) * segmentSize : logEnd;
+        ByteBuffer segment = segment((int) (offset / segmentSize));
+        int position = (int) (offset % segmentSize);
+        for (long value = body.remaining(); ; value >>>= 7) {
+            if ((value & ~0x7FL) == 0) {
+                segment.put(position++, (byte) value);
+                break;
+            }
+            segment.put(position++, (byte) ((value & 0x7F) | 0x80));
+        }
+        segment.put(position, body, body.position(), body.remaining());
+
+        logEnd = offset + length;
+        current.put(hash(entity.id()), offset, ids, entity.id());
+        current.logEnd(logEnd);
+        return offset;
+    }
+
+    /**
+     * @return the log offset of the entity with the id, -1 if there is none
+     */
+    public long offset(String id) {
+        return index.offset(id, hash(id), ids);
+    }
+
+    public boolean contains(String id) {
+        return offset(id) >= 0;
+    }
+
+    /**
+     * @return the entity with the id, null if there is none
+     */
+    public BinaryEntity get(String id) {
+        long offset = offset(id);
+        return offset < 0 ? null : get(offset);
+    }
+
+    /**
+     * @return the entity at the log offset returned by {@link #offset(String)} or {@link #put(FtmEntity, EntityResolver)}
+     */
+    public BinaryEntity get(long offset) {
+        ByteBuffer segment = segments[(int) (offset / segmentSize)];
+        int position = (int) (offset % segmentSize);
+        long length = BinaryEntity.readVarint(segment, position);
+        return new BinaryEntity(source, segment, position + BinaryEntity.varintLength(length), (int) length);
+    }
+
+    /**
+     * Looks several ids up, without allocation.
+     * @param offsets filled with the log offset of each id, -1 if there is none
+     * @return the number of ids found
+     */
+    public int offsets(String[] ids, long[] offsets) {
+        int found = 0;
+        for (int i = 0; i < ids.length; i++) {
+            offsets[i] = offset(ids[i]);
+            found += offsets[i] >= 0 ? 1 : 0;
+        }
+        return found;
+    }
+
+    /**
+     * @return the number of distinct ids
+     */
+    public int size() {
+        return index.count();
+    }
+
+    /**
+     * Forces the log and the index to the disk.
+     */
+    public synchronized void flush() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        index.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            flush();
+            closed = true;
+            log.close();
+        }
+    }
+
+    private void addSchema(String schema) throws IOException {
+        Files.writeString(directory.resolve(SCHEMATA_FILE), schema + "\n", StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        schemaIndexes.put(schema, schemata.length);
+        String[] added = Arrays.copyOf(schemata, schemata.length + 1);
+        added[schemata.length] = schema;
+        schemata = added;
+    }
+
+    private ByteBuffer segment(int number) throws IOException {
+        MappedByteBuffer[] mapped = segments;
+        if (number < mapped.length) {
+            return mapped[number];
+        }
+        MappedByteBuffer[] added = Arrays.copyOf(mapped, number + 1);
+        for (int i = mapped.length; i <= number; i++) {
+            added[i] = log.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentSize, segmentSize);
+        }
+        segments = added;
+        return added[number];
+    }
+
+    /**
+     * Rebuilds the index with twice the slots in a new file that replaces the current one. The readers of
+     * the current index keep reading its mapping until they see the new one.
+     * @throws IllegalStateException if the index has the maximum capacity
+     */
+    private Index grow(Index current) throws IOException {
+        if (current.capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException(format("the entity store index is full with %d ids", current.count()));
+        }
+        Path indexFile = directory.resolve(INDEX_FILE);
+        Path grownFile = directory.resolve(INDEX_FILE + ".tmp");
+        Index grown = Index.create(grownFile, (int) current.capacity * 2, segmentSize, regionSlots);
+        current.copyTo(grown);
+        grown.logEnd(current.logEnd());
+        grown.force();
+        Files.move(grownFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index = grown;
+        return grown;
+    }
+
+    /**
+     * @return true if the record at the offset has the id, comparing the utf-8 bytes without decoding them
+     */
+    private boolean idAt(long offset, String id) {
+        ByteBuffer segment = segments[(int) (offset / segmentSize)];
+        int position = (int) (offset % segmentSize);
+        position += BinaryEntity.varintLength(BinaryEntity.readVarint(segment, position));
+        position += BinaryEntity.varintLength(BinaryEntity.readVarint(segment, position));
+        long header = BinaryEntity.readVarint(segment, position);
+        position += BinaryEntity.varintLength(header);
+        return utf8Equals(segment, position, (int) (header >>> 1), id);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("the entity store is closed");
+        }
+    }
+
+    static boolean utf8Equals(ByteBuffer buffer, int offset, int length, String string) {
+        int end = offset + length;
+        int position = offset;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                if (position >= end || buffer.get(position++) != (byte) c) {
+                    return false;
+                }
+                continue;
+            }
+            int codePoint = c;
+            int bytes = c < 0x800 ? 2 : 3;
+            if (Character.isHighSurrogate(c) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1))) {
+                codePoint = Character.toCodePoint(c, string.charAt(++i));
+                bytes = 4;
+            }
+            if (position + bytes > end) {
+                return false;
+            }
+            int first = switch (bytes) {
+                case 2 -> 0xC0 | codePoint >> 6;
+                case 3 -> 0xE0 | codePoint >> 12;
+                default -> 0xF0 | codePoint >> 18;
+            };
+            if (buffer.get(position++) != (byte) first) {
+                return false;
+            }
+            for (int shift = (bytes - 2) * 6; shift >= 0; shift -= 6) {
+                if (buffer.get(position++) != (byte) (0x80 | codePoint >> shift & 0x3F)) {
+                    return false;
+                }
+            }
+        }
+        return position == end;
+    }
+
+    /**
+     * @return a 64 bits hash of the id chars, never 0
+     */
+    static long hash(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash = (hash ^ id.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(0, bytes);
+        return bytes;
+    }
+
+    @FunctionalInterface
+    private interface IdMatcher {
+        boolean matches(long offset, String id);
+    }
+
+    /**
+     * Open-addressing hash table of the ids in a mapped file, with a load factor of at most 0.5. The header and
+     * each region of slots are separate mappings, a slot is in the region of its high bits.
+     */
+    private static final class Index {
+        private final MappedByteBuffer header;
+        private final MappedByteBuffer[] regions;
+        private final long capacity;
+        private final int regionShift;
+        private final long regionMask;
+
+        private Index(FileChannel channel, MappedByteBuffer header, int regionSlots) throws IOException {
+            this.header = header;
+            this.capacity = header.getInt(8);
+            int slots = (int) Math.min(capacity, regionSlots);
+            this.regionShift = Integer.numberOfTrailingZeros(slots);
+            this.regionMask = slots - 1;
+            this.regions = new MappedByteBuffer[(int) (capacity >>> regionShift)];
+            for (int i = 0; i < regions.length; i++) {
+                regions[i] = channel.map(FileChannel.MapMode.READ_WRITE, INDEX_HEADER_LENGTH + ((long) i << regionShift) * SLOT_LENGTH, (long) slots * SLOT_LENGTH);
+                regions[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        static Index create(Path file, int capacity, int segmentSize, int regionSlots) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_LENGTH);
+                header.order(ByteOrder.LITTLE_ENDIAN).put(0, INDEX_MAGIC).putInt(4, VERSION).putInt(8, capacity).putInt(12, 0)
+                        .putLong(16, LOG_HEADER_LENGTH).putInt(24, segmentSize);
+                return new Index(channel, header, regionSlots);
+            }
+        }
+
+        static Index open(Path file, int regionSlots) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (channel.size() < INDEX_HEADER_LENGTH) {
+                    throw new IOException(format("%s is not an entity store index or has an unsupported version", file));
+                }
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_LENGTH);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                int capacity = header.getInt(8);
+                if (!Arrays.equals(INDEX_MAGIC, bytes(header, INDEX_MAGIC.length)) || header.getInt(4) != VERSION
+                        || Integer.bitCount(capacity) != 1 || channel.size() != INDEX_HEADER_LENGTH + (long) capacity * SLOT_LENGTH) {
+                    throw new IOException(format("%s is not an entity store index or has an unsupported version", file));
+                }
+                return new Index(channel, header, regionSlots);
+            }
+        }
+
+        int count() {
+            return header.getInt(12);
+        }
+
+        long logEnd() {
+            return header.getLong(16);
+        }
+
+        void logEnd(long logEnd) {
+            header.putLong(16, logEnd);
+        }
+
+        int segmentSize() {
+            return header.getInt(24);
+        }
+
+        void force() {
+            for (MappedByteBuffer region : regions) {
+                region.force();
+            }
+            header.force();
+        }
+
+        long offset(String id, long hash, IdMatcher matcher) {
+            long mask = capacity - 1;
+            for (long slot = hash & mask; ; slot = slot + 1 & mask) {
+                ByteBuffer region = region(slot);
+                int position = position(slot);
+                long slotHash = (long) LONGS.getAcquire(region, position);
+                if (slotHash == 0) {
+                    return -1;
+                }
+                if (slotHash == hash) {
+                    long offset = (long) LONGS.getAcquire(region, position + Long.BYTES);
+                    if (matcher.matches(offset, id)) {
+                        return offset;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Sets the offset of the id, the offset is written before the hash so that a reader that sees the hash sees
+         * the offset. The index should have room for one more id.
+         */
+        void put(long hash, long offset, IdMatcher matcher, String id) {
+            long mask = capacity - 1;
+            for (long slot = hash & mask; ; slot = slot + 1 & mask) {
+                ByteBuffer region = region(slot);
+                int position = position(slot);
+                long slotHash = (long) LONGS.getAcquire(region, position);
+                if (slotHash == hash && matcher.matches((long) LONGS.getAcquire(region, position + Long.BYTES), id)) {
+                    LONGS.setRelease(region, position + Long.BYTES, offset);
+                    return;
+                }
+                if (slotHash == 0) {
+                    LONGS.setRelease(region, position + Long.BYTES, offset);
+                    LONGS.setRelease(region, position, hash);
+                    header.putInt(12, count() + 1);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Inserts the slots in another index, from their hashes only.
+         */
+        void copyTo(Index other) {
+            long mask = other.capacity - 1;
+            for (long i = 0; i < capacity; i++) {
+                long hash = region(i).getLong(position(i));
+                if (hash != 0) {
+                    long slot = hash & mask;
+                    while (other.region(slot).getLong(other.position(slot)) != 0) {
+                        slot = slot + 1 & mask;
+                    }
+                    other.region(slot).putLong(other.position(slot), hash);
+                    other.region(slot).putLong(other.position(slot) + Long.BYTES, region(i).getLong(position(i) + Long.BYTES));
+                }
+            }
+            other.header.putInt(12, count());
+        }
+
+        private ByteBuffer region(long slot) {
+            return regions[(int) (slot >>> regionShift)];
+        }
+
+        /**
+         * @return the position of the slot in its region
+         */
+        private int position(long slot) {
+            return (int) ((slot & regionMask) * SLOT_LENGTH);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.lang.String.format;
+
+/**
+ * Reads FtM entities of all schemata from line-delimited JSON (one entity per line), with the generated
+ * {@link JsonCodec} of their schema.
+ * <p>
+ * Lines are read one at a time into a reused buffer: the memory used does not depend on the size of the input
+ * but only on the longest line (bounded by maxLineLength). Entities are only read when asked for,
+ * with {@link #next()}, {@link #iterator()}, {@link #stream()} or pushed to a handler with {@link #read(EntityHandler)},
+ * so a slow consumer slows down the reading.
+ * </p>
+ * <p>
+ * The schema of each line is checked before its properties are read: the lines with a schema rejected by the
+ * filter (see {@link #isA(Collection, String...)}) or without codec are skipped without building any object.
+ * </p>
+ */
+public class EntityStreamReader implements Closeable {
+    public static final int DEFAULT_MAX_LINE_LENGTH = 64 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream input;
+    private final Map<String, JsonCodec<?>> codecs = new HashMap<>();
+    private final Predicate<String> schemaFilter;
+    private final EntityResolver resolver;
+    private final int maxLineLength;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private byte[] line = new byte[BUFFER_SIZE];
+    private byte[] lineBytes;
+    private int lineOffset;
+    private int lineLength;
+    private long lineNumber;
+    private long skipped;
+
+    public EntityStreamReader(InputStream input, Collection<? extends JsonCodec<?>> codecs) {
+        this(input, codecs, schema -> true, EntityResolver.NONE);
+    }
+
+    public EntityStreamReader(InputStream input, Collection<? extends JsonCodec<?>> codecs, Predicate<String> schemaFilter, EntityResolver resolver) {
+        this(input, codecs, schemaFilter, resolver, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    /**
+     * @param input line-delimited JSON entities
+     * @param codecs codecs of the schemata to read. Entities of other schemata are skipped.
+     * @param schemaFilter schemata to read
+     * @param resolver resolver of the entity-range properties
+     * @param maxLineLength maximum length of a line in bytes
+     */
+    public EntityStreamReader(InputStream input, Collection<? extends JsonCodec<?>> codecs, Predicate<String> schemaFilter, EntityResolver resolver, int maxLineLength) {
+        this.input = input;
+        for (JsonCodec<?> codec : codecs) {
+            this.codecs.put(codec.schema(), codec);
+        }
+        this.schemaFilter = schemaFilter;
+        this.resolver = resolver;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Handler of pushed entities.
+     */
+    @FunctionalInterface
+    public interface EntityHandler {
+        /**
+         * @return false to stop reading
+         */
+        boolean handle(FtmEntity<?> entity) throws IOException;
+    }
+
+    /**
+     * Filter for the schemata that are or extend one of the given schemata, for example
+     * {@code isA(codecs, "LegalEntity")} accepts Company, Organization or Person.
+     */
+    public static Predicate<String> isA(Collection<? extends JsonCodec<?>> codecs, String... schemata) {
+        List<String> accepted = Arrays.asList(schemata);
+        Set<String> schemaNames = codecs.stream()
+                .filter(codec -> codec.schemata().stream().anyMatch(accepted::contains))
+                .map(JsonCodec::schema)
+                .collect(Collectors.toSet());
+        return schemaNames::contains;
+    }
+
+    /**
+     * @return the next entity accepted by the filter, or null at the end of the input
+     * @throws IOException if the input cannot be read or if a line is not a valid entity
+     */
+    public FtmEntity<?> next() throws IOException {
+        while (readLine()) {
+            FtmEntity<?> entity = readEntity();
+            if (entity != null) {
+                return entity;
+            }
+            skipped++;
+        }
+        return null;
+    }
+
+    /**
+     * Pushes the entities to the handler until the end of the input or until the handler returns false.
+     * @return the number of handled entities
+     */
+    public long read(EntityHandler handler) throws IOException {
+        long handled = 0;
+        for (FtmEntity<?> entity = next(); entity != null; entity = next()) {
+            handled++;
+            if (!handler.handle(entity)) {
+                break;
+            }
+        }
+        return handled;
+    }
+
+    /**
+     * @return an iterator over the remaining entities. Errors are thrown as {@link UncheckedIOException}.
+     */
+    public Iterator<FtmEntity<?>> iterator() {
+        return new Iterator<>() {
+            private FtmEntity<?> next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = EntityStreamReader.this.next();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public FtmEntity<?> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                FtmEntity<?> entity = next;
+                next = null;
+                return entity;
+            }
+        };
+    }
+
+    /**
+     * @return a sequential stream of the remaining entities, closing this reader when closed
+     */
+    public Stream<FtmEntity<?>> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * @return the number of lines skipped because of their schema
+     */
+    public long skipped() {
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Reads the entity of the current line. Its schema is usually before its properties; if it is not,
+     * the line is parsed a second time once the schema is known.
+     * @return the entity or null if its schema is skipped
+     */
+    private FtmEntity<?> readEntity() throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(lineBytes, lineOffset, lineLength)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "expected an entity object, got " + parser.currentToken());
+            }
+            String id = null;
+            JsonCodec<?> codec = null;
+            Object value = null;
+            boolean propertiesBeforeSchema = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "id" -> id = parser.getValueAsString();
+                    case "schema" -> {
+                        String schema = parser.getValueAsString();
+                        codec = schemaFilter.test(schema) ? codecs.get(schema) : null;
+                        if (codec == null) {
+                            return null;
+                        }
+                    }
+                    case "properties" -> {
+                        if (codec != null && token == JsonToken.START_OBJECT) {
+                            value = codec.readProperties(parser, resolver);
+                        } else {
+                            propertiesBeforeSchema = codec == null;
+                            parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            if (codec == null) {
+                throw new JsonParseException(parser, "entity without schema");
+            }
+            if (propertiesBeforeSchema) {
+                try (JsonParser again = jsonFactory.createParser(lineBytes, lineOffset, lineLength)) {
+                    return FtmJson.read(again, codec, resolver);
+                }
+            }
+            return new FtmEntity<>(id, codec.schema(), value);
+        } catch (JsonProcessingException e) {
+            throw new IOException(format("invalid entity at line %d: %s", lineNumber, e.getOriginalMessage()), e);
+        }
+    }
+
+    /**
+     * Reads the next non blank line. The line is in the read buffer if it fits, or copied into the line buffer.
+     * @return false at the end of the input
+     */
+    private boolean readLine() throws IOException {
+        int length = 0;
+        while (true) {
+            if (position == limit) {
+                position = 0;
+                limit = Math.max(input.read(buffer, 0, buffer.length), 0);
+                if (limit == 0) {
+                    if (length == 0) {
+                        return false;
+                    }
+                    // last line without line feed
+                    setLine(line, 0, length);
+                    length = 0;
+                    lineNumber++;
+                    if (!isBlank()) {
+                        return true;
+                    }
+                    continue;
+                }
+            }
+            int end = position;
+            while (end < limit && buffer[end] != '\n') {
+                end++;
+            }
+            if (length + end - position > maxLineLength) {
+                throw new IOException(format("line %d is longer than %d bytes", lineNumber + 1, maxLineLength));
+            }
+            if (end == limit) {
+                length = append(length, end);
+                position = limit;
+                continue;
+            }
+            if (length == 0) {
+                setLine(buffer, position, end - position);
+            } else {
+                setLine(line, 0, append(length, end));
+                length = 0;
+            }
+            position = end + 1;
+            lineNumber++;
+            if (!isBlank()) {
+                return true;
+            }
+        }
+    }
+
+    private int append(int length, int end) {
+        int newLength = length + end - position;
+        if (newLength > line.length) {
+            line = Arrays.copyOf(line, (int) Math.min(Math.max(newLength, 2L * line.length), maxLineLength));
+        }
+        System.arraycopy(buffer, position, line, length, end - position);
+        return newLength;
+    }
+
+    private void setLine(byte[] bytes, int offset, int length) {
+        lineBytes = bytes;
+        lineOffset = offset;
+        lineLength = length > 0 && bytes[offset + length - 1] == '\r' ? length - 1 : length;
+    }
+
+    private boolean isBlank() {
+        for (int i = lineOffset; i < lineOffset + lineLength; i++) {
+            if (lineBytes[i] != ' ' && lineBytes[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
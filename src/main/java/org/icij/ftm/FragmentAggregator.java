@@ -0,0 +1,566 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static java.lang.String.format;
+
+/**
+ * Merges the fragments of FtM entities (partial entities with the same id) read from line-delimited JSON, with an
+ * external sort-merge: the memory used depends on the memory option, not on the size of the input.
+ * <p>
+ * The fragments are read into runs of memory / (parallelism + 1) bytes (estimated). Each full run is sorted by id,
+ * its fragments with the same id are merged and it is written to a temporary file by one of parallelism threads,
+ * while the next run is read. The runs are then merged k-way, so the entities come out sorted by id. Each merge
+ * reads at most memory / 64 KiB runs (and at least 2), so if there are more runs they are first merged by groups
+ * into larger runs, in several passes if needed: the buffers and the open files of a merge stay in the memory.
+ * </p>
+ * <p>
+ * Two fragments are merged by the union of the values of each property, in reading order, and their schema is
+ * resolved with the models hierarchy (the ancestors built from the {@link Utils#findParents parents map}): the more
+ * specific one if a schema extends the other, otherwise their closest common descendant, for example Company for
+ * Organization and Asset.
+ * </p>
+ */
+public final class FragmentAggregator {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    static final int MAX_FAN_IN = 512;
+    private static final Comparator<Fragment> BY_ID = Comparator.comparing(Fragment::id);
+    private static final String[] NO_VALUES = new String[0];
+
+    private final Map<String, Set<String>> schemata = new HashMap<>();
+    private final Map<String, JsonCodec<?>> codecs = new HashMap<>();
+    private final Map<String, String> commonSchemata = new ConcurrentHashMap<>();
+    private final long memory;
+    private final int parallelism;
+    private final int fanIn;
+    private final Path directory;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Aggregator using a quarter of the maximum heap, all the available processors and the default temporary directory.
+     */
+    public FragmentAggregator(Collection<Model> models, Collection<? extends JsonCodec<?>> codecs) {
+        this(models, codecs, Runtime.getRuntime().maxMemory() / 4, Runtime.getRuntime().availableProcessors(),
+                Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param models all the models, for example {@link ModelCatalog#models()}, to resolve the schemata
+     * @param codecs codecs of the merged entities pushed to a handler, unused for the JSON output
+     * @param memory estimated memory in bytes for the fragments
+     * @param parallelism number of threads sorting and writing the runs
+     * @param directory directory of the temporary files
+     */
+    public FragmentAggregator(Collection<Model> models, Collection<? extends JsonCodec<?>> codecs, long memory, int parallelism, Path directory) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be greater than 0, got " + parallelism);
+        }
+        if (memory < 1) {
+            throw new IllegalArgumentException("memory should be greater than 0, got " + memory);
+        }
+        for (Model model : models) {
+            Set<String> isA = new HashSet<>(model.ancestors());
+            isA.add(model.name());
+            schemata.put(model.name(), isA);
+        }
+        for (JsonCodec<?> codec : codecs) {
+            this.codecs.put(codec.schema(), codec);
+        }
+        this.memory = memory;
+        this.parallelism = parallelism;
+        this.fanIn = (int) Math.max(2, Math.min(MAX_FAN_IN, memory / BUFFER_SIZE));
+        this.directory = directory;
+    }
+
+    /**
+     * Merges the fragments and pushes the entities to the handler in id order, until the end of the input or
+     * until the handler returns false.
+     * @return the number of handled entities
+     * @throws IllegalArgumentException if a fragment has no id or an unknown schema, if fragments have incompatible
+     * schemata or if there is no codec for the schema of a merged entity
+     */
+    public long aggregate(InputStream input, EntityResolver resolver, EntityStreamReader.EntityHandler handler) throws IOException, InterruptedException {
+        ByteArrayOutputStream properties = new ByteArrayOutputStream(BUFFER_SIZE);
+        return merge(input, fragment -> {
+            JsonCodec<?> codec = codecs.get(fragment.schema());
+            if (codec == null) {
+                throw new IllegalArgumentException(format("no codec for schema %s", fragment.schema()));
+            }
+            properties.reset();
+            try (JsonGenerator generator = jsonFactory.createGenerator(properties)) {
+                fragment.writeProperties(generator);
+            }
+            return handler.handle(entity(fragment, codec, properties.toByteArray(), resolver));
+        });
+    }
+
+    /**
+     * Merges the fragments into line-delimited JSON entities, in id order. The output is not closed.
+     * @return the number of entities
+     * @throws IllegalArgumentException if a fragment has no id or an unknown schema or if fragments have incompatible schemata
+     */
+    public long aggregate(InputStream input, OutputStream output) throws IOException, InterruptedException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(output).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.setRootValueSeparator(null);
+            return merge(input, fragment -> {
+                generator.writeStartObject();
+                generator.writeStringField("id", fragment.id());
+                generator.writeStringField("schema", fragment.schema());
+                generator.writeFieldName("properties");
+                fragment.writeProperties(generator);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                return true;
+            });
+        }
+    }
+
+    /**
+     * @return the schema of the merge of entities of the two schemata
+     * @throws IllegalArgumentException if the schemata have no common descendant or several closest ones
+     */
+    String commonSchema(String schema, String other) {
+        if (schema.equals(other)) {
+            return schema;
+        }
+        return commonSchemata.computeIfAbsent(schema.compareTo(other) < 0 ? schema + ':' + other : other + ':' + schema, key -> {
+            if (schemata.get(schema).contains(other)) {
+                return schema;
+            }
+            if (schemata.get(other).contains(schema)) {
+                return other;
+            }
+            List<String> descendants = schemata.entrySet().stream()
+                    .filter(e -> e.getValue().contains(schema) && e.getValue().contains(other))
+                    .map(Map.Entry::getKey).toList();
+            List<String> closest = descendants.stream()
+                    .filter(d -> descendants.stream().noneMatch(c -> !c.equals(d) && schemata.get(d).contains(c)))
+                    .toList();
+            if (closest.size() != 1) {
+                throw new IllegalArgumentException(format("cannot merge %s and %s fragments: common descendants are %s", schema, other, closest));
+            }
+            return closest.get(0);
+        });
+    }
+
+    /**
+     * @return the maximum number of runs read by a merge
+     */
+    int fanIn() {
+        return fanIn;
+    }
+
+    private long merge(InputStream input, FragmentHandler handler) throws IOException, InterruptedException {
+        long runMemory = Math.max(1, memory / (parallelism + 1));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Semaphore permits = new Semaphore(parallelism);
+        List<Future<Path>> spilled = new ArrayList<>();
+        List<Path> files = new ArrayList<>();
+        List<Run> runs = new ArrayList<>();
+        try (JsonParser parser = jsonFactory.createParser(input)) {
+            List<Fragment> run = new ArrayList<>();
+            long runSize = 0;
+            for (Fragment fragment = read(parser); fragment != null; fragment = read(parser)) {
+                run.add(fragment);
+                runSize += fragment.size();
+                if (runSize >= runMemory) {
+                    Fragment[] fragments = run.toArray(Fragment[]::new);
+                    permits.acquire();
+                    spilled.add(pool.submit(() -> {
+                        try {
+                            return spill(combine(fragments, false));
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                    run = new ArrayList<>();
+                    runSize = 0;
+                }
+            }
+            for (Future<Path> future : spilled) {
+                files.add(future.get());
+            }
+            for (Path file : reduce(new ArrayList<>(files), files)) {
+                runs.add(new Run(runs.size(), input(file)));
+            }
+            runs.add(new Run(runs.size(), combine(run.toArray(Fragment[]::new), true)));
+            return merge(runs, handler);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Run run : runs) {
+                run.close();
+            }
+            for (Future<Path> future : spilled) {
+                try {
+                    Files.deleteIfExists(future.get());
+                } catch (ExecutionException e) {
+                    // the run was not written
+                }
+            }
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Merges the spilled runs by groups of fanIn, in passes, until they can be merged with the run in memory.
+     * @param temporary the temporary files, where the files of the merged runs are added to be deleted
+     * @return the runs to merge, in reading order
+     */
+    private List<Path> reduce(List<Path> files, List<Path> temporary) throws IOException {
+        while (files.size() >= fanIn) {
+            List<Path> merged = new ArrayList<>(files.size() / fanIn + 1);
+            for (int from = 0; from < files.size(); from += fanIn) {
+                List<Path> group = files.subList(from, Math.min(files.size(), from + fanIn));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                Path file = Files.createTempFile(directory, "fragments", ".run");
+                temporary.add(file);
+                List<Run> runs = new ArrayList<>(group.size());
+                try (DataOutputStream output = output(file)) {
+                    for (Path run : group) {
+                        runs.add(new Run(runs.size(), input(run)));
+                    }
+                    merge(runs, fragment -> {
+                        fragment.write(output);
+                        return true;
+                    });
+                    output.writeBoolean(false);
+                } finally {
+                    for (Run run : runs) {
+                        run.close();
+                    }
+                }
+                for (Path run : group) {
+                    Files.delete(run);
+                }
+                merged.add(file);
+            }
+            files = merged;
+        }
+        return files;
+    }
+
+    /**
+     * K-way merge of the runs, each having at most one fragment per id.
+     */
+    private long merge(List<Run> runs, FragmentHandler handler) throws IOException {
+        PriorityQueue<Run> queue = new PriorityQueue<>(Math.max(1, runs.size()),
+                Comparator.comparing((Run r) -> r.current.id()).thenComparingInt(r -> r.index));
+        for (Run run : runs) {
+            if (run.advance()) {
+                queue.add(run);
+            }
+        }
+        long count = 0;
+        while (!queue.isEmpty()) {
+            Run run = queue.poll();
+            Fragment merged = run.current;
+            advance(run, queue);
+            while (!queue.isEmpty() && queue.peek().current.id().equals(merged.id())) {
+                Run next = queue.poll();
+                merged = merge(merged, next.current);
+                advance(next, queue);
+            }
+            count++;
+            if (!handler.handle(merged)) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private static void advance(Run run, PriorityQueue<Run> queue) throws IOException {
+        if (run.advance()) {
+            queue.add(run);
+        }
+    }
+
+    /**
+     * Sorts the run by id, keeping the reading order of the fragments with the same id, and merges them.
+     */
+    private Fragment[] combine(Fragment[] run, boolean parallel) {
+        if (parallel) {
+            Arrays.parallelSort(run, BY_ID);
+        } else {
+            Arrays.sort(run, BY_ID);
+        }
+        int size = 0;
+        for (Fragment fragment : run) {
+            if (size > 0 && run[size - 1].id().equals(fragment.id())) {
+                run[size - 1] = merge(run[size - 1], fragment);
+            } else {
+                run[size++] = fragment;
+            }
+        }
+        return size == run.length ? run : Arrays.copyOf(run, size);
+    }
+
+    private Fragment merge(Fragment fragment, Fragment other) {
+        String schema = commonSchema(fragment.schema(), other.schema());
+        List<String> names = new ArrayList<>(fragment.names().length + other.names().length);
+        List<String[]> values = new ArrayList<>(fragment.names().length + other.names().length);
+        int i = 0;
+        int j = 0;
+        while (i < fragment.names().length || j < other.names().length) {
+            int comparison = i == fragment.names().length ? 1 : j == other.names().length ? -1 : fragment.names()[i].compareTo(other.names()[j]);
+            if (comparison < 0) {
+                names.add(fragment.names()[i]);
+                values.add(fragment.values()[i++]);
+            } else if (comparison > 0) {
+                names.add(other.names()[j]);
+                values.add(other.values()[j++]);
+            } else {
+                names.add(fragment.names()[i]);
+                values.add(union(fragment.values()[i++], other.values()[j++]));
+            }
+        }
+        return new Fragment(fragment.id(), schema, names.toArray(String[]::new), values.toArray(String[][]::new));
+    }
+
+    private static String[] union(String[] values, String[] others) {
+        Set<String> union = new LinkedHashSet<>(Arrays.asList(values));
+        union.addAll(Arrays.asList(others));
+        return union.size() == values.length ? values : union.toArray(NO_VALUES);
+    }
+
+    /**
+     * @return the next fragment of the input, or null at the end of the input
+     */
+    private Fragment read(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "expected an entity object, got " + token);
+        }
+        String id = null;
+        String schema = null;
+        TreeMap<String, String[]> properties = new TreeMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> id = parser.getValueAsString();
+                case "schema" -> schema = parser.getValueAsString();
+                case "properties" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String name = parser.currentName();
+                            parser.nextToken();
+                            String[] values = FtmJson.readStrings(parser);
+                            if (values != null) {
+                                properties.merge(name, union(values, NO_VALUES), FragmentAggregator::union);
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if (id == null) {
+            throw new IllegalArgumentException("cannot merge a fragment without id");
+        }
+        if (schema == null || !schemata.containsKey(schema)) {
+            throw new IllegalArgumentException(format("unknown schema %s for fragment %s", schema, id));
+        }
+        return new Fragment(id, schema, properties.keySet().toArray(String[]::new), properties.values().toArray(String[][]::new));
+    }
+
+    private Path spill(Fragment[] run) throws IOException {
+        Path file = Files.createTempFile(directory, "fragments", ".run");
+        try (DataOutputStream output = output(file)) {
+            for (Fragment fragment : run) {
+                fragment.write(output);
+            }
+            output.writeBoolean(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    private static DataOutputStream output(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+    }
+
+    private static DataInputStream input(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+    }
+
+    private <T> FtmEntity<T> entity(Fragment fragment, JsonCodec<T> codec, byte[] properties, EntityResolver resolver) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(properties)) {
+            parser.nextToken();
+            return new FtmEntity<>(fragment.id(), fragment.schema(), codec.readProperties(parser, resolver));
+        }
+    }
+
+    @FunctionalInterface
+    private interface FragmentHandler {
+        boolean handle(Fragment fragment) throws IOException;
+    }
+
+    /**
+     * Entity fragment with the values of each property, the property names sorted.
+     */
+    private record Fragment(String id, String schema, String[] names, String[][] values) {
+        /**
+         * @return the estimated size in memory
+         */
+        long size() {
+            long size = 64 + size(id) + 16L * names.length;
+            for (int i = 0; i < names.length; i++) {
+                size += size(names[i]) + 16;
+                for (String value : values[i]) {
+                    size += size(value) + 8;
+                }
+            }
+            return size;
+        }
+
+        void writeProperties(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < names.length; i++) {
+                generator.writeArrayFieldStart(names[i]);
+                for (String value : values[i]) {
+                    generator.writeString(value);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+
+        /**
+         * Writes the fragment preceded by true, the runs end with false.
+         */
+        void write(DataOutputStream output) throws IOException {
+            output.writeBoolean(true);
+            writeString(output, id);
+            writeString(output, schema);
+            output.writeInt(names.length);
+            for (int i = 0; i < names.length; i++) {
+                writeString(output, names[i]);
+                output.writeInt(values[i].length);
+                for (String value : values[i]) {
+                    writeString(output, value);
+                }
+            }
+        }
+
+        static Fragment read(DataInputStream input) throws IOException {
+            String id = readString(input);
+            String schema = readString(input);
+            String[] names = new String[input.readInt()];
+            String[][] values = new String[names.length][];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = readString(input);
+                values[i] = new String[input.readInt()];
+                for (int j = 0; j < values[i].length; j++) {
+                    values[i][j] = readString(input);
+                }
+            }
+            return new Fragment(id, schema, names, values);
+        }
+
+        private static long size(String value) {
+            return 40 + 2L * value.length();
+        }
+
+        private static void writeString(DataOutputStream output, String value) throws IOException {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(utf8.length);
+            output.write(utf8);
+        }
+
+        private static String readString(DataInputStream input) throws IOException {
+            byte[] utf8 = new byte[input.readInt()];
+            input.readFully(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Sorted run of fragments, in memory or in a temporary file.
+     */
+    private static final class Run implements Closeable {
+        private final int index;
+        private final Fragment[] fragments;
+        private final DataInputStream input;
+        private int position;
+        private Fragment current;
+
+        Run(int index, Fragment[] fragments) {
+            this.index = index;
+            this.fragments = fragments;
+            this.input = null;
+        }
+
+        Run(int index, DataInputStream input) {
+            this.index = index;
+            this.fragments = null;
+            this.input = input;
+        }
+
+        boolean advance() throws IOException {
+            boolean next = input == null ? position < fragments.length : input.readBoolean();
+            current = !next ? null : input == null ? fragments[position++] : Fragment.read(input);
+            return next;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (input != null) {
+                input.close();
+            }
+        }
+    }
+}
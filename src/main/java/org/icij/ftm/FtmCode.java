@@ -0,0 +1,89 @@
+package org.icij.ftm;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.String.format;
+
+/**
+ * Code of a FtM code list property (country, language or topic), interned by type.
+ * <p>
+ * The code lists are not in the yaml models, so the codes are not generated as enums: each distinct code
+ * is created once and shared by all the entities, with a dense id in the order the codes are first seen.
+ * An entity only holds a reference, codes are compared by identity and the ids can index arrays or bitsets.
+ * The code string is kept as read.
+ * </p>
+ */
+public final class FtmCode implements Comparable<FtmCode> {
+    private static final Map<ValueType, Map<String, FtmCode>> codes = new EnumMap<>(ValueType.class);
+    static {
+        for (ValueType type : ValueType.values()) {
+            if (type.isCode()) {
+                codes.put(type, new ConcurrentHashMap<>());
+            }
+        }
+    }
+
+    private final ValueType type;
+    private final String code;
+    private final int id;
+
+    private FtmCode(ValueType type, String code, int id) {
+        this.type = type;
+        this.code = code;
+        this.id = id;
+    }
+
+    /**
+     * @return the interned code, or null if the string is null or empty
+     * @throws IllegalArgumentException if the type is not a code list type
+     */
+    public static FtmCode of(ValueType type, String code) {
+        Map<String, FtmCode> typeCodes = codes.get(type);
+        if (typeCodes == null) {
+            throw new IllegalArgumentException(format("%s is not a code list type", type));
+        }
+        if (code == null || code.isEmpty()) {
+            return null;
+        }
+        FtmCode existing = typeCodes.get(code);
+        if (existing != null) {
+            return existing;
+        }
+        // codes are only added under the lock so that their ids are dense
+        synchronized (typeCodes) {
+            return typeCodes.computeIfAbsent(code, c -> new FtmCode(type, c, typeCodes.size()));
+        }
+    }
+
+    /**
+     * @return the number of codes of the type, the ids are from 0 to count - 1
+     */
+    public static int count(ValueType type) {
+        Map<String, FtmCode> typeCodes = codes.get(type);
+        return typeCodes == null ? 0 : typeCodes.size();
+    }
+
+    public ValueType type() {
+        return type;
+    }
+
+    public String code() {
+        return code;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public int compareTo(FtmCode other) {
+        return code.compareTo(other.code);
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
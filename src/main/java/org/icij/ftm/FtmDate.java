@@ -0,0 +1,193 @@
+package org.icij.ftm;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * FtM dates with partial precision ({@code 2001}, {@code 2001-02}, {@code 2001-02-03}, {@code 2001-02-03T04},
+ * {@code 2001-02-03T04:05} or {@code 2001-02-03T04:05:06}) packed into a long.
+ * <p>
+ * The fields are packed from the year to the second with the precision in the lowest bits, so that
+ * comparing packed dates is comparing them chronologically (a date sorts before its more precise forms).
+ * Fields beyond the precision are 0, and 0 is no date: the precision is never 0, so the year 0 is a date.
+ * These ISO 8601 forms are formatted back to the parsed string. Timestamps with a fraction of second or a time
+ * zone ({@code 2001-02-03T04:05:06.789+02:00}) are normalized like FtM does, to the second in UTC.
+ * </p>
+ */
+public final class FtmDate {
+    public enum Precision {YEAR, MONTH, DAY, HOUR, MINUTE, SECOND}
+
+    private static final int PRECISION_BITS = 3;
+    // year, month, day, hour, minute, second
+    private static final int[] BITS = {14, 4, 5, 5, 6, 6};
+    private static final int[] LENGTHS = {4, 7, 10, 13, 16, 19};
+    private static final String SEPARATORS = "--T::";
+    private static final int NO_OFFSET = Integer.MIN_VALUE;
+
+    private FtmDate() {}
+
+    /**
+     * @return the packed date, or 0 if the string is null or not a date
+     */
+    public static long parse(String date) {
+        if (date == null) {
+            return 0;
+        }
+        int precision = date.length() > LENGTHS[LENGTHS.length - 1] ? LENGTHS.length - 1 : -1;
+        for (int i = 0; i < LENGTHS.length; i++) {
+            if (LENGTHS[i] == date.length()) {
+                precision = i;
+            }
+        }
+        if (precision < 0 || !isDigits(date, 0, 4)) {
+            return 0;
+        }
+        int[] fields = new int[6];
+        fields[0] = Integer.parseInt(date, 0, 4, 10);
+        for (int i = 1; i <= precision; i++) {
+            int start = LENGTHS[i - 1];
+            if (date.charAt(start) != SEPARATORS.charAt(i - 1) || !isDigits(date, start + 1, start + 3)) {
+                return 0;
+            }
+            fields[i] = Integer.parseInt(date, start + 1, start + 3, 10);
+        }
+        if (precision >= 1 && (fields[1] < 1 || fields[1] > 12) || precision >= 2 && (fields[2] < 1 || fields[2] > YearMonth.of(fields[0], fields[1]).lengthOfMonth())
+                || fields[3] > 23 || fields[4] > 59 || fields[5] > 59) {
+            return 0;
+        }
+        if (date.length() > LENGTHS[precision]) {
+            return toUtc(fields, offsetSeconds(date, LENGTHS[precision]));
+        }
+        return pack(fields, precision);
+    }
+
+    /**
+     * @return the date string, or null for 0
+     */
+    public static String format(long date) {
+        if (date == 0) {
+            return null;
+        }
+        int precision = precision(date).ordinal();
+        StringBuilder string = new StringBuilder(LENGTHS[precision]);
+        appendPadded(string, field(date, 0), 4);
+        for (int i = 1; i <= precision; i++) {
+            appendPadded(string.append(SEPARATORS.charAt(i - 1)), field(date, i), 2);
+        }
+        return string.toString();
+    }
+
+    public static Precision precision(long date) {
+        if (date == 0) {
+            throw new IllegalArgumentException("0 is not a date");
+        }
+        return Precision.values()[(int) (date & ((1 << PRECISION_BITS) - 1)) - 1];
+    }
+
+    public static int year(long date) {
+        return field(date, 0);
+    }
+
+    /**
+     * @return the month from 1 to 12, or 0 if the date is less precise
+     */
+    public static int month(long date) {
+        return field(date, 1);
+    }
+
+    /**
+     * @return the day of month from 1 to 31, or 0 if the date is less precise
+     */
+    public static int day(long date) {
+        return field(date, 2);
+    }
+
+    /**
+     * @return the date with the missing fields at their minimum (January 1st, midnight)
+     */
+    public static LocalDateTime toLocalDateTime(long date) {
+        if (date == 0) {
+            throw new IllegalArgumentException("0 is not a date");
+        }
+        return LocalDateTime.of(year(date), Math.max(1, month(date)), Math.max(1, day(date)),
+                field(date, 3), field(date, 4), field(date, 5));
+    }
+
+    /**
+     * @return the timestamp packed to the second in UTC, or 0 if the offset is invalid
+     */
+    private static long toUtc(int[] fields, int offsetSeconds) {
+        if (offsetSeconds == NO_OFFSET) {
+            return 0;
+        }
+        LocalDateTime utc = LocalDateTime.of(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5]).minusSeconds(offsetSeconds);
+        if (utc.getYear() < 0 || utc.getYear() > 9999) {
+            return 0;
+        }
+        return pack(new int[] {utc.getYear(), utc.getMonthValue(), utc.getDayOfMonth(), utc.getHour(), utc.getMinute(), utc.getSecond()},
+                Precision.SECOND.ordinal());
+    }
+
+    /**
+     * Parses the end of a timestamp: an optional fraction of second then an optional {@code Z}, {@code ±HH},
+     * {@code ±HHMM} or {@code ±HH:MM} time zone.
+     * @return the offset in seconds, or {@link #NO_OFFSET} if the end is not valid
+     */
+    private static int offsetSeconds(String date, int start) {
+        int i = start;
+        if (date.charAt(i) == '.') {
+            int digits = ++i;
+            while (i < date.length() && isDigits(date, i, i + 1)) {
+                i++;
+            }
+            if (i == digits) {
+                return NO_OFFSET;
+            }
+        }
+        if (i == date.length() || date.charAt(i) == 'Z' && i + 1 == date.length()) {
+            return 0;
+        }
+        char sign = date.charAt(i);
+        String zone = date.substring(i + 1).replace(":", "");
+        if (sign != '+' && sign != '-' || zone.length() != 2 && zone.length() != 4 || !isDigits(zone, 0, zone.length())
+                || date.indexOf(':', i) >= 0 && date.indexOf(':', i) != i + 3) {
+            return NO_OFFSET;
+        }
+        int hours = Integer.parseInt(zone, 0, 2, 10);
+        int minutes = zone.length() == 4 ? Integer.parseInt(zone, 2, 4, 10) : 0;
+        if (hours > 18 || minutes > 59) {
+            return NO_OFFSET;
+        }
+        return (sign == '-' ? -1 : 1) * (hours * 3600 + minutes * 60);
+    }
+
+    private static long pack(int[] fields, int precision) {
+        long packed = 0;
+        for (int i = 0; i < fields.length; i++) {
+            packed = packed << BITS[i] | fields[i];
+        }
+        return packed << PRECISION_BITS | (precision + 1);
+    }
+
+    private static int field(long date, int index) {
+        int shift = PRECISION_BITS;
+        for (int i = BITS.length - 1; i > index; i--) {
+            shift += BITS[i];
+        }
+        return (int) (date >>> shift) & ((1 << BITS[index]) - 1);
+    }
+
+    private static void appendPadded(StringBuilder string, int value, int length) {
+        String digits = Integer.toString(value);
+        string.append("0".repeat(length - digits.length())).append(digits);
+    }
+
+    private static boolean isDigits(String string, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (string.charAt(i) < '0' || string.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,9 @@
+package org.icij.ftm;
+
+/**
+ * An FtM entity with its id and schema name around the generated record or class.
+ * @param id entity id
+ * @param schema FtM schema name
+ * @param value the properties of the entity
+ */
+public record FtmEntity<T>(String id, String schema, T value) {}
@@ -0,0 +1,295 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Reading and writing of FtM JSON entities with jackson-core, used by the generated {@link JsonCodec}.
+ * <p>
+ * FtM property values are always arrays of strings. The generated types have one value per property:
+ * the first value is read and the others are skipped, except with the {@link SourceGenerator.Layout#MULTI} layout
+ * that reads all of them with {@link #readStrings(JsonParser)}. Numbers and dates that cannot be parsed are read as 0
+ * (null for decimals), and the {@link FtmValue} types are validated lazily, when used. Empty values are not written.
+ * </p>
+ */
+public final class FtmJson {
+    private FtmJson() {}
+
+    /**
+     * Reads an entity {@code {"id": ..., "schema": ..., "properties": {...}}}. The parser is on the
+     * {@code START_OBJECT} token (or before it) and is left on the matching {@code END_OBJECT} token.
+     *
+     * @throws JsonParseException if the schema of the entity is not the schema of the codec
+     */
+    public static <T> FtmEntity<T> read(JsonParser parser, JsonCodec<T> codec, EntityResolver resolver) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT && parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "expected an entity object, got " + parser.currentToken());
+        }
+        String id = null;
+        T value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "id" -> id = parser.getValueAsString();
+                case "schema" -> {
+                    if (!codec.schema().equals(parser.getValueAsString())) {
+                        throw new JsonParseException(parser, "expected schema " + codec.schema() + ", got " + parser.getValueAsString());
+                    }
+                }
+                case "properties" -> value = token == JsonToken.START_OBJECT ? codec.readProperties(parser, resolver) : skip(parser, null);
+                default -> parser.skipChildren();
+            }
+        }
+        return new FtmEntity<>(id, codec.schema(), value);
+    }
+
+    public static <T> void write(FtmEntity<T> entity, JsonCodec<T> codec, JsonGenerator generator, EntityResolver resolver) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", entity.id());
+        generator.writeStringField("schema", codec.schema());
+        generator.writeFieldName("properties");
+        codec.writeProperties(entity.value(), generator, resolver);
+        generator.writeEndObject();
+    }
+
+    /**
+     * @return the first string value of the current property, or null if the array is empty
+     */
+    public static String readString(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            return scalar(parser);
+        }
+        String value = null;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (value == null) {
+                value = scalar(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return all the non null string values of the current property, or null if there is none
+     */
+    public static String[] readStrings(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            String value = scalar(parser);
+            return value == null ? null : new String[] {value};
+        }
+        String[] values = new String[1];
+        int count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String value = scalar(parser);
+            if (value != null) {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                values[count++] = value;
+            }
+        }
+        return count == 0 ? null : count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * @return the first value of the current property as an int, 0 if empty or not a number
+     */
+    public static int readInt(JsonParser parser) throws IOException {
+        return parseInt(readString(parser));
+    }
+
+    /**
+     * @return the value as an int, 0 if null or not a number
+     */
+    public static int parseInt(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the first value of the current property as a long, 0 if empty or not a number
+     */
+    public static long readLong(JsonParser parser) throws IOException {
+        return parseLong(readString(parser));
+    }
+
+    /**
+     * @return the value as a long, 0 if null or not a number
+     */
+    public static long parseLong(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the first value of the current property as a double, 0 if empty or not a number
+     */
+    public static double readDouble(JsonParser parser) throws IOException {
+        return parseDouble(readString(parser));
+    }
+
+    /**
+     * @return the value as a double, 0 if null or not a number
+     */
+    public static double parseDouble(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the first value of the current property as a decimal, null if empty or not a number
+     */
+    public static BigDecimal readDecimal(JsonParser parser) throws IOException {
+        return parseDecimal(readString(parser));
+    }
+
+    /**
+     * @return the value as a decimal, null if null or not a number
+     */
+    public static BigDecimal parseDecimal(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the entity referenced by the first id of the current property, or null if unknown.
+     * An embedded entity object is resolved with its id.
+     */
+    public static Object readReference(JsonParser parser, EntityResolver resolver) throws IOException {
+        String id = readString(parser);
+        return id == null ? null : resolver.resolve(id);
+    }
+
+    public static void writeString(JsonGenerator generator, String name, String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            generator.writeFieldName(name);
+            generator.writeStartArray();
+            generator.writeString(value);
+            generator.writeEndArray();
+        }
+    }
+
+    public static void writeInt(JsonGenerator generator, String name, int value) throws IOException {
+        if (value != 0) {
+            writeString(generator, name, Integer.toString(value));
+        }
+    }
+
+    public static void writeLong(JsonGenerator generator, String name, long value) throws IOException {
+        if (value != 0) {
+            writeString(generator, name, Long.toString(value));
+        }
+    }
+
+    /**
+     * Writes integral values without fraction, as they are usually read.
+     */
+    public static void writeDouble(JsonGenerator generator, String name, double value) throws IOException {
+        if (value != 0) {
+            writeString(generator, name, formatDouble(value));
+        }
+    }
+
+    /**
+     * @return the value without fraction if it is integral
+     */
+    public static String formatDouble(double value) {
+        boolean integral = value == Math.rint(value) && Math.abs(value) < 1e15;
+        return integral ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    public static void writeDecimal(JsonGenerator generator, String name, BigDecimal value) throws IOException {
+        if (value != null) {
+            writeString(generator, name, value.toString());
+        }
+    }
+
+    /**
+     * @param value date packed by {@link FtmDate}
+     */
+    public static void writeDate(JsonGenerator generator, String name, long value) throws IOException {
+        if (value != 0) {
+            writeString(generator, name, FtmDate.format(value));
+        }
+    }
+
+    public static void writeCode(JsonGenerator generator, String name, FtmCode value) throws IOException {
+        if (value != null) {
+            writeString(generator, name, value.code());
+        }
+    }
+
+    public static void writeValue(JsonGenerator generator, String name, FtmValue value) throws IOException {
+        if (value != null) {
+            writeString(generator, name, value.value());
+        }
+    }
+
+    public static void writeReference(JsonGenerator generator, String name, Object value, EntityResolver resolver) throws IOException {
+        if (value != null) {
+            writeString(generator, name, resolver.idOf(value));
+        }
+    }
+
+    private static String scalar(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            return embeddedId(parser);
+        }
+        if (token == JsonToken.START_ARRAY) {
+            return skip(parser, null);
+        }
+        return token == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+    }
+
+    private static String embeddedId(JsonParser parser) throws IOException {
+        String id = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("id".equals(field)) {
+                id = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return id;
+    }
+
+    private static <T> T skip(JsonParser parser, T value) throws IOException {
+        parser.skipChildren();
+        return value;
+    }
+}
@@ -0,0 +1,73 @@
+package org.icij.ftm;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates the FtM models during the compilation of the annotated type or package, with {@link FtmSchemaProcessor}.
+ * The options are the same as the command line options of {@link Main}:
+ * <pre>
+ * &#64;FtmSchema(source = "classpath:schema", schemata = {"Person", "Company"}, interfaces = false, jsonCodecs = true)
+ * package com.example.ftm;
+ * </pre>
+ * The sources are generated in the package of the annotated element, unless {@link #packageName()} is set, so that
+ * they do not shadow the classes of the same name generated into ftm.java.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({ElementType.TYPE, ElementType.PACKAGE})
+public @interface FtmSchema {
+    /**
+     * @return schema directory (relative to the working directory of the compiler), classpath:&lt;dir&gt; or contents API URL
+     */
+    String source() default Main.SCHEMA_URL;
+
+    /**
+     * @return package of the generated sources, the package of the annotated element if empty
+     */
+    String packageName() default "";
+
+    /**
+     * @return cache directory for a URL source (relative to the working directory of the compiler), the
+     * {@link Main#DEFAULT_CACHE_DIR user cache} if empty
+     */
+    String cacheDir() default "";
+
+    /**
+     * @return schema git revision for a URL source
+     */
+    String revision() default Main.DEFAULT_REVISION;
+
+    /**
+     * @return true to only use the cache of a URL source
+     */
+    boolean offline() default false;
+
+    /**
+     * @return the schemata to generate, with the schemata they extend. All the schemata if empty.
+     */
+    String[] schemata() default {};
+
+    Model.Mode attributeMode() default Model.Mode.FULL;
+
+    boolean interfaces() default true;
+
+    SourceGenerator.Layout layout() default SourceGenerator.Layout.FIELDS;
+
+    ValueType numberType() default ValueType.INT;
+
+    boolean typedValues() default false;
+
+    boolean jsonCodecs() default false;
+
+    boolean binaryCodecs() default false;
+
+    boolean accessors() default false;
+
+    boolean batches() default false;
+
+    boolean edges() default false;
+
+    boolean registry() default false;
+}
@@ -0,0 +1,127 @@
+package org.icij.ftm;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.String.format;
+import static org.icij.ftm.Utils.propertiesFromMap;
+
+/**
+ * Annotation processor generating the FtM models of {@link FtmSchema} annotations with {@link SourceGenerator}.
+ * <p>
+ * The sources are created with the {@link javax.annotation.processing.Filer}, so they are compiled in the same
+ * javac run as the annotated code, and the annotated element is their originating element for incremental builds.
+ * It is registered as a service: it runs when ftm.java is in the compile classpath (or the annotation processor path).
+ * The sources are generated in the package of the annotated element by default, and import the ftm.java classes.
+ * </p>
+ */
+@SupportedAnnotationTypes("org.icij.ftm.FtmSchema")
+public class FtmSchemaProcessor extends AbstractProcessor {
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(FtmSchema.class)) {
+            try {
+                generate(element.getAnnotation(FtmSchema.class), element);
+            } catch (IOException | RuntimeException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, format("cannot generate FtM sources: %s", e), element);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "FtM sources generation interrupted", element);
+            }
+        }
+        return true;
+    }
+
+    private void generate(FtmSchema schema, Element element) throws IOException, InterruptedException {
+        File[] yamlFiles = SchemaSource.yamlFiles(fetch(schema)).stream().map(Path::toFile).toArray(File[]::new);
+        ModelCatalog catalog = ModelCatalog.load(yamlFiles, schema.attributeMode(), 1);
+        List<Model> models = selected(catalog, schema.schemata());
+        String packageName = schema.packageName().isEmpty() ?
+                processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString() : schema.packageName();
+        SourceGenerator sourceGenerator = new SourceGenerator(propertiesFromMap(Map.ofEntries(
+                Map.entry("parents", catalog.parents()),
+                Map.entry("models", models.stream().map(Model::name).toList()),
+                Map.entry("attributeMode", schema.attributeMode().name()),
+                Map.entry("interfaces", schema.interfaces()),
+                Map.entry("layout", schema.layout().name()),
+                Map.entry("numberType", schema.numberType().name()),
+                Map.entry("typedValues", schema.typedValues()),
+                Map.entry("jsonCodecs", schema.jsonCodecs()),
+                Map.entry("binaryCodecs", schema.binaryCodecs()),
+                Map.entry("accessors", schema.accessors()),
+                Map.entry("batches", schema.batches()),
+                Map.entry("edges", schema.edges()),
+                Map.entry("packageName", packageName))));
+        for (Model model : models) {
+            sourceGenerator.generateFiles(model, className -> processingEnv.getFiler().createSourceFile(qualifiedName(packageName, className), element).openWriter());
+        }
+        if (schema.registry()) {
+            write(qualifiedName(packageName, SchemaRegistryGenerator.CLASS_NAME), sourceGenerator.generateRegistry(models), element);
+        }
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, format("generated %d FtM models from %s", models.size(), schema.source()), element);
+    }
+
+    /**
+     * Classpath sources are read with the class loader of the processor, that has the compile classpath.
+     */
+    private Path fetch(FtmSchema schema) throws IOException, InterruptedException {
+        SchemaSource source = SchemaSource.of(schema.source(), schema.revision(),
+                Path.of(schema.cacheDir().isEmpty() ? Main.DEFAULT_CACHE_DIR : schema.cacheDir()), schema.offline());
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(getClass().getClassLoader());
+        try {
+            return source.fetch();
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    /**
+     * @return the models of the schemata and of their ancestors, in the catalog order. All the models if schemata is empty.
+     * @throws IllegalArgumentException if a schema is unknown
+     */
+    static List<Model> selected(ModelCatalog catalog, String[] schemata) {
+        if (schemata.length == 0) {
+            return catalog.models();
+        }
+        Set<String> names = new HashSet<>(Arrays.asList(schemata));
+        for (String name : schemata) {
+            Model model = catalog.model(name);
+            if (model == null) {
+                throw new IllegalArgumentException(format("unknown schema %s", name));
+            }
+            names.addAll(model.ancestors());
+        }
+        return catalog.models().stream().filter(model -> names.contains(model.name())).toList();
+    }
+
+    private static String qualifiedName(String packageName, String className) {
+        return packageName.isEmpty() ? className : packageName + '.' + className;
+    }
+
+    private void write(String qualifiedName, String code, Element element) throws IOException {
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, element).openWriter()) {
+            writer.write(code);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.icij.ftm;
+
+/**
+ * Value of a FtM property type that has a normalized form: {@link UrlValue}, {@link EmailValue}, {@link IpValue}
+ * and {@link IbanValue}.
+ * <p>
+ * A value only holds its raw string. It is validated and normalized on the first call to {@link #normalized()},
+ * then the result is cached. Equality and hash code are the ones of the raw string: they never parse the value
+ * nor resolve a host name, unlike {@link java.net.URL#equals}, so values can be hashed in bulk.
+ * </p>
+ */
+public abstract class FtmValue {
+    private static final String INVALID = new String();
+    private final String value;
+    // benign race: a value is normalized at most once per thread and strings are immutable
+    private String normalized;
+
+    protected FtmValue(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null");
+        }
+        this.value = value;
+    }
+
+    /**
+     * @return the raw value, as read
+     */
+    public String value() {
+        return value;
+    }
+
+    /**
+     * @return the normalized value, or null if the value is invalid
+     */
+    public String normalized() {
+        String result = normalized;
+        if (result == null) {
+            result = normalize(value);
+            normalized = result = result == null ? INVALID : result;
+        }
+        return result == INVALID ? null : result;
+    }
+
+    public boolean isValid() {
+        return normalized() != null;
+    }
+
+    /**
+     * @return the normalized form of the raw value, or null if it is invalid
+     */
+    protected abstract String normalize(String value);
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return value.equals(((FtmValue) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,230 @@
+package org.icij.ftm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manifest of the content hashes used for the last generation of each model.
+ * <p>
+ * The hash of a model covers its yaml file, the yaml files of all its ancestors, the generator options
+ * and the generator classes. When the hash stored in the manifest is the same and the java file is still
+ * there, the generation of the model can be skipped.
+ * </p>
+ * <p>
+ * The manifest is stored as a properties file (model name = hash). It also keeps the names of the classes
+ * generated for each model ({@code <model name>.classes = Model,ModelJsonCodec}) so that the sources of the
+ * skipped models can be found.
+ * </p>
+ */
+public class GenerationManifest {
+    private final Path manifestFile;
+    private final Map<String, String> previous;
+    private final Map<String, String> current = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> previousClasses = new HashMap<>();
+    private final Map<String, List<String>> currentClasses = new ConcurrentHashMap<>();
+    private final Map<String, File> yamlFiles = new HashMap<>();
+    private final Map<String, String> fileHashes = new ConcurrentHashMap<>();
+    private final Map<String, Model> parents;
+    private final Map<String, Model> models = new HashMap<>();
+    private final String optionsHash;
+    private static final String CLASSES_SUFFIX = ".classes";
+    /**
+     * Classes of the generator code: any change of their bytecode should regenerate the sources. Model includes
+     * the property lookups the generators depend on, like {@link Model#schemaOf} for the edge labels. All the
+     * {@code *Generator} classes of the package should be listed.
+     */
+    static final List<Class<?>> GENERATOR_CLASSES = List.of(SourceGenerator.class, JsonCodecGenerator.class,
+            BinaryCodecGenerator.class, PropertyAccessorGenerator.class, ColumnBatchGenerator.class,
+            EdgeExtractorGenerator.class, SchemaRegistryGenerator.class, JavaWriter.class, ValueType.class, Model.class);
+
+    /**
+     * @param manifestFile the properties file storing hashes. It is read if it exists.
+     * @param yamlFiles all the yaml models of the generation
+     * @param properties the generator properties
+     */
+    public GenerationManifest(Path manifestFile, File[] yamlFiles, Properties properties) throws IOException {
+        this(manifestFile, yamlFiles, properties, GENERATOR_CLASSES);
+    }
+
+    /**
+     * @param generatorClasses the classes whose bytecode is hashed with the options
+     */
+    GenerationManifest(Path manifestFile, File[] yamlFiles, Properties properties, List<Class<?>> generatorClasses) throws IOException {
+        this.manifestFile = manifestFile;
+        this.previous = read(manifestFile);
+        for (String key : List.copyOf(previous.keySet())) {
+            if (key.endsWith(CLASSES_SUFFIX)) {
+                String classes = previous.remove(key);
+                previousClasses.put(key.substring(0, key.length() - CLASSES_SUFFIX.length()), classes.isEmpty() ? List.of() : List.of(classes.split(",")));
+            }
+        }
+        for (File yamlFile : yamlFiles) {
+            this.yamlFiles.put(modelName(yamlFile), yamlFile);
+        }
+        this.parents = parents(properties);
+        this.optionsHash = optionsHash(properties, generatorClasses);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Model> parents(Properties properties) {
+        return (Map<String, Model>) properties.getOrDefault("parents", Map.of());
+    }
+
+    /**
+     * Same as {@link #GenerationManifest(Path, File[], Properties)} with the models already loaded, so that the yaml
+     * files are not parsed again to find the ancestors of the models.
+     */
+    public GenerationManifest(Path manifestFile, ModelCatalog catalog, Properties properties) throws IOException {
+        this(manifestFile, catalog.yamlFiles(), properties);
+        catalog.models().forEach(model -> models.put(model.name(), model));
+    }
+
+    /**
+     * @return true if the model has been generated with the same inputs and if its java files still exist
+     * (javaFile and the other classes generated for the model in the same directory)
+     */
+    public boolean isUpToDate(File yamlFile, Path javaFile) throws IOException {
+        String name = modelName(yamlFile);
+        String hash = hash(yamlFile);
+        current.put(name, hash);
+        List<String> classes = previousClasses.get(name);
+        boolean upToDate = hash.equals(previous.get(name)) && Files.exists(javaFile) &&
+                (classes == null || classes.stream().allMatch(c -> Files.exists(javaFile.resolveSibling(c + ".java"))));
+        if (upToDate && classes != null) {
+            currentClasses.put(name, classes);
+        }
+        return upToDate;
+    }
+
+    /**
+     * Records the classes generated for a model.
+     */
+    public void setClasses(File yamlFile, Collection<String> classNames) {
+        currentClasses.put(modelName(yamlFile), List.copyOf(classNames));
+    }
+
+    /**
+     * @return the classes generated for the model, by this generation or by the previous one.
+     * Without any record, the model class only.
+     */
+    public List<String> classes(File yamlFile) {
+        String name = modelName(yamlFile);
+        return currentClasses.getOrDefault(name, previousClasses.getOrDefault(name, List.of(name)));
+    }
+
+    /**
+     * Writes the manifest with the hashes of the models checked with {@link #isUpToDate(File, Path)}.
+     * Models removed since the last generation are removed from the manifest.
+     */
+    public void save() throws IOException {
+        Properties hashes = new Properties();
+        hashes.putAll(current);
+        currentClasses.forEach((name, classes) -> hashes.put(name + CLASSES_SUFFIX, String.join(",", classes)));
+        Files.createDirectories(manifestFile.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(manifestFile)) {
+            hashes.store(writer, "FtM generation manifest");
+        }
+    }
+
+    String hash(File yamlFile) throws IOException {
+        MessageDigest digest = sha256();
+        String name = modelName(yamlFile);
+        digest.update(optionsHash.getBytes(StandardCharsets.UTF_8));
+        // a model that becomes a parent is generated as a class instead of a record
+        digest.update((byte) (parents.containsKey(name) ? 1 : 0));
+        digest.update(fileHash(yamlFile).getBytes(StandardCharsets.UTF_8));
+        for (String ancestor : ancestors(yamlFile)) {
+            File ancestorFile = yamlFiles.get(ancestor);
+            digest.update(ancestor.getBytes(StandardCharsets.UTF_8));
+            digest.update(ancestorFile == null ? new byte[0] : fileHash(ancestorFile).getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private Set<String> ancestors(File yamlFile) throws IOException {
+        Model model = models.getOrDefault(modelName(yamlFile), parents.get(modelName(yamlFile)));
+        List<String> toVisit = new ArrayList<>(model == null ? new Model(Utils.getYamlContent(yamlFile)).getExtends() : model.getExtends());
+        Set<String> ancestors = new TreeSet<>();
+        while (!toVisit.isEmpty()) {
+            String ancestor = toVisit.remove(toVisit.size() - 1);
+            Model ancestorModel = parents.get(ancestor);
+            if (ancestors.add(ancestor) && ancestorModel != null) {
+                toVisit.addAll(ancestorModel.getExtends());
+            }
+        }
+        return ancestors;
+    }
+
+    private String fileHash(File file) throws IOException {
+        String hash = fileHashes.get(file.getPath());
+        if (hash == null) {
+            hash = HexFormat.of().formatHex(sha256().digest(Files.readAllBytes(file.toPath())));
+            fileHashes.put(file.getPath(), hash);
+        }
+        return hash;
+    }
+
+    private static String optionsHash(Properties properties, List<Class<?>> generatorClasses) throws IOException {
+        MessageDigest digest = sha256();
+        Map<String, String> options = new TreeMap<>();
+        properties.forEach((key, value) -> {
+            if (!"parents".equals(key)) {
+                options.put(key.toString(), value instanceof Collection<?> c ? new TreeSet<>(c.stream().map(Objects::toString).toList()).toString() : String.valueOf(value));
+            }
+        });
+        digest.update(options.toString().getBytes(StandardCharsets.UTF_8));
+        for (Class<?> generatorClass : generatorClasses) {
+            try (InputStream classBytes = generatorClass.getResourceAsStream(generatorClass.getSimpleName() + ".class")) {
+                if (classBytes != null) {
+                    digest.update(classBytes.readAllBytes());
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static Map<String, String> read(Path manifestFile) throws IOException {
+        Map<String, String> hashes = new HashMap<>();
+        if (Files.exists(manifestFile)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(manifestFile)) {
+                properties.load(reader);
+            }
+            properties.forEach((key, value) -> hashes.put((String) key, (String) value));
+        }
+        return hashes;
+    }
+
+    private static String modelName(File yamlFile) {
+        String fileName = yamlFile.getName();
+        return fileName.substring(0, fileName.lastIndexOf('.'));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
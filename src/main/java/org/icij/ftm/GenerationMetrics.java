@@ -0,0 +1,201 @@
+package org.icij.ftm;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Timings and counters of a generation (enabled with {@code --profile true}): duration of each phase, generation
+ * time and written bytes of each schema, read and written bytes and number of lookups in the parents map.
+ * <p>
+ * Each phase and each schema generation is also a JDK Flight Recorder event ({@code org.icij.ftm.GenerationPhase}
+ * and {@code org.icij.ftm.SchemaGeneration}) that is recorded when a recording is running. The {@link #NONE}
+ * metrics do not measure anything: its phases are a shared instance with empty methods and the parents map is
+ * not wrapped.
+ * </p>
+ */
+final class GenerationMetrics {
+    static final GenerationMetrics NONE = new GenerationMetrics(false);
+    private static final Phase NO_PHASE = new Phase(null, null, null);
+
+    private final boolean enabled;
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final Map<String, Long> schemaNanos = new ConcurrentHashMap<>();
+    private final Map<String, Long> schemaBytes = new ConcurrentHashMap<>();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder hierarchyLookups = new LongAdder();
+
+    private GenerationMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    static GenerationMetrics create() {
+        return new GenerationMetrics(true);
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the running phase, to {@link Phase#end() end} when it is done
+     */
+    Phase phase(String name) {
+        if (!enabled) {
+            return NO_PHASE;
+        }
+        PhaseEvent event = new PhaseEvent();
+        event.phase = name;
+        event.begin();
+        return new Phase(this, name, event);
+    }
+
+    /**
+     * @return the running generation of the schema, to {@link Phase#end(long) end} with the written bytes
+     */
+    Phase schema(String name) {
+        if (!enabled) {
+            return NO_PHASE;
+        }
+        SchemaEvent event = new SchemaEvent();
+        event.schema = name;
+        event.begin();
+        return new Phase(this, name, event);
+    }
+
+    void read(long bytes) {
+        if (enabled) {
+            bytesRead.add(bytes);
+        }
+    }
+
+    void written(long bytes) {
+        if (enabled) {
+            bytesWritten.add(bytes);
+        }
+    }
+
+    /**
+     * @return the map to fill with the parent models, counting the lookups of the models
+     */
+    Map<String, Model> parentsMap() {
+        if (!enabled) {
+            return new HashMap<>();
+        }
+        return new HashMap<>() {
+            @Override
+            public Model get(Object key) {
+                hierarchyLookups.increment();
+                return super.get(key);
+            }
+        };
+    }
+
+    long hierarchyLookups() {
+        return hierarchyLookups.sum();
+    }
+
+    long bytesRead() {
+        return bytesRead.sum();
+    }
+
+    long bytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    synchronized Map<String, Long> phases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    Map<String, Long> schemata() {
+        return Map.copyOf(schemaNanos);
+    }
+
+    /**
+     * @param slowest number of schemata to list, the slowest first
+     */
+    String report(int slowest) {
+        StringBuilder report = new StringBuilder("generation profile:\n");
+        phases().forEach((name, nanos) -> report.append(format("\t%-10s %10.3f ms%n", name, nanos / 1e6)));
+        schemaNanos.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                .limit(slowest)
+                .forEach(e -> report.append(format("\t%-30s %10.3f ms %10d bytes%n", e.getKey(), e.getValue() / 1e6, schemaBytes.getOrDefault(e.getKey(), 0L))));
+        report.append(format("\t%d schemata, %d bytes read, %d bytes written, %d hierarchy lookups%n",
+                schemaNanos.size(), bytesRead(), bytesWritten(), hierarchyLookups()));
+        return report.toString();
+    }
+
+    private synchronized void endPhase(String name, long nanos) {
+        phases.merge(name, nanos, Long::sum);
+    }
+
+    private void endSchema(String name, long nanos, long bytes) {
+        schemaNanos.merge(name, nanos, Long::sum);
+        schemaBytes.merge(name, bytes, Long::sum);
+    }
+
+    static final class Phase {
+        private final GenerationMetrics metrics;
+        private final String name;
+        private final Event event;
+        private final long start = System.nanoTime();
+
+        private Phase(GenerationMetrics metrics, String name, Event event) {
+            this.metrics = metrics;
+            this.name = name;
+            this.event = event;
+        }
+
+        void end() {
+            end(0);
+        }
+
+        void end(long bytesWritten) {
+            if (metrics == null) {
+                return;
+            }
+            long nanos = System.nanoTime() - start;
+            if (event instanceof SchemaEvent schemaEvent) {
+                schemaEvent.bytesWritten = bytesWritten;
+                metrics.endSchema(name, nanos, bytesWritten);
+            } else {
+                metrics.endPhase(name, nanos);
+            }
+            event.commit();
+        }
+    }
+
+    @Name("org.icij.ftm.GenerationPhase")
+    @Label("FtM Generation Phase")
+    @Category({"FtM", "Generation"})
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("org.icij.ftm.SchemaGeneration")
+    @Label("FtM Schema Generation")
+    @Description("Generation and write of the java sources of a schema")
+    @Category({"FtM", "Generation"})
+    static class SchemaEvent extends Event {
+        @Label("Schema")
+        String schema;
+        @Label("Bytes Written")
+        @DataAmount
+        long bytesWritten;
+    }
+}
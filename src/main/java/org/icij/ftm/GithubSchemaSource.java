@@ -0,0 +1,376 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static java.lang.String.format;
+
+/**
+ * Schema source reading the FtM schema directory from GitHub (or any HTTP server with the same API), with an on-disk cache.
+ * <p>
+ * The cache is a directory per source URL and revision (branch, tag or commit sha) in the cache root.
+ * It contains the yaml files in a "schema" directory and a "cache.properties" file with the ETag and
+ * max-age of the last response, and the git sha of each yaml file.
+ * </p>
+ * <ul>
+ *     <li>a revision that is a commit sha is immutable, once cached it is never fetched again</li>
+ *     <li>while the max-age is not expired, the cache is used without any request</li>
+ *     <li>when expired, the cache is revalidated with a conditional request (If-None-Match)</li>
+ *     <li>in offline mode, only the cache is used</li>
+ * </ul>
+ * <p>
+ * There are two fetch modes:
+ * </p>
+ * <ul>
+ *     <li>{@link FetchMode#ARCHIVE}: one request for the zip archive of the repository revision
+ *     ({@code /repos/{owner}/{repo}/zipball/{revision}}). The archive is streamed and only the yaml files of the
+ *     schema directory are extracted into a temporary directory, that replaces the cached one once it is complete.
+ *     If it fails, the files mode is used.</li>
+ *     <li>{@link FetchMode#FILES}: one request for the contents listing then one request per yaml file whose git sha changed.
+ *     Downloads are bounded by {@link #MAX_CONCURRENT_DOWNLOADS}, retried on server errors and checked against the
+ *     git sha of the listing.</li>
+ * </ul>
+ */
+public class GithubSchemaSource implements SchemaSource {
+    private final static Logger logger = LoggerFactory.getLogger(GithubSchemaSource.class);
+    static final int MAX_CONCURRENT_DOWNLOADS = 8;
+    static final int MAX_ATTEMPTS = 3;
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final Pattern COMMIT_SHA = Pattern.compile("[0-9a-f]{40}");
+    private static final Pattern CONTENTS_PATH = Pattern.compile("(.*/repos/[^/]+/[^/]+)/contents/(.+?)/?");
+    private static final String SHA_PREFIX = "sha.";
+
+    public enum FetchMode {ARCHIVE, FILES}
+
+    private final URI listingUri;
+    private final URI archiveUri;
+    private final String schemaPath;
+    private final String revision;
+    private final Path cacheDir;
+    private final boolean offline;
+    private final FetchMode fetchMode;
+    private final HttpClient client;
+
+    public GithubSchemaSource(URI contentsUri, String revision, Path cacheRoot, boolean offline) {
+        this(contentsUri, revision, cacheRoot, offline, FetchMode.ARCHIVE);
+    }
+
+    public GithubSchemaSource(URI contentsUri, String revision, Path cacheRoot, boolean offline, FetchMode fetchMode) {
+        this.revision = revision;
+        this.listingUri = contentsUri.getQuery() == null ? URI.create(contentsUri + "?ref=" + revision) : contentsUri;
+        Matcher contentsPath = CONTENTS_PATH.matcher(contentsUri.getPath());
+        if (contentsPath.matches()) {
+            this.archiveUri = contentsUri.resolve(contentsPath.group(1) + "/zipball/" + revision);
+            this.schemaPath = contentsPath.group(2);
+        } else {
+            this.archiveUri = null;
+            this.schemaPath = null;
+        }
+        this.cacheDir = cacheRoot.resolve(HexFormat.of().formatHex(sha256(contentsUri.toString())).substring(0, 16)).resolve(revision);
+        this.offline = offline;
+        this.fetchMode = fetchMode;
+        this.client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build();
+    }
+
+    @Override
+    public Path fetch() throws IOException, InterruptedException {
+        Path schemaDir = cacheDir.resolve("schema");
+        Properties state = readState();
+        boolean cached = Boolean.parseBoolean(state.getProperty("complete")) && Files.isDirectory(schemaDir);
+        if (cached && (offline || isPinned() || isFresh(state))) {
+            logger.info("using cached schema {} for revision {}", schemaDir, revision);
+            return schemaDir;
+        }
+        if (offline) {
+            throw new IOException(format("no cached schema for revision %s in %s (offline mode)", revision, cacheDir));
+        }
+        Files.createDirectories(schemaDir);
+        if (fetchMode == FetchMode.ARCHIVE && archiveUri != null) {
+            try {
+                return fetchArchive(schemaDir, state, cached);
+            } catch (IOException ex) {
+                logger.warn("cannot fetch schema archive {} ({}), downloading files one by one", archiveUri, ex.getMessage());
+            }
+        }
+        return fetchFiles(schemaDir, state, cached && state.containsKey("complete"));
+    }
+
+    private Path fetchArchive(Path schemaDir, Properties state, boolean cached) throws IOException, InterruptedException {
+        HttpRequest.Builder archiveRequest = HttpRequest.newBuilder().uri(archiveUri);
+        if (cached && state.getProperty("archive.etag") != null) {
+            archiveRequest.header("If-None-Match", state.getProperty("archive.etag"));
+        }
+        HttpResponse<InputStream> response = client.send(archiveRequest.build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (cached && response.statusCode() == 304) {
+                logger.info("schema archive not modified for revision {}", revision);
+                writeState(updateValidity(state, response, "archive.etag"));
+                return schemaDir;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException(format("HTTP %d %s", response.statusCode(), new String(body.readAllBytes(), StandardCharsets.UTF_8)));
+            }
+            Properties newState = updateValidity(new Properties(), response, "archive.etag");
+            Set<String> extracted = new HashSet<>();
+            Path partDir = cacheDir.resolve("schema.part");
+            deleteDirectory(partDir);
+            Files.createDirectories(partDir);
+            try {
+                try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(body))) {
+                    for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                        String fileName = schemaFileName(entry);
+                        if (fileName != null) {
+                            byte[] content = zip.readAllBytes();
+                            Files.write(partDir.resolve(fileName), content);
+                            newState.setProperty(SHA_PREFIX + fileName, gitBlobSha(content));
+                            extracted.add(fileName);
+                        }
+                    }
+                }
+                if (extracted.isEmpty()) {
+                    throw new IOException(format("no yaml file in %s of the archive", schemaPath));
+                }
+                invalidate(state);
+                deleteDirectory(schemaDir);
+                Files.move(partDir, schemaDir, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                deleteDirectory(partDir);
+            }
+            return complete(schemaDir, newState, extracted);
+        }
+    }
+
+    /**
+     * Archive entries are prefixed by a top directory ({owner}-{repo}-{sha}).
+     * @return the yaml file name if the entry is directly in the schema directory, else null
+     */
+    private String schemaFileName(ZipEntry entry) {
+        String name = entry.getName();
+        int topDir = name.indexOf('/');
+        String prefix = schemaPath + "/";
+        if (entry.isDirectory() || topDir < 0 || !name.startsWith(prefix, topDir + 1)) {
+            return null;
+        }
+        String fileName = name.substring(topDir + 1 + prefix.length());
+        return fileName.contains("/") || !SchemaSource.isYaml(Path.of(fileName)) ? null : fileName;
+    }
+
+    private Path fetchFiles(Path schemaDir, Properties state, boolean cached) throws IOException, InterruptedException {
+        HttpRequest.Builder listingRequest = HttpRequest.newBuilder().uri(listingUri).header("Accept", "application/vnd.github+json");
+        if (cached && state.getProperty("etag") != null) {
+            listingRequest.header("If-None-Match", state.getProperty("etag"));
+        }
+        HttpResponse<String> response = client.send(listingRequest.build(), HttpResponse.BodyHandlers.ofString());
+        if (cached && response.statusCode() == 304) {
+            logger.info("schema listing not modified for revision {}", revision);
+            writeState(updateValidity(state, response, "etag"));
+            return schemaDir;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException(format("cannot list schema files from %s: HTTP %d %s", listingUri, response.statusCode(), response.body()));
+        }
+
+        List<Map<String, Object>> listing = new ObjectMapper().readValue(response.body(), new TypeReference<>() {});
+        invalidate(state);
+        Properties newState = updateValidity(new Properties(), response, "etag");
+        Set<String> listed = new HashSet<>();
+        List<Future<Path>> downloads = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_DOWNLOADS);
+        try {
+            for (Map<String, Object> entry : listing) {
+                String name = (String) entry.get("name");
+                if (!"file".equals(entry.getOrDefault("type", "file")) || !SchemaSource.isYaml(Path.of(name))) {
+                    continue;
+                }
+                String sha = (String) entry.get("sha");
+                listed.add(name);
+                if (sha != null) {
+                    newState.setProperty(SHA_PREFIX + name, sha);
+                }
+                if (sha == null || !sha.equals(state.getProperty(SHA_PREFIX + name)) || !Files.exists(schemaDir.resolve(name))) {
+                    URI downloadUri = URI.create((String) entry.get("download_url"));
+                    downloads.add(executor.submit(() -> download(downloadUri, schemaDir.resolve(name), sha)));
+                }
+            }
+            for (Future<Path> download : downloads) {
+                download.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioe ? ioe : new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return complete(schemaDir, newState, listed);
+    }
+
+    private Path complete(Path schemaDir, Properties newState, Set<String> fileNames) throws IOException {
+        for (Path yamlFile : SchemaSource.yamlFiles(schemaDir)) {
+            if (!fileNames.contains(yamlFile.getFileName().toString())) {
+                Files.delete(yamlFile);
+            }
+        }
+        newState.setProperty("complete", "true");
+        writeState(newState);
+        logger.info("fetched {} schema files into {}", fileNames.size(), schemaDir);
+        return schemaDir;
+    }
+
+    /**
+     * Marks the cache as incomplete before its schema directory is modified, so that an interrupted fetch is not
+     * used as a cached schema. The state is kept in memory for the git shas of the files that did not change.
+     */
+    private void invalidate(Properties state) throws IOException {
+        if (state.remove("complete") != null) {
+            writeState(state);
+        }
+    }
+
+    /**
+     * Downloads a file, retrying on IO errors, rate limiting (429), server errors and content that does not
+     * match the expected git sha. Other HTTP errors fail immediately.
+     */
+    private Path download(URI uri, Path destination, String expectedSha) throws IOException, InterruptedException {
+        IOException lastError = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (attempt > 1) {
+                logger.warn("retrying {} (attempt {}/{}): {}", uri, attempt, MAX_ATTEMPTS, lastError.getMessage());
+                Thread.sleep(100L << attempt);
+            }
+            HttpResponse<byte[]> response;
+            try {
+                response = client.send(HttpRequest.newBuilder().uri(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+            } catch (IOException e) {
+                lastError = e;
+                continue;
+            }
+            int status = response.statusCode();
+            if (status == 200) {
+                if (expectedSha == null || expectedSha.equals(gitBlobSha(response.body()))) {
+                    return writeAtomically(destination, response.body());
+                }
+                lastError = new IOException(format("content of %s does not match sha %s", uri, expectedSha));
+            } else if (status == 429 || status >= 500) {
+                lastError = new IOException(format("cannot download %s: HTTP %d", uri, status));
+            } else {
+                throw new IOException(format("cannot download %s: HTTP %d %s", uri, status, new String(response.body(), StandardCharsets.UTF_8)));
+            }
+        }
+        throw lastError;
+    }
+
+    private boolean isPinned() {
+        return COMMIT_SHA.matcher(revision).matches();
+    }
+
+    private static boolean isFresh(Properties state) {
+        long fetchedAt = Long.parseLong(state.getProperty("fetchedAt", "0"));
+        long maxAgeSeconds = Long.parseLong(state.getProperty("maxAge", "0"));
+        return System.currentTimeMillis() < fetchedAt + maxAgeSeconds * 1000;
+    }
+
+    private static Properties updateValidity(Properties state, HttpResponse<?> response, String etagKey) {
+        response.headers().firstValue("ETag").ifPresent(etag -> state.setProperty(etagKey, etag));
+        Matcher maxAge = MAX_AGE.matcher(response.headers().firstValue("Cache-Control").orElse(""));
+        state.setProperty("maxAge", maxAge.find() ? maxAge.group(1) : "0");
+        state.setProperty("fetchedAt", String.valueOf(System.currentTimeMillis()));
+        return state;
+    }
+
+    private Properties readState() throws IOException {
+        Properties state = new Properties();
+        Path stateFile = cacheDir.resolve("cache.properties");
+        if (Files.exists(stateFile)) {
+            try (Reader reader = Files.newBufferedReader(stateFile)) {
+                state.load(reader);
+            }
+        }
+        return state;
+    }
+
+    private void writeState(Properties state) throws IOException {
+        Files.createDirectories(cacheDir);
+        Path stateFile = cacheDir.resolve("cache.properties");
+        Path tmpFile = cacheDir.resolve("cache.properties.tmp");
+        try (Writer writer = Files.newBufferedWriter(tmpFile)) {
+            state.store(writer, format("FtM schema cache for %s", listingUri));
+        }
+        Files.move(tmpFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path writeAtomically(Path destination, byte[] content) throws IOException {
+        Path partFile = destination.resolveSibling(destination.getFileName() + ".part");
+        Files.write(partFile, content);
+        return Files.move(partFile, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * @return the git object id of a file content, as given by the "sha" of the contents API
+     */
+    static String gitBlobSha(byte[] content) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            sha1.update(("blob " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(sha1.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return fetchMode == FetchMode.ARCHIVE && archiveUri != null ? archiveUri.toString() : listingUri.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package org.icij.ftm;
+
+import java.util.Locale;
+
+/**
+ * FtM {@code iban} property value. An IBAN is valid if it has a country code, two check digits and up to
+ * 30 alphanumeric characters, and if its check digits are right (ISO 13616 mod 97). It is normalized
+ * in upper case without spaces.
+ */
+public final class IbanValue extends FtmValue {
+    public IbanValue(String value) {
+        super(value);
+    }
+
+    /**
+     * @return the value or null if the string is null or empty
+     */
+    public static IbanValue of(String value) {
+        return value == null || value.isEmpty() ? null : new IbanValue(value);
+    }
+
+    /**
+     * @return the ISO 3166 country code of the account, or null if the IBAN is invalid
+     */
+    public String countryCode() {
+        String normalized = normalized();
+        return normalized == null ? null : normalized.substring(0, 2);
+    }
+
+    @Override
+    protected String normalize(String value) {
+        String iban = value.replace(" ", "").toUpperCase(Locale.ROOT);
+        if (iban.length() < 15 || iban.length() > 34 || !isLetter(iban.charAt(0)) || !isLetter(iban.charAt(1))
+                || !isDigit(iban.charAt(2)) || !isDigit(iban.charAt(3))) {
+            return null;
+        }
+        int remainder = 0;
+        for (int i = 0; i < iban.length(); i++) {
+            char c = iban.charAt((i + 4) % iban.length());
+            if (isDigit(c)) {
+                remainder = (remainder * 10 + c - '0') % 97;
+            } else if (isLetter(c)) {
+                remainder = (remainder * 100 + c - 'A' + 10) % 97;
+            } else {
+                return null;
+            }
+        }
+        return remainder == 1 ? iban : null;
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,63 @@
+package org.icij.ftm;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * FtM {@code ip} property value: an IPv4 or IPv6 address literal. IPv4 addresses are normalized without
+ * leading zeros, IPv6 addresses in the full form of {@link InetAddress#getHostAddress()}.
+ * Host names are invalid: they are never resolved.
+ */
+public final class IpValue extends FtmValue {
+    public IpValue(String value) {
+        super(value);
+    }
+
+    /**
+     * @return the value or null if the string is null or empty
+     */
+    public static IpValue of(String value) {
+        return value == null || value.isEmpty() ? null : new IpValue(value);
+    }
+
+    public boolean isV6() {
+        String normalized = normalized();
+        return normalized != null && normalized.indexOf(':') >= 0;
+    }
+
+    @Override
+    protected String normalize(String value) {
+        String ip = value.trim();
+        if (ip.indexOf(':') >= 0) {
+            return normalizeV6(ip);
+        }
+        String[] parts = ip.split("\\.", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(15);
+        for (String part : parts) {
+            if (part.isEmpty() || part.length() > 3 || !part.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                return null;
+            }
+            int octet = Integer.parseInt(part);
+            if (octet > 255) {
+                return null;
+            }
+            normalized.append(normalized.isEmpty() ? "" : ".").append(octet);
+        }
+        return normalized.toString();
+    }
+
+    private static String normalizeV6(String ip) {
+        // only hexadecimal digits, colons and dots (IPv4 suffix) so that InetAddress parses a literal
+        if (!ip.chars().allMatch(c -> Character.digit(c, 16) >= 0 || c == ':' || c == '.')) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(ip).getHostAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.icij.ftm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+
+/**
+ * Writes a generated java source straight to an {@link Appendable}: a reused buffer, a file or a
+ * {@link javax.annotation.processing.Filer} source file, without building the source as a string first.
+ * <p>
+ * The imports are computed from the java types of the source, given to {@link #header(Collection)} before the body
+ * is written, instead of being searched in the generated text.
+ * </p>
+ */
+final class JavaWriter {
+    private static final Map<String, String> IMPORTS = Map.of(
+            "BigDecimal", "java.math.BigDecimal"
+    );
+    private final Appendable out;
+
+    JavaWriter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the declaration of the {@link SourceGenerator#DEFAULT_PACKAGE default package} and the imports needed by the java types.
+     */
+    JavaWriter header(Collection<String> javaTypes) throws IOException {
+        return header(SourceGenerator.DEFAULT_PACKAGE, javaTypes);
+    }
+
+    /**
+     * Writes the package declaration and the imports needed by the java types. Outside of the default package,
+     * the ftm.java classes used by the generated code are imported.
+     */
+    JavaWriter header(String packageName, Collection<String> javaTypes) throws IOException {
+        if (!packageName.isEmpty()) {
+            append("package ").append(packageName).append(";\n\n");
+        }
+        TreeSet<String> imports = new TreeSet<>();
+        for (String javaType : javaTypes) {
+            String qualifiedName = IMPORTS.get(javaType);
+            if (qualifiedName != null) {
+                imports.add(qualifiedName);
+            }
+        }
+        if (!SourceGenerator.DEFAULT_PACKAGE.equals(packageName)) {
+            imports.add(SourceGenerator.DEFAULT_PACKAGE + ".*");
+        }
+        join(imports, "\n", i -> append("import ").append(i).append(';'));
+        return append("\n\n");
+    }
+
+    /**
+     * Writes the javadoc link to the yaml file of the model, as the second line of the type javadoc.
+     */
+    JavaWriter seeSchema(String name) throws IOException {
+        return append(" * @see <a href=\"https://github.com/alephdata/followthemoney/blob/main/followthemoney/schema/")
+                .append(name).append(".yaml\">").append(name).append("</a>.\n");
+    }
+
+    /**
+     * Writes each item with the separator between them.
+     */
+    <T> JavaWriter join(Iterable<T> items, String separator, Item<T> item) throws IOException {
+        boolean first = true;
+        for (T value : items) {
+            if (!first) {
+                append(separator);
+            }
+            item.write(value);
+            first = false;
+        }
+        return this;
+    }
+
+    JavaWriter append(CharSequence code) throws IOException {
+        out.append(code);
+        return this;
+    }
+
+    JavaWriter append(char c) throws IOException {
+        out.append(c);
+        return this;
+    }
+
+    JavaWriter append(int i) throws IOException {
+        if (out instanceof StringBuilder builder) {
+            builder.append(i);
+        } else {
+            out.append(Integer.toString(i));
+        }
+        return this;
+    }
+
+    @FunctionalInterface
+    interface Item<T> {
+        void write(T item) throws IOException;
+    }
+
+    /**
+     * Destination of the generated sources of a model.
+     */
+    @FunctionalInterface
+    interface Sink {
+        /**
+         * @return the writer of the source of the class, closed by the generator when the source is written
+         */
+        Writer open(String className) throws IOException;
+
+        /**
+         * @return a sink writing the sources as {@code <className>.java} files of the directory
+         */
+        static Sink directory(Path directory) {
+            return directory(directory, bytes -> {});
+        }
+
+        /**
+         * The sources are encoded into a byte buffer and a file is only written if its bytes changed, to keep the
+         * modification time of the unchanged files for incremental compilation.
+         * @param written called with the number of bytes of each written file
+         */
+        static Sink directory(Path directory, LongConsumer written) {
+            return className -> new ChangedFileWriter(directory.resolve(className + ".java"), written);
+        }
+    }
+
+    /**
+     * Writer of a file that is only written when it is closed, if its content changed.
+     */
+    private static final class ChangedFileWriter extends FilterWriter {
+        private final Path file;
+        private final Bytes bytes;
+        private final LongConsumer written;
+
+        private ChangedFileWriter(Path file, Bytes bytes, LongConsumer written) {
+            super(new OutputStreamWriter(bytes, StandardCharsets.UTF_8));
+            this.file = file;
+            this.bytes = bytes;
+            this.written = written;
+        }
+
+        ChangedFileWriter(Path file, LongConsumer written) {
+            this(file, new Bytes(), written);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            if (Utils.writeIfChanged(file, bytes.array(), bytes.size())) {
+                written.accept(bytes.size());
+            }
+        }
+    }
+
+    /**
+     * Byte buffer giving access to its array, to compare and write it without copy.
+     */
+    private static final class Bytes extends ByteArrayOutputStream {
+        Bytes() {
+            super(8192);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
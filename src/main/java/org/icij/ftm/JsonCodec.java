@@ -0,0 +1,39 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Streaming JSON codec of the properties of an FtM schema, generated by {@link JsonCodecGenerator}.
+ * <p>
+ * A codec reads and writes the {@code properties} object of the FtM JSON entity
+ * {@code {"id": ..., "schema": ..., "properties": {"name": ["value"]}}} directly with jackson-core,
+ * without reflection, trees or intermediate maps. The envelope is handled by {@link FtmJson}.
+ * </p>
+ * @param <T> the generated record or class of the schema
+ */
+public interface JsonCodec<T> {
+    /**
+     * @return the FtM schema name
+     */
+    String schema();
+
+    /**
+     * @return the schema name and the names of all the schemata it extends
+     */
+    Set<String> schemata();
+
+    /**
+     * Reads a {@code properties} object. The parser is on the {@code START_OBJECT} token and is left
+     * on the matching {@code END_OBJECT} token.
+     */
+    T readProperties(JsonParser parser, EntityResolver resolver) throws IOException;
+
+    /**
+     * Writes the non-empty properties of the instance as a {@code properties} object.
+     */
+    void writeProperties(T instance, JsonGenerator generator, EntityResolver resolver) throws IOException;
+}
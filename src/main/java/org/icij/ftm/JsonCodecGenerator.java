@@ -0,0 +1,192 @@
+package org.icij.ftm;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+import static java.util.stream.Stream.concat;
+
+/**
+ * Generates the {@link JsonCodec} of an instantiable model (record or non abstract class).
+ * <p>
+ * The dispatch on the JSON property names is a string switch generated from the model attributes,
+ * and each property is read or written with the {@link FtmJson} method of its java type.
+ * With the {@link SourceGenerator.Layout#MULTI} layout, all the values of each property are read and written.
+ * </p>
+ */
+class JsonCodecGenerator {
+    static final String SUFFIX = "JsonCodec";
+    private final SourceGenerator sourceGenerator;
+
+    JsonCodecGenerator(SourceGenerator sourceGenerator) {
+        this.sourceGenerator = sourceGenerator;
+    }
+
+    String generate(Model model) {
+        if (!sourceGenerator.isInstantiable(model)) {
+            throw new IllegalArgumentException(format("cannot generate a JSON codec for %s: it is not instantiable", model.name()));
+        }
+        List<String> attributes = sourceGenerator.constructorAttributes(model);
+        boolean multi = sourceGenerator.layout() == SourceGenerator.Layout.MULTI;
+        String declarations = attributes.stream()
+                .map(a -> multi ? format("%s[] %s = null;", javaType(model, a), SourceGenerator.sanitizedProp(a))
+                        : format("%s %s = %s;", javaType(model, a), SourceGenerator.sanitizedProp(a), valueType(model, a).isPrimitive() ? "0" : "null"))
+                .collect(Collectors.joining("\n        "));
+        String cases = attributes.stream()
+                .map(a -> format("case \"%s\" -> %s = %s;", a, SourceGenerator.sanitizedProp(a), multi ? readAllExpression(model, a) : readExpression(model, a)))
+                .collect(Collectors.joining("\n                "));
+        String arguments = attributes.stream().map(SourceGenerator::sanitizedProp).collect(Collectors.joining(", "));
+        String writes = attributes.stream()
+                .map(a -> multi ? writeAllStatement(model, a) : writeStatement(model, a))
+                .collect(Collectors.joining("\n        "));
+        String decimalImport = attributes.stream().anyMatch(a -> valueType(model, a) == ValueType.DECIMAL) ? "import java.math.BigDecimal;\n" : "";
+        String schemata = concat(Stream.of(model.name()), model.ancestors().stream())
+                .map(s -> format("\"%s\"", s)).collect(Collectors.joining(", "));
+
+        return sourceGenerator.packageDeclaration() + format("""
+                import com.fasterxml.jackson.core.JsonGenerator;
+                import com.fasterxml.jackson.core.JsonParser;
+                import com.fasterxml.jackson.core.JsonToken;
+
+                import java.io.IOException;
+                %simport java.util.Set;
+
+                /**
+                 * Automatically generated JSON codec for FtM model. Do not update this class.
+                 * @see <a href="https://github.com/alephdata/followthemoney/blob/main/followthemoney/schema/%s.yaml">%s</a>.
+                 */
+                public final class %s%s implements JsonCodec<%s> {
+                    public static final %s%s INSTANCE = new %s%s();
+                    private static final Set<String> SCHEMATA = Set.of(%s);
+
+                    @Override
+                    public String schema() {
+                        return "%s";
+                    }
+
+                    @Override
+                    public Set<String> schemata() {
+                        return SCHEMATA;
+                    }
+
+                    @Override
+                    public %s readProperties(JsonParser jsonParser, EntityResolver resolver) throws IOException {
+                        %s
+                        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+                            String jsonField = jsonParser.currentName();
+                            jsonParser.nextToken();
+                            switch (jsonField) {
+                                %s
+                                default -> jsonParser.skipChildren();
+                            }
+                        }
+                        return new %s(%s);
+                    }
+
+                    @Override
+                    public void writeProperties(%s instance, JsonGenerator jsonGenerator, EntityResolver resolver) throws IOException {
+                        jsonGenerator.writeStartObject();
+                        %s
+                        jsonGenerator.writeEndObject();
+                    }
+                }
+                """, decimalImport, model.name(), model.name(),
+                model.name(), SUFFIX, model.name(),
+                model.name(), SUFFIX, model.name(), SUFFIX, schemata,
+                model.name(),
+                model.name(), declarations, cases, model.name(), arguments,
+                model.name(), writes);
+    }
+
+    private String javaType(Model model, String attribute) {
+        return sourceGenerator.javaType(model.type(attribute));
+    }
+
+    private ValueType valueType(Model model, String attribute) {
+        return sourceGenerator.valueType(model.type(attribute));
+    }
+
+    private String readExpression(Model model, String attribute) {
+        ValueType valueType = valueType(model, attribute);
+        return switch (valueType) {
+            case STRING -> "FtmJson.readString(jsonParser)";
+            case INT -> "FtmJson.readInt(jsonParser)";
+            case LONG -> "FtmJson.readLong(jsonParser)";
+            case DOUBLE -> "FtmJson.readDouble(jsonParser)";
+            case DECIMAL -> "FtmJson.readDecimal(jsonParser)";
+            case DATE -> "FtmDate.parse(FtmJson.readString(jsonParser))";
+            case URL, EMAIL, IP, IBAN -> format("%s.of(FtmJson.readString(jsonParser))", javaType(model, attribute));
+            case COUNTRY, LANGUAGE, TOPIC -> format("FtmCode.of(ValueType.%s, FtmJson.readString(jsonParser))", valueType);
+            case ENTITY -> format("FtmJson.readReference(jsonParser, resolver) instanceof %s resolved ? resolved : null", javaType(model, attribute));
+        };
+    }
+
+    /**
+     * @return the expression reading all the values of the property as an array, null without value
+     */
+    private String readAllExpression(Model model, String attribute) {
+        ValueType valueType = valueType(model, attribute);
+        String type = javaType(model, attribute);
+        return switch (valueType) {
+            case STRING -> "FtmJson.readStrings(jsonParser)";
+            case INT -> "MultiValues.mapToInt(FtmJson.readStrings(jsonParser), FtmJson::parseInt)";
+            case LONG -> "MultiValues.mapToLong(FtmJson.readStrings(jsonParser), FtmJson::parseLong)";
+            case DOUBLE -> "MultiValues.mapToDouble(FtmJson.readStrings(jsonParser), FtmJson::parseDouble)";
+            case DECIMAL -> "MultiValues.map(FtmJson.readStrings(jsonParser), BigDecimal[]::new, FtmJson::parseDecimal)";
+            case DATE -> "MultiValues.mapToLong(FtmJson.readStrings(jsonParser), FtmDate::parse)";
+            case URL, EMAIL, IP, IBAN -> format("MultiValues.map(FtmJson.readStrings(jsonParser), %s[]::new, %s::of)", type, type);
+            case COUNTRY, LANGUAGE, TOPIC -> format("MultiValues.map(FtmJson.readStrings(jsonParser), FtmCode[]::new, jsonValue -> FtmCode.of(ValueType.%s, jsonValue))", valueType);
+            case ENTITY -> format("MultiValues.map(FtmJson.readStrings(jsonParser), %s[]::new, jsonValue -> resolver.resolve(jsonValue) instanceof %s resolved ? resolved : null)", type, type);
+        };
+    }
+
+    /**
+     * @return the statement writing all the values of the property, with the count and index accessors of the model
+     */
+    private String writeAllStatement(Model model, String attribute) {
+        String prop = SourceGenerator.sanitizedProp(attribute);
+        String value = format("instance.%s(i)", prop);
+        String string = switch (valueType(model, attribute)) {
+            case STRING -> value;
+            case INT -> format("Integer.toString(%s)", value);
+            case LONG -> format("Long.toString(%s)", value);
+            case DOUBLE -> format("FtmJson.formatDouble(%s)", value);
+            case DECIMAL -> format("%s.toString()", value);
+            case DATE -> format("FtmDate.format(%s)", value);
+            case URL, EMAIL, IP, IBAN -> format("%s.value()", value);
+            case COUNTRY, LANGUAGE, TOPIC -> format("%s.code()", value);
+            case ENTITY -> format("resolver.idOf(%s)", value);
+        };
+        // the values written as null (unresolved entities) are skipped, and the property is absent if they all are
+        return format("""
+                if (instance.%sCount() > 0) {
+                            int written = 0;
+                            for (int i = 0; i < instance.%sCount(); i++) {
+                                String jsonValue = %s;
+                                if (jsonValue != null) {
+                                    if (written++ == 0) jsonGenerator.writeArrayFieldStart("%s");
+                                    jsonGenerator.writeString(jsonValue);
+                                }
+                            }
+                            if (written > 0) jsonGenerator.writeEndArray();
+                        }""", prop, prop, string, attribute);
+    }
+
+    private String writeStatement(Model model, String attribute) {
+        String value = sourceGenerator.accessor(model, "instance", attribute);
+        String method = switch (valueType(model, attribute)) {
+            case STRING -> "writeString";
+            case INT -> "writeInt";
+            case LONG -> "writeLong";
+            case DOUBLE -> "writeDouble";
+            case DECIMAL -> "writeDecimal";
+            case DATE -> "writeDate";
+            case URL, EMAIL, IP, IBAN -> "writeValue";
+            case COUNTRY, LANGUAGE, TOPIC -> "writeCode";
+            case ENTITY -> null;
+        };
+        return method == null ? format("FtmJson.writeReference(jsonGenerator, \"%s\", %s, resolver);", attribute, value)
+                : format("FtmJson.%s(jsonGenerator, \"%s\", %s);", method, attribute, value);
+    }
+}
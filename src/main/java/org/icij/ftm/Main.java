@@ -1,19 +1,29 @@
 package org.icij.ftm;
 
 import java.io.File;
-import java.net.URI;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static org.icij.ftm.Utils.propertiesFromMap;
 
 /**
  * main class to be called for downloading yaml files and generating java source files.
- * Java source files are generated for maven project in target/generated-sources.
+ * Java source files are generated for maven project in target/generated-sources/ftm, a source root of the pom that
+ * is also compiled by maven when the generation runs with compile=false.
  */
 public class Main {
     public static final String SCHEMA_URL = "https://api.github.com/repos/alephdata/followthemoney/contents/followthemoney/schema";
@@ -21,9 +31,44 @@ public class Main {
     public static final String DEFAULT_ATTRIBUTE_MODE = "FULL";
     public static final String INTERFACES_KEY = "interfaces";
     public static final String DEFAULT_INTERFACES_VALUE = "true";
+    public static final String LAYOUT_KEY = "layout";
+    public static final String DEFAULT_LAYOUT = "FIELDS";
+    public static final String NUMBER_TYPE_KEY = "numberType";
+    public static final String DEFAULT_NUMBER_TYPE = "INT";
+    public static final String TYPED_VALUES_KEY = "typedValues";
+    public static final String DEFAULT_TYPED_VALUES_VALUE = "false";
+    public static final String PARALLELISM_KEY = "parallelism";
+    public static final String SCHEMA_SOURCE_KEY = "schemaSource";
+    public static final String REVISION_KEY = "revision";
+    public static final String DEFAULT_REVISION = "main";
+    public static final String CACHE_DIR_KEY = "cacheDir";
+    public static final String DEFAULT_CACHE_DIR = Path.of(System.getProperty("user.home"), ".cache", "ftm.java").toString();
+    public static final String OFFLINE_KEY = "offline";
+    public static final String FETCH_MODE_KEY = "fetchMode";
+    public static final String DEFAULT_FETCH_MODE = "ARCHIVE";
+    public static final String COMPILE_KEY = "compile";
+    public static final String DEFAULT_COMPILE_VALUE = "true";
+    public static final String JSON_CODECS_KEY = "jsonCodecs";
+    public static final String DEFAULT_JSON_CODECS_VALUE = "false";
+    public static final String BINARY_CODECS_KEY = "binaryCodecs";
+    public static final String DEFAULT_BINARY_CODECS_VALUE = "false";
+    public static final String ACCESSORS_KEY = "accessors";
+    public static final String DEFAULT_ACCESSORS_VALUE = "false";
+    public static final String BATCHES_KEY = "batches";
+    public static final String DEFAULT_BATCHES_VALUE = "false";
+    public static final String EDGES_KEY = "edges";
+    public static final String DEFAULT_EDGES_VALUE = "false";
+    public static final String CATALOG_KEY = "catalog";
+    public static final String DEFAULT_CATALOG_VALUE = "true";
+    public static final String REGISTRY_KEY = "registry";
+    public static final String DEFAULT_REGISTRY_VALUE = "false";
+    public static final String PROFILE_KEY = "profile";
+    public static final String DEFAULT_PROFILE_VALUE = "false";
 
     public static void main(String[] args) throws Exception {
-        Path destDir = Path.of("target", "generated-sources", "org", "icij", "ftm");
+        Path destDir = Path.of("target", "generated-sources", "ftm", "org", "icij", "ftm");
+        Path manifestFile = Path.of("target", "generated-sources", "ftm-manifest.properties");
+        Path classesDir = Path.of("target", "classes");
         destDir.toFile().mkdirs();
 
         try {
@@ -31,28 +76,276 @@ public class Main {
 
             Model.Mode attributeMode = Model.Mode.valueOf(argsMap.getOrDefault(ATTRIBUTE_MODE_KEY, DEFAULT_ATTRIBUTE_MODE));
             boolean interfaces = Boolean.parseBoolean(argsMap.getOrDefault(INTERFACES_KEY, DEFAULT_INTERFACES_VALUE));
+            SourceGenerator.Layout layout = SourceGenerator.Layout.valueOf(argsMap.getOrDefault(LAYOUT_KEY, DEFAULT_LAYOUT));
+            ValueType numberType = ValueType.valueOf(argsMap.getOrDefault(NUMBER_TYPE_KEY, DEFAULT_NUMBER_TYPE));
+            boolean typedValues = Boolean.parseBoolean(argsMap.getOrDefault(TYPED_VALUES_KEY, DEFAULT_TYPED_VALUES_VALUE));
+            boolean compile = Boolean.parseBoolean(argsMap.getOrDefault(COMPILE_KEY, DEFAULT_COMPILE_VALUE));
+            boolean jsonCodecs = Boolean.parseBoolean(argsMap.getOrDefault(JSON_CODECS_KEY, DEFAULT_JSON_CODECS_VALUE));
+            boolean binaryCodecs = Boolean.parseBoolean(argsMap.getOrDefault(BINARY_CODECS_KEY, DEFAULT_BINARY_CODECS_VALUE));
+            boolean accessors = Boolean.parseBoolean(argsMap.getOrDefault(ACCESSORS_KEY, DEFAULT_ACCESSORS_VALUE));
+            boolean batches = Boolean.parseBoolean(argsMap.getOrDefault(BATCHES_KEY, DEFAULT_BATCHES_VALUE));
+            boolean edges = Boolean.parseBoolean(argsMap.getOrDefault(EDGES_KEY, DEFAULT_EDGES_VALUE));
+            boolean catalog = Boolean.parseBoolean(argsMap.getOrDefault(CATALOG_KEY, DEFAULT_CATALOG_VALUE));
+            boolean registry = Boolean.parseBoolean(argsMap.getOrDefault(REGISTRY_KEY, DEFAULT_REGISTRY_VALUE));
+            GenerationMetrics metrics = Boolean.parseBoolean(argsMap.getOrDefault(PROFILE_KEY, DEFAULT_PROFILE_VALUE)) ? GenerationMetrics.create() : GenerationMetrics.NONE;
+            int parallelism = Integer.parseInt(argsMap.getOrDefault(PARALLELISM_KEY, String.valueOf(Runtime.getRuntime().availableProcessors())));
 
-            Path yamlFilesDir = Utils.downloadYamlModels(URI.create(SCHEMA_URL));
-            File[] yamlFiles = Objects.requireNonNull(yamlFilesDir.toFile().listFiles());
-            Properties properties = propertiesFromMap(Map.of(
-                    "parents", Utils.findParents(yamlFiles, attributeMode),
-                    "models", Arrays.stream(yamlFiles).map(File::getName).map(s -> s.substring(0, s.indexOf("."))).toList(),
-                    "attributeMode", attributeMode.name(),
-                    "interfaces", interfaces
+            SchemaSource schemaSource = SchemaSource.of(
+                    argsMap.getOrDefault(SCHEMA_SOURCE_KEY, SCHEMA_URL),
+                    argsMap.getOrDefault(REVISION_KEY, DEFAULT_REVISION),
+                    Path.of(argsMap.getOrDefault(CACHE_DIR_KEY, DEFAULT_CACHE_DIR)),
+                    Boolean.parseBoolean(argsMap.getOrDefault(OFFLINE_KEY, "false")),
+                    GithubSchemaSource.FetchMode.valueOf(argsMap.getOrDefault(FETCH_MODE_KEY, DEFAULT_FETCH_MODE)));
+            GenerationMetrics.Phase fetch = metrics.phase("fetch");
+            Path yamlFilesDir = schemaSource.fetch();
+            File[] yamlFiles = SchemaSource.yamlFiles(yamlFilesDir).stream().map(Path::toFile).toArray(File[]::new);
+            fetch.end();
+            ModelCatalog modelCatalog = ModelCatalog.load(yamlFiles, attributeMode, parallelism, metrics);
+            Properties properties = propertiesFromMap(Map.ofEntries(
+                    Map.entry("parents", modelCatalog.parents()),
+                    Map.entry("models", Arrays.stream(yamlFiles).map(File::getName).map(s -> s.substring(0, s.indexOf("."))).toList()),
+                    Map.entry("attributeMode", attributeMode.name()),
+                    Map.entry("interfaces", interfaces),
+                    Map.entry("layout", layout.name()),
+                    Map.entry("numberType", numberType.name()),
+                    Map.entry("typedValues", typedValues),
+                    Map.entry("jsonCodecs", jsonCodecs),
+                    Map.entry("binaryCodecs", binaryCodecs),
+                    Map.entry("accessors", accessors),
+                    Map.entry("batches", batches),
+                    Map.entry("edges", edges)
             ));
 
-            System.out.printf("generating classes into %s for FtM with %s%n", destDir, properties);
+            System.out.printf("generating classes into %s for FtM with %s (parallelism=%d)%n", destDir, properties, parallelism);
+            GenerationManifest manifest = new GenerationManifest(manifestFile, modelCatalog, properties);
             SourceGenerator sourceGenerator = new SourceGenerator(properties);
-
-            for (File yamlFile: yamlFiles) {
-                String javaSource = sourceGenerator.generate(yamlFile.toPath());
-                Files.writeString(destDir.resolve(Utils.getJavaFileName(yamlFile)), javaSource);
+            GenerationMetrics.Phase generate = metrics.phase("generate");
+            Map<File, List<String>> generated = generate(sourceGenerator, modelCatalog, destDir, classesDir, parallelism, manifest, metrics);
+            generate.end();
+            GenerationMetrics.Phase registryPhase = metrics.phase("registry");
+            Map<String, String> shared = registry ? Map.of(SchemaRegistryGenerator.CLASS_NAME, sourceGenerator.generateRegistry(modelCatalog.models())) : Map.of();
+            boolean sharedChanged = false;
+            for (Map.Entry<String, String> source : shared.entrySet()) {
+                sharedChanged |= write(destDir.resolve(source.getKey() + ".java"), source.getValue(), metrics) > 0;
+            }
+            if (!registry) {
+                deleteClass(SchemaRegistryGenerator.CLASS_NAME, destDir, classesDir);
+            }
+            registryPhase.end();
+            if (compile) {
+                GenerationMetrics.Phase compilePhase = metrics.phase("compile");
+                compile(yamlFiles, generated, shared, sharedChanged, manifest, destDir, classesDir);
+                compilePhase.end();
+            }
+            if (catalog) {
+                GenerationMetrics.Phase catalogPhase = metrics.phase("catalog");
+                writeCatalog(modelCatalog.models(), classesDir);
+                catalogPhase.end();
+            }
+            manifest.save();
+            if (metrics.isEnabled()) {
+                System.out.print(metrics.report(10));
             }
         } catch (IllegalArgumentException argex) {
             System.out.println(argex.getMessage());
             System.out.println("usage: Main <properties>");
             System.out.printf("\t--%s: FtM properties mode (REQUIRED, FEATURED, FULL default %s)%n", ATTRIBUTE_MODE_KEY, DEFAULT_ATTRIBUTE_MODE);
             System.out.printf("\t--%s: only generate interfaces (default %s)%n", INTERFACES_KEY, DEFAULT_INTERFACES_VALUE);
+            System.out.printf("\t--%s: class memory layout, FIELDS, SPARSE to only store present properties or MULTI to store all the values of each property (default %s)%n", LAYOUT_KEY, DEFAULT_LAYOUT);
+            System.out.printf("\t--%s: java type of numbers, INT, LONG, DOUBLE or DECIMAL (default %s)%n", NUMBER_TYPE_KEY, DEFAULT_NUMBER_TYPE);
+            System.out.printf("\t--%s: packed dates and interned country, language and topic codes instead of strings (default %s)%n", TYPED_VALUES_KEY, DEFAULT_TYPED_VALUES_VALUE);
+            System.out.printf("\t--%s: number of generation threads, 1 is sequential (default number of cores)%n", PARALLELISM_KEY);
+            System.out.printf("\t--%s: schema directory, classpath:<dir> or contents API URL (default %s)%n", SCHEMA_SOURCE_KEY, SCHEMA_URL);
+            System.out.printf("\t--%s: schema git revision for a URL source (default %s)%n", REVISION_KEY, DEFAULT_REVISION);
+            System.out.printf("\t--%s: cache directory for a URL source (default %s)%n", CACHE_DIR_KEY, DEFAULT_CACHE_DIR);
+            System.out.printf("\t--%s: only use the cache for a URL source (default false)%n", OFFLINE_KEY);
+            System.out.printf("\t--%s: compile generated sources in memory into %s, else maven compiles them (default %s)%n", COMPILE_KEY, classesDir, DEFAULT_COMPILE_VALUE);
+            System.out.printf("\t--%s: also generate streaming JSON codecs for records and non abstract classes (default %s)%n", JSON_CODECS_KEY, DEFAULT_JSON_CODECS_VALUE);
+            System.out.printf("\t--%s: also generate binary codecs for records and non abstract classes (default %s)%n", BINARY_CODECS_KEY, DEFAULT_BINARY_CODECS_VALUE);
+            System.out.printf("\t--%s: also generate index-based property accessors for records and non abstract classes (default %s)%n", ACCESSORS_KEY, DEFAULT_ACCESSORS_VALUE);
+            System.out.printf("\t--%s: also generate column batches, that can be written and memory-mapped, for records and non abstract classes (default %s)%n", BATCHES_KEY, DEFAULT_BATCHES_VALUE);
+            System.out.printf("\t--%s: also generate edge extractors of the entity properties, to build an AdjacencyIndex, for records and non abstract classes (default %s)%n", EDGES_KEY, DEFAULT_EDGES_VALUE);
+            System.out.printf("\t--%s: write the SchemaCatalog resource with the schemata metadata into %s (default %s)%n", CATALOG_KEY, classesDir, DEFAULT_CATALOG_VALUE);
+            System.out.printf("\t--%s: also generate the SchemaRegistry class with schema ids, is-a bitsets and a factory (default %s)%n", REGISTRY_KEY, DEFAULT_REGISTRY_VALUE);
+            System.out.printf("\t--%s: print the time of each generation phase and of the slowest schemata, and record them as JFR events (default %s)%n", PROFILE_KEY, DEFAULT_PROFILE_VALUE);
+            System.out.printf("\t--%s: ARCHIVE (one zip download) or FILES (one download per file) for a URL source (default %s)%n", FETCH_MODE_KEY, DEFAULT_FETCH_MODE);
+        }
+    }
+
+    static Map<File, List<String>> generate(SourceGenerator sourceGenerator, File[] yamlFiles, Path destDir, int parallelism) throws IOException, InterruptedException {
+        return generate(sourceGenerator, yamlFiles, destDir, parallelism, null);
+    }
+
+    /**
+     * Generates the java source files of each yaml file into destDir: the model type and its optional codecs.
+     * Each file is generated independently of the others so the output is the same whatever the parallelism.
+     * <p>
+     * With a manifest, the models that have the same inputs as the last generation are skipped.
+     * In all cases java files are written through a {@link JavaWriter.Sink#directory(Path, java.util.function.LongConsumer)
+     * directory sink}, without building their content as strings, and only if their content changed, to keep their
+     * modification time stable for incremental compilation.
+     * </p>
+     *
+     * @param sourceGenerator generator sharing the parents map between all the files
+     * @param yamlFiles FtM yaml models
+     * @param destDir destination directory of the java files
+     * @param parallelism number of threads. With 1, files are generated sequentially in the calling thread.
+     * @param manifest hashes of the previous generation, or null to generate all the files
+     * @return the names of the generated classes by yaml file, without the skipped ones
+     */
+    static Map<File, List<String>> generate(SourceGenerator sourceGenerator, File[] yamlFiles, Path destDir, int parallelism, GenerationManifest manifest) throws IOException, InterruptedException {
+        return generate(sourceGenerator, yamlFiles, null, destDir, null, parallelism, manifest, GenerationMetrics.NONE);
+    }
+
+    /**
+     * Same as {@link #generate(SourceGenerator, File[], Path, int, GenerationManifest)} from the already loaded
+     * models, so that the yaml files are not parsed again.
+     *
+     * @param classesDir directory of the compiled classes, where the classes that are not generated anymore are deleted
+     */
+    static Map<File, List<String>> generate(SourceGenerator sourceGenerator, ModelCatalog catalog, Path destDir, Path classesDir, int parallelism, GenerationManifest manifest, GenerationMetrics metrics) throws IOException, InterruptedException {
+        return generate(sourceGenerator, catalog.yamlFiles(), catalog, destDir, classesDir, parallelism, manifest, metrics);
+    }
+
+    private static Map<File, List<String>> generate(SourceGenerator sourceGenerator, File[] yamlFiles, ModelCatalog catalog, Path destDir, Path classesDir, int parallelism, GenerationManifest manifest, GenerationMetrics metrics) throws IOException, InterruptedException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be greater than 0, got " + parallelism);
+        }
+        Map<File, List<String>> generated = new ConcurrentHashMap<>();
+        if (parallelism == 1) {
+            for (File yamlFile: yamlFiles) {
+                generate(sourceGenerator, yamlFile, catalog, destDir, classesDir, manifest, generated, metrics);
+            }
+            return generated;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Callable<Void>> tasks = Arrays.stream(yamlFiles).map(yamlFile -> (Callable<Void>) () -> {
+                generate(sourceGenerator, yamlFile, catalog, destDir, classesDir, manifest, generated, metrics);
+                return null;
+            }).toList();
+            for (Future<Void> future: pool.invokeAll(tasks)) {
+                future.get();
+            }
+            return generated;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void generate(SourceGenerator sourceGenerator, File yamlFile, ModelCatalog catalog, Path destDir, Path classesDir, GenerationManifest manifest,
+                                 Map<File, List<String>> generated, GenerationMetrics metrics) throws IOException {
+        Path javaFile = destDir.resolve(Utils.getJavaFileName(yamlFile));
+        if (manifest != null && manifest.isUpToDate(yamlFile, javaFile)) {
+            return;
+        }
+        GenerationMetrics.Phase schema = metrics.schema(yamlFile.getName());
+        List<String> classNames = new ArrayList<>();
+        long[] written = new long[1];
+        JavaWriter.Sink directory = JavaWriter.Sink.directory(destDir, bytes -> {
+            written[0] += bytes;
+            metrics.written(bytes);
+        });
+        JavaWriter.Sink sink = className -> {
+            classNames.add(className);
+            return directory.open(className);
+        };
+        if (catalog == null) {
+            sourceGenerator.generateFiles(yamlFile.toPath(), sink);
+        } else {
+            sourceGenerator.generateFiles(catalog.model(yamlFile), sink);
+        }
+        schema.end(written[0]);
+        if (manifest != null) {
+            for (String staleClass: manifest.classes(yamlFile)) {
+                if (!classNames.contains(staleClass)) {
+                    deleteClass(staleClass, destDir, classesDir);
+                }
+            }
+            manifest.setClasses(yamlFile, classNames);
+        }
+        generated.put(yamlFile, classNames);
+    }
+
+    /**
+     * Deletes the source of a class that is not generated anymore and its class files, with the nested ones, so that
+     * it is not packaged compiled against the previous models.
+     * @param classesDir directory of the compiled classes, or null to only delete the source
+     */
+    static void deleteClass(String className, Path sourcesDir, Path classesDir) throws IOException {
+        Files.deleteIfExists(sourcesDir.resolve(className + ".java"));
+        Path packageDir = classesDir == null ? null : classesDir.resolve(Path.of("org", "icij", "ftm"));
+        if (packageDir == null || !Files.isDirectory(packageDir)) {
+            return;
+        }
+        Files.deleteIfExists(packageDir.resolve(className + ".class"));
+        try (DirectoryStream<Path> nestedClasses = Files.newDirectoryStream(packageDir, className + "$*.class")) {
+            for (Path nestedClass : nestedClasses) {
+                Files.delete(nestedClass);
+            }
+        }
+    }
+
+    /**
+     * Writes the content to the file if it changed.
+     * @return the number of written bytes, 0 if the file has not changed
+     */
+    private static long write(Path file, String content, GenerationMetrics metrics) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (!Utils.writeIfChanged(file, bytes)) {
+            return 0;
+        }
+        metrics.written(bytes.length);
+        return bytes.length;
+    }
+
+    /**
+     * Writes the binary {@link SchemaCatalog} of the yaml models as a resource in classesDir, if it changed.
+     */
+    static void writeCatalog(List<Model> models, Path classesDir) throws IOException {
+        Path catalogFile = classesDir.resolve(Path.of("org", "icij", "ftm", SchemaCatalog.RESOURCE));
+        Files.createDirectories(catalogFile.getParent());
+        if (Utils.writeIfChanged(catalogFile, SchemaCatalogWriter.write(models))) {
+            System.out.printf("wrote schema catalog of %d schemata into %s%n", models.size(), catalogFile);
+        }
+    }
+
+    /**
+     * Compiles in memory all the java sources of the models into classesDir. The sources are read from sourcesDir,
+     * the classes that have not been generated (because up to date) with the class names kept in the manifest.
+     * If nothing has been generated and all the class files are there, the compilation is skipped.
+     *
+     * @param shared the sources generated from all the models (like the schema registry), compiled with the models
+     * @param sharedChanged true if a shared source is not the same as in sourcesDir
+     * @throws IllegalStateException with the compiler diagnostics if the compilation fails
+     */
+    static void compile(File[] yamlFiles, Map<File, List<String>> generated, Map<String, String> shared, boolean sharedChanged,
+                        GenerationManifest manifest, Path sourcesDir, Path classesDir) throws IOException {
+        boolean upToDate = generated.isEmpty() && !sharedChanged && Stream.concat(Arrays.stream(yamlFiles)
+                .flatMap(f -> manifest.classes(f).stream()), shared.keySet().stream())
+                .map(c -> classesDir.resolve(Path.of("org", "icij", "ftm", c + ".class")))
+                .allMatch(Files::exists);
+        if (upToDate) {
+            return;
+        }
+        List<SourceCompiler.Source> sources = new ArrayList<>(yamlFiles.length);
+        for (File yamlFile: yamlFiles) {
+            for (String className: generated.getOrDefault(yamlFile, manifest.classes(yamlFile))) {
+                String code = Files.readString(sourcesDir.resolve(className + ".java"));
+                sources.add(new SourceCompiler.Source("org.icij.ftm." + className, code, yamlFile.toPath()));
+            }
+        }
+        shared.forEach((className, code) -> sources.add(new SourceCompiler.Source("org.icij.ftm." + className, code, sourcesDir.resolve(className + ".java"))));
+        SourceCompiler.Result result = new SourceCompiler().compile(sources);
+        if (!result.success()) {
+            throw new IllegalStateException("cannot compile generated sources:\n" + String.join("\n", result.diagnostics()));
         }
+        result.writeTo(classesDir);
+        System.out.printf("compiled %d classes into %s%n", result.classes().size(), classesDir);
     }
 }
@@ -7,7 +7,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -29,6 +28,11 @@ import static java.util.stream.Stream.concat;
  * <p>
  *     mixins instance is here to "help" the mapping of Java classes with multiple inheritance FtM models.
  * </p>
+ * <p>
+ *     Hierarchy queries (concrete parent, implements list, parents attributes, property lookup) are resolved
+ *     once and memoized. All the memoized values are immutable so a resolved model can be shared between threads.
+ *     {@link Utils#findParents} resolves the whole parents graph eagerly in topological order.
+ * </p>
  */
 public class Model {
     private final static Logger logger = LoggerFactory.getLogger(Model.class);
@@ -39,6 +43,16 @@ public class Model {
     private final Mode mode;
     private final Map<String, Object> yaml;
     private static final Set<String> mixins = new LinkedHashSet<>(List.of("Asset", "Folder", "PlainText", "HyperText"));
+
+    private Optional<String> concreteParent;
+    private Boolean concrete;
+    private List<String> attributes;
+    private List<String> implementsList;
+    private List<String> parentsAttributes;
+    private Map<String, Map<String, Object>> allProperties;
+    private Map<String, String> types;
+    private List<String> ancestors;
+
     public Model(Map<String, Object> yamlContent) {
         this(yamlContent, new HashMap<>());
     }
@@ -64,6 +78,13 @@ public class Model {
      * @return the parent string model name with isConcrete = true from the inheritance tree.
      */
     public Optional<String> concreteParent() {
+        if (concreteParent == null) {
+            concreteParent = resolveConcreteParent();
+        }
+        return concreteParent;
+    }
+
+    private Optional<String> resolveConcreteParent() {
         List<String> extendz = getExtends();
         List<String> concreteParents = extendz.stream().filter(p -> parents.get(p) == null || parents.get(p).isConcrete()).collect(Collectors.toList());
         if (concreteParents.size()>1) {
@@ -105,34 +126,52 @@ public class Model {
      * @return the list of attributes depending on Model's mode
      */
     public List<String> attributes() {
-        switch (mode) {
-            case REQUIRED -> {
-                return required();
-            }
-            case FEATURED -> {
-                return concat(required().stream(), featured().stream()).distinct().toList();
-            }
-            default -> {
-                return concat(concat(required().stream(), featured().stream()), properties().keySet().stream()).distinct().toList();
+        if (attributes == null) {
+            switch (mode) {
+                case REQUIRED -> attributes = List.copyOf(required());
+                case FEATURED -> attributes = concat(required().stream(), featured().stream()).distinct().toList();
+                default -> attributes = concat(concat(required().stream(), featured().stream()), properties().keySet().stream()).distinct().toList();
             }
         }
+        return attributes;
     }
 
+    /**
+     * @return the attributes of the concrete parents, from the root of the tree to the closest parent.
+     * The returned list is immutable.
+     */
     public List<String> parentsAttributes() {
-        return new LinkedList<>(parentsAttributes(this));
+        if (parentsAttributes == null) {
+            parentsAttributes = List.copyOf(parentsAttributes(this));
+        }
+        return parentsAttributes;
     }
 
     public Map<String, Object> property(String prop) {
-        return property(prop, this);
+        return allProperties().get(prop);
     }
 
     public String type(String prop) {
-        Map<String, Object> property = property(prop);
-        if ("entity".equals(property.get("type"))) {
-            return (String) property.get("range");
-        } else {
-            return (String) property.getOrDefault("type", "string");
+        String type = types().get(prop);
+        return type == null ? typeOf(property(prop)) : type;
+    }
+
+    /**
+     * @return the name of the model defining the property, this model or the first parent defining it as in
+     * {@link #property(String)}, or null if the property is unknown
+     */
+    public String schemaOf(String prop) {
+        if (properties().get(prop) != null) {
+            return name();
+        }
+        for (String parent : getExtends()) {
+            Model parentModel = parents.get(parent);
+            String schema = parentModel == null ? null : parentModel.schemaOf(prop);
+            if (schema != null) {
+                return schema;
+            }
         }
+        return null;
     }
 
     public Map<String, Object> description() {
@@ -151,6 +190,25 @@ public class Model {
         return (List<String>) description().getOrDefault("extends", new ArrayList<>());
     }
 
+    /**
+     * @return the names of all the models this model extends, directly or not, depth first in the "extends" order.
+     * The ancestors of a model that is not in the parents map are unknown.
+     */
+    public List<String> ancestors() {
+        if (ancestors == null) {
+            Set<String> flattened = new LinkedHashSet<>();
+            for (String parent : getExtends()) {
+                flattened.add(parent);
+                Model parentModel = parents.get(parent);
+                if (parentModel != null) {
+                    flattened.addAll(parentModel.ancestors());
+                }
+            }
+            ancestors = List.copyOf(flattened);
+        }
+        return ancestors;
+    }
+
     public Map<String, Object> properties() {
         return (Map<String, Object>) description().getOrDefault("properties", new HashMap<>());
     }
@@ -164,7 +222,10 @@ public class Model {
     }
 
     public List<String> getImplementsList() {
-        return getExtends().stream().filter(p -> parents.get(p) == null || !parents.get(p).isConcrete()).collect(Collectors.toList());
+        if (implementsList == null) {
+            implementsList = getExtends().stream().filter(p -> parents.get(p) == null || !parents.get(p).isConcrete()).toList();
+        }
+        return implementsList;
     }
 
     /**
@@ -177,25 +238,73 @@ public class Model {
      * @return true if the model can be a Class or Record
      */
     public boolean isConcrete() {
-        return  !(mixins.contains(name()) || (required().isEmpty() && concreteParent().isEmpty()));
+        if (concrete == null) {
+            concrete = !(mixins.contains(name()) || (required().isEmpty() && concreteParent().isEmpty()));
+        }
+        return concrete;
     }
 
-    private Map<String, Object> property(String prop, Model model) {
-        Map<String, Object> property = (Map<String, Object>) model.properties().get(prop);
-        if (property == null) {
-            List<String> extendz = model.getExtends();
-            return extendz.stream().map(s -> property(prop, parents.get(s))).filter(Objects::nonNull).findFirst().orElse(null);
+    /**
+     * Resolves and memoizes all the hierarchy queries of this model. Parents should be resolved first
+     * to keep the recursion shallow, see {@link Utils#findParents}.
+     * @return this model
+     */
+    Model resolve() {
+        concreteParent();
+        isConcrete();
+        getImplementsList();
+        parentsAttributes();
+        types();
+        ancestors();
+        return this;
+    }
+
+    /**
+     * Flattened property table: the model's own properties first, then the parents' ones
+     * in the "extends" order (depth first). It is equivalent to a recursive lookup.
+     */
+    private Map<String, Map<String, Object>> allProperties() {
+        if (allProperties == null) {
+            Map<String, Map<String, Object>> flattened = new HashMap<>();
+            for (Map.Entry<String, Object> prop : properties().entrySet()) {
+                if (prop.getValue() != null) {
+                    flattened.put(prop.getKey(), (Map<String, Object>) prop.getValue());
+                }
+            }
+            for (String parent : getExtends()) {
+                Model parentModel = parents.get(parent);
+                if (parentModel != null) {
+                    parentModel.allProperties().forEach(flattened::putIfAbsent);
+                }
+            }
+            allProperties = Collections.unmodifiableMap(flattened);
+        }
+        return allProperties;
+    }
+
+    private Map<String, String> types() {
+        if (types == null) {
+            Map<String, String> flattened = new HashMap<>();
+            allProperties().forEach((name, prop) -> flattened.put(name, typeOf(prop)));
+            types = Collections.unmodifiableMap(flattened);
+        }
+        return types;
+    }
+
+    private static String typeOf(Map<String, Object> property) {
+        if ("entity".equals(property.get("type"))) {
+            return (String) property.get("range");
         } else {
-            return property;
+            return (String) property.getOrDefault("type", "string");
         }
     }
 
     private LinkedHashSet<String> parentsAttributes(Model model) {
         Optional<String> parentName = model.concreteParent();
         if (parentName.isPresent()) {
-            LinkedHashSet<String> grandParentsAttributes = parentsAttributes(parents.get(parentName.get()));
-            List<String> parentAttributes = parents.get(parentName.get()).attributes();
-            grandParentsAttributes.addAll(parentAttributes);
+            Model parent = parents.get(parentName.get());
+            LinkedHashSet<String> grandParentsAttributes = new LinkedHashSet<>(parent.parentsAttributes());
+            grandParentsAttributes.addAll(parent.attributes());
             return grandParentsAttributes;
         } else {
             return new LinkedHashSet<>();
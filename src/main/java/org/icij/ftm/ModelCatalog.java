@@ -0,0 +1,137 @@
+package org.icij.ftm;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static java.lang.String.format;
+
+/**
+ * All the models of a generation, each yaml file parsed once.
+ * <p>
+ * The parents are the models of {@link Utils#findParents(List, Model.Mode)}, and the same instances are
+ * returned for them by {@link #model(String)}: every generation step (sources, registry, catalog, manifest)
+ * shares the same models. All the hierarchy queries are resolved when loading, so the models are not
+ * modified afterwards and can be used by concurrent generation threads.
+ * </p>
+ */
+public final class ModelCatalog {
+    private final Map<String, Model> parents;
+    private final Map<File, Model> models;
+    private final Map<String, Model> modelsByName = new LinkedHashMap<>();
+
+    private ModelCatalog(Map<String, Model> parents, Map<File, Model> models) {
+        this.parents = Collections.unmodifiableMap(parents);
+        this.models = Collections.unmodifiableMap(models);
+        models.values().forEach(model -> modelsByName.put(model.name(), model));
+    }
+
+    /**
+     * Parses the yaml files with parallelism threads, then builds and resolves the models.
+     *
+     * @param yamlFiles FtM yaml models
+     * @param attributeMode attribute mode of the models
+     * @param parallelism number of threads. With 1, files are parsed sequentially in the calling thread.
+     * @throws IOException if a file cannot be read
+     */
+    public static ModelCatalog load(File[] yamlFiles, Model.Mode attributeMode, int parallelism) throws IOException, InterruptedException {
+        return load(yamlFiles, attributeMode, parallelism, GenerationMetrics.NONE);
+    }
+
+    static ModelCatalog load(File[] yamlFiles, Model.Mode attributeMode, int parallelism, GenerationMetrics metrics) throws IOException, InterruptedException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be greater than 0, got " + parallelism);
+        }
+        GenerationMetrics.Phase parse = metrics.phase("parse");
+        List<Map<String, Object>> yamlContents = parallelism == 1 ? parseSequentially(yamlFiles) : parseInParallel(yamlFiles, parallelism);
+        for (File yamlFile : yamlFiles) {
+            metrics.read(yamlFile.length());
+        }
+        parse.end();
+        GenerationMetrics.Phase findParents = metrics.phase("parents");
+        Map<String, Model> parents = Utils.findParents(yamlContents, attributeMode, metrics.parentsMap());
+        findParents.end();
+        GenerationMetrics.Phase resolve = metrics.phase("resolve");
+        Map<File, Model> models = new LinkedHashMap<>();
+        for (int i = 0; i < yamlFiles.length; i++) {
+            Model model = new Model(yamlContents.get(i), parents, attributeMode);
+            models.put(yamlFiles[i], parents.getOrDefault(model.name(), model).resolve());
+        }
+        resolve.end();
+        return new ModelCatalog(parents, models);
+    }
+
+    private static List<Map<String, Object>> parseSequentially(File[] yamlFiles) throws IOException {
+        List<Map<String, Object>> yamlContents = new ArrayList<>(yamlFiles.length);
+        for (File yamlFile : yamlFiles) {
+            yamlContents.add(Utils.getYamlContent(yamlFile));
+        }
+        return yamlContents;
+    }
+
+    private static List<Map<String, Object>> parseInParallel(File[] yamlFiles, int parallelism) throws IOException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Callable<Map<String, Object>>> tasks = Arrays.stream(yamlFiles)
+                    .map(yamlFile -> (Callable<Map<String, Object>>) () -> Utils.getYamlContent(yamlFile)).toList();
+            List<Map<String, Object>> yamlContents = new ArrayList<>(yamlFiles.length);
+            for (Future<Map<String, Object>> future : pool.invokeAll(tasks)) {
+                yamlContents.add(future.get());
+            }
+            return yamlContents;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return map of parent name to its model, to use as the "parents" generator property
+     */
+    public Map<String, Model> parents() {
+        return parents;
+    }
+
+    /**
+     * @return all the models, in the yaml files order
+     */
+    public List<Model> models() {
+        return List.copyOf(models.values());
+    }
+
+    public File[] yamlFiles() {
+        return models.keySet().toArray(File[]::new);
+    }
+
+    /**
+     * @return the model of the yaml file
+     * @throws IllegalArgumentException if the file is not in the catalog
+     */
+    public Model model(File yamlFile) {
+        Model model = models.get(yamlFile);
+        if (model == null) {
+            throw new IllegalArgumentException(format("%s is not in the model catalog", yamlFile));
+        }
+        return model;
+    }
+
+    /**
+     * @return the model or null if unknown
+     */
+    public Model model(String name) {
+        return modelsByName.get(name);
+    }
+}
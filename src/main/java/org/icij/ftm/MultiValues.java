@@ -0,0 +1,229 @@
+package org.icij.ftm;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Storage of all the values of a property, used by the models generated with the {@link SourceGenerator.Layout#MULTI} layout.
+ * <p>
+ * An object property is stored in one field: null without value, the value itself for a single value (the common case)
+ * and an array of the values for several values. A primitive property is stored in two fields: its first value, and an
+ * array of all the values that is null unless there are several values.
+ * </p>
+ * <p>
+ * The arrays are shared, not copied: they should not be modified once given to a model. The values are read by index,
+ * without iterator or list allocation.
+ * </p>
+ */
+public final class MultiValues {
+    private MultiValues() {}
+
+    /**
+     * @return the compact storage of the values: null, the single value or the array without its null values.
+     * The array is kept when it has several values and no null.
+     */
+    public static Object of(Object[] values) {
+        if (values == null) {
+            return null;
+        }
+        int count = 0;
+        Object single = null;
+        for (Object value : values) {
+            if (value != null) {
+                single = value;
+                count++;
+            }
+        }
+        if (count <= 1) {
+            return single;
+        }
+        if (count == values.length) {
+            return values;
+        }
+        Object[] present = (Object[]) Array.newInstance(values.getClass().getComponentType(), count);
+        for (int i = 0, j = 0; j < count; i++) {
+            if (values[i] != null) {
+                present[j++] = values[i];
+            }
+        }
+        return present;
+    }
+
+    public static int count(Object values) {
+        return values == null ? 0 : values instanceof Object[] array ? array.length : 1;
+    }
+
+    /**
+     * @return the first value, or null without value
+     */
+    public static Object first(Object values) {
+        return values instanceof Object[] array ? array[0] : values;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if index is not lower than {@link #count(Object)}
+     */
+    public static Object get(Object values, int index) {
+        if (values instanceof Object[] array) {
+            return array[index];
+        }
+        if (values == null || index != 0) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return values;
+    }
+
+    /**
+     * @return the first value of a primitive property, 0 without value
+     */
+    public static int first(int[] values) {
+        return values == null || values.length == 0 ? 0 : values[0];
+    }
+
+    public static long first(long[] values) {
+        return values == null || values.length == 0 ? 0 : values[0];
+    }
+
+    public static double first(double[] values) {
+        return values == null || values.length == 0 ? 0 : values[0];
+    }
+
+    /**
+     * @return the array to keep next to the first value of a primitive property: the values if there are several, else null
+     */
+    public static int[] several(int[] values) {
+        return values != null && values.length > 1 ? values : null;
+    }
+
+    public static long[] several(long[] values) {
+        return values != null && values.length > 1 ? values : null;
+    }
+
+    public static double[] several(double[] values) {
+        return values != null && values.length > 1 ? values : null;
+    }
+
+    /**
+     * @return the number of values of a primitive property, a single 0 being absent
+     */
+    public static int count(int first, int[] several) {
+        return several != null ? several.length : first != 0 ? 1 : 0;
+    }
+
+    public static int count(long first, long[] several) {
+        return several != null ? several.length : first != 0 ? 1 : 0;
+    }
+
+    public static int count(double first, double[] several) {
+        return several != null ? several.length : first != 0 ? 1 : 0;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if index is not lower than {@link #count(int, int[])}
+     */
+    public static int get(int first, int[] several, int index) {
+        if (several != null) {
+            return several[index];
+        }
+        if (first == 0 || index != 0) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return first;
+    }
+
+    public static long get(long first, long[] several, int index) {
+        if (several != null) {
+            return several[index];
+        }
+        if (first == 0 || index != 0) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return first;
+    }
+
+    public static double get(double first, double[] several, int index) {
+        if (several != null) {
+            return several[index];
+        }
+        if (first == 0 || index != 0) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return first;
+    }
+
+    /**
+     * @return the parsed values, without the values parsed as null. Null if strings is null.
+     */
+    public static <T> T[] map(String[] strings, IntFunction<T[]> array, Function<String, T> parse) {
+        if (strings == null) {
+            return null;
+        }
+        T[] values = array.apply(strings.length);
+        int count = 0;
+        for (String string : strings) {
+            T value = parse.apply(string);
+            if (value != null) {
+                values[count++] = value;
+            }
+        }
+        if (count == values.length) {
+            return values;
+        }
+        T[] present = array.apply(count);
+        System.arraycopy(values, 0, present, 0, count);
+        return present;
+    }
+
+    /**
+     * @return the parsed values, without the values parsed as 0 (absent or unparseable). Null if strings is null.
+     */
+    public static int[] mapToInt(String[] strings, ToIntFunction<String> parse) {
+        if (strings == null) {
+            return null;
+        }
+        int[] values = new int[strings.length];
+        int count = 0;
+        for (String string : strings) {
+            int value = parse.applyAsInt(string);
+            if (value != 0) {
+                values[count++] = value;
+            }
+        }
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    public static long[] mapToLong(String[] strings, ToLongFunction<String> parse) {
+        if (strings == null) {
+            return null;
+        }
+        long[] values = new long[strings.length];
+        int count = 0;
+        for (String string : strings) {
+            long value = parse.applyAsLong(string);
+            if (value != 0) {
+                values[count++] = value;
+            }
+        }
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    public static double[] mapToDouble(String[] strings, ToDoubleFunction<String> parse) {
+        if (strings == null) {
+            return null;
+        }
+        double[] values = new double[strings.length];
+        int count = 0;
+        for (String string : strings) {
+            double value = parse.applyAsDouble(string);
+            if (value != 0) {
+                values[count++] = value;
+            }
+        }
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+}
@@ -0,0 +1,49 @@
+package org.icij.ftm;
+
+import java.util.List;
+
+/**
+ * Generic access to the properties of the instances of an FtM schema, generated by {@link PropertyAccessorGenerator}.
+ * <p>
+ * Properties are identified by their ordinal: their index in {@link #properties()}, which is the order of the
+ * generated constructor (the same as {@link BinaryCodec}). The accesses are switches on the ordinal calling the
+ * generated accessors, without reflection. Null values and zero numbers are absent.
+ * </p>
+ * @param <T> the generated record or class of the schema
+ */
+public interface PropertyAccessor<T> {
+    /**
+     * @return the FtM schema name
+     */
+    String schema();
+
+    /**
+     * @return the property names by ordinal
+     */
+    List<String> properties();
+
+    /**
+     * @return the property types by ordinal
+     */
+    List<ValueType> types();
+
+    /**
+     * @return the ordinal of the property, or -1 if the schema has no such property
+     */
+    int ordinal(String property);
+
+    /**
+     * @return the value of the property, primitives boxed, or null if absent
+     * @throws IndexOutOfBoundsException if the ordinal is not a property ordinal
+     */
+    Object get(T instance, int ordinal);
+
+    /**
+     * Calls the visitor with each present property, in ordinal order.
+     */
+    void forEachPresent(T instance, Visitor visitor);
+
+    interface Visitor {
+        void visit(int ordinal, Object value);
+    }
+}
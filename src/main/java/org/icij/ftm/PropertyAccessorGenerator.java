@@ -0,0 +1,112 @@
+package org.icij.ftm;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.lang.String.format;
+
+/**
+ * Generates the {@link PropertyAccessor} of an instantiable model (record or non abstract class).
+ * <p>
+ * The ordinals are the constructor attributes ({@link Model#parentsAttributes()} then the own
+ * {@link Model#attributes()}), the name lookup is a string switch and the value access a switch on the ordinal.
+ * </p>
+ */
+class PropertyAccessorGenerator {
+    static final String SUFFIX = "Accessor";
+    private final SourceGenerator sourceGenerator;
+
+    PropertyAccessorGenerator(SourceGenerator sourceGenerator) {
+        this.sourceGenerator = sourceGenerator;
+    }
+
+    String generate(Model model) {
+        if (!sourceGenerator.isInstantiable(model)) {
+            throw new IllegalArgumentException(format("cannot generate a property accessor for %s: it is not instantiable", model.name()));
+        }
+        List<String> attributes = sourceGenerator.constructorAttributes(model);
+        String properties = attributes.stream().map(a -> format("\"%s\"", a)).collect(Collectors.joining(", "));
+        String types = attributes.stream().map(a -> "ValueType." + type(model, a)).collect(Collectors.joining(", "));
+        String ordinalCases = IntStream.range(0, attributes.size())
+                .mapToObj(i -> format("case \"%s\" -> %d;", attributes.get(i), i))
+                .collect(Collectors.joining("\n            "));
+        String getCases = IntStream.range(0, attributes.size())
+                .mapToObj(i -> format("case %d -> %s;", i, getExpression(model, attributes.get(i))))
+                .collect(Collectors.joining("\n            "));
+        String visits = IntStream.range(0, attributes.size())
+                .mapToObj(i -> visitStatement(model, attributes.get(i), i))
+                .collect(Collectors.joining("\n        "));
+
+        return sourceGenerator.packageDeclaration() + format("""
+                import java.util.List;
+
+                /**
+                 * Automatically generated property accessor for FtM model. Do not update this class.
+                 * @see <a href="https://github.com/alephdata/followthemoney/blob/main/followthemoney/schema/%s.yaml">%s</a>.
+                 */
+                public final class %s%s implements PropertyAccessor<%s> {
+                    public static final %s%s INSTANCE = new %s%s();
+                    private static final List<String> PROPERTIES = List.of(%s);
+                    private static final List<ValueType> TYPES = List.of(%s);
+
+                    @Override
+                    public String schema() {
+                        return "%s";
+                    }
+
+                    @Override
+                    public List<String> properties() {
+                        return PROPERTIES;
+                    }
+
+                    @Override
+                    public List<ValueType> types() {
+                        return TYPES;
+                    }
+
+                    @Override
+                    public int ordinal(String property) {
+                        return switch (property) {
+                            %s
+                            default -> -1;
+                        };
+                    }
+
+                    @Override
+                    public Object get(%s instance, int ordinal) {
+                        return switch (ordinal) {
+                            %s
+                            default -> throw new IndexOutOfBoundsException(ordinal);
+                        };
+                    }
+
+                    @Override
+                    public void forEachPresent(%s instance, Visitor visitor) {
+                        %s
+                    }
+                }
+                """, model.name(), model.name(),
+                model.name(), SUFFIX, model.name(),
+                model.name(), SUFFIX, model.name(), SUFFIX,
+                properties, types,
+                model.name(),
+                ordinalCases,
+                model.name(), getCases,
+                model.name(), visits);
+    }
+
+    private ValueType type(Model model, String attribute) {
+        return sourceGenerator.valueType(model.type(attribute));
+    }
+
+    private String getExpression(Model model, String attribute) {
+        String value = sourceGenerator.accessor(model, "instance", attribute);
+        return type(model, attribute).isPrimitive() ? format("%s == 0 ? null : %s", value, value) : value;
+    }
+
+    private String visitStatement(Model model, String attribute, int ordinal) {
+        String value = sourceGenerator.accessor(model, "instance", attribute);
+        return format("if (%s != %s) visitor.visit(%d, %s);", value, type(model, attribute).isPrimitive() ? "0" : "null", ordinal, value);
+    }
+}
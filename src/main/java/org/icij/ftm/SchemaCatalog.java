@@ -0,0 +1,355 @@
+package org.icij.ftm;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Metadata of the FtM schemata (labels, flags, property types...) read from the binary catalog written at build
+ * time by {@link SchemaCatalogWriter} and packaged in the jar, so that it can be queried without the yaml files.
+ * <p>
+ * The catalog of the jar is loaded on the first call to {@link #get()}. Each string is created once when it is
+ * loaded and shared by all the schemata and properties.
+ * </p>
+ */
+public final class SchemaCatalog {
+    static final String RESOURCE = "ftm-catalog.bin";
+    static final byte[] MAGIC = "FTMC".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+
+    private static volatile SchemaCatalog packaged;
+    private final Map<String, Schema> schemata;
+
+    private SchemaCatalog(Map<String, Schema> schemata) {
+        this.schemata = Collections.unmodifiableMap(schemata);
+    }
+
+    /**
+     * @return the catalog packaged in the jar
+     * @throws IllegalStateException if the jar has been built without catalog
+     * @throws UncheckedIOException if the catalog cannot be read. A failed load is retried by the next call.
+     */
+    public static SchemaCatalog get() {
+        SchemaCatalog catalog = packaged;
+        if (catalog == null) {
+            synchronized (SchemaCatalog.class) {
+                catalog = packaged;
+                if (catalog == null) {
+                    packaged = catalog = loadResource(RESOURCE);
+                }
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * @return the catalog read from the input, that is not closed
+     * @throws IOException if the input cannot be read or is not a catalog
+     */
+    public static SchemaCatalog load(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC) || data.readUnsignedByte() != VERSION) {
+            throw new IOException("not a schema catalog or unsupported version");
+        }
+        String[] strings = new String[readVarint(data)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = data.readUTF();
+        }
+        Reader reader = new Reader(data, strings);
+        Map<String, Schema> schemata = new LinkedHashMap<>();
+        SchemaCatalog catalog = new SchemaCatalog(schemata);
+        for (int i = readVarint(data); i > 0; i--) {
+            Schema schema = catalog.new Schema(reader);
+            schemata.put(schema.name, schema);
+        }
+        return catalog;
+    }
+
+    /**
+     * @return the schema names, sorted
+     */
+    public Collection<String> names() {
+        return schemata.keySet();
+    }
+
+    /**
+     * @return the schema or null if unknown
+     */
+    public Schema schema(String name) {
+        return schemata.get(name);
+    }
+
+    public final class Schema {
+        private final String name;
+        private final String label;
+        private final String plural;
+        private final String description;
+        private final int flags;
+        private final List<String> extendz;
+        private final List<String> required;
+        private final List<String> featured;
+        private final List<String> caption;
+        private final List<String> temporalStart;
+        private final List<String> temporalEnd;
+        private final Map<String, Property> properties;
+
+        private Schema(Reader reader) throws IOException {
+            name = reader.string();
+            label = reader.string();
+            plural = reader.string();
+            description = reader.string();
+            flags = reader.data.readUnsignedByte();
+            extendz = reader.list();
+            required = reader.list();
+            featured = reader.list();
+            caption = reader.list();
+            temporalStart = reader.list();
+            temporalEnd = reader.list();
+            Map<String, Property> schemaProperties = new LinkedHashMap<>();
+            for (int i = readVarint(reader.data); i > 0; i--) {
+                Property property = new Property(this, reader);
+                schemaProperties.put(property.name, property);
+            }
+            properties = Collections.unmodifiableMap(schemaProperties);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public String plural() {
+            return plural;
+        }
+
+        public String description() {
+            return description;
+        }
+
+        public boolean isAbstract() {
+            return (flags & SchemaCatalogWriter.ABSTRACT) != 0;
+        }
+
+        /**
+         * @return true unless disabled in the yaml
+         */
+        public boolean isMatchable() {
+            return (flags & SchemaCatalogWriter.MATCHABLE) != 0;
+        }
+
+        public boolean isHidden() {
+            return (flags & SchemaCatalogWriter.HIDDEN) != 0;
+        }
+
+        public boolean isGenerated() {
+            return (flags & SchemaCatalogWriter.GENERATED) != 0;
+        }
+
+        /**
+         * @return the names of the schemata directly extended
+         */
+        public List<String> extendz() {
+            return extendz;
+        }
+
+        public List<String> required() {
+            return required;
+        }
+
+        public List<String> featured() {
+            return featured;
+        }
+
+        public List<String> caption() {
+            return caption;
+        }
+
+        public List<String> temporalStart() {
+            return temporalStart;
+        }
+
+        public List<String> temporalEnd() {
+            return temporalEnd;
+        }
+
+        /**
+         * @return the properties defined by the schema, not the inherited ones
+         */
+        public Collection<Property> properties() {
+            return properties.values();
+        }
+
+        /**
+         * @return the property of the schema or of the schemata it extends (depth first), null if none has it
+         */
+        public Property property(String propertyName) {
+            Property property = properties.get(propertyName);
+            for (int i = 0; property == null && i < extendz.size(); i++) {
+                Schema parent = schemata.get(extendz.get(i));
+                property = parent == null ? null : parent.property(propertyName);
+            }
+            return property;
+        }
+
+        /**
+         * @return true if the schema is the given schema or extends it, directly or not
+         */
+        public boolean isA(String schemaName) {
+            if (name.equals(schemaName)) {
+                return true;
+            }
+            for (String parentName : extendz) {
+                Schema parent = schemata.get(parentName);
+                if (parent != null && parent.isA(schemaName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static final class Property {
+        private final Schema schema;
+        private final String name;
+        private final String label;
+        private final String type;
+        private final String description;
+        private final int flags;
+        private final int maxLength;
+        private final String range;
+        private final String reverse;
+
+        private Property(Schema schema, Reader reader) throws IOException {
+            this.schema = schema;
+            name = reader.string();
+            label = reader.string();
+            type = reader.string();
+            description = reader.string();
+            flags = reader.data.readUnsignedByte();
+            maxLength = readVarint(reader.data);
+            range = reader.string();
+            reverse = reader.string();
+        }
+
+        /**
+         * @return the schema defining the property
+         */
+        public Schema schema() {
+            return schema;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        /**
+         * @return the FtM type, string if not specified
+         */
+        public String type() {
+            return type;
+        }
+
+        public String description() {
+            return description;
+        }
+
+        /**
+         * @return true unless disabled in the yaml
+         */
+        public boolean isMatchable() {
+            return (flags & SchemaCatalogWriter.MATCHABLE) != 0;
+        }
+
+        public boolean isHidden() {
+            return (flags & SchemaCatalogWriter.HIDDEN) != 0;
+        }
+
+        /**
+         * @return the maximum length of the values, or 0 if not specified
+         */
+        public int maxLength() {
+            return maxLength;
+        }
+
+        /**
+         * @return the schema of the entities referenced by an entity property, or null
+         */
+        public String range() {
+            return range;
+        }
+
+        /**
+         * @return the name of the reverse property of an entity property, or null
+         */
+        public String reverse() {
+            return reverse;
+        }
+
+        @Override
+        public String toString() {
+            return format("%s:%s", schema.name, name);
+        }
+    }
+
+    private record Reader(DataInputStream data, String[] strings) {
+        String string() throws IOException {
+            int index = readVarint(data);
+            return index == 0 ? null : strings[index - 1];
+        }
+
+        List<String> list() throws IOException {
+            String[] list = new String[readVarint(data)];
+            for (int i = 0; i < list.length; i++) {
+                list[i] = string();
+            }
+            return List.of(list);
+        }
+    }
+
+    private static int readVarint(DataInputStream data) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static SchemaCatalog loadResource(String resource) {
+        try (InputStream input = SchemaCatalog.class.getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IllegalStateException(format("no %s resource, the jar has been built without catalog", resource));
+            }
+            return load(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
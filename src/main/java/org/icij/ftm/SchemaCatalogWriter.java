@@ -0,0 +1,141 @@
+package org.icij.ftm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the metadata of the yaml models into the binary catalog read by {@link SchemaCatalog}.
+ * <p>
+ * Layout (varints are unsigned LEB128, a string is a varint index + 1 in the string table, 0 for null):
+ * </p>
+ * <pre>
+ * header:   "FTMC" version(1 byte)
+ * strings:  varint(count) (modified utf-8 of {@link DataOutputStream#writeUTF(String)})*
+ * schemata: varint(count) schema*
+ * schema:   string(name) string(label) string(plural) string(description) flags(1 byte)
+ *           list(extends) list(required) list(featured) list(caption) list(temporal start) list(temporal end)
+ *           varint(property count) property*
+ * property: string(name) string(label) string(type) string(description) flags(1 byte) varint(max length)
+ *           string(range) string(reverse)
+ * list:     varint(count) string*
+ * </pre>
+ * <p>
+ * Each distinct string is stored once. The schemata are sorted by name and the properties are in the yaml order.
+ * </p>
+ */
+class SchemaCatalogWriter {
+    static final int ABSTRACT = 1;
+    static final int MATCHABLE = 2;
+    static final int HIDDEN = 4;
+    static final int GENERATED = 8;
+
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final ByteArrayOutputStream schemata = new ByteArrayOutputStream();
+
+    /**
+     * @return the catalog of the models
+     */
+    static byte[] write(List<Model> models) throws IOException {
+        return new SchemaCatalogWriter().catalog(models);
+    }
+
+    private byte[] catalog(List<Model> models) throws IOException {
+        List<Model> sorted = models.stream().sorted(Comparator.comparing(Model::name)).toList();
+        writeVarint(schemata, sorted.size());
+        for (Model model : sorted) {
+            writeSchema(model);
+        }
+        ByteArrayOutputStream catalog = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(catalog);
+        output.write(SchemaCatalog.MAGIC);
+        output.writeByte(SchemaCatalog.VERSION);
+        writeVarint(catalog, strings.size());
+        for (String string : strings) {
+            output.writeUTF(string);
+        }
+        schemata.writeTo(catalog);
+        return catalog.toByteArray();
+    }
+
+    private void writeSchema(Model model) {
+        Map<String, Object> description = model.description();
+        writeString(model.name());
+        writeString(model.label());
+        writeString((String) description.get("plural"));
+        writeString((String) description.get("description"));
+        schemata.write(flag(description, "abstract", false, ABSTRACT) | flag(description, "matchable", true, MATCHABLE)
+                | flag(description, "hidden", false, HIDDEN) | flag(description, "generated", false, GENERATED));
+        writeList(model.getExtends());
+        writeList(model.required());
+        writeList(list(description, "featured"));
+        writeList(list(description, "caption"));
+        Map<String, Object> temporalExtent = map(description, "temporalExtent");
+        writeList(list(temporalExtent, "start"));
+        writeList(list(temporalExtent, "end"));
+
+        Map<String, Object> properties = model.properties();
+        writeVarint(schemata, properties.size());
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            Map<String, Object> property = entry.getValue() == null ? Map.of() : asMap(entry.getValue());
+            writeString(entry.getKey());
+            writeString((String) property.get("label"));
+            writeString((String) property.getOrDefault("type", "string"));
+            writeString((String) property.get("description"));
+            schemata.write(flag(property, "matchable", true, MATCHABLE) | flag(property, "hidden", false, HIDDEN));
+            writeVarint(schemata, property.get("maxLength") instanceof Integer maxLength ? maxLength : 0);
+            writeString((String) property.get("range"));
+            writeString((String) map(property, "reverse").get("name"));
+        }
+    }
+
+    private void writeList(List<String> list) {
+        writeVarint(schemata, list.size());
+        list.forEach(this::writeString);
+    }
+
+    private void writeString(String string) {
+        if (string == null) {
+            writeVarint(schemata, 0);
+            return;
+        }
+        Integer index = stringIndexes.get(string);
+        if (index == null) {
+            index = strings.size();
+            stringIndexes.put(string, index);
+            strings.add(string);
+        }
+        writeVarint(schemata, index + 1);
+    }
+
+    private static int flag(Map<String, Object> map, String key, boolean defaultValue, int flag) {
+        return map.getOrDefault(key, defaultValue) instanceof Boolean b && b ? flag : 0;
+    }
+
+    private static List<String> list(Map<String, Object> map, String key) {
+        return map.get(key) instanceof List<?> list ? list.stream().map(String::valueOf).toList() : List.of();
+    }
+
+    private static Map<String, Object> map(Map<String, Object> map, String key) {
+        return map.get(key) instanceof Map<?, ?> value ? asMap(value) : Map.of();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object map) {
+        return (Map<String, Object>) map;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream output, int value) {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+}
@@ -0,0 +1,179 @@
+package org.icij.ftm;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.lang.String.format;
+
+/**
+ * Generates the registry of all the models: a dense id per schema (models sorted by name), the ancestors
+ * of each schema as a bitset indexed by id, and a factory calling the constructors of the instantiable models.
+ * <p>
+ * The name lookups and the factory are string switches, the is-a checks are a bit test: nothing is resolved
+ * by reflection at runtime.
+ * </p>
+ */
+class SchemaRegistryGenerator {
+    static final String CLASS_NAME = "SchemaRegistry";
+    private final SourceGenerator sourceGenerator;
+
+    SchemaRegistryGenerator(SourceGenerator sourceGenerator) {
+        this.sourceGenerator = sourceGenerator;
+    }
+
+    String generate(List<Model> unsortedModels) {
+        List<Model> models = unsortedModels.stream().sorted(Comparator.comparing(Model::name)).toList();
+        Map<String, Integer> ids = IntStream.range(0, models.size()).boxed()
+                .collect(Collectors.toMap(i -> models.get(i).name(), Function.identity()));
+        int words = Math.max(1, (models.size() + 63) / 64);
+
+        String constants = models.stream()
+                .map(m -> format("public static final int %s = %d;", constantName(m.name()), ids.get(m.name())))
+                .collect(Collectors.joining("\n    "));
+        String names = models.stream().map(m -> format("\"%s\"", m.name())).collect(Collectors.joining(", "));
+        String ancestors = models.stream()
+                .map(m -> ancestorBits(m, ids, words))
+                .collect(Collectors.joining(",\n            "));
+        String idCases = models.stream()
+                .map(m -> format("case \"%s\" -> %s;", m.name(), constantName(m.name())))
+                .collect(Collectors.joining("\n            "));
+        String createCases = models.stream()
+                .filter(sourceGenerator::isInstantiable)
+                .map(this::createCase)
+                .collect(Collectors.joining("\n            "));
+        String decimalImport = models.stream().filter(sourceGenerator::isInstantiable)
+                .anyMatch(m -> sourceGenerator.constructorAttributes(m).stream().anyMatch(a -> sourceGenerator.valueType(m.type(a)) == ValueType.DECIMAL))
+                ? "import java.math.BigDecimal;\n" : "";
+
+        return sourceGenerator.packageDeclaration() + format("""
+                %simport java.util.List;
+                import java.util.function.Predicate;
+
+                import static java.lang.String.format;
+
+                /**
+                 * Automatically generated registry of the FtM schemata. Do not update this class.
+                 * <p>
+                 * Schema ids are dense, from 0 to {@link #COUNT} - 1, so that they can index arrays and bitsets.
+                 * </p>
+                 */
+                public final class %s {
+                    public static final int COUNT = %d;
+                    %s
+
+                    private static final List<String> NAMES = List.of(%s);
+                    // bitset of the ids of each schema ancestors, the schema included
+                    private static final long[][] ANCESTORS = {
+                            %s
+                    };
+
+                    private %s() {}
+
+                    /**
+                     * @return the id of the schema, or -1 if unknown
+                     */
+                    public static int id(String schema) {
+                        return switch (schema) {
+                            %s
+                            default -> -1;
+                        };
+                    }
+
+                    public static String name(int id) {
+                        return NAMES.get(id);
+                    }
+
+                    /**
+                     * @return true if the schema is the ancestor schema or extends it, directly or not
+                     */
+                    public static boolean isA(int schema, int ancestor) {
+                        return (ANCESTORS[schema][ancestor >>> 6] & 1L << ancestor) != 0;
+                    }
+
+                    public static boolean isA(String schema, String ancestor) {
+                        int schemaId = id(schema);
+                        int ancestorId = id(ancestor);
+                        return schemaId >= 0 && ancestorId >= 0 && isA(schemaId, ancestorId);
+                    }
+
+                    /**
+                     * Filter for the schemata that are or extend one of the given schemata, for example
+                     * {@code descendantsOf("LegalEntity")} accepts Company, Organization or Person.
+                     */
+                    public static Predicate<String> descendantsOf(String... schemata) {
+                        long[] accepted = new long[%d];
+                        for (String ancestor : schemata) {
+                            int ancestorId = id(ancestor);
+                            for (int id = 0; ancestorId >= 0 && id < COUNT; id++) {
+                                if (isA(id, ancestorId)) {
+                                    accepted[id >>> 6] |= 1L << id;
+                                }
+                            }
+                        }
+                        return schema -> {
+                            int id = id(schema);
+                            return id >= 0 && (accepted[id >>> 6] & 1L << id) != 0;
+                        };
+                    }
+
+                    /**
+                     * Calls the constructor of the schema.
+                     * @param values the constructor arguments, in the order of the constructor signature. Primitive values should not be null.
+                     * @throws IllegalArgumentException if the schema is unknown or cannot be instantiated (interface or abstract class)
+                     */
+                    public static Object create(String schema, Object... values) {
+                        %s
+                    }
+                }
+                """, decimalImport, CLASS_NAME, models.size(), constants, names, ancestors, CLASS_NAME,
+                idCases, words, createBody(createCases));
+    }
+
+    /**
+     * A switch expression needs a case with a result: without instantiable schema, the body only throws.
+     */
+    private static String createBody(String createCases) {
+        String notInstantiable = "throw new IllegalArgumentException(format(\"cannot create %s: unknown or not instantiable schema\", schema));";
+        return createCases.isEmpty() ? "// no instantiable schema\n        " + notInstantiable : format("""
+                return switch (schema) {
+                            %s
+                            default -> %s
+                        };""", createCases, notInstantiable);
+    }
+
+    private String createCase(Model model) {
+        List<String> attributes = sourceGenerator.constructorAttributes(model);
+        String arguments = IntStream.range(0, attributes.size())
+                .mapToObj(i -> format("(%s) values[%d]", sourceGenerator.javaType(model.type(attributes.get(i))), i))
+                .collect(Collectors.joining(", "));
+        return format("case \"%s\" -> new %s(%s);", model.name(), model.name(), arguments);
+    }
+
+    private static String ancestorBits(Model model, Map<String, Integer> ids, int words) {
+        long[] bits = new long[words];
+        int id = ids.get(model.name());
+        bits[id >>> 6] |= 1L << id;
+        for (String ancestor : model.ancestors()) {
+            Integer ancestorId = ids.get(ancestor);
+            if (ancestorId != null) {
+                bits[ancestorId >>> 6] |= 1L << ancestorId;
+            }
+        }
+        StringBuilder string = new StringBuilder("{");
+        for (int i = 0; i < words; i++) {
+            string.append(i == 0 ? "" : ", ").append(format("0x%xL", bits[i]));
+        }
+        return string.append("}").toString();
+    }
+
+    /**
+     * @return the constant name of the schema, e.g. LEGAL_ENTITY for LegalEntity
+     */
+    static String constantName(String schema) {
+        return schema.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+}
@@ -0,0 +1,124 @@
+package org.icij.ftm;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Where the FtM yaml models are read from. A source gives a local directory containing
+ * one yaml file per model, whatever the origin of the files.
+ * <ul>
+ *     <li>a local directory: {@code /path/to/followthemoney/schema}</li>
+ *     <li>a classpath directory: {@code classpath:schema}</li>
+ *     <li>a GitHub contents API URL (or any HTTP server answering the same listing): {@code https://api.github.com/...}.
+ *     Files are cached on disk, see {@link GithubSchemaSource}</li>
+ * </ul>
+ */
+public interface SchemaSource {
+    String CLASSPATH_PREFIX = "classpath:";
+
+    /**
+     * @return a directory with the yaml models
+     */
+    Path fetch() throws IOException, InterruptedException;
+
+    static SchemaSource of(String location, String revision, Path cacheRoot, boolean offline) {
+        return of(location, revision, cacheRoot, offline, GithubSchemaSource.FetchMode.ARCHIVE);
+    }
+
+    static SchemaSource of(String location, String revision, Path cacheRoot, boolean offline, GithubSchemaSource.FetchMode fetchMode) {
+        if (location.startsWith(CLASSPATH_PREFIX)) {
+            return new ClasspathSource(location.substring(CLASSPATH_PREFIX.length()));
+        } else if (location.startsWith("http://") || location.startsWith("https://")) {
+            return new GithubSchemaSource(URI.create(location), revision, cacheRoot, offline, fetchMode);
+        } else if (location.startsWith("file:")) {
+            return new DirectorySource(Path.of(URI.create(location)));
+        } else {
+            return new DirectorySource(Path.of(location));
+        }
+    }
+
+    static boolean isYaml(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.endsWith(".yaml") || fileName.endsWith(".yml");
+    }
+
+    /**
+     * Lists the yaml files of a schema directory.
+     */
+    static List<Path> yamlFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(SchemaSource::isYaml).sorted().toList();
+        }
+    }
+
+    class DirectorySource implements SchemaSource {
+        private final Path directory;
+
+        public DirectorySource(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public Path fetch() throws IOException {
+            if (!Files.isDirectory(directory)) {
+                throw new FileNotFoundException("schema directory not found: " + directory);
+            }
+            return directory;
+        }
+
+        @Override
+        public String toString() {
+            return directory.toString();
+        }
+    }
+
+    /**
+     * Directory from the classpath. If the directory is in a jar, its yaml files are copied
+     * into a temporary directory.
+     */
+    class ClasspathSource implements SchemaSource {
+        private final String resourceDir;
+
+        public ClasspathSource(String resourceDir) {
+            this.resourceDir = resourceDir;
+        }
+
+        @Override
+        public Path fetch() throws IOException {
+            URL url = Thread.currentThread().getContextClassLoader().getResource(resourceDir);
+            if (url == null) {
+                throw new FileNotFoundException("schema directory not found in classpath: " + resourceDir);
+            }
+            try {
+                if ("file".equals(url.getProtocol())) {
+                    return Path.of(url.toURI());
+                }
+                Path tempDirectory = Files.createTempDirectory("ftm.java");
+                try (FileSystem jar = FileSystems.newFileSystem(url.toURI(), Map.of());
+                     Stream<Path> files = Files.list(jar.getPath(resourceDir))) {
+                    for (Path yamlFile : files.filter(SchemaSource::isYaml).toList()) {
+                        Files.copy(yamlFile, tempDirectory.resolve(yamlFile.getFileName().toString()));
+                    }
+                }
+                return tempDirectory;
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return CLASSPATH_PREFIX + resourceDir;
+        }
+    }
+}
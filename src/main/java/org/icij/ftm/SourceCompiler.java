@@ -0,0 +1,189 @@
+package org.icij.ftm;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.String.format;
+
+/**
+ * Compiles generated java sources in memory with the JDK compiler ({@link ToolProvider#getSystemJavaCompiler()}).
+ * <p>
+ * Sources are given as strings and class files are kept in memory, they can then be written to a classes directory
+ * or loaded with {@link Result#classLoader(ClassLoader)}. Compilation errors are reported with the yaml model the
+ * source has been generated from.
+ * </p>
+ */
+public class SourceCompiler {
+    private static final List<String> OPTIONS = List.of("--release", "17", "-parameters", "-proc:none");
+    private final String classpath;
+
+    public SourceCompiler() {
+        this(classpath(Thread.currentThread().getContextClassLoader()));
+    }
+
+    public SourceCompiler(String classpath) {
+        this.classpath = classpath;
+    }
+
+    /**
+     * A java source to compile.
+     * @param className fully qualified name of the top level class
+     * @param code java code
+     * @param origin the yaml file the code has been generated from
+     */
+    public record Source(String className, String code, Path origin) {}
+
+    /**
+     * @param success true if the compilation has no error
+     * @param classes binary class name to class file bytes
+     * @param diagnostics errors and warnings with the yaml model name
+     */
+    public record Result(boolean success, Map<String, byte[]> classes, List<String> diagnostics) {
+        public void writeTo(Path classesDir) throws IOException {
+            for (Map.Entry<String, byte[]> classFile : classes.entrySet()) {
+                Path classPath = classesDir.resolve(classFile.getKey().replace('.', File.separatorChar) + ".class");
+                Files.createDirectories(classPath.getParent());
+                Utils.writeIfChanged(classPath, classFile.getValue());
+            }
+        }
+
+        /**
+         * @return a class loader defining the compiled classes before delegating to the parent, so that they
+         * are loaded even if classes with the same names (for example generated interfaces) are in the parent
+         */
+        public ClassLoader classLoader(ClassLoader parent) {
+            return new ClassLoader(parent) {
+                @Override
+                protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                    synchronized (getClassLoadingLock(name)) {
+                        Class<?> loaded = findLoadedClass(name);
+                        if (loaded == null) {
+                            byte[] bytes = classes.get(name);
+                            loaded = bytes == null ? super.loadClass(name, false) : defineClass(name, bytes, 0, bytes.length);
+                        }
+                        if (resolve) {
+                            resolveClass(loaded);
+                        }
+                        return loaded;
+                    }
+                }
+            };
+        }
+    }
+
+    public Result compile(Collection<Source> sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("no java compiler found, a JDK is needed to compile generated sources");
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, byte[]> classes = new ConcurrentHashMap<>();
+        List<String> options = new ArrayList<>(OPTIONS);
+        options.addAll(List.of("-classpath", classpath));
+
+        try (JavaFileManager fileManager = new MemoryFileManager(compiler.getStandardFileManager(diagnostics, null, null), classes)) {
+            List<SourceObject> units = sources.stream().map(SourceObject::new).toList();
+            boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, units).call();
+            return new Result(success, new TreeMap<>(classes), diagnostics.getDiagnostics().stream().map(SourceCompiler::describe).toList());
+        }
+    }
+
+    private static String describe(Diagnostic<? extends JavaFileObject> diagnostic) {
+        if (diagnostic.getSource() instanceof SourceObject source) {
+            String origin = source.source.origin() == null ? "" : source.source.origin().getFileName() + " ";
+            String line = diagnostic.getLineNumber() > 0 ? source.source.code().lines().skip(diagnostic.getLineNumber() - 1).findFirst().orElse("").trim() : "";
+            return format("%s: %s(%s.java:%d) %s%n    %s", diagnostic.getKind(), origin,
+                    simpleName(source.source.className()), diagnostic.getLineNumber(), diagnostic.getMessage(null), line);
+        }
+        return format("%s: %s", diagnostic.getKind(), diagnostic.getMessage(null));
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * The classpath of the class loader and its parents. When launched by maven exec:java, the project classpath
+     * is only known by the context class loader.
+     */
+    static String classpath(ClassLoader classLoader) {
+        Set<String> entries = new LinkedHashSet<>();
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            if (loader instanceof URLClassLoader urlClassLoader) {
+                for (URL url : urlClassLoader.getURLs()) {
+                    try {
+                        entries.add(Path.of(url.toURI()).toString());
+                    } catch (URISyntaxException | IllegalArgumentException e) {
+                        // not a file: ignored
+                    }
+                }
+            }
+        }
+        entries.addAll(List.of(System.getProperty("java.class.path").split(File.pathSeparator)));
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static class SourceObject extends SimpleJavaFileObject {
+        private final Source source;
+
+        SourceObject(Source source) {
+            super(URI.create(format("string:///%s.java", source.className().replace('.', '/'))), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source.code();
+        }
+    }
+
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classes;
+
+        MemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classes) {
+            super(fileManager);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create(format("mem:///%s%s", className.replace('.', '/'), kind.extension)), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() {
+                            classes.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -4,18 +4,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.file.Path;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import static java.lang.String.format;
 import static java.util.Optional.ofNullable;
+import static java.util.stream.Stream.concat;
 
 /**
  * Generate java source from FtM model yaml file.
@@ -25,13 +30,21 @@ public class SourceGenerator {
     private final static Logger logger = LoggerFactory.getLogger(SourceGenerator.class);
     private final Properties properties;
 
-    private static final Map<String, String> nativeTypeMapping = Map.of(
-            "number", "int",
-            "url", "URL"
-    );
-    private static final Map<String, String> imports = Map.of(
-            "URL",  "java.net.URL"
-    );
+    /**
+     * Memory layout of the generated classes: one final field per property, only the present properties
+     * in a {@link SparseModel}, or all the values of each property with {@link MultiValues}.
+     */
+    public enum Layout {FIELDS, SPARSE, MULTI}
+
+    /**
+     * Package of the generated sources, and of the ftm.java classes they use, unless the packageName property is set.
+     */
+    static final String DEFAULT_PACKAGE = "org.icij.ftm";
+
+    private static final Set<ValueType> numberTypes = EnumSet.of(ValueType.INT, ValueType.LONG, ValueType.DOUBLE, ValueType.DECIMAL);
+    // reused by the generations of each thread, to avoid growing a new buffer for each model
+    private static final int BUFFER_SIZE = 8192;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(BUFFER_SIZE));
     private static final Map<String, String> jvmReservedWords = Map.of(
             "case", "caze"
     );
@@ -46,77 +59,309 @@ public class SourceGenerator {
 
     public String generate(Path path) throws IOException {
         logger.info("generating java class for {} model", path.getFileName());
-        Map<String, Model> parents = (Map<String, Model>) ofNullable(this.properties.get("parents")).orElse(new HashMap<>());
-        boolean interfaces = (boolean) ofNullable(this.properties.get("interfaces")).orElse(false);
+        return generate(model(path));
+    }
+
+    /**
+     * Generates all the java sources of a model: the model type and, if enabled in properties, its codecs, accessor, column batch and edge extractor.
+     * @return map of class simple name to java source, the model type first
+     */
+    Map<String, String> generateFiles(Path path) throws IOException {
+        logger.info("generating java classes for {} model", path.getFileName());
+        return generateFiles(model(path));
+    }
+
+    /**
+     * Same as {@link #generateFiles(Path)} writing the sources into the sink.
+     */
+    void generateFiles(Path path, JavaWriter.Sink sink) throws IOException {
+        logger.info("generating java classes for {} model", path.getFileName());
+        generateFiles(model(path), sink);
+    }
+
+    /**
+     * Same as {@link #generateFiles(Path)} for a model that is already loaded, for example from a {@link ModelCatalog}.
+     */
+    Map<String, String> generateFiles(Model model) {
+        Map<String, StringWriter> writers = new LinkedHashMap<>();
+        try {
+            generateFiles(model, className -> writers.computeIfAbsent(className, c -> new StringWriter(BUFFER_SIZE)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<String, String> files = new LinkedHashMap<>();
+        writers.forEach((className, writer) -> files.put(className, writer.toString()));
+        return files;
+    }
+
+    /**
+     * Writes all the java sources of a model into the sink (files, {@link javax.annotation.processing.Filer}...),
+     * the model type first. The model type is written without intermediate string.
+     */
+    void generateFiles(Model model, JavaWriter.Sink sink) throws IOException {
+        try (Writer writer = sink.open(model.name())) {
+            generate(model, writer);
+        }
+        if (isEnabled("jsonCodecs") && isInstantiable(model)) {
+            write(sink, model.name() + JsonCodecGenerator.SUFFIX, new JsonCodecGenerator(this).generate(model));
+        }
+        if (isEnabled("binaryCodecs") && isInstantiable(model)) {
+            write(sink, model.name() + BinaryCodecGenerator.SUFFIX, new BinaryCodecGenerator(this).generate(model));
+        }
+        if (isEnabled("accessors") && isInstantiable(model)) {
+            write(sink, model.name() + PropertyAccessorGenerator.SUFFIX, new PropertyAccessorGenerator(this).generate(model));
+        }
+        if (isEnabled("batches") && isInstantiable(model)) {
+            write(sink, model.name() + ColumnBatchGenerator.SUFFIX, new ColumnBatchGenerator(this).generate(model));
+        }
+        if (isEnabled("edges") && isInstantiable(model)) {
+            write(sink, model.name() + EdgeExtractorGenerator.SUFFIX, new EdgeExtractorGenerator(this).generate(model));
+        }
+    }
+
+    private static void write(JavaWriter.Sink sink, String className, String code) throws IOException {
+        try (Writer writer = sink.open(className)) {
+            writer.write(code);
+        }
+    }
+
+    /**
+     * Generates the {@link SchemaRegistryGenerator registry} of all the models.
+     */
+    String generateRegistry(List<Model> models) {
+        logger.info("generating schema registry for {} models", models.size());
+        return new SchemaRegistryGenerator(this).generate(models);
+    }
+
+    private Model model(Path path) throws IOException {
         Model.Mode attributeMode = Model.Mode.valueOf((String) this.properties.getOrDefault("attributeMode", "REQUIRED"));
-        Model model = new Model(Utils.getYamlContent(path.toFile()), parents, attributeMode);
+        return new Model(Utils.getYamlContent(path.toFile()), parents(), attributeMode);
+    }
+
+    private Map<String, Model> parents() {
+        return (Map<String, Model>) ofNullable(this.properties.get("parents")).orElse(new HashMap<>());
+    }
+
+    /**
+     * @return the package of the generated sources
+     */
+    String packageName() {
+        return (String) this.properties.getOrDefault("packageName", DEFAULT_PACKAGE);
+    }
+
+    /**
+     * @return the package declaration of the generated sources, with the import of the ftm.java classes outside of the default package
+     */
+    String packageDeclaration() {
+        String packageName = packageName();
+        return (packageName.isEmpty() ? "" : format("package %s;\n\n", packageName))
+                + (DEFAULT_PACKAGE.equals(packageName) ? "" : format("import %s.*;\n\n", DEFAULT_PACKAGE));
+    }
+
+    Layout layout() {
+        return Layout.valueOf((String) this.properties.getOrDefault("layout", Layout.FIELDS.name()));
+    }
+
+    private boolean isEnabled(String option) {
+        Object value = this.properties.get(option);
+        return value instanceof Boolean b ? b : Boolean.parseBoolean((String) value);
+    }
+
+    /**
+     * @return true if the model is generated as a record
+     */
+    boolean isRecord(Model model) {
+        return model.isConcrete() && !isEnabled("interfaces") && layout() == Layout.FIELDS && !parents().containsKey(model.name())
+                && !getInheritanceString(model, false).contains("extends");
+    }
 
+    /**
+     * @return true if the generated type can be built with its constructor (a record or a non abstract class)
+     */
+    boolean isInstantiable(Model model) {
+        return isRecord(model) || (model.isConcrete() && !isEnabled("interfaces") && getAbstract(model).isEmpty());
+    }
+
+    /**
+     * @return the attributes of the generated constructor, in the signature order
+     */
+    List<String> constructorAttributes(Model model) {
+        List<String> parentsAttributes = model.parentsAttributes();
+        return concat(parentsAttributes.stream(), model.attributes().stream().filter(a -> !parentsAttributes.contains(a))).toList();
+    }
+
+    /**
+     * @return the java expression reading the attribute from a variable of the generated type
+     */
+    String accessor(Model model, String variable, String attribute) {
+        return isRecord(model) || layout() != Layout.FIELDS ? format("%s.%s()", variable, sanitizedProp(attribute)) : format("%s.%s", variable, sanitizedProp(attribute));
+    }
+
+    /**
+     * Generates the java type of a model that is already loaded, for example from a {@link ModelCatalog}.
+     * The model should have been built with the same parents as the "parents" property.
+     */
+    public String generate(Model model) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        try {
+            generate(model, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Writes the java type of the model to out.
+     */
+    void generate(Model model, Appendable out) throws IOException {
+        JavaWriter java = new JavaWriter(out);
+        boolean interfaces = isEnabled("interfaces");
         String inheritanceString = getInheritanceString(model, interfaces);
-        String methods = generateMethods(model);
 
-        if (model.isConcrete() && !interfaces) {
+        if (model.isConcrete() && !interfaces && layout() == Layout.SPARSE) {
+            generateSparse(model, inheritanceString, java);
+        } else if (model.isConcrete() && !interfaces && layout() == Layout.MULTI) {
+            generateMulti(model, inheritanceString, java);
+        } else if (model.isConcrete() && !interfaces) {
             List<String> parentsAttributes = model.parentsAttributes();
             List<String> modelAttributes = model.attributes().stream().filter(a -> !parentsAttributes.contains(a)).toList();
+            List<String> attributes = constructorAttributes(model);
 
-            String parentsStringProperties = new AttributeHandlerForSignature(model, this::javaType).generateFor(parentsAttributes);
-            String stringProperties = new AttributeHandlerForSignature(model, this::javaType).generateFor(modelAttributes);
-            String classAttributes = new AttributeHandlerForAttrs(model, this::javaType).generateFor(modelAttributes);
-            String classAttributesAssignation = getConstructor(model);
-            String importString = getImports(concatenate(parentsStringProperties, stringProperties));
-
-            if (parents.containsKey(model.name()) || inheritanceString.contains("extends")) {
-                return format("""
-                        package org.icij.ftm;
-                        
-                        %s
-                                
-                        /**
-                         * Automatically generated class for FtM model. Do not update this class.
-                         * @see <a href="https://github.com/alephdata/followthemoney/blob/main/followthemoney/schema/%s.yaml">%s</a>.
-                         */
-                        public %sclass %s %s{
-                            %s
-                            public %s (%s) {
-                                %s
-                            }
-                        }
-                        """, importString, model.name(), model.name(), getAbstract(model), model.name(), inheritanceString, classAttributes, model.name(), concatenate(parentsStringProperties, stringProperties), classAttributesAssignation);
+            if (parents().containsKey(model.name()) || inheritanceString.contains("extends")) {
+                java.header(packageName(), javaTypes(model, attributes))
+                        .append("/**\n * Automatically generated class for FtM model. Do not update this class.\n").seeSchema(model.name())
+                        .append(" */\npublic ").append(getAbstract(model)).append("class ").append(model.name()).append(' ').append(inheritanceString).append("{\n    ")
+                        .join(modelAttributes, "\n", a -> java.append("final ").append(javaType(model.type(a))).append(' ').append(sanitizedProp(a)).append(';'))
+                        .append("\n    public ").append(model.name()).append(" (");
+                signature(model, attributes, java).append(") {\n        ");
+                if (!parentsAttributes.isEmpty()) {
+                    java.append("super(").join(parentsAttributes, ", ", java::append).append(");\n");
+                }
+                java.join(modelAttributes, "\n", a -> java.append("this.").append(a).append(" = ").append(a).append(';'))
+                        .append("\n    }\n}\n");
             } else {
-                return format("""
-                        package org.icij.ftm;
-                         
-                        %s
-                         
-                        /**
-                         * Automatically generated record for FtM model. Do not update this record.
-                         * @see <a href="https://github.com/alephdata/followthemoney/blob/main/followthemoney/schema/%s.yaml">%s</a>.
-                         */
-                        public record %s(%s) %s{};
-                        """, importString, model.name(), model.name(), model.name(), stringProperties, inheritanceString);
+                java.header(packageName(), javaTypes(model, modelAttributes))
+                        .append("/**\n * Automatically generated record for FtM model. Do not update this record.\n").seeSchema(model.name())
+                        .append(" */\npublic record ").append(model.name()).append('(');
+                signature(model, modelAttributes, java).append(") ").append(inheritanceString).append("{};\n");
             }
         } else {
-            return format("""
-                    package org.icij.ftm;
-                    
-                    %s
-                    
-                    /**
-                     * Automatically generated interface for FtM model. Do not update this interface.
-                     * @see <a href="https://github.com/alephdata/followthemoney/blob/main/followthemoney/schema/%s.yaml">%s</a>.
-                    */
-                    public interface %s %s{
-                    %s
-                    }
-                    """, getImports(methods), model.name(), model.name(), model.name(), inheritanceString, methods);
-        }
-    }
-
-    private String getImports(String codeString) {
-        return nativeTypeMapping.values().stream()
-                .filter(codeString::contains)
-                .filter(t -> ofNullable(imports.get(t)).isPresent())
-                .map(t -> format("import %s;", imports.get(t)))
-                .collect(Collectors.joining("\n"));
+            java.header(packageName(), javaTypes(model, model.attributes()))
+                    .append("/**\n * Automatically generated interface for FtM model. Do not update this interface.\n").seeSchema(model.name())
+                    .append("*/\npublic interface ").append(model.name()).append(' ').append(inheritanceString).append("{\n");
+            methods(model, java).append("\n}\n");
+        }
+    }
+
+    /**
+     * Generates a class storing its properties in a {@link SparseModel}. The root classes extend SparseModel
+     * and the constructors pass all the values up by ordinal. Each property has a record-like accessor.
+     */
+    private void generateSparse(Model model, String inheritanceString, JavaWriter java) throws IOException {
+        List<String> attributes = constructorAttributes(model);
+        List<String> modelAttributes = attributes.subList(model.parentsAttributes().size(), attributes.size());
+        String extendsString = inheritanceString.contains("extends") ? inheritanceString : "extends SparseModel " + inheritanceString;
+
+        java.header(packageName(), javaTypes(model, attributes))
+                .append("/**\n * Automatically generated class for FtM model, storing only the present properties. Do not update this class.\n").seeSchema(model.name())
+                .append(" */\npublic ").append(getAbstract(model)).append("class ").append(model.name()).append(' ').append(extendsString).append("{\n    public ")
+                .append(model.name()).append('(');
+        signature(model, attributes, java).append(") {\n        super(new Object[] {")
+                .join(attributes, ", ", a -> java.append(sanitizedProp(a)))
+                .append("});\n    }\n\n    protected ").append(model.name()).append("(Object[] values) {\n        super(values);\n    }\n\n    ")
+                .join(modelAttributes, "\n\n    ", a -> sparseAccessor(model, a, attributes.indexOf(a), java))
+                .append("\n}\n");
+    }
+
+    private void sparseAccessor(Model model, String attribute, int ordinal, JavaWriter java) throws IOException {
+        String type = javaType(model.type(attribute));
+        java.append("public ").append(type).append(' ').append(sanitizedProp(attribute)).append("() {\n        return ");
+        switch (valueType(model.type(attribute))) {
+            case INT -> java.append("intValue(").append(ordinal).append(')');
+            case LONG, DATE -> java.append("longValue(").append(ordinal).append(')');
+            case DOUBLE -> java.append("doubleValue(").append(ordinal).append(')');
+            default -> java.append('(').append(type).append(") get(").append(ordinal).append(')');
+        }
+        java.append(";\n    }");
+    }
+
+    /**
+     * Generates a class storing all the values of each property with {@link MultiValues}: one object field
+     * per property, or the first value and the array of all the values for a primitive. It has the constructor
+     * of the other layouts taking one value per property, and a constructor taking the arrays of all the values.
+     * Each property has a record-like accessor of the first value, and accessors of the count and of the values by index.
+     */
+    private void generateMulti(Model model, String inheritanceString, JavaWriter java) throws IOException {
+        List<String> attributes = constructorAttributes(model);
+        List<String> parentsAttributes = model.parentsAttributes();
+        List<String> modelAttributes = attributes.subList(parentsAttributes.size(), attributes.size());
+
+        java.header(packageName(), javaTypes(model, attributes))
+                .append("/**\n * Automatically generated class for FtM model, storing all the values of each property. Do not update this class.\n").seeSchema(model.name())
+                .append(" */\npublic ").append(getAbstract(model)).append("class ").append(model.name()).append(' ').append(inheritanceString).append("{\n");
+        for (String attribute : modelAttributes) {
+            String prop = sanitizedProp(attribute);
+            if (valueType(model.type(attribute)).isPrimitive()) {
+                String type = javaType(model.type(attribute));
+                java.append("    final ").append(type).append(' ').append(prop).append(";\n    final ").append(type).append("[] ").append(prop).append("Values;\n");
+            } else {
+                java.append("    final Object ").append(prop).append(";\n");
+            }
+        }
+        multiConstructor(model, attributes, parentsAttributes, false, java);
+        if (!attributes.isEmpty()) {
+            multiConstructor(model, attributes, parentsAttributes, true, java);
+        }
+        for (String attribute : modelAttributes) {
+            multiAccessors(model, attribute, java);
+        }
+        java.append("}\n");
+    }
+
+    private void multiConstructor(Model model, List<String> attributes, List<String> parentsAttributes, boolean arrays, JavaWriter java) throws IOException {
+        java.append("\n    public ").append(model.name()).append('(')
+                .join(attributes, ", ", a -> java.append(javaType(model.type(a))).append(arrays ? "[] " : " ").append(sanitizedProp(a)))
+                .append(") {\n");
+        if (!parentsAttributes.isEmpty()) {
+            java.append("        super(").join(parentsAttributes, ", ", a -> java.append(sanitizedProp(a))).append(");\n");
+        }
+        for (String attribute : attributes.subList(parentsAttributes.size(), attributes.size())) {
+            String prop = sanitizedProp(attribute);
+            boolean primitive = valueType(model.type(attribute)).isPrimitive();
+            java.append("        this.").append(prop).append(" = ");
+            if (!arrays) {
+                java.append(prop).append(";\n");
+            } else {
+                java.append(primitive ? "MultiValues.first(" : "MultiValues.of(").append(prop).append(");\n");
+            }
+            if (primitive) {
+                java.append("        this.").append(prop).append("Values = ").append(arrays ? "MultiValues.several(" + prop + ")" : "null").append(";\n");
+            }
+        }
+        java.append("    }\n");
+    }
+
+    private void multiAccessors(Model model, String attribute, JavaWriter java) throws IOException {
+        String prop = sanitizedProp(attribute);
+        String type = javaType(model.type(attribute));
+        boolean primitive = valueType(model.type(attribute)).isPrimitive();
+        String cast = primitive ? "" : "(" + type + ") ";
+        String values = primitive ? prop + ", " + prop + "Values" : prop;
+        java.append("\n    public ").append(type).append(' ').append(prop).append("() {\n        return ")
+                .append(primitive ? prop : cast + "MultiValues.first(" + prop + ")").append(";\n    }\n")
+                .append("\n    public int ").append(prop).append("Count() {\n        return MultiValues.count(").append(values).append(");\n    }\n")
+                .append("\n    public ").append(type).append(' ').append(prop).append("(int index) {\n        return ")
+                .append(cast).append("MultiValues.get(").append(values).append(", index);\n    }\n");
+    }
+
+    private JavaWriter signature(Model model, List<String> attributes, JavaWriter java) throws IOException {
+        return java.join(attributes, ", ", a -> java.append(javaType(model.type(a))).append(' ').append(sanitizedProp(a)));
+    }
+
+    private List<String> javaTypes(Model model, List<String> attributes) {
+        return attributes.stream().map(a -> javaType(model.type(a))).toList();
     }
 
     private String getAbstract(Model model) {
@@ -125,16 +370,6 @@ public class SourceGenerator {
                 !model.concreteParentModel().map(m -> m.getImplementsList().isEmpty()).orElse(false) ? "abstract ": "";
     }
 
-    private static String getConstructor(Model model) {
-        List<String> parentAttributes = model.parentsAttributes();
-        List<String> attributes = model.attributes();
-        if (!parentAttributes.isEmpty()) {
-            return format("super(%s);\n", String.join(", ", parentAttributes)) + attributes.stream().filter(a -> !parentAttributes.contains(a)).map(a -> format("this.%s = %s;", a, a)).collect(Collectors.joining("\n"));
-        } else {
-            return attributes.stream().map(a -> format("this.%s = %s;", a, a)).collect(Collectors.joining("\n"));
-        }
-    }
-
     private static String getInheritanceString(Model model, boolean interfaces) {
         if (interfaces) {
             return model.getExtends().isEmpty() ? "": format("extends %s ", String.join(", ", model.getExtends()));
@@ -149,17 +384,22 @@ public class SourceGenerator {
         }
     }
 
-    private static String concatenate(String parentsStringProperties, String stringProperties) {
-        return parentsStringProperties.isEmpty() ? stringProperties : parentsStringProperties +
-                (stringProperties.isEmpty() ? "" : ", " + stringProperties);
-    }
-
-    private static String sanitizedProp(String prop) {
+    static String sanitizedProp(String prop) {
         return ofNullable(jvmReservedWords.get(prop)).orElse(prop);
     }
 
     public String generateMethods(Model model) {
-        return model.attributes().stream().map(a -> format("\t%s %s();", javaType(model.type(a)), getMethodName(a))).collect(Collectors.joining("\n"));
+        StringBuilder methods = new StringBuilder();
+        try {
+            methods(model, new JavaWriter(methods));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return methods.toString();
+    }
+
+    private JavaWriter methods(Model model, JavaWriter java) throws IOException {
+        return java.join(model.attributes(), "\n", a -> java.append('\t').append(javaType(model.type(a))).append(' ').append(getMethodName(a)).append("();"));
     }
 
     private static String getMethodName(String attr) {
@@ -171,55 +411,36 @@ public class SourceGenerator {
         return string.substring(0,1).toUpperCase() + string.substring(1);
     }
 
-    String javaType(String ftmType) {
-        return nativeTypeMapping.getOrDefault(ftmType,
-                ((List<String>)properties.getOrDefault("models", new LinkedList<>())).contains(ftmType)? ftmType: "String");
+    /**
+     * @return the java representation of the FtM type, depending on the numberType and typedValues options
+     * @throws IllegalArgumentException if the numberType option is not a number type
+     */
+    ValueType valueType(String ftmType) {
+        boolean typedValues = isEnabled("typedValues");
+        return switch (ftmType) {
+            case "number" -> numberType();
+            case "url" -> ValueType.URL;
+            case "email" -> ValueType.EMAIL;
+            case "ip" -> ValueType.IP;
+            case "iban" -> ValueType.IBAN;
+            case "date" -> typedValues ? ValueType.DATE : ValueType.STRING;
+            case "country" -> typedValues ? ValueType.COUNTRY : ValueType.STRING;
+            case "language" -> typedValues ? ValueType.LANGUAGE : ValueType.STRING;
+            case "topic" -> typedValues ? ValueType.TOPIC : ValueType.STRING;
+            default -> ((List<String>) properties.getOrDefault("models", new LinkedList<>())).contains(ftmType) ? ValueType.ENTITY : ValueType.STRING;
+        };
     }
 
-    static class AttributeHandlerForSignature {
-        private final Model model;
-        private final Function<String, String> typeMapping;
-
-        public AttributeHandlerForSignature(Model model, Function<String, String> typeMapping) {
-            this.model = model;
-            this.typeMapping = typeMapping;
-        }
-
-        String generateFor(List<String> attributes) {
-            StringBuilder stringProperties = new StringBuilder();
-            for (String prop: attributes) {
-                String type = typeMapping.apply(model.type(prop));
-                if (type != null) {
-                    addProperty(stringProperties, prop, type);
-                    if (!prop.equals(attributes.get(attributes.size() - 1))) {
-                        addSeparator(stringProperties);
-                    }
-                }
-            }
-            return stringProperties.toString();
-        }
-
-        protected void addSeparator(StringBuilder stringProperties) {
-            stringProperties.append(", ");
-        }
-
-        protected void addProperty(StringBuilder stringProperties, String prop, String type) {
-            stringProperties.append(type).append(" ").append(sanitizedProp(prop));
-        }
+    String javaType(String ftmType) {
+        ValueType valueType = valueType(ftmType);
+        return valueType == ValueType.ENTITY ? ftmType : valueType.javaType;
     }
 
-    static class AttributeHandlerForAttrs extends AttributeHandlerForSignature {
-        public AttributeHandlerForAttrs(Model model, Function<String, String> typeMapping) {
-            super(model, typeMapping);
-        }
-
-        @Override
-        protected void addProperty(StringBuilder stringProperties, String prop, String type) {
-            stringProperties.append("final ").append(type).append(" ").append(sanitizedProp(prop)).append(";");
-        }
-
-        protected void addSeparator(StringBuilder stringProperties) {
-            stringProperties.append("\n");
+    private ValueType numberType() {
+        ValueType numberType = ValueType.valueOf((String) properties.getOrDefault("numberType", ValueType.INT.name()));
+        if (!numberTypes.contains(numberType)) {
+            throw new IllegalArgumentException(format("numberType should be one of %s, got %s", numberTypes, numberType));
         }
+        return numberType;
     }
 }
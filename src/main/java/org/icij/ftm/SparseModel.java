@@ -0,0 +1,134 @@
+package org.icij.ftm;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * Base class of the models generated with the {@link SourceGenerator.Layout#SPARSE} layout.
+ * <p>
+ * Only the present properties are stored: a presence bitmask indexed by the property ordinals (the indexes
+ * of the generated constructor parameters) and a packed array of the present values in ordinal order.
+ * The value of an ordinal is at the rank of its bit in the mask. Null values and zero numbers are absent.
+ * </p>
+ * <p>
+ * The first 64 ordinals are in a long field, the next ones in an array that is only allocated when one
+ * of them is present.
+ * </p>
+ */
+public abstract class SparseModel {
+    private static final Object[] EMPTY = new Object[0];
+    private final long presence;
+    private final long[] overflow;
+    private final Object[] values;
+
+    /**
+     * @param values the values of all the properties by ordinal. The array is not kept.
+     */
+    protected SparseModel(Object[] values) {
+        long presence = 0;
+        long[] overflow = null;
+        int count = 0;
+        for (int ordinal = 0; ordinal < values.length; ordinal++) {
+            if (isPresent(values[ordinal])) {
+                if (ordinal < Long.SIZE) {
+                    presence |= 1L << ordinal;
+                } else {
+                    if (overflow == null) {
+                        overflow = new long[(values.length - 1) / Long.SIZE];
+                    }
+                    overflow[ordinal / Long.SIZE - 1] |= 1L << ordinal;
+                }
+                count++;
+            }
+        }
+        this.presence = presence;
+        this.overflow = overflow;
+        this.values = count == 0 ? EMPTY : new Object[count];
+        for (int ordinal = 0, rank = 0; rank < count; ordinal++) {
+            if (isPresent(values[ordinal])) {
+                this.values[rank++] = values[ordinal];
+            }
+        }
+    }
+
+    /**
+     * @return true if the property of the ordinal has a value
+     */
+    public boolean has(int ordinal) {
+        if (ordinal < Long.SIZE) {
+            return ordinal >= 0 && (presence & 1L << ordinal) != 0;
+        }
+        int word = ordinal / Long.SIZE - 1;
+        return overflow != null && word < overflow.length && (overflow[word] & 1L << ordinal) != 0;
+    }
+
+    /**
+     * @return the value of the property of the ordinal, or null if absent
+     */
+    public Object get(int ordinal) {
+        if (!has(ordinal)) {
+            return null;
+        }
+        if (ordinal < Long.SIZE) {
+            return values[Long.bitCount(presence & ((1L << ordinal) - 1))];
+        }
+        int rank = Long.bitCount(presence);
+        int word = ordinal / Long.SIZE - 1;
+        for (int i = 0; i < word; i++) {
+            rank += Long.bitCount(overflow[i]);
+        }
+        return values[rank + Long.bitCount(overflow[word] & ((1L << ordinal) - 1))];
+    }
+
+    /**
+     * @return the number of present properties
+     */
+    public int size() {
+        return values.length;
+    }
+
+    protected int intValue(int ordinal) {
+        Object value = get(ordinal);
+        return value == null ? 0 : (Integer) value;
+    }
+
+    protected long longValue(int ordinal) {
+        Object value = get(ordinal);
+        return value == null ? 0 : (Long) value;
+    }
+
+    protected double doubleValue(int ordinal) {
+        Object value = get(ordinal);
+        return value == null ? 0 : (Double) value;
+    }
+
+    private static boolean isPresent(Object value) {
+        return value != null && !(value instanceof Integer i && i == 0)
+                && !(value instanceof Long l && l == 0) && !(value instanceof Double d && d == 0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SparseModel that = (SparseModel) o;
+        return presence == that.presence && Arrays.equals(overflow, that.overflow) && Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(presence, Arrays.hashCode(overflow), Arrays.hashCode(values));
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", getClass().getSimpleName() + "[", "]");
+        for (int ordinal = 0, rank = 0; rank < values.length; ordinal++) {
+            if (has(ordinal)) {
+                joiner.add(ordinal + "=" + values[rank++]);
+            }
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,73 @@
+package org.icij.ftm;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Locale;
+
+/**
+ * FtM {@code url} property value. A URL is valid if it is absolute with a host. It is normalized with a
+ * lower case scheme and host and without dot segments in the path.
+ */
+public final class UrlValue extends FtmValue {
+    public UrlValue(String value) {
+        super(value);
+    }
+
+    /**
+     * @return the value or null if the string is null or empty
+     */
+    public static UrlValue of(String value) {
+        return value == null || value.isEmpty() ? null : new UrlValue(value);
+    }
+
+    /**
+     * @return the lower case host name, or null if the URL is invalid
+     */
+    public String host() {
+        String normalized = normalized();
+        return normalized == null ? null : URI.create(normalized).getHost();
+    }
+
+    /**
+     * @return the normalized URL as a {@link URL}, or null if it is invalid
+     */
+    public URL toUrl() {
+        String normalized = normalized();
+        try {
+            return normalized == null ? null : new URI(normalized).toURL();
+        } catch (URISyntaxException | MalformedURLException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected String normalize(String value) {
+        try {
+            URI uri = new URI(value.trim()).normalize();
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return null;
+            }
+            StringBuilder url = new StringBuilder(value.length())
+                    .append(uri.getScheme().toLowerCase(Locale.ROOT)).append("://");
+            if (uri.getRawUserInfo() != null) {
+                url.append(uri.getRawUserInfo()).append('@');
+            }
+            url.append(uri.getHost().toLowerCase(Locale.ROOT));
+            if (uri.getPort() >= 0) {
+                url.append(':').append(uri.getPort());
+            }
+            url.append(uri.getRawPath());
+            if (uri.getRawQuery() != null) {
+                url.append('?').append(uri.getRawQuery());
+            }
+            if (uri.getRawFragment() != null) {
+                url.append('#').append(uri.getRawFragment());
+            }
+            return url.toString();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+}
@@ -1,33 +1,32 @@
 package org.icij.ftm;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.snakeyaml.engine.v2.api.Load;
 import org.snakeyaml.engine.v2.api.LoadSettings;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Scanner;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
 
-import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
 /**
@@ -35,7 +34,8 @@ import static java.util.stream.Collectors.toMap;
  * other classes.
  */
 public class Utils {
-    private static final Load yaml = new Load(LoadSettings.builder().build());
+    // Load instances are stateful (constructor cache), so they are not shared between threads
+    private static final LoadSettings yamlSettings = LoadSettings.builder().build();
 
     public static Properties propertiesFromMap(Map<String, Object> map) {
         Properties props = new Properties();
@@ -43,56 +43,118 @@ public class Utils {
         return props;
     }
 
+    /**
+     * Downloads the yaml models into a new temporary directory, without reusing any cache.
+     * @see GithubSchemaSource
+     */
     static Path downloadYamlModels(URI downloadUri) throws IOException, InterruptedException {
-        Path tempDirectory = Files.createTempDirectory("ftm.java");
-
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder().uri(downloadUri).build();
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        List<Map<String, Object>> yamlFileList = new ObjectMapper().readValue(response.body(), new TypeReference<>() {
-        });
-
-        List<HttpRequest> requests = yamlFileList.stream()
-                .map(yamlFileDesc -> HttpRequest.newBuilder().uri(URI.create((String) yamlFileDesc.get("download_url"))))
-                .map(HttpRequest.Builder::build)
-                .collect(toList());
+        return new GithubSchemaSource(downloadUri, Main.DEFAULT_REVISION, Files.createTempDirectory("ftm.java"), false).fetch();
+    }
 
-        // parallelize downloads
-        CompletableFuture.allOf(requests.stream()
-                .map(r -> client.sendAsync(r, HttpResponse.BodyHandlers.ofFile(tempDirectory.resolve(Path.of(r.uri().getPath()).getFileName()))))
-                .toArray(CompletableFuture<?>[]::new)).join();
+    static Map<String, Model> findParents(File[] yamlFiles) throws IOException {
+        return findParents(yamlFiles, Model.Mode.REQUIRED);
+    }
 
-        return tempDirectory;
+    static Map<String, Model> findParents(File[] yamlFiles, Model.Mode attributeMode) throws IOException {
+        List<Map<String, Object>> yamlContents = new ArrayList<>(yamlFiles.length);
+        for (File file : yamlFiles) {
+            yamlContents.add(getYamlContent(file));
+        }
+        return findParents(yamlContents, attributeMode);
     }
 
-    static Map<String, Model> findParents(File[] yamlFiles) throws FileNotFoundException {
-        return findParents(yamlFiles, Model.Mode.REQUIRED);
+    /**
+     * Builds the parents map from the yaml models. The hierarchy queries of the parents are
+     * resolved once here (see {@link Model#resolve()}), parents first, so that the returned models
+     * only answer with memoized values.
+     *
+     * @param yamlContents the yaml models
+     * @param attributeMode attribute mode of the parent models
+     * @return map of parent name to its model
+     */
+    static Map<String, Model> findParents(List<Map<String, Object>> yamlContents, Model.Mode attributeMode) {
+        return findParents(yamlContents, attributeMode, new HashMap<>());
     }
 
-    static Map<String, Model> findParents(File[] yamlFiles, Model.Mode attributeMode) throws FileNotFoundException {
+    /**
+     * Same as {@link #findParents(List, Model.Mode)} filling the given empty parents map.
+     */
+    static Map<String, Model> findParents(List<Map<String, Object>> yamlContents, Model.Mode attributeMode, Map<String, Model> parents) {
         Set<String> parentNames = new LinkedHashSet<>();
         Map<String, Map<String, Object>> modelsMap = new HashMap<>();
-        for (File file : yamlFiles) {
-            Map<String, Object> yamlContent = getYamlContent(file);
+        for (Map<String, Object> yamlContent : yamlContents) {
             Model model = new Model(yamlContent);
             parentNames.addAll(model.getExtends());
             modelsMap.put(model.name(), yamlContent);
         }
         Map<String, Map<String, Object>> mapOfMap = modelsMap.entrySet().stream().filter(e -> parentNames.contains(e.getKey())).collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
-        Map<String, Model> parents = new HashMap<>();
         for (Map.Entry<String, Map<String, Object>> entry : mapOfMap.entrySet()) {
             parents.put(entry.getKey(), new Model(entry.getValue(), parents, attributeMode));
         }
+        topologicalOrder(parents).forEach(Model::resolve);
         return parents;
     }
 
+    /**
+     * Iterative depth first sort of the models: each model comes after the models it extends.
+     */
+    private static List<Model> topologicalOrder(Map<String, Model> models) {
+        List<Model> sorted = new ArrayList<>(models.size());
+        Set<String> visited = new HashSet<>();
+        Deque<Map.Entry<Model, Iterator<String>>> stack = new ArrayDeque<>();
+        for (Model root : models.values()) {
+            if (visited.add(root.name())) {
+                stack.push(Map.entry(root, root.getExtends().iterator()));
+            }
+            while (!stack.isEmpty()) {
+                Iterator<String> extendz = stack.peek().getValue();
+                if (extendz.hasNext()) {
+                    Model parent = models.get(extendz.next());
+                    if (parent != null && visited.add(parent.name())) {
+                        stack.push(Map.entry(parent, parent.getExtends().iterator()));
+                    }
+                } else {
+                    sorted.add(stack.pop().getKey());
+                }
+            }
+        }
+        return sorted;
+    }
+
     static String getJavaFileName(File yamlFile) {
         int dotIndex = yamlFile.getName().lastIndexOf('.');
         return yamlFile.getName().substring(0, dotIndex) + ".java";
     }
 
-    static Map<String, Object> getYamlContent(File yamlFile) throws FileNotFoundException {
-        return (Map<String, Object>) yaml.loadFromInputStream(new FileInputStream(yamlFile));
+    /**
+     * Writes the content to the file only if the file bytes are different.
+     * @return true if the file has been written
+     */
+    static boolean writeIfChanged(Path file, String content) throws IOException {
+        return writeIfChanged(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static boolean writeIfChanged(Path file, byte[] bytes) throws IOException {
+        return writeIfChanged(file, bytes, bytes.length);
+    }
+
+    /**
+     * Same as {@link #writeIfChanged(Path, byte[])} with the first length bytes of the array.
+     */
+    static boolean writeIfChanged(Path file, byte[] bytes, int length) throws IOException {
+        if (Files.exists(file) && Files.size(file) == length && Arrays.equals(Files.readAllBytes(file), 0, length, bytes, 0, length)) {
+            return false;
+        }
+        try (OutputStream output = Files.newOutputStream(file)) {
+            output.write(bytes, 0, length);
+        }
+        return true;
+    }
+
+    static Map<String, Object> getYamlContent(File yamlFile) throws IOException {
+        try (InputStream input = new FileInputStream(yamlFile)) {
+            return (Map<String, Object>) new Load(yamlSettings).loadFromInputStream(input);
+        }
     }
 
     static Path pathFromLoader(String name) {
@@ -100,7 +162,7 @@ public class Utils {
     }
 
     public static Map<String, String> parseArgs(String[] args) {
-        List<String> argumentList = List.of("attributeMode", "interfaces", "help");
+        List<String> argumentList = List.of("attributeMode", "interfaces", "layout", "numberType", "typedValues", "parallelism", "schemaSource", "revision", "cacheDir", "offline", "fetchMode", "compile", "jsonCodecs", "binaryCodecs", "accessors", "batches", "edges", "catalog", "registry", "profile", "help");
         Scanner scanner = new Scanner(String.join(" ", args));
         Map<String, String> properties = new HashMap<>();
         while (scanner.hasNext()) {
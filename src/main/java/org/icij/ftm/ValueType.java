@@ -0,0 +1,51 @@
+package org.icij.ftm;
+
+/**
+ * Java representation of a FtM property type in the generated code. It depends on the generator options:
+ * {@code numberType} for numbers and {@code typedValues} for dates and codes, that are strings by default.
+ */
+public enum ValueType {
+    STRING("String"),
+    INT("int"),
+    LONG("long"),
+    DOUBLE("double"),
+    DECIMAL("BigDecimal"),
+    /** partial date packed by {@link FtmDate} */
+    DATE("long"),
+    URL("UrlValue"),
+    EMAIL("EmailValue"),
+    IP("IpValue"),
+    IBAN("IbanValue"),
+    COUNTRY("FtmCode"),
+    LANGUAGE("FtmCode"),
+    TOPIC("FtmCode"),
+    /** reference to another entity, the java type is the range model */
+    ENTITY(null);
+
+    final String javaType;
+
+    ValueType(String javaType) {
+        this.javaType = javaType;
+    }
+
+    /**
+     * @return true if the value is a java primitive, absent when it is 0
+     */
+    public boolean isPrimitive() {
+        return this == INT || this == LONG || this == DOUBLE || this == DATE;
+    }
+
+    /**
+     * @return true if the value is a {@link FtmValue}
+     */
+    public boolean isFtmValue() {
+        return this == URL || this == EMAIL || this == IP || this == IBAN;
+    }
+
+    /**
+     * @return true if the value is an interned {@link FtmCode}
+     */
+    public boolean isCode() {
+        return this == COUNTRY || this == LANGUAGE || this == TOPIC;
+    }
+}
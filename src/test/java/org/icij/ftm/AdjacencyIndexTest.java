@@ -0,0 +1,151 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class AdjacencyIndexTest {
+    private static ClassLoader classLoader;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        classLoader = JsonCodecTest.compile(Model.Mode.FULL);
+    }
+
+    @Test
+    public void test_generated_edge_extractors() throws Exception {
+        assertThat(edges("LegalEntity").labels()).containsExactly("Thing:addressEntity", "Thing:proof", "LegalEntity:parent");
+        assertThat(edges("Organization").labels()).isEqualTo(edges("LegalEntity").labels());
+        assertThat(edges("Int").labels()).isEmpty();
+    }
+
+    @Test
+    public void test_build() throws Exception {
+        AdjacencyIndex index = index();
+
+        assertThat(index.size()).isEqualTo(5);
+        assertThat(index.edgeCount()).isEqualTo(3);
+        assertThat(index.labels()).containsExactly("Thing:addressEntity", "Thing:proof", "LegalEntity:parent");
+        assertThat(index.node("unknown")).isEqualTo(-1);
+        int org1 = index.node("org1");
+        int parent = index.label("LegalEntity:parent");
+        assertThat(ids(index, index.neighbors(org1, AdjacencyIndex.Direction.OUT))).containsExactly("le1");
+        assertThat(ids(index, index.neighbors(org1, AdjacencyIndex.Direction.IN))).containsExactly("le2");
+        assertThat(ids(index, index.neighbors(index.node("le2"), AdjacencyIndex.Direction.OUT))).containsExactly("address1", "org1");
+        assertThat(ids(index, index.neighbors(index.node("le2"), AdjacencyIndex.Direction.OUT, parent))).containsExactly("org1");
+        assertThat(index.degree(org1, AdjacencyIndex.Direction.BOTH)).isEqualTo(2);
+        assertThat(index.degree(index.node("le3"), AdjacencyIndex.Direction.BOTH)).isEqualTo(0);
+    }
+
+    @Test
+    public void test_neighborhood() throws Exception {
+        AdjacencyIndex index = index();
+        int le2 = index.node("le2");
+
+        assertThat(ids(index, index.neighborhood(le2, 1, AdjacencyIndex.Direction.OUT))).containsExactly("org1", "address1");
+        assertThat(ids(index, index.neighborhood(le2, 3, AdjacencyIndex.Direction.OUT, index.label("LegalEntity:parent")))).containsExactly("le1", "org1");
+        assertThat(ids(index, index.neighborhood(index.node("le1"), 1, AdjacencyIndex.Direction.IN))).containsExactly("org1");
+        assertThat(ids(index, index.neighborhood(index.node("le1"), 2, AdjacencyIndex.Direction.BOTH))).containsExactly("org1", "le2");
+        assertThat(ids(index, index.neighborhood(index.node("le1"), 3, AdjacencyIndex.Direction.BOTH))).containsExactly("org1", "le2", "address1");
+    }
+
+    @Test
+    public void test_multi_layout_has_an_edge_per_value() throws Exception {
+        ClassLoader multi = JsonCodecTest.compile(Model.Mode.FULL, SourceGenerator.Layout.MULTI);
+        List<FtmEntity<Object>> entities = new ArrayList<>();
+        entities.add(read(multi, "LegalEntity", "{\"id\":\"le1\",\"schema\":\"LegalEntity\",\"properties\":{}}", entities));
+        entities.add(read(multi, "LegalEntity", "{\"id\":\"le2\",\"schema\":\"LegalEntity\",\"properties\":{}}", entities));
+        entities.add(read(multi, "Organization", "{\"id\":\"org1\",\"schema\":\"Organization\",\"properties\":{\"parent\":[\"le1\",\"le2\"],\"addressEntity\":[\"a1\",\"a2\"]}}", entities));
+        AdjacencyIndex.Builder builder = new AdjacencyIndex.Builder(List.of(edges(multi, "LegalEntity"), edges(multi, "Organization")), EntityResolver.of(entities));
+        entities.forEach(builder::add);
+        AdjacencyIndex index = builder.build();
+
+        assertThat(ids(index, index.neighbors(index.node("org1"), AdjacencyIndex.Direction.OUT))).containsExactly("a1", "a2", "le1", "le2");
+    }
+
+    @Test
+    public void test_parallel_neighborhood() {
+        EdgeExtractor<String[]> links = new EdgeExtractor<>() {
+            @Override
+            public String schema() {
+                return "Link";
+            }
+
+            @Override
+            public List<String> labels() {
+                return List.of("Link:target");
+            }
+
+            @Override
+            public void forEachEdge(String[] targets, EntityResolver resolver, Visitor visitor) {
+                for (String target : targets) {
+                    visitor.visit(0, target);
+                }
+            }
+        };
+        AdjacencyIndex.Builder builder = new AdjacencyIndex.Builder(List.of(links), EntityResolver.NONE);
+        int leaves = AdjacencyIndex.PARALLEL_THRESHOLD * 4;
+        for (int i = 0; i < leaves; i++) {
+            builder.add(new FtmEntity<>("leaf" + i, "Link", new String[] {"hub"}));
+            builder.add(new FtmEntity<>("twig" + i, "Link", new String[] {"leaf" + i, "leaf" + (i + 1) % leaves}));
+        }
+        AdjacencyIndex index = builder.build();
+
+        int[] neighborhood = index.neighborhood(index.node("hub"), 2, AdjacencyIndex.Direction.IN);
+
+        assertThat(index.edgeCount()).isEqualTo(3 * leaves);
+        assertThat(neighborhood.length).isEqualTo(2 * leaves);
+        assertThat(neighborhood).isEqualTo(IntStream.range(0, index.size()).filter(n -> n != index.node("hub")).toArray());
+    }
+
+    @Test
+    public void test_unknown_schema() throws Exception {
+        try {
+            new AdjacencyIndex.Builder(List.of(edges("LegalEntity")), EntityResolver.NONE).add(new FtmEntity<>("1", "Thing", null));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).isEqualTo("no edge extractor for schema Thing");
+        }
+    }
+
+    private static AdjacencyIndex index() throws Exception {
+        List<FtmEntity<Object>> entities = new ArrayList<>();
+        entities.add(read("LegalEntity", "{\"id\":\"le1\",\"schema\":\"LegalEntity\",\"properties\":{\"name\":[\"ICIJ\"]}}", entities));
+        entities.add(read("Organization", "{\"id\":\"org1\",\"schema\":\"Organization\",\"properties\":{\"parent\":[\"le1\"]}}", entities));
+        entities.add(read("LegalEntity", "{\"id\":\"le2\",\"schema\":\"LegalEntity\",\"properties\":{\"parent\":[\"org1\"],\"addressEntity\":[\"address1\"]}}", entities));
+        entities.add(read("LegalEntity", "{\"id\":\"le3\",\"schema\":\"LegalEntity\",\"properties\":{\"parent\":[\"unknown\"]}}", entities));
+        AdjacencyIndex.Builder builder = new AdjacencyIndex.Builder(List.of(edges("LegalEntity"), edges("Organization")), EntityResolver.of(entities));
+        entities.forEach(builder::add);
+        return builder.build();
+    }
+
+    private static FtmEntity<Object> read(String schema, String json, List<FtmEntity<Object>> entities) throws Exception {
+        return read(classLoader, schema, json, entities);
+    }
+
+    private static FtmEntity<Object> read(ClassLoader classLoader, String schema, String json, List<FtmEntity<Object>> entities) throws Exception {
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            return FtmJson.read(parser, JsonCodecTest.codec(classLoader, schema), EntityResolver.of(entities));
+        }
+    }
+
+    private static EdgeExtractor<?> edges(String schema) throws Exception {
+        return edges(classLoader, schema);
+    }
+
+    private static EdgeExtractor<?> edges(ClassLoader classLoader, String schema) throws Exception {
+        return (EdgeExtractor<?>) classLoader.loadClass("org.icij.ftm." + schema + EdgeExtractorGenerator.SUFFIX).getField("INSTANCE").get(null);
+    }
+
+    private static List<String> ids(AdjacencyIndex index, int[] nodes) {
+        return IntStream.of(nodes).mapToObj(index::id).toList();
+    }
+}
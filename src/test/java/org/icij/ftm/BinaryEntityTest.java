@@ -0,0 +1,248 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class BinaryEntityTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+    private static final String NDJSON = """
+            {"id":"1","schema":"TwoProps","properties":{"name":["foo"],"number":["42"]}}
+            {"id":"2","schema":"TwoProps","properties":{"number":["-7"]}}
+            {"id":"3","schema":"Int","properties":{"number":["2147483647"]}}
+            {"id":"4","schema":"Organization","properties":{"name":["Société générale des entités aux noms beaucoup plus longs que soixante-quatre caractères"]}}
+            {"id":"5","schema":"LegalEntity","properties":{"name":["foo"]}}
+            {"id":"6","schema":"TwoProps","properties":{}}
+            """;
+    private static List<JsonCodec<?>> jsonCodecs;
+    private static List<BinaryCodec<?>> binaryCodecs;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        ClassLoader classLoader = JsonCodecTest.compile(Model.Mode.REQUIRED);
+        jsonCodecs = new ArrayList<>();
+        binaryCodecs = new ArrayList<>();
+        for (String schema : List.of("TwoProps", "Int", "LegalEntity", "Organization")) {
+            jsonCodecs.add(JsonCodecTest.codec(classLoader, schema));
+            binaryCodecs.add(binaryCodec(classLoader, schema));
+        }
+    }
+
+    @Test
+    public void test_round_trip_with_json() throws Exception {
+        Path file = write(NDJSON, binaryCodecs, EntityResolver.NONE);
+
+        try (BinaryEntityReader reader = new BinaryEntityReader(file, binaryCodecs, EntityResolver.NONE)) {
+            assertThat(reader.count()).isEqualTo(6);
+            assertThat(toJson(reader.stream().map(BinaryEntity::toEntity).toList(), EntityResolver.NONE)).isEqualTo(NDJSON);
+        }
+    }
+
+    @Test
+    public void test_read_properties_lazily() throws Exception {
+        Path file = write(NDJSON, binaryCodecs, EntityResolver.NONE);
+
+        try (BinaryEntityReader reader = new BinaryEntityReader(file, binaryCodecs, EntityResolver.NONE)) {
+            BinaryEntity first = reader.iterator().next();
+            assertThat(first.schema()).isEqualTo("TwoProps");
+            assertThat(first.id()).isEqualTo("1");
+            assertThat(first.has("name")).isTrue();
+            assertThat(first.get("name")).isEqualTo("foo");
+            assertThat(first.get("number")).isEqualTo(42);
+            assertThat(first.get("unknown")).isNull();
+            assertThat(first.toString()).isEqualTo("TwoProps[1]");
+        }
+    }
+
+    @Test
+    public void test_read_with_small_regions() throws Exception {
+        Path file = write(NDJSON, binaryCodecs, EntityResolver.NONE);
+
+        try (BinaryEntityReader reader = new BinaryEntityReader(file, binaryCodecs, EntityResolver.NONE, 128)) {
+            assertThat(reader.stream().map(BinaryEntity::id).toList()).isEqualTo(List.of("1", "2", "3", "4", "5", "6"));
+        }
+        try (BinaryEntityReader reader = new BinaryEntityReader(file, binaryCodecs, EntityResolver.NONE, 16)) {
+            reader.stream().toList();
+            fail("records should be larger than regions");
+        } catch (UncheckedIOException e) {
+            assertThat(e.getMessage()).startsWith("cannot map entity at offset");
+        }
+    }
+
+    @Test
+    public void test_entity_without_codec() throws Exception {
+        Path file = write(NDJSON, binaryCodecs, EntityResolver.NONE);
+
+        try (BinaryEntityReader reader = new BinaryEntityReader(file, binaryCodecs.subList(0, 1), EntityResolver.NONE)) {
+            BinaryEntity entity = reader.stream().filter(e -> "Int".equals(e.schema())).findFirst().orElseThrow();
+            assertThat(entity.id()).isEqualTo("3");
+            assertThat(entity.codec()).isNull();
+            try {
+                entity.get("number");
+                fail("Int has no codec");
+            } catch (IllegalStateException e) {
+                assertThat(e.getMessage()).isEqualTo("no binary codec for schema Int");
+            }
+        }
+    }
+
+    @Test
+    public void test_dictionary_stores_repeated_strings_once() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            ndjson.append("{\"id\":\"").append(i).append("\",\"schema\":\"TwoProps\",\"properties\":{\"name\":[\"same name for all\"]}}\n");
+        }
+        Path withDictionary = write(ndjson.toString(), binaryCodecs, EntityResolver.NONE);
+        Path withoutDictionary = folder.newFile().toPath();
+        try (BinaryEntityWriter writer = new BinaryEntityWriter(withoutDictionary, binaryCodecs, 0)) {
+            read(ndjson.toString(), EntityResolver.NONE).forEach(entity -> write(writer, entity));
+        }
+
+        assertThat(Files.size(withDictionary) * 3).isLessThan(Files.size(withoutDictionary));
+        try (BinaryEntityReader reader = new BinaryEntityReader(withoutDictionary, binaryCodecs, EntityResolver.NONE)) {
+            assertThat(reader.stream().allMatch(e -> "same name for all".equals(e.get("name")))).isTrue();
+        }
+    }
+
+    @Test
+    public void test_round_trip_class_with_url_and_reference() throws Exception {
+        ClassLoader classLoader = JsonCodecTest.compile(Model.Mode.FULL);
+        JsonCodec<Object> jsonCodec = JsonCodecTest.codec(classLoader, "LegalEntity");
+        List<BinaryCodec<?>> codecs = List.of(binaryCodec(classLoader, "LegalEntity"));
+        String ndjson = """
+                {"id":"p1","schema":"LegalEntity","properties":{"name":["parent"]}}
+                {"id":"c1","schema":"LegalEntity","properties":{"name":["child"],"website":["https://icij.org"],"parent":["p1"]}}
+                """;
+        List<FtmEntity<?>> entities = new ArrayList<>();
+        new EntityStreamReader(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), List.of(jsonCodec)).read(entities::add);
+        EntityResolver resolver = EntityResolver.of(entities);
+        entities.clear();
+        new EntityStreamReader(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), List.of(jsonCodec), s -> true, resolver).read(entities::add);
+        Path file = folder.newFile().toPath();
+        try (BinaryEntityWriter writer = new BinaryEntityWriter(file, codecs)) {
+            entities.forEach(entity -> write(writer, entity, resolver));
+        }
+
+        try (BinaryEntityReader reader = new BinaryEntityReader(file, codecs, resolver)) {
+            List<BinaryEntity> read = reader.stream().toList();
+            assertThat(read.get(1).get("website")).isEqualTo(new UrlValue("https://icij.org"));
+            assertThat(read.get(1).get("parent")).isSameAs(resolver.resolve("p1"));
+            StringWriter json = new StringWriter();
+            try (JsonGenerator generator = new JsonFactory().createGenerator(json)) {
+                generator.setRootValueSeparator(null);
+                for (BinaryEntity entity : read) {
+                    FtmJson.write(cast(entity.toEntity()), jsonCodec, generator, resolver);
+                    generator.writeRaw('\n');
+                }
+            }
+            assertThat(json.toString()).isEqualTo(ndjson);
+        }
+    }
+
+    @Test
+    public void test_round_trip_typed_values() throws Exception {
+        ClassLoader classLoader = JsonCodecTest.compile(Model.Mode.FULL, Map.of("typedValues", true, "numberType", "DOUBLE"));
+        List<JsonCodec<?>> typedJsonCodecs = List.of(JsonCodecTest.codec(classLoader, "LegalEntity"), JsonCodecTest.codec(classLoader, "TwoProps"));
+        List<BinaryCodec<?>> codecs = List.of(binaryCodec(classLoader, "LegalEntity"), binaryCodec(classLoader, "TwoProps"));
+        String ndjson = """
+                {"id":"e1","schema":"LegalEntity","properties":{"incorporationDate":["2001-02-03T04:05"],"jurisdiction":["fr"]}}
+                {"id":"e2","schema":"TwoProps","properties":{"number":["-2.5"]}}
+                """;
+        List<FtmEntity<?>> entities = new ArrayList<>();
+        new EntityStreamReader(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), typedJsonCodecs).read(entities::add);
+        Path file = folder.newFile().toPath();
+        try (BinaryEntityWriter writer = new BinaryEntityWriter(file, codecs)) {
+            entities.forEach(entity -> write(writer, entity));
+        }
+
+        try (BinaryEntityReader reader = new BinaryEntityReader(file, codecs, EntityResolver.NONE)) {
+            List<BinaryEntity> read = reader.stream().toList();
+            assertThat(read.get(0).get("jurisdiction")).isSameAs(FtmCode.of(ValueType.COUNTRY, "fr"));
+            assertThat(read.get(0).get("incorporationDate")).isEqualTo(FtmDate.parse("2001-02-03T04:05"));
+            assertThat(read.get(1).get("number")).isEqualTo(-2.5);
+            assertThat(toJson(read.stream().<FtmEntity<?>>map(BinaryEntity::toEntity).toList(), typedJsonCodecs, EntityResolver.NONE)).isEqualTo(ndjson);
+        }
+    }
+
+    @Test
+    public void test_not_a_binary_file() throws Exception {
+        Path file = folder.newFile().toPath();
+        Files.writeString(file, NDJSON);
+        try {
+            new BinaryEntityReader(file, binaryCodecs, EntityResolver.NONE);
+            fail("should not read a JSON file");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).endsWith("is not a binary entities file");
+        }
+    }
+
+    private Path write(String ndjson, List<BinaryCodec<?>> codecs, EntityResolver resolver) throws IOException {
+        Path file = folder.newFile().toPath();
+        try (BinaryEntityWriter writer = new BinaryEntityWriter(file, codecs)) {
+            read(ndjson, resolver).forEach(entity -> write(writer, entity, resolver));
+            assertThat(writer.count()).isEqualTo(ndjson.lines().count());
+        }
+        return file;
+    }
+
+    private static List<FtmEntity<?>> read(String ndjson, EntityResolver resolver) throws IOException {
+        List<FtmEntity<?>> entities = new ArrayList<>();
+        new EntityStreamReader(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), jsonCodecs, s -> true, resolver).read(entities::add);
+        return entities;
+    }
+
+    private static void write(BinaryEntityWriter writer, FtmEntity<?> entity) {
+        write(writer, entity, EntityResolver.NONE);
+    }
+
+    private static void write(BinaryEntityWriter writer, FtmEntity<?> entity, EntityResolver resolver) {
+        try {
+            writer.write(entity, resolver);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toJson(List<FtmEntity<?>> entities, EntityResolver resolver) throws IOException {
+        return toJson(entities, jsonCodecs, resolver);
+    }
+
+    private static String toJson(List<FtmEntity<?>> entities, List<JsonCodec<?>> jsonCodecs, EntityResolver resolver) throws IOException {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(json)) {
+            generator.setRootValueSeparator(null);
+            for (FtmEntity<?> entity : entities) {
+                JsonCodec<Object> codec = cast(jsonCodecs.stream().filter(c -> c.schema().equals(entity.schema())).findFirst().orElseThrow());
+                FtmJson.write(cast(entity), codec, generator, resolver);
+                generator.writeRaw('\n');
+            }
+        }
+        return json.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object object) {
+        return (T) object;
+    }
+
+    static BinaryCodec<?> binaryCodec(ClassLoader classLoader, String modelName) throws ReflectiveOperationException {
+        return (BinaryCodec<?>) classLoader.loadClass("org.icij.ftm." + modelName + BinaryCodecGenerator.SUFFIX).getField("INSTANCE").get(null);
+    }
+}
@@ -0,0 +1,141 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class ColumnBatchTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+    private static ClassLoader classLoader;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        classLoader = JsonCodecTest.compile(Model.Mode.FULL, Map.of("typedValues", true));
+    }
+
+    @Test
+    public void test_append_and_scan_columns() throws Exception {
+        ColumnBatch batch = batch(
+                "{\"id\":\"c1\",\"schema\":\"LegalEntity\",\"properties\":{\"name\":[\"ICIJ\"],\"jurisdiction\":[\"us\"],\"incorporationDate\":[\"1997\"]}}",
+                "{\"id\":\"c2\",\"schema\":\"LegalEntity\",\"properties\":{\"name\":[\"OCCRP\"],\"jurisdiction\":[\"ba\"]}}",
+                "{\"id\":\"c3\",\"schema\":\"LegalEntity\",\"properties\":{\"jurisdiction\":[\"us\"]}}");
+
+        assertThat(batch.schema()).isEqualTo("LegalEntity");
+        assertThat(batch.size()).isEqualTo(3);
+        assertColumns(batch);
+    }
+
+    @Test
+    public void test_write_and_map() throws Exception {
+        ColumnBatch batch = batch(
+                "{\"id\":\"c1\",\"schema\":\"LegalEntity\",\"properties\":{\"name\":[\"ICIJ\"],\"jurisdiction\":[\"us\"],\"incorporationDate\":[\"1997\"]}}",
+                "{\"id\":\"c2\",\"schema\":\"LegalEntity\",\"properties\":{\"name\":[\"OCCRP\"],\"jurisdiction\":[\"ba\"]}}",
+                "{\"id\":\"c3\",\"schema\":\"LegalEntity\",\"properties\":{\"jurisdiction\":[\"us\"]}}");
+        Path file = folder.getRoot().toPath().resolve("legal_entities.ftmt");
+
+        batch.write(file);
+        ColumnBatch mapped = (ColumnBatch) batch.getClass().getMethod("map", Path.class).invoke(null, file);
+
+        assertThat(mapped.getClass()).isEqualTo(batch.getClass());
+        assertThat(mapped.size()).isEqualTo(3);
+        assertThat(mapped.names()).isEqualTo(batch.names());
+        assertColumns(mapped);
+        assertThat(ColumnBatch.map(file).column("name").getString(1)).isEqualTo("OCCRP");
+    }
+
+    @Test
+    public void test_mapped_batch_is_read_only() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("empty.ftmt");
+        new ColumnBatch("Thing", List.of("id"), List.of(Column.Kind.STRING)).write(file);
+
+        ColumnBatch mapped = ColumnBatch.map(file);
+
+        assertThat(mapped.size()).isEqualTo(0);
+        try {
+            mapped.column("id").appendString("c1");
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).isEqualTo("cannot append to a mapped column");
+        }
+    }
+
+    @Test
+    public void test_map_another_schema() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("thing.ftmt");
+        new ColumnBatch("Thing", List.of("id"), List.of(Column.Kind.STRING)).write(file);
+
+        try {
+            classLoader.loadClass("org.icij.ftm.LegalEntity" + ColumnBatchGenerator.SUFFIX).getMethod("map", Path.class).invoke(null, file);
+            fail();
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class);
+            assertThat(e.getCause().getMessage()).startsWith("expected a LegalEntity batch with columns [id, ");
+        }
+    }
+
+    @Test
+    public void test_columns_grow() throws Exception {
+        Column strings = new Column(Column.Kind.STRING);
+        Column longs = new Column(Column.Kind.LONG);
+        Column dictionary = new Column(Column.Kind.DICTIONARY);
+
+        for (int i = 0; i < 1000; i++) {
+            strings.appendString(i % 3 == 0 ? null : "value " + i);
+            longs.appendLong(i);
+            dictionary.appendString(i % 2 == 0 ? "even" : "odd");
+        }
+
+        assertThat(strings.size()).isEqualTo(1000);
+        assertThat(strings.count()).isEqualTo(666);
+        assertThat(strings.isNull(999)).isTrue();
+        assertThat(strings.getString(998)).isEqualTo("value 998");
+        assertThat(longs.count()).isEqualTo(999);
+        assertThat(longs.getLong(700)).isEqualTo(700);
+        assertThat(dictionary.dictionary()).containsExactly("even", "odd");
+        assertThat(dictionary.counts()).isEqualTo(new int[] {500, 500});
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_wrong_kind() {
+        new Column(Column.Kind.INT).appendString("one");
+    }
+
+    private static void assertColumns(ColumnBatch batch) {
+        assertThat(batch.column("id").getString(2)).isEqualTo("c3");
+        Column name = batch.column("name");
+        assertThat(name.getString(0)).isEqualTo("ICIJ");
+        assertThat(name.isNull(2)).isTrue();
+        assertThat(name.getString(2)).isNull();
+        Column jurisdiction = batch.column("jurisdiction");
+        assertThat(jurisdiction.kind()).isEqualTo(Column.Kind.DICTIONARY);
+        assertThat(jurisdiction.dictionary()).containsExactly("us", "ba");
+        assertThat(jurisdiction.counts()).isEqualTo(new int[] {2, 1});
+        Column incorporationDate = batch.column("incorporationDate");
+        assertThat(incorporationDate.kind()).isEqualTo(Column.Kind.LONG);
+        assertThat(incorporationDate.getLong(0)).isEqualTo(FtmDate.parse("1997"));
+        assertThat(incorporationDate.count()).isEqualTo(1);
+    }
+
+    private static ColumnBatch batch(String... entities) throws Exception {
+        Class<?> batchClass = classLoader.loadClass("org.icij.ftm.LegalEntity" + ColumnBatchGenerator.SUFFIX);
+        ColumnBatch batch = (ColumnBatch) batchClass.getConstructor().newInstance();
+        Class<?> modelClass = classLoader.loadClass("org.icij.ftm.LegalEntity");
+        for (String json : entities) {
+            try (JsonParser parser = new JsonFactory().createParser(json)) {
+                FtmEntity<Object> entity = FtmJson.read(parser, JsonCodecTest.codec(classLoader, "LegalEntity"), EntityResolver.NONE);
+                batchClass.getMethod("append", String.class, modelClass, EntityResolver.class).invoke(batch, entity.id(), entity.value(), EntityResolver.NONE);
+            }
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,210 @@
+package org.icij.ftm;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class EntityStoreTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+    private static List<BinaryCodec<?>> codecs;
+    private static ClassLoader classLoader;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        classLoader = JsonCodecTest.compile(Model.Mode.REQUIRED);
+        codecs = List.of(BinaryEntityTest.binaryCodec(classLoader, "TwoProps"), BinaryEntityTest.binaryCodec(classLoader, "Int"));
+    }
+
+    @Test
+    public void test_put_and_get() throws Exception {
+        try (EntityStore store = EntityStore.open(folder.getRoot().toPath(), codecs, EntityResolver.NONE)) {
+            long offset = store.put(twoProps("1", "foo", 42), EntityResolver.NONE);
+            store.put(integer("2", 7), EntityResolver.NONE);
+
+            BinaryEntity entity = store.get("1");
+            assertThat(entity.id()).isEqualTo("1");
+            assertThat(entity.schema()).isEqualTo("TwoProps");
+            assertThat(entity.get("name")).isEqualTo("foo");
+            assertThat(entity.get("number")).isEqualTo(42);
+            assertThat(store.offset("1")).isEqualTo(offset);
+            assertThat(store.get("2").schema()).isEqualTo("Int");
+            assertThat(store.get("3")).isNull();
+            assertThat(store.contains("3")).isFalse();
+            assertThat(store.size()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void test_put_replaces_the_entity_with_the_same_id() throws Exception {
+        try (EntityStore store = EntityStore.open(folder.getRoot().toPath(), codecs, EntityResolver.NONE)) {
+            store.put(twoProps("1", "foo", 42), EntityResolver.NONE);
+            store.put(twoProps("1", "bar", 0), EntityResolver.NONE);
+
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(store.get("1").get("name")).isEqualTo("bar");
+            assertThat(store.get("1").has("number")).isFalse();
+        }
+    }
+
+    @Test
+    public void test_reopen() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (EntityStore store = EntityStore.open(directory, codecs, EntityResolver.NONE, 4, 256)) {
+            for (int i = 0; i < 100; i++) {
+                store.put(twoProps("id-" + i, "name " + i, i), EntityResolver.NONE);
+            }
+        }
+
+        try (EntityStore store = EntityStore.open(directory, codecs, EntityResolver.NONE)) {
+            assertThat(store.size()).isEqualTo(100);
+            assertThat(store.get("id-99").get("name")).isEqualTo("name 99");
+            store.put(integer("id-100", 100), EntityResolver.NONE);
+            assertThat(store.get("id-100").get("number")).isEqualTo(100);
+            assertThat(store.get("id-0").get("number")).isNull();
+        }
+    }
+
+    @Test
+    public void test_index_split_in_regions() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (EntityStore store = EntityStore.open(directory, codecs, EntityResolver.NONE, 4, 256, 2)) {
+            for (int i = 0; i < 1000; i++) {
+                store.put(twoProps("id-" + i, "name " + i, i), EntityResolver.NONE);
+            }
+            assertThat(store.get("id-999").get("name")).isEqualTo("name 999");
+        }
+
+        for (int regionSlots : new int[] {1, 64, EntityStore.DEFAULT_REGION_SLOTS}) {
+            try (EntityStore store = EntityStore.open(directory, codecs, EntityResolver.NONE, 4, 256, regionSlots)) {
+                assertThat(store.size()).isEqualTo(1000);
+                for (int i = 0; i < 1000; i++) {
+                    assertThat(store.get("id-" + i).get("name")).isEqualTo("name " + i);
+                }
+                assertThat(store.contains("id-1000")).isFalse();
+            }
+        }
+    }
+
+    @Test
+    public void test_index_larger_than_2_gib() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (EntityStore store = EntityStore.open(directory, codecs, EntityResolver.NONE, 1 << 28, 256)) {
+            for (int i = 0; i < 100; i++) {
+                store.put(twoProps("id-" + i, "name " + i, i), EntityResolver.NONE);
+            }
+        }
+
+        assertThat(directory.resolve(EntityStore.INDEX_FILE).toFile().length()).isGreaterThan(Integer.MAX_VALUE);
+        try (EntityStore store = EntityStore.open(directory, codecs, EntityResolver.NONE)) {
+            assertThat(store.size()).isEqualTo(100);
+            for (int i = 0; i < 100; i++) {
+                assertThat(store.get("id-" + i).get("name")).isEqualTo("name " + i);
+            }
+        }
+    }
+
+    @Test
+    public void test_multi_get() throws Exception {
+        try (EntityStore store = EntityStore.open(folder.getRoot().toPath(), codecs, EntityResolver.NONE)) {
+            store.put(twoProps("a", "foo", 1), EntityResolver.NONE);
+            store.put(twoProps("b", "bar", 2), EntityResolver.NONE);
+            long[] offsets = new long[3];
+
+            assertThat(store.offsets(new String[] {"b", "unknown", "a"}, offsets)).isEqualTo(2);
+
+            assertThat(offsets[1]).isEqualTo(-1);
+            assertThat(store.get(offsets[0]).id()).isEqualTo("b");
+            assertThat(store.get(offsets[2]).id()).isEqualTo("a");
+        }
+    }
+
+    @Test
+    public void test_non_ascii_ids() throws Exception {
+        try (EntityStore store = EntityStore.open(folder.getRoot().toPath(), codecs, EntityResolver.NONE)) {
+            store.put(twoProps("société-é", "foo", 1), EntityResolver.NONE);
+            store.put(twoProps("日本-😀", "bar", 2), EntityResolver.NONE);
+
+            assertThat(store.get("société-é").get("name")).isEqualTo("foo");
+            assertThat(store.get("日本-😀").get("name")).isEqualTo("bar");
+            assertThat(store.contains("société-e")).isFalse();
+        }
+        ByteBuffer utf8 = ByteBuffer.wrap("ü€😀".getBytes(StandardCharsets.UTF_8));
+        assertThat(EntityStore.utf8Equals(utf8, 0, utf8.capacity(), "ü€😀")).isTrue();
+        assertThat(EntityStore.utf8Equals(utf8, 0, utf8.capacity(), "ü€")).isFalse();
+    }
+
+    @Test
+    public void test_invalid_entities() throws Exception {
+        try (EntityStore store = EntityStore.open(folder.getRoot().toPath(), codecs, EntityResolver.NONE, 4, 64)) {
+            try {
+                store.put(twoProps(null, "foo", 1), EntityResolver.NONE);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage()).isEqualTo("cannot store an entity without id");
+            }
+            try {
+                store.put(twoProps("1", "a name that is longer than the segment size of sixty-four bytes", 1), EntityResolver.NONE);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage()).isEqualTo("entity 1 is larger than the log segment size 64");
+            }
+            try {
+                store.put(new FtmEntity<>("1", "Thing", null), EntityResolver.NONE);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage()).isEqualTo("no binary codec for schema Thing");
+            }
+            assertThat(store.size()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void test_concurrent_reads_during_writes() throws Exception {
+        try (EntityStore store = EntityStore.open(folder.getRoot().toPath(), codecs, EntityResolver.NONE, 4, 1024)) {
+            int count = 5000;
+            AtomicReference<String> error = new AtomicReference<>();
+            Thread reader = new Thread(() -> {
+                for (int found = 0; found < count; ) {
+                    found = 0;
+                    for (int i = 0; i < count; i++) {
+                        BinaryEntity entity = store.get("id-" + i);
+                        if (entity != null) {
+                            found++;
+                            if (!("name " + i).equals(entity.get("name"))) {
+                                error.set("wrong entity for id-" + i + ": " + entity.get("name"));
+                                return;
+                            }
+                        }
+                    }
+                }
+            });
+            reader.start();
+            for (int i = 0; i < count; i++) {
+                store.put(twoProps("id-" + i, "name " + i, i), EntityResolver.NONE);
+            }
+            reader.join(10_000);
+
+            assertThat(reader.isAlive()).isFalse();
+            assertThat(error.get()).isNull();
+            assertThat(store.size()).isEqualTo(count);
+        }
+    }
+
+    private static FtmEntity<Object> twoProps(String id, String name, int number) throws Exception {
+        return new FtmEntity<>(id, "TwoProps", classLoader.loadClass("org.icij.ftm.TwoProps").getConstructor(String.class, int.class).newInstance(name, number));
+    }
+
+    private static FtmEntity<Object> integer(String id, int number) throws Exception {
+        return new FtmEntity<>(id, "Int", classLoader.loadClass("org.icij.ftm.Int").getConstructor(int.class).newInstance(number));
+    }
+}
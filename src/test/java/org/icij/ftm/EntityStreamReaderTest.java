@@ -0,0 +1,160 @@
+package org.icij.ftm;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class EntityStreamReaderTest {
+    private static List<JsonCodec<?>> codecs;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        ClassLoader classLoader = JsonCodecTest.compile(Model.Mode.REQUIRED);
+        codecs = new ArrayList<>();
+        for (String schema : List.of("TwoProps", "Int", "LegalEntity", "Organization")) {
+            codecs.add(JsonCodecTest.codec(classLoader, schema));
+        }
+    }
+
+    @Test
+    public void test_read_entities_of_all_schemata() throws Exception {
+        EntityStreamReader reader = reader("""
+                {"id": "1", "schema": "TwoProps", "properties": {"name": ["foo"], "number": ["1"]}}
+                {"id": "2", "schema": "Int", "properties": {"number": ["2"]}}
+                {"id": "3", "schema": "Thing", "properties": {"name": ["no codec"]}}
+
+                {"id": "4", "schema": "Organization", "properties": {"name": ["org"]}}\r
+                {"id": "5", "schema": "LegalEntity", "properties": {"name": ["legal"]}}""");
+
+        assertThat(ids(reader)).containsExactly("1", "2", "4", "5");
+        assertThat(reader.skipped()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_read_entity_with_properties_before_schema() throws Exception {
+        EntityStreamReader reader = reader("{\"properties\": {\"name\": [\"foo\"], \"number\": [\"3\"]}, \"id\": \"1\", \"schema\": \"TwoProps\"}\n");
+
+        assertThat(reader.next().value().toString()).isEqualTo("TwoProps[name=foo, number=3]");
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    public void test_filter_schemata_with_descendants() throws Exception {
+        EntityStreamReader reader = new EntityStreamReader(input("""
+                {"id": "1", "schema": "TwoProps", "properties": {"name": ["foo"]}}
+                {"id": "2", "schema": "Organization", "properties": {"name": ["org"]}}
+                {"id": "3", "schema": "LegalEntity", "properties": {"name": ["legal"]}}
+                """), codecs, EntityStreamReader.isA(codecs, "LegalEntity"), EntityResolver.NONE);
+
+        assertThat(ids(reader)).containsExactly("2", "3");
+        assertThat(reader.skipped()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_push_entities_until_handler_stops() throws Exception {
+        EntityStreamReader reader = reader(lines(10));
+        List<String> ids = new ArrayList<>();
+
+        long handled = reader.read(entity -> ids.add(entity.id()) && ids.size() < 3);
+
+        assertThat(handled).isEqualTo(3);
+        assertThat(ids).containsExactly("0", "1", "2");
+        assertThat(reader.next().id()).isEqualTo("3");
+    }
+
+    @Test
+    public void test_stream_closes_input() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        InputStream input = new ByteArrayInputStream(lines(5).getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        try (Stream<FtmEntity<?>> entities = new EntityStreamReader(input, codecs).stream()) {
+            assertThat(entities.count()).isEqualTo(5);
+        }
+        assertThat(closed.get()).isTrue();
+    }
+
+    @Test
+    public void test_read_lines_longer_than_buffer() throws Exception {
+        String longName = "a".repeat(200_000);
+        EntityStreamReader reader = reader(lines(2) + "{\"id\": \"long\", \"schema\": \"TwoProps\", \"properties\": {\"name\": [\"" + longName + "\"]}}\n" + lines(2));
+
+        assertThat(ids(reader)).containsExactly("0", "1", "long", "0", "1");
+    }
+
+    @Test
+    public void test_read_line_longer_than_max_length() throws Exception {
+        EntityStreamReader reader = new EntityStreamReader(input(lines(1) + "{\"id\": \"" + "a".repeat(1000) + "\"}\n"),
+                codecs, schema -> true, EntityResolver.NONE, 100);
+        assertThat(reader.next().id()).isEqualTo("0");
+        try {
+            reader.next();
+            fail("line should be too long");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).isEqualTo("line 2 is longer than 100 bytes");
+        }
+    }
+
+    @Test
+    public void test_invalid_line() throws Exception {
+        EntityStreamReader reader = reader(lines(2) + "{\"id\": \"2\", \"schema\": \"TwoProps\", \"properties\": {\n");
+        reader.next();
+        reader.next();
+        try {
+            reader.next();
+            fail("line should be invalid");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).startsWith("invalid entity at line 3");
+        }
+    }
+
+    @Test
+    public void test_read_many_entities_lazily() throws Exception {
+        int count = 100_000;
+        InputStream input = new SequenceInputStream(Collections.enumeration(IntStream.range(0, count)
+                .mapToObj(i -> (InputStream) new ByteArrayInputStream(line(i).getBytes(StandardCharsets.UTF_8))).toList()));
+
+        assertThat(new EntityStreamReader(input, codecs).stream().count()).isEqualTo(count);
+    }
+
+    private static List<String> ids(EntityStreamReader reader) {
+        List<String> ids = new ArrayList<>();
+        reader.iterator().forEachRemaining(entity -> ids.add(entity.id()));
+        return ids;
+    }
+
+    private static EntityStreamReader reader(String ndjson) {
+        return new EntityStreamReader(input(ndjson), codecs);
+    }
+
+    private static InputStream input(String ndjson) {
+        return new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String lines(int count) {
+        StringBuilder lines = new StringBuilder();
+        IntStream.range(0, count).forEach(i -> lines.append(line(i)));
+        return lines.toString();
+    }
+
+    private static String line(int i) {
+        return "{\"id\": \"" + i + "\", \"schema\": \"TwoProps\", \"properties\": {\"name\": [\"name " + i + "\"], \"number\": [\"" + i + "\"]}}\n";
+    }
+}
@@ -0,0 +1,171 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class FragmentAggregatorTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+    private static List<Model> models;
+    private static List<JsonCodec<?>> codecs;
+
+    private static final String FRAGMENTS = """
+            {"id":"b","schema":"LegalEntity","properties":{"name":["B"]}}
+            {"id":"a","schema":"LegalEntity","properties":{"name":["A"],"country":["fr"]}}
+            {"id":"b","schema":"Organization","properties":{"name":["B","B2"]}}
+            {"id":"a","schema":"LegalEntity","properties":{"country":["fr","us"],"email":[]}}
+            """;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        models = ModelCatalog.load(MainTest.testModels(), Model.Mode.FULL, 1).models();
+        ClassLoader classLoader = JsonCodecTest.compile(Model.Mode.FULL);
+        codecs = List.of(JsonCodecTest.codec(classLoader, "LegalEntity"), JsonCodecTest.codec(classLoader, "Organization"));
+    }
+
+    @Test
+    public void test_aggregate_in_memory() throws Exception {
+        assertThat(aggregate(FRAGMENTS, new FragmentAggregator(models, codecs, 1 << 20, 2, folder.getRoot().toPath()))).isEqualTo("""
+                {"id":"a","schema":"LegalEntity","properties":{"country":["fr","us"],"name":["A"]}}
+                {"id":"b","schema":"Organization","properties":{"name":["B","B2"]}}
+                """);
+    }
+
+    @Test
+    public void test_aggregate_spilled_runs() throws Exception {
+        assertThat(aggregate(FRAGMENTS, new FragmentAggregator(models, codecs, 1, 2, folder.getRoot().toPath()))).isEqualTo("""
+                {"id":"a","schema":"LegalEntity","properties":{"country":["fr","us"],"name":["A"]}}
+                {"id":"b","schema":"Organization","properties":{"name":["B","B2"]}}
+                """);
+        assertThat(folder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void test_aggregate_many_fragments() throws Exception {
+        StringBuilder fragments = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            fragments.append(String.format("{\"id\":\"id-%03d\",\"schema\":\"LegalEntity\",\"properties\":{\"name\":[\"name %d\"]}}%n", i % 1000, i / 1000));
+        }
+
+        String aggregated = aggregate(fragments.toString(), new FragmentAggregator(models, codecs, 64 * 1024, 4, folder.getRoot().toPath()));
+
+        List<String> lines = aggregated.lines().toList();
+        assertThat(lines).hasSize(1000);
+        assertThat(lines.get(0)).isEqualTo("{\"id\":\"id-000\",\"schema\":\"LegalEntity\",\"properties\":{\"name\":[\"name 0\",\"name 1\",\"name 2\",\"name 3\",\"name 4\",\"name 5\",\"name 6\",\"name 7\",\"name 8\",\"name 9\"]}}");
+        assertThat(lines.get(999)).startsWith("{\"id\":\"id-999\"");
+        assertThat(folder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void test_aggregate_many_runs_in_passes() throws Exception {
+        StringBuilder fragments = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            fragments.append(String.format("{\"id\":\"id-%02d\",\"schema\":\"LegalEntity\",\"properties\":{\"name\":[\"name %d\"]}}%n", i % 100, i / 100));
+        }
+        FragmentAggregator aggregator = new FragmentAggregator(models, codecs, 1, 2, folder.getRoot().toPath());
+
+        String aggregated = aggregate(fragments.toString(), aggregator);
+
+        assertThat(aggregator.fanIn()).isEqualTo(2);
+        List<String> lines = aggregated.lines().toList();
+        assertThat(lines).hasSize(100);
+        assertThat(lines.get(42)).isEqualTo("{\"id\":\"id-42\",\"schema\":\"LegalEntity\",\"properties\":{\"name\":[\"name 0\",\"name 1\",\"name 2\",\"name 3\",\"name 4\",\"name 5\",\"name 6\",\"name 7\",\"name 8\",\"name 9\"]}}");
+        assertThat(folder.getRoot().list()).isEmpty();
+        assertThat(new FragmentAggregator(models, codecs, 1 << 20, 2, folder.getRoot().toPath()).fanIn()).isEqualTo(16);
+        assertThat(new FragmentAggregator(models, codecs, 1L << 40, 2, folder.getRoot().toPath()).fanIn()).isEqualTo(FragmentAggregator.MAX_FAN_IN);
+    }
+
+    @Test
+    public void test_aggregate_entities() throws Exception {
+        List<FtmEntity<?>> entities = new ArrayList<>();
+        FragmentAggregator aggregator = new FragmentAggregator(models, codecs, 1, 2, folder.getRoot().toPath());
+
+        assertThat(aggregator.aggregate(input(FRAGMENTS), EntityResolver.NONE, entities::add)).isEqualTo(2);
+
+        assertThat(entities.stream().map(FtmEntity::schema).toList()).containsExactly("LegalEntity", "Organization");
+        assertThat(json(entities.get(1))).isEqualTo("{\"id\":\"b\",\"schema\":\"Organization\",\"properties\":{\"name\":[\"B\"]}}");
+    }
+
+    @Test
+    public void test_common_schema() {
+        FragmentAggregator aggregator = new FragmentAggregator(models, codecs);
+
+        assertThat(aggregator.commonSchema("LegalEntity", "Company")).isEqualTo("Company");
+        assertThat(aggregator.commonSchema("Company", "Organization")).isEqualTo("Company");
+        assertThat(aggregator.commonSchema("Organization", "Asset")).isEqualTo("Company");
+        try {
+            aggregator.commonSchema("Company", "Passport");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).isEqualTo("cannot merge Company and Passport fragments: common descendants are []");
+        }
+    }
+
+    @Test
+    public void test_incompatible_fragments() throws Exception {
+        String fragments = """
+                {"id":"a","schema":"Company","properties":{}}
+                {"id":"a","schema":"Passport","properties":{}}
+                """;
+        for (long memory : List.of(1L, 1L << 20)) {
+            try {
+                aggregate(fragments, new FragmentAggregator(models, codecs, memory, 2, folder.getRoot().toPath()));
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage()).startsWith("cannot merge Company and Passport fragments");
+            }
+            assertThat(folder.getRoot().list()).isEmpty();
+        }
+    }
+
+    @Test
+    public void test_unknown_schema_or_codec() throws Exception {
+        FragmentAggregator aggregator = new FragmentAggregator(models, codecs, 1 << 20, 2, folder.getRoot().toPath());
+        try {
+            aggregate("{\"id\":\"a\",\"schema\":\"Unknown\"}", aggregator);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).isEqualTo("unknown schema Unknown for fragment a");
+        }
+        try {
+            aggregator.aggregate(input("{\"id\":\"a\",\"schema\":\"Company\"}"), EntityResolver.NONE, entity -> true);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).isEqualTo("no codec for schema Company");
+        }
+    }
+
+    private static String aggregate(String fragments, FragmentAggregator aggregator) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        aggregator.aggregate(input(fragments), output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static InputStream input(String fragments) {
+        return new ByteArrayInputStream(fragments.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> String json(FtmEntity<T> entity) throws Exception {
+        JsonCodec<T> codec = (JsonCodec<T>) codecs.stream().filter(c -> c.schema().equals(entity.schema())).findFirst().orElseThrow();
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(writer)) {
+            FtmJson.write(entity, codec, generator, EntityResolver.NONE);
+        }
+        return writer.toString();
+    }
+}
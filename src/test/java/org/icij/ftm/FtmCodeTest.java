@@ -0,0 +1,37 @@
+package org.icij.ftm;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FtmCodeTest {
+    @Test
+    public void test_codes_are_interned_by_type() {
+        FtmCode fr = FtmCode.of(ValueType.COUNTRY, "fr");
+
+        assertThat(FtmCode.of(ValueType.COUNTRY, "fr")).isSameAs(fr);
+        assertThat(FtmCode.of(ValueType.LANGUAGE, "fr")).isNotSameAs(fr);
+        assertThat(fr.type()).isEqualTo(ValueType.COUNTRY);
+        assertThat(fr.toString()).isEqualTo("fr");
+    }
+
+    @Test
+    public void test_ids_are_dense() {
+        FtmCode code = FtmCode.of(ValueType.TOPIC, "test.dense.id");
+
+        assertThat(code.id()).isLessThan(FtmCode.count(ValueType.TOPIC));
+        assertThat(FtmCode.of(ValueType.TOPIC, "test.other.dense.id").id()).isEqualTo(FtmCode.count(ValueType.TOPIC) - 1);
+        assertThat(FtmCode.count(ValueType.STRING)).isEqualTo(0);
+    }
+
+    @Test
+    public void test_empty_code() {
+        assertThat(FtmCode.of(ValueType.COUNTRY, null)).isNull();
+        assertThat(FtmCode.of(ValueType.COUNTRY, "")).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_not_a_code_type() {
+        FtmCode.of(ValueType.STRING, "fr");
+    }
+}
@@ -0,0 +1,73 @@
+package org.icij.ftm;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FtmDateTest {
+    @Test
+    public void test_parse_and_format() {
+        for (String date : List.of("2001", "2001-02", "2001-02-03", "2001-02-03T04", "2001-02-03T04:05", "2001-02-03T04:05:06", "0042-12-31", "2000-02-29", "2001-01-31")) {
+            assertThat(FtmDate.format(FtmDate.parse(date))).isEqualTo(date);
+        }
+        assertThat(FtmDate.format(0)).isNull();
+    }
+
+    @Test
+    public void test_invalid_dates() {
+        for (String date : List.of("", "01", "2001-2", "2001/02", "2001-13", "2001-02-32", "2001-02-29", "2001-04-31", "1900-02-29T00:00", "2001-02-03 04", "2001-02-03T24:00",
+                "2001-02-03T04:05:06.", "2001-02-03T04:05:06Y", "2001-02-03T04:05:06+2", "2001-02-03T04:05:06+02:0",
+                "2001-02-03T04:05:06+0200:", "2001-02-03T04:05:06+19:00", "2001-02-31T04:05:06Z", "0000-01-01T00:00:00+01:00", "year")) {
+            assertThat(FtmDate.parse(date)).as(date).isEqualTo(0L);
+        }
+        assertThat(FtmDate.parse(null)).isEqualTo(0L);
+    }
+
+    @Test
+    public void test_year_zero_is_a_date() {
+        long date = FtmDate.parse("0000");
+
+        assertThat(date).isNotEqualTo(0L);
+        assertThat(FtmDate.format(date)).isEqualTo("0000");
+        assertThat(FtmDate.format(FtmDate.parse("0000-01-01T00:00:00"))).isEqualTo("0000-01-01T00:00:00");
+        assertThat(FtmDate.parse("0000")).isLessThan(FtmDate.parse("0001"));
+    }
+
+    @Test
+    public void test_timestamps_are_normalized_to_utc_seconds() {
+        assertThat(FtmDate.format(FtmDate.parse("2001-02-03T04:05:06Z"))).isEqualTo("2001-02-03T04:05:06");
+        assertThat(FtmDate.format(FtmDate.parse("2001-02-03T04:05:06.789"))).isEqualTo("2001-02-03T04:05:06");
+        assertThat(FtmDate.format(FtmDate.parse("2001-02-03T04:05:06.789+02:00"))).isEqualTo("2001-02-03T02:05:06");
+        assertThat(FtmDate.format(FtmDate.parse("2001-02-03T04:05:06-0530"))).isEqualTo("2001-02-03T09:35:06");
+        assertThat(FtmDate.format(FtmDate.parse("2000-12-31T23:30:00-01"))).isEqualTo("2001-01-01T00:30:00");
+    }
+
+    @Test
+    public void test_fields() {
+        long date = FtmDate.parse("2001-02-03T04:05");
+
+        assertThat(FtmDate.precision(date)).isEqualTo(FtmDate.Precision.MINUTE);
+        assertThat(FtmDate.year(date)).isEqualTo(2001);
+        assertThat(FtmDate.month(date)).isEqualTo(2);
+        assertThat(FtmDate.day(date)).isEqualTo(3);
+        assertThat(FtmDate.day(FtmDate.parse("2001"))).isEqualTo(0);
+        assertThat(FtmDate.toLocalDateTime(date)).isEqualTo(LocalDateTime.of(2001, 2, 3, 4, 5));
+        assertThat(FtmDate.toLocalDateTime(FtmDate.parse("2001"))).isEqualTo(LocalDateTime.of(2001, 1, 1, 0, 0));
+    }
+
+    @Test
+    public void test_packed_dates_are_ordered() {
+        List<String> dates = List.of("2000-12-31T23:59:59", "2001", "2001-01", "2001-01-01", "2001-01-01T00", "2001-01-01T00:00:01", "2001-02", "2010");
+
+        assertThat(dates.stream().map(FtmDate::parse).sorted().map(FtmDate::format).collect(Collectors.toList())).isEqualTo(dates);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_precision_of_no_date() {
+        FtmDate.precision(0);
+    }
+}
@@ -0,0 +1,101 @@
+package org.icij.ftm;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FtmSchemaProcessorTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+    private Path schemaDir;
+
+    @Before
+    public void setUp() throws Exception {
+        schemaDir = folder.newFolder("schema").toPath();
+        for (File yamlFile : MainTest.testModels()) {
+            Files.copy(yamlFile.toPath(), schemaDir.resolve(yamlFile.getName()));
+        }
+    }
+
+    @Test
+    public void test_generate_schemata_with_their_ancestors() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        boolean success = compile(format("""
+                @org.icij.ftm.FtmSchema(source = "%s", schemata = "Company", interfaces = false,
+                        attributeMode = org.icij.ftm.Model.Mode.REQUIRED, registry = true)
+                package com.example;
+                """, schemaDir.toString().replace("\\", "\\\\")), diagnostics);
+
+        assertThat(success).describedAs(diagnostics.getDiagnostics().toString()).isTrue();
+        assertThat(generated("com/example", ".java")).containsOnly(
+                "Company.java", "Organization.java", "LegalEntity.java", "Thing.java", "Asset.java", "Value.java", "SchemaRegistry.java");
+        assertThat(generated("com/example", ".class")).contains("Company.class", "SchemaRegistry.class");
+    }
+
+    @Test
+    public void test_generate_in_the_package_option() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        boolean success = compile(format("""
+                @org.icij.ftm.FtmSchema(source = "%s", schemata = "LegalEntity", interfaces = false, packageName = "com.example.ftm",
+                        cacheDir = "%s", layout = org.icij.ftm.SourceGenerator.Layout.SPARSE, jsonCodecs = true)
+                package com.example;
+                """, schemaDir.toString().replace("\\", "\\\\"), folder.getRoot().toString().replace("\\", "\\\\")), diagnostics);
+
+        assertThat(success).describedAs(diagnostics.getDiagnostics().toString()).isTrue();
+        assertThat(generated("com/example/ftm", ".class")).contains("LegalEntity.class", "LegalEntityJsonCodec.class", "Thing.class");
+        assertThat(Files.readString(folder.getRoot().toPath().resolve("out/com/example/ftm/LegalEntity.java")))
+                .startsWith("package com.example.ftm;\n\nimport org.icij.ftm.*;\n\n");
+    }
+
+    @Test
+    public void test_unknown_schema_is_an_error() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        boolean success = compile(format("""
+                @org.icij.ftm.FtmSchema(source = "%s", schemata = "Unknown")
+                package com.example;
+                """, schemaDir.toString().replace("\\", "\\\\")), diagnostics);
+
+        assertThat(success).isFalse();
+        assertThat(diagnostics.getDiagnostics().stream().filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(null)).toList().toString()).contains("unknown schema Unknown");
+    }
+
+    private boolean compile(String packageInfo, DiagnosticCollector<JavaFileObject> diagnostics) throws Exception {
+        Path sourceFile = folder.getRoot().toPath().resolve(Path.of("src", "com", "example", "package-info.java"));
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, packageInfo);
+        Path output = folder.newFolder("out").toPath();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    List.of("-d", output.toString(), "-s", output.toString(), "-classpath", SourceCompiler.classpath(getClass().getClassLoader())),
+                    null, fileManager.getJavaFileObjects(sourceFile));
+            task.setProcessors(List.of(new FtmSchemaProcessor()));
+            return task.call();
+        }
+    }
+
+    private List<String> generated(String packageDir, String extension) throws Exception {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath().resolve("out").resolve(packageDir))) {
+            return files.map(f -> f.getFileName().toString()).filter(f -> f.endsWith(extension)).toList();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.icij.ftm;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FtmValueTest {
+    @Test
+    public void test_url() throws Exception {
+        UrlValue url = new UrlValue("HTTPS://ICIJ.org/a/../investigations?q=1#top");
+
+        assertThat(url.value()).isEqualTo("HTTPS://ICIJ.org/a/../investigations?q=1#top");
+        assertThat(url.normalized()).isEqualTo("https://icij.org/investigations?q=1#top");
+        assertThat(url.host()).isEqualTo("icij.org");
+        assertThat(url.toUrl()).isEqualTo(new URL("https://icij.org/investigations?q=1#top"));
+        assertThat(new UrlValue("http://user@localhost:8080/").normalized()).isEqualTo("http://user@localhost:8080/");
+    }
+
+    @Test
+    public void test_invalid_url() {
+        assertThat(new UrlValue("not a url").isValid()).isFalse();
+        assertThat(new UrlValue("/relative/path").isValid()).isFalse();
+        assertThat(new UrlValue("not a url").toUrl()).isNull();
+        assertThat(new UrlValue("not a url").host()).isNull();
+    }
+
+    @Test
+    public void test_equality_is_on_raw_value() {
+        Set<FtmValue> values = new HashSet<>();
+        values.add(new UrlValue("https://icij.org"));
+        values.add(new UrlValue("https://icij.org"));
+        values.add(new UrlValue("https://ICIJ.org"));
+        values.add(new EmailValue("https://icij.org"));
+
+        assertThat(values).hasSize(3);
+        assertThat(new UrlValue("not a url")).isEqualTo(new UrlValue("not a url"));
+        assertThat(new UrlValue("https://icij.org").toString()).isEqualTo("https://icij.org");
+    }
+
+    @Test
+    public void test_of_empty_or_null() {
+        assertThat(UrlValue.of(null)).isNull();
+        assertThat(EmailValue.of("")).isNull();
+        assertThat(IpValue.of("1.2.3.4")).isEqualTo(new IpValue("1.2.3.4"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_null_value() {
+        new IbanValue(null);
+    }
+
+    @Test
+    public void test_email() {
+        assertThat(new EmailValue(" Foo.Bar@ICIJ.ORG ").normalized()).isEqualTo("Foo.Bar@icij.org");
+        assertThat(new EmailValue("foo@icij.org").domain()).isEqualTo("icij.org");
+        assertThat(new EmailValue("foo").isValid()).isFalse();
+        assertThat(new EmailValue("@icij.org").isValid()).isFalse();
+        assertThat(new EmailValue("foo@localhost").isValid()).isFalse();
+        assertThat(new EmailValue("foo bar@icij.org").isValid()).isFalse();
+    }
+
+    @Test
+    public void test_ip() {
+        assertThat(new IpValue("192.168.001.010").normalized()).isEqualTo("192.168.1.10");
+        assertThat(new IpValue("::1").normalized()).isEqualTo("0:0:0:0:0:0:0:1");
+        assertThat(new IpValue("::1").isV6()).isTrue();
+        assertThat(new IpValue("1.2.3.4").isV6()).isFalse();
+        assertThat(new IpValue("256.1.1.1").isValid()).isFalse();
+        assertThat(new IpValue("1.2.3").isValid()).isFalse();
+        assertThat(new IpValue("localhost").isValid()).isFalse();
+        assertThat(new IpValue("::g").isValid()).isFalse();
+    }
+
+    @Test
+    public void test_iban() {
+        assertThat(new IbanValue("fr76 3000 6000 0112 3456 7890 189").normalized()).isEqualTo("FR7630006000011234567890189");
+        assertThat(new IbanValue("GB82WEST12345698765432").countryCode()).isEqualTo("GB");
+        assertThat(new IbanValue("GB82WEST12345698765433").isValid()).isFalse();
+        assertThat(new IbanValue("GB82").isValid()).isFalse();
+        assertThat(new IbanValue("GB82-WEST-1234-5698-7654-32").isValid()).isFalse();
+    }
+}
@@ -0,0 +1,119 @@
+package org.icij.ftm;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.ftm.Utils.pathFromLoader;
+import static org.icij.ftm.Utils.propertiesFromMap;
+
+public class GenerationManifestTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+    private File[] yamlFiles;
+    private Path manifestFile;
+    private Path javaFile;
+
+    @Before
+    public void setUp() throws Exception {
+        Path yamlDir = folder.newFolder("yaml").toPath();
+        yamlFiles = new File[3];
+        int i = 0;
+        for (String name : List.of("Thing.yaml", "LegalEntity.yaml", "Organization.yaml")) {
+            yamlFiles[i++] = Files.copy(pathFromLoader(name), yamlDir.resolve(name)).toFile();
+        }
+        manifestFile = folder.getRoot().toPath().resolve("manifest.properties");
+        javaFile = folder.newFile("Organization.java").toPath();
+    }
+
+    @Test
+    public void test_not_up_to_date_without_manifest() throws Exception {
+        assertThat(new GenerationManifest(manifestFile, yamlFiles, properties("REQUIRED")).isUpToDate(yamlFiles[2], javaFile)).isFalse();
+    }
+
+    @Test
+    public void test_up_to_date_with_same_inputs() throws Exception {
+        generate(properties("REQUIRED"));
+        assertThat(new GenerationManifest(manifestFile, yamlFiles, properties("REQUIRED")).isUpToDate(yamlFiles[2], javaFile)).isTrue();
+    }
+
+    @Test
+    public void test_not_up_to_date_if_java_file_is_missing() throws Exception {
+        generate(properties("REQUIRED"));
+        Files.delete(javaFile);
+        assertThat(new GenerationManifest(manifestFile, yamlFiles, properties("REQUIRED")).isUpToDate(yamlFiles[2], javaFile)).isFalse();
+    }
+
+    @Test
+    public void test_not_up_to_date_if_options_changed() throws Exception {
+        generate(properties("REQUIRED"));
+        assertThat(new GenerationManifest(manifestFile, yamlFiles, properties("FULL")).isUpToDate(yamlFiles[2], javaFile)).isFalse();
+    }
+
+    @Test
+    public void test_not_up_to_date_if_an_ancestor_changed() throws Exception {
+        generate(properties("REQUIRED"));
+        Files.writeString(yamlFiles[0].toPath(), "# comment\n", StandardOpenOption.APPEND);
+        assertThat(new GenerationManifest(manifestFile, yamlFiles, properties("REQUIRED")).isUpToDate(yamlFiles[2], javaFile)).isFalse();
+    }
+
+    @Test
+    public void test_up_to_date_if_a_descendant_changed() throws Exception {
+        generate(properties("REQUIRED"));
+        Files.writeString(yamlFiles[2].toPath(), "# comment\n", StandardOpenOption.APPEND);
+        assertThat(new GenerationManifest(manifestFile, yamlFiles, properties("REQUIRED")).isUpToDate(yamlFiles[1], javaFile)).isTrue();
+    }
+
+    @Test
+    public void test_not_up_to_date_if_a_generator_changed() throws Exception {
+        assertThat(GenerationManifest.GENERATOR_CLASSES).contains(EdgeExtractorGenerator.class, ColumnBatchGenerator.class,
+                PropertyAccessorGenerator.class, JavaWriter.class, ValueType.class);
+        generate(properties("REQUIRED"));
+        List<Class<?>> changed = GenerationManifest.GENERATOR_CLASSES.stream()
+                .map(c -> c == EdgeExtractorGenerator.class ? AdjacencyIndex.class : c).toList();
+
+        assertThat(new GenerationManifest(manifestFile, yamlFiles, properties("REQUIRED"), changed).isUpToDate(yamlFiles[2], javaFile)).isFalse();
+        assertThat(new GenerationManifest(manifestFile, yamlFiles, properties("REQUIRED"), GenerationManifest.GENERATOR_CLASSES).isUpToDate(yamlFiles[2], javaFile)).isTrue();
+    }
+
+    @Test
+    public void test_all_the_generators_are_hashed() throws Exception {
+        Path packageDir = Path.of(SourceGenerator.class.getProtectionDomain().getCodeSource().getLocation().toURI()).resolve(Path.of("org", "icij", "ftm"));
+        List<Class<?>> generators = new ArrayList<>();
+        try (DirectoryStream<Path> classFiles = Files.newDirectoryStream(packageDir, "*Generator.class")) {
+            for (Path classFile : classFiles) {
+                String className = classFile.getFileName().toString();
+                generators.add(Class.forName("org.icij.ftm." + className.substring(0, className.length() - ".class".length())));
+            }
+        }
+
+        assertThat(generators).contains(SourceGenerator.class, JsonCodecGenerator.class);
+        assertThat(GenerationManifest.GENERATOR_CLASSES).contains(generators.toArray());
+    }
+
+    private void generate(Properties properties) throws Exception {
+        GenerationManifest manifest = new GenerationManifest(manifestFile, yamlFiles, properties);
+        for (File yamlFile : yamlFiles) {
+            manifest.isUpToDate(yamlFile, javaFile);
+        }
+        manifest.save();
+    }
+
+    private Properties properties(String attributeMode) throws Exception {
+        return propertiesFromMap(Map.of(
+                "parents", Utils.findParents(yamlFiles, Model.Mode.valueOf(attributeMode)),
+                "models", List.of("Thing", "LegalEntity", "Organization"),
+                "attributeMode", attributeMode));
+    }
+}
@@ -0,0 +1,80 @@
+package org.icij.ftm;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class GenerationMetricsTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_none_does_not_measure() throws Exception {
+        GenerationMetrics.NONE.phase("parse").end();
+        GenerationMetrics.NONE.schema("Thing.yaml").end(12);
+        GenerationMetrics.NONE.read(10);
+        GenerationMetrics.NONE.written(10);
+        ModelCatalog.load(MainTest.testModels(), Model.Mode.REQUIRED, 1, GenerationMetrics.NONE);
+
+        assertThat(GenerationMetrics.NONE.isEnabled()).isFalse();
+        assertThat(GenerationMetrics.NONE.phases()).isEmpty();
+        assertThat(GenerationMetrics.NONE.schemata()).isEmpty();
+        assertThat(GenerationMetrics.NONE.bytesRead()).isEqualTo(0);
+        assertThat(GenerationMetrics.NONE.bytesWritten()).isEqualTo(0);
+        assertThat(GenerationMetrics.NONE.hierarchyLookups()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_load_phases_and_counters() throws Exception {
+        GenerationMetrics metrics = GenerationMetrics.create();
+
+        ModelCatalog.load(MainTest.testModels(), Model.Mode.REQUIRED, 2, metrics);
+
+        assertThat(List.copyOf(metrics.phases().keySet())).containsExactly("parse", "parents", "resolve");
+        assertThat(metrics.bytesRead()).isGreaterThan(0);
+        assertThat(metrics.hierarchyLookups()).isGreaterThan(0);
+    }
+
+    @Test
+    public void test_schema_timings_and_report() {
+        GenerationMetrics metrics = GenerationMetrics.create();
+
+        metrics.schema("Thing.yaml").end(100);
+        metrics.schema("Company.yaml").end(200);
+        metrics.written(300);
+        metrics.phase("generate").end();
+
+        assertThat(metrics.schemata().keySet()).containsOnly("Thing.yaml", "Company.yaml");
+        assertThat(metrics.bytesWritten()).isEqualTo(300);
+        assertThat(metrics.report(1)).contains("generate").contains("300 bytes written").contains("2 schemata");
+    }
+
+    @Test
+    public void test_flight_recorder_events() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("generation.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(GenerationMetrics.PhaseEvent.class);
+            recording.enable(GenerationMetrics.SchemaEvent.class);
+            recording.start();
+            GenerationMetrics metrics = GenerationMetrics.create();
+            metrics.phase("fetch").end();
+            metrics.schema("Thing.yaml").end(42);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertThat(events.stream().map(e -> e.getEventType().getName()).toList())
+                .containsOnly("org.icij.ftm.GenerationPhase", "org.icij.ftm.SchemaGeneration");
+        RecordedEvent schema = events.stream().filter(e -> e.hasField("schema")).findFirst().orElseThrow();
+        assertThat(schema.getString("schema")).isEqualTo("Thing.yaml");
+        assertThat(schema.getLong("bytesWritten")).isEqualTo(42);
+    }
+}
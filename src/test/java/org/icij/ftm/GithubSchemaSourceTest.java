@@ -0,0 +1,348 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.ftm.GithubSchemaSource.FetchMode.ARCHIVE;
+import static org.icij.ftm.GithubSchemaSource.FetchMode.FILES;
+import static org.icij.ftm.Utils.pathFromLoader;
+import static org.junit.Assert.fail;
+
+public class GithubSchemaSourceTest {
+    private static final String REPO = "/repos/alephdata/followthemoney";
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+    private final Map<String, String> files = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+    private final AtomicInteger listingRequests = new AtomicInteger();
+    private final AtomicInteger archiveRequests = new AtomicInteger();
+    private final AtomicInteger fileRequests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private String cacheControl = "max-age=0";
+    private boolean truncatedArchive = false;
+    private HttpServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        for (String name : List.of("Thing.yaml", "LegalEntity.yaml", "Organization.yaml")) {
+            files.put(name, Files.readString(pathFromLoader(name)));
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(32));
+        server.createContext(REPO + "/contents/followthemoney/schema", this::listing);
+        server.createContext(REPO + "/zipball/main", this::archive);
+        server.createContext("/raw/", this::file);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void test_archive_fetch_is_one_request() throws Exception {
+        Path schemaDir = source(false, ARCHIVE).fetch();
+        assertThat(SchemaSource.yamlFiles(schemaDir)).hasSize(3);
+        assertThat(Files.readString(schemaDir.resolve("Thing.yaml"))).isEqualTo(files.get("Thing.yaml"));
+        assertThat(archiveRequests.get()).isEqualTo(1);
+        assertThat(listingRequests.get() + fileRequests.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_archive_is_revalidated_with_a_conditional_request() throws Exception {
+        source(false, ARCHIVE).fetch();
+        Path schemaDir = source(false, ARCHIVE).fetch();
+        assertThat(SchemaSource.yamlFiles(schemaDir)).hasSize(3);
+        assertThat(archiveRequests.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_archive_error_falls_back_to_files() throws Exception {
+        server.removeContext(REPO + "/zipball/main");
+        Path schemaDir = source(false, ARCHIVE).fetch();
+        assertThat(SchemaSource.yamlFiles(schemaDir)).hasSize(3);
+        assertThat(listingRequests.get()).isEqualTo(1);
+        assertThat(fileRequests.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void test_interrupted_archive_keeps_the_cached_schema() throws Exception {
+        source(false, ARCHIVE).fetch();
+        files.replaceAll((name, content) -> content + "# changed\n");
+        truncatedArchive = true;
+        server.removeContext(REPO + "/contents/followthemoney/schema");
+        try {
+            source(false, ARCHIVE).fetch();
+            fail("should throw an IOException");
+        } catch (IOException expected) {
+            assertThat(archiveRequests.get()).isEqualTo(2);
+        }
+
+        Path schemaDir = source(true, ARCHIVE).fetch();
+        assertThat(SchemaSource.yamlFiles(schemaDir)).hasSize(3);
+        for (Path yamlFile : SchemaSource.yamlFiles(schemaDir)) {
+            assertThat(Files.readString(yamlFile)).doesNotContain("# changed");
+        }
+        assertThat(schemaDir.resolveSibling("schema.part").toFile()).doesNotExist();
+    }
+
+    @Test
+    public void test_interrupted_files_fetch_is_not_used_offline() throws Exception {
+        source(false, FILES).fetch();
+        files.replaceAll((name, content) -> content + "# changed\n");
+        failures.put("Thing.yaml", new AtomicInteger(GithubSchemaSource.MAX_ATTEMPTS));
+        try {
+            source(false, FILES).fetch();
+            fail("should throw an IOException");
+        } catch (IOException expected) {
+            assertThat(expected.getMessage()).contains("HTTP 503");
+        }
+
+        try {
+            source(true, FILES).fetch();
+            fail("should throw an IOException");
+        } catch (IOException expected) {
+            assertThat(expected.getMessage()).contains("offline mode");
+        }
+    }
+
+    @Test
+    public void test_files_fetch_after_archive_fetch_downloads_nothing() throws Exception {
+        source(false, ARCHIVE).fetch();
+        source(false, FILES).fetch();
+        assertThat(listingRequests.get()).isEqualTo(1);
+        assertThat(fileRequests.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_cold_fetch_downloads_all_files() throws Exception {
+        Path schemaDir = source(false, FILES).fetch();
+        assertThat(SchemaSource.yamlFiles(schemaDir)).hasSize(3);
+        assertThat(Files.readString(schemaDir.resolve("Thing.yaml"))).isEqualTo(files.get("Thing.yaml"));
+        assertThat(listingRequests.get()).isEqualTo(1);
+        assertThat(fileRequests.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void test_downloads_are_bounded() throws Exception {
+        for (int i = 0; i < 40; i++) {
+            files.put("Model" + i + ".yaml", "Model" + i + ":\n  abstract: true\n");
+        }
+        Path schemaDir = source(false, FILES).fetch();
+        assertThat(SchemaSource.yamlFiles(schemaDir)).hasSize(43);
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(GithubSchemaSource.MAX_CONCURRENT_DOWNLOADS);
+    }
+
+    @Test
+    public void test_download_is_retried_on_server_error() throws Exception {
+        failures.put("Thing.yaml", new AtomicInteger(GithubSchemaSource.MAX_ATTEMPTS - 1));
+        Path schemaDir = source(false, FILES).fetch();
+        assertThat(Files.readString(schemaDir.resolve("Thing.yaml"))).isEqualTo(files.get("Thing.yaml"));
+        assertThat(fileRequests.get()).isEqualTo(3 + GithubSchemaSource.MAX_ATTEMPTS - 1);
+    }
+
+    @Test
+    public void test_download_fails_after_max_attempts() throws Exception {
+        failures.put("Thing.yaml", new AtomicInteger(GithubSchemaSource.MAX_ATTEMPTS));
+        try {
+            source(false, FILES).fetch();
+            fail("should throw an IOException");
+        } catch (IOException expected) {
+            assertThat(expected.getMessage()).contains("HTTP 503");
+        }
+        assertThat(failures.get("Thing.yaml").get()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_rate_limit_body_is_not_written_as_yaml() throws Exception {
+        server.removeContext("/raw/");
+        server.createContext("/raw/", exchange -> respond(exchange, 403, "{\"message\": \"API rate limit exceeded\"}"));
+        try {
+            source(false, FILES).fetch();
+            fail("should throw an IOException");
+        } catch (IOException expected) {
+            assertThat(expected.getMessage()).contains("rate limit");
+        }
+        try {
+            source(true, FILES).fetch();
+            fail("should throw an IOException");
+        } catch (IOException expected) {
+            assertThat(expected.getMessage()).contains("offline");
+        }
+    }
+
+    @Test
+    public void test_warm_fetch_within_max_age_does_no_request() throws Exception {
+        cacheControl = "public, max-age=3600";
+        source(false, FILES).fetch();
+        Path schemaDir = source(false, FILES).fetch();
+        assertThat(SchemaSource.yamlFiles(schemaDir)).hasSize(3);
+        assertThat(listingRequests.get()).isEqualTo(1);
+        assertThat(fileRequests.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void test_pinned_revision_does_no_request_once_cached() throws Exception {
+        String sha = "0123456789abcdef0123456789abcdef01234567";
+        new GithubSchemaSource(listingUri(), sha, folder.getRoot().toPath(), false, FILES).fetch();
+        new GithubSchemaSource(listingUri(), sha, folder.getRoot().toPath(), false, FILES).fetch();
+        assertThat(listingRequests.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_expired_cache_is_revalidated_with_a_conditional_request() throws Exception {
+        source(false, FILES).fetch();
+        Path schemaDir = source(false, FILES).fetch();
+        assertThat(SchemaSource.yamlFiles(schemaDir)).hasSize(3);
+        assertThat(listingRequests.get()).isEqualTo(2);
+        assertThat(fileRequests.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void test_only_changed_files_are_downloaded() throws Exception {
+        source(false, FILES).fetch();
+        files.put("Thing.yaml", files.get("Thing.yaml") + "# changed\n");
+        files.remove("Organization.yaml");
+
+        Path schemaDir = source(false, FILES).fetch();
+
+        assertThat(fileRequests.get()).isEqualTo(4);
+        assertThat(Files.readString(schemaDir.resolve("Thing.yaml"))).endsWith("# changed\n");
+        assertThat(SchemaSource.yamlFiles(schemaDir)).hasSize(2);
+    }
+
+    @Test
+    public void test_offline_uses_cache() throws Exception {
+        source(false, ARCHIVE).fetch();
+        Path schemaDir = source(true, ARCHIVE).fetch();
+        assertThat(SchemaSource.yamlFiles(schemaDir)).hasSize(3);
+        assertThat(archiveRequests.get()).isEqualTo(1);
+    }
+
+    @Test(expected = IOException.class)
+    public void test_offline_without_cache() throws Exception {
+        source(true, ARCHIVE).fetch();
+    }
+
+    @Test(expected = IOException.class)
+    public void test_listing_error() throws Exception {
+        server.removeContext(REPO + "/contents/followthemoney/schema");
+        server.createContext(REPO + "/contents/followthemoney/schema", exchange -> respond(exchange, 403, "{\"message\": \"API rate limit exceeded\"}"));
+        source(false, FILES).fetch();
+    }
+
+    @Test
+    public void test_git_blob_sha() {
+        // git hash-object of a file containing "hello\n"
+        assertThat(GithubSchemaSource.gitBlobSha("hello\n".getBytes())).isEqualTo("ce013625030ba8dba906f756967f9e9ca394464a");
+    }
+
+    private GithubSchemaSource source(boolean offline, GithubSchemaSource.FetchMode fetchMode) {
+        return new GithubSchemaSource(listingUri(), "main", folder.getRoot().toPath(), offline, fetchMode);
+    }
+
+    private URI listingUri() {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + REPO + "/contents/followthemoney/schema");
+    }
+
+    private void listing(HttpExchange exchange) throws IOException {
+        listingRequests.incrementAndGet();
+        List<Map<String, Object>> listing = new ArrayList<>();
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("name", file.getKey());
+            entry.put("type", "file");
+            entry.put("sha", GithubSchemaSource.gitBlobSha(file.getValue().getBytes(StandardCharsets.UTF_8)));
+            entry.put("download_url", "http://localhost:" + server.getAddress().getPort() + "/raw/" + file.getKey());
+            listing.add(entry);
+        }
+        conditionalRespond(exchange, new ObjectMapper().writeValueAsBytes(listing));
+    }
+
+    private void archive(HttpExchange exchange) throws IOException {
+        archiveRequests.incrementAndGet();
+        ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipBytes)) {
+            zip.putNextEntry(new ZipEntry("alephdata-followthemoney-0123456/README.md"));
+            zip.write("# FtM".getBytes());
+            zip.putNextEntry(new ZipEntry("alephdata-followthemoney-0123456/followthemoney/schema/"));
+            zip.putNextEntry(new ZipEntry("alephdata-followthemoney-0123456/followthemoney/schema/sub/Other.yaml"));
+            zip.write("Other:\n".getBytes());
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry("alephdata-followthemoney-0123456/followthemoney/schema/" + file.getKey()));
+                zip.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        byte[] body = zipBytes.toByteArray();
+        conditionalRespond(exchange, truncatedArchive ? Arrays.copyOf(body, body.length / 2) : body);
+    }
+
+    private void file(HttpExchange exchange) throws IOException {
+        fileRequests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(10);
+            String name = exchange.getRequestURI().getPath().substring("/raw/".length());
+            AtomicInteger remainingFailures = failures.get(name);
+            if (remainingFailures != null && remainingFailures.getAndDecrement() > 0) {
+                respond(exchange, 503, "unavailable");
+            } else {
+                respond(exchange, 200, files.get(name));
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void conditionalRespond(HttpExchange exchange, byte[] body) throws IOException {
+        String etag = "\"" + GithubSchemaSource.gitBlobSha(body) + "\"";
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+        } else {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.icij.ftm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.ftm.Utils.propertiesFromMap;
+
+public class JavaWriterTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_header_imports_types() throws Exception {
+        StringBuilder code = new StringBuilder();
+
+        new JavaWriter(code).header(List.of("String", "BigDecimal", "int"));
+
+        assertThat(code.toString()).isEqualTo("package org.icij.ftm;\n\nimport java.math.BigDecimal;\n\n");
+    }
+
+    @Test
+    public void test_header_without_import() throws Exception {
+        StringBuilder code = new StringBuilder();
+
+        new JavaWriter(code).header(List.of("String", "BigDecimalValue"));
+
+        assertThat(code.toString()).isEqualTo("package org.icij.ftm;\n\n\n\n");
+    }
+
+    @Test
+    public void test_header_in_another_package() throws Exception {
+        StringBuilder code = new StringBuilder();
+
+        new JavaWriter(code).header("com.example", List.of("String", "BigDecimal"));
+
+        assertThat(code.toString()).isEqualTo("package com.example;\n\nimport java.math.BigDecimal;\nimport org.icij.ftm.*;\n\n");
+    }
+
+    @Test
+    public void test_join() throws Exception {
+        StringBuilder code = new StringBuilder();
+        JavaWriter java = new JavaWriter(code);
+
+        java.join(List.of("a", "b", "c"), ", ", java::append).append('(').append(12).append(')');
+
+        assertThat(code.toString()).isEqualTo("a, b, c(12)");
+    }
+
+    @Test
+    public void test_directory_sink() throws Exception {
+        File[] yamlFiles = MainTest.testModels();
+        ModelCatalog catalog = ModelCatalog.load(yamlFiles, Model.Mode.FULL, 1);
+        SourceGenerator sourceGenerator = new SourceGenerator(propertiesFromMap(Map.of(
+                "parents", catalog.parents(),
+                "models", Arrays.stream(yamlFiles).map(File::getName).map(s -> s.substring(0, s.indexOf("."))).toList(),
+                "attributeMode", "FULL",
+                "interfaces", false,
+                "jsonCodecs", true)));
+        Path directory = folder.getRoot().toPath();
+
+        sourceGenerator.generateFiles(catalog.model("LegalEntity"), JavaWriter.Sink.directory(directory));
+
+        Map<String, String> expected = sourceGenerator.generateFiles(catalog.model("LegalEntity"));
+        assertThat(expected.keySet()).containsOnly("LegalEntity", "LegalEntityJsonCodec");
+        for (Map.Entry<String, String> source : expected.entrySet()) {
+            assertThat(Files.readString(directory.resolve(source.getKey() + ".java"))).isEqualTo(source.getValue());
+        }
+        assertThat(sourceGenerator.generate(catalog.model("LegalEntity"))).isEqualTo(expected.get("LegalEntity"));
+
+        List<Long> written = new ArrayList<>();
+        sourceGenerator.generateFiles(catalog.model("LegalEntity"), JavaWriter.Sink.directory(directory, written::add));
+        assertThat(written).isEmpty();
+        Files.writeString(directory.resolve("LegalEntity.java"), "changed");
+        sourceGenerator.generateFiles(catalog.model("LegalEntity"), JavaWriter.Sink.directory(directory, written::add));
+        assertThat(written).containsExactly((long) expected.get("LegalEntity").getBytes(StandardCharsets.UTF_8).length);
+    }
+}
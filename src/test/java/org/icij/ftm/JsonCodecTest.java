@@ -0,0 +1,230 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.ftm.Utils.pathFromLoader;
+import static org.icij.ftm.Utils.propertiesFromMap;
+
+public class JsonCodecTest {
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Test
+    public void test_no_codec_for_interfaces() throws Exception {
+        SourceGenerator sourceGenerator = new SourceGenerator(propertiesFromMap(Map.of("interfaces", true, "jsonCodecs", true)));
+        assertThat(sourceGenerator.generateFiles(pathFromLoader("TwoProps.yaml")).keySet()).containsOnly("TwoProps");
+    }
+
+    @Test
+    public void test_no_codec_without_option() throws Exception {
+        assertThat(new SourceGenerator().generateFiles(pathFromLoader("TwoProps.yaml")).keySet()).containsOnly("TwoProps");
+    }
+
+    @Test
+    public void test_generate_codec_for_record() throws Exception {
+        SourceGenerator sourceGenerator = new SourceGenerator(propertiesFromMap(Map.of("jsonCodecs", true)));
+        Map<String, String> files = sourceGenerator.generateFiles(pathFromLoader("TwoProps.yaml"));
+
+        assertThat(files.keySet()).containsOnly("TwoProps", "TwoPropsJsonCodec");
+        assertThat(files.get("TwoPropsJsonCodec")).contains("public final class TwoPropsJsonCodec implements JsonCodec<TwoProps> {");
+        assertThat(files.get("TwoPropsJsonCodec")).contains("case \"number\" -> number = FtmJson.readInt(jsonParser);");
+        assertThat(files.get("TwoPropsJsonCodec")).contains("FtmJson.writeInt(jsonGenerator, \"number\", instance.number());");
+    }
+
+    @Test
+    public void test_round_trip_record() throws Exception {
+        JsonCodec<Object> codec = codec(compile(Model.Mode.REQUIRED), "TwoProps");
+
+        FtmEntity<Object> entity = read(codec, """
+                {"id": "e1", "schema": "TwoProps", "datasets": ["test"],
+                 "properties": {"name": ["foo", "bar"], "number": ["42"], "unknown": [{"nested": [1, 2]}]}}""", EntityResolver.NONE);
+
+        assertThat(entity.id()).isEqualTo("e1");
+        assertThat(entity.value().toString()).isEqualTo("TwoProps[name=foo, number=42]");
+        assertThat(write(codec, entity, EntityResolver.NONE)).isEqualTo(
+                "{\"id\":\"e1\",\"schema\":\"TwoProps\",\"properties\":{\"name\":[\"foo\"],\"number\":[\"42\"]}}");
+    }
+
+    @Test
+    public void test_read_reserved_word_property() throws Exception {
+        JsonCodec<Object> codec = codec(compile(Model.Mode.REQUIRED), "ReservedWords");
+
+        FtmEntity<Object> entity = read(codec, "{\"id\": \"e1\", \"schema\": \"ReservedWords\", \"properties\": {\"case\": [\"foo\"]}}", EntityResolver.NONE);
+
+        assertThat(write(codec, entity, EntityResolver.NONE)).isEqualTo(
+                "{\"id\":\"e1\",\"schema\":\"ReservedWords\",\"properties\":{\"case\":[\"foo\"]}}");
+    }
+
+    @Test
+    public void test_round_trip_class_with_url_and_reference() throws Exception {
+        ClassLoader classLoader = compile(Model.Mode.FULL);
+        JsonCodec<Object> codec = codec(classLoader, "LegalEntity");
+        FtmEntity<Object> parent = read(codec, "{\"id\": \"p1\", \"schema\": \"LegalEntity\", \"properties\": {\"name\": [\"parent\"]}}", EntityResolver.NONE);
+        EntityResolver resolver = EntityResolver.of(List.of(parent));
+
+        FtmEntity<Object> child = read(codec, """
+                {"id": "c1", "schema": "LegalEntity",
+                 "properties": {"name": ["child"], "website": ["https://icij.org"], "parent": ["p1"]}}""", resolver);
+
+        Class<?> legalEntity = classLoader.loadClass("org.icij.ftm.LegalEntity");
+        assertThat(field(legalEntity, "website").get(child.value())).isEqualTo(new UrlValue("https://icij.org"));
+        assertThat(field(legalEntity, "parent").get(child.value())).isSameAs(parent.value());
+        assertThat(write(codec, child, resolver)).contains("\"parent\":[\"p1\"]").contains("\"website\":[\"https://icij.org\"]");
+    }
+
+    @Test
+    public void test_round_trip_typed_values() throws Exception {
+        ClassLoader classLoader = compile(Model.Mode.FULL, Map.of("typedValues", true, "numberType", "DECIMAL"));
+        JsonCodec<Object> codec = codec(classLoader, "LegalEntity");
+
+        FtmEntity<Object> entity = read(codec, """
+                {"id": "e1", "schema": "LegalEntity",
+                 "properties": {"incorporationDate": ["2001-02"], "dissolutionDate": ["not a date"], "jurisdiction": ["fr"]}}""", EntityResolver.NONE);
+
+        Class<?> legalEntity = classLoader.loadClass("org.icij.ftm.LegalEntity");
+        assertThat(field(legalEntity, "incorporationDate").get(entity.value())).isEqualTo(FtmDate.parse("2001-02"));
+        assertThat(field(legalEntity, "dissolutionDate").get(entity.value())).isEqualTo(0L);
+        assertThat(field(legalEntity, "jurisdiction").get(entity.value())).isSameAs(FtmCode.of(ValueType.COUNTRY, "fr"));
+        assertThat(write(codec, entity, EntityResolver.NONE)).contains("\"incorporationDate\":[\"2001-02\"]")
+                .contains("\"jurisdiction\":[\"fr\"]").excludes("dissolutionDate");
+
+        JsonCodec<Object> twoProps = codec(classLoader, "TwoProps");
+        FtmEntity<Object> decimal = read(twoProps, "{\"id\": \"e2\", \"schema\": \"TwoProps\", \"properties\": {\"number\": [\"4.20\"]}}", EntityResolver.NONE);
+        assertThat(write(twoProps, decimal, EntityResolver.NONE)).contains("\"number\":[\"4.20\"]");
+    }
+
+    @Test
+    public void test_unknown_reference_is_null() throws Exception {
+        ClassLoader classLoader = compile(Model.Mode.FULL);
+        JsonCodec<Object> codec = codec(classLoader, "LegalEntity");
+
+        FtmEntity<Object> entity = read(codec, "{\"id\": \"c1\", \"schema\": \"LegalEntity\", \"properties\": {\"parent\": [\"unknown\"]}}", EntityResolver.NONE);
+
+        assertThat(field(classLoader.loadClass("org.icij.ftm.LegalEntity"), "parent").get(entity.value())).isNull();
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void test_read_entity_with_other_schema() throws Exception {
+        read(codec(compile(Model.Mode.REQUIRED), "TwoProps"), "{\"id\": \"e1\", \"schema\": \"Int\", \"properties\": {}}", EntityResolver.NONE);
+    }
+
+    @Test
+    public void test_read_values() throws Exception {
+        assertThat(readValue("[\"12\", \"13\"]", FtmJson::readInt)).isEqualTo(12);
+        assertThat(readValue("[\"twelve\"]", FtmJson::readInt)).isEqualTo(0);
+        assertThat(readValue("[]", FtmJson::readString)).isNull();
+        assertThat(readValue("\"single\"", FtmJson::readString)).isEqualTo("single");
+        assertThat(readValue("[{\"id\": \"embedded\", \"schema\": \"Thing\"}]", FtmJson::readString)).isEqualTo("embedded");
+        assertThat(UrlValue.of(readValue("[\"not a url\"]", FtmJson::readString)).isValid()).isFalse();
+        assertThat(readValue("[\"12345678901\"]", FtmJson::readLong)).isEqualTo(12345678901L);
+        assertThat(readValue("[\"1.5e3\"]", FtmJson::readDouble)).isEqualTo(1500.0);
+        assertThat(readValue("[\"0.10\"]", FtmJson::readDecimal)).isEqualTo(new BigDecimal("0.10"));
+        assertThat(readValue("[\"ten\"]", FtmJson::readDecimal)).isNull();
+    }
+
+    private interface ValueReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    private <T> T readValue(String json, ValueReader<T> reader) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            parser.nextToken();
+            T value = reader.read(parser);
+            assertThat(parser.nextToken()).isNull();
+            return value;
+        }
+    }
+
+    private FtmEntity<Object> read(JsonCodec<Object> codec, String json, EntityResolver resolver) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return FtmJson.read(parser, codec, resolver);
+        }
+    }
+
+    private String write(JsonCodec<Object> codec, FtmEntity<Object> entity, EntityResolver resolver) throws IOException {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = jsonFactory.createGenerator(json)) {
+            FtmJson.write(entity, codec, generator, resolver);
+        }
+        return json.toString();
+    }
+
+    // generated fields are package private and the compiled classes are in another class loader
+    private static Field field(Class<?> clazz, String name) throws NoSuchFieldException {
+        Field field = clazz.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    @SuppressWarnings("unchecked")
+    static JsonCodec<Object> codec(ClassLoader classLoader, String modelName) throws ReflectiveOperationException {
+        return (JsonCodec<Object>) classLoader.loadClass("org.icij.ftm." + modelName + JsonCodecGenerator.SUFFIX).getField("INSTANCE").get(null);
+    }
+
+    /**
+     * Generates and compiles the test models with their JSON and binary codecs, property accessors, column batches, edge extractors and the schema registry. Occupancy is excluded because its FULL record
+     * does not implement the Interval methods.
+     */
+    static ClassLoader compile(Model.Mode mode) throws IOException {
+        return compile(mode, SourceGenerator.Layout.FIELDS);
+    }
+
+    static ClassLoader compile(Model.Mode mode, SourceGenerator.Layout layout) throws IOException {
+        return compile(mode, Map.of("layout", layout.name()));
+    }
+
+    /**
+     * @param options generator options added to the default ones
+     */
+    static ClassLoader compile(Model.Mode mode, Map<String, Object> options) throws IOException {
+        File[] yamlFiles = Arrays.stream(MainTest.testModels()).filter(f -> !"Occupancy.yaml".equals(f.getName())).toArray(File[]::new);
+        ModelCatalog catalog = load(yamlFiles, mode);
+        Map<String, Object> map = new HashMap<>(Map.of(
+                "parents", catalog.parents(),
+                "models", Arrays.stream(yamlFiles).map(File::getName).map(s -> s.substring(0, s.indexOf("."))).toList(),
+                "attributeMode", mode.name(),
+                "interfaces", false,
+                "jsonCodecs", true,
+                "binaryCodecs", true,
+                "accessors", true,
+                "batches", true,
+                "edges", true));
+        map.putAll(options);
+        Properties properties = propertiesFromMap(map);
+        SourceGenerator sourceGenerator = new SourceGenerator(properties);
+        List<SourceCompiler.Source> sources = new ArrayList<>();
+        for (File yamlFile : yamlFiles) {
+            sourceGenerator.generateFiles(catalog.model(yamlFile)).forEach((className, code) ->
+                    sources.add(new SourceCompiler.Source(sourceGenerator.packageName() + "." + className, code, yamlFile.toPath())));
+        }
+        sources.add(new SourceCompiler.Source(sourceGenerator.packageName() + "." + SchemaRegistryGenerator.CLASS_NAME,
+                sourceGenerator.generateRegistry(catalog.models()), yamlFiles[0].toPath()));
+        SourceCompiler.Result result = new SourceCompiler().compile(sources);
+        assertThat(result.diagnostics()).isEmpty();
+        return result.classLoader(JsonCodecTest.class.getClassLoader());
+    }
+
+    private static ModelCatalog load(File[] yamlFiles, Model.Mode mode) throws IOException {
+        try {
+            return ModelCatalog.load(yamlFiles, mode, 1);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
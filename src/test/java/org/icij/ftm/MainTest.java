@@ -0,0 +1,130 @@
+package org.icij.ftm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.ftm.Utils.pathFromLoader;
+import static org.icij.ftm.Utils.propertiesFromMap;
+
+public class MainTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_parallel_generation_is_identical_to_sequential() throws Exception {
+        File[] yamlFiles = testModels();
+        SourceGenerator sourceGenerator = new SourceGenerator(propertiesFromMap(Map.of(
+                "parents", Utils.findParents(yamlFiles, Model.Mode.FULL),
+                "models", Arrays.stream(yamlFiles).map(File::getName).map(s -> s.substring(0, s.indexOf("."))).toList(),
+                "attributeMode", "FULL",
+                "interfaces", false)));
+        Path sequential = folder.newFolder("sequential").toPath();
+        Path parallel = folder.newFolder("parallel").toPath();
+
+        Main.generate(sourceGenerator, yamlFiles, sequential, 1);
+        Main.generate(sourceGenerator, yamlFiles, parallel, 4);
+
+        assertThat(parallel.toFile().list()).hasSize(yamlFiles.length);
+        for (File yamlFile: yamlFiles) {
+            String javaFileName = Utils.getJavaFileName(yamlFile);
+            assertThat(Files.readAllBytes(parallel.resolve(javaFileName))).isEqualTo(Files.readAllBytes(sequential.resolve(javaFileName)));
+        }
+    }
+
+    @Test
+    public void test_incremental_generation_does_not_rewrite_files() throws Exception {
+        File[] yamlFiles = testModels();
+        Properties properties = propertiesFromMap(Map.of(
+                "parents", Utils.findParents(yamlFiles, Model.Mode.FULL),
+                "models", Arrays.stream(yamlFiles).map(File::getName).map(s -> s.substring(0, s.indexOf("."))).toList(),
+                "attributeMode", "FULL"));
+        Path destDir = folder.newFolder("generated").toPath();
+        Path manifestFile = folder.getRoot().toPath().resolve("manifest.properties");
+        GenerationManifest manifest = new GenerationManifest(manifestFile, yamlFiles, properties);
+        Main.generate(new SourceGenerator(properties), yamlFiles, destDir, 2, manifest);
+        manifest.save();
+        FileTime epoch = FileTime.fromMillis(0);
+        for (File javaFile: Objects.requireNonNull(destDir.toFile().listFiles())) {
+            Files.setLastModifiedTime(javaFile.toPath(), epoch);
+        }
+
+        Main.generate(new SourceGenerator(properties), yamlFiles, destDir, 2, new GenerationManifest(manifestFile, yamlFiles, properties));
+        Main.generate(new SourceGenerator(properties), yamlFiles, destDir, 2);
+
+        for (File javaFile: Objects.requireNonNull(destDir.toFile().listFiles())) {
+            assertThat(Files.getLastModifiedTime(javaFile.toPath())).isEqualTo(epoch);
+        }
+    }
+
+    @Test
+    public void test_generate_and_remove_json_codecs() throws Exception {
+        File[] yamlFiles = testModels();
+        Path destDir = folder.newFolder("generated").toPath();
+        Path manifestFile = folder.getRoot().toPath().resolve("manifest.properties");
+        GenerationManifest manifest = new GenerationManifest(manifestFile, yamlFiles, codecProperties(yamlFiles, true));
+        Main.generate(new SourceGenerator(codecProperties(yamlFiles, true)), yamlFiles, destDir, 2, manifest);
+        manifest.save();
+        assertThat(destDir.resolve("TwoPropsJsonCodec.java").toFile()).exists();
+        assertThat(new GenerationManifest(manifestFile, yamlFiles, codecProperties(yamlFiles, true)).classes(yamlFiles[0])).isNotEmpty();
+
+        manifest = new GenerationManifest(manifestFile, yamlFiles, codecProperties(yamlFiles, false));
+        Main.generate(new SourceGenerator(codecProperties(yamlFiles, false)), yamlFiles, destDir, 2, manifest);
+
+        assertThat(destDir.resolve("TwoProps.java").toFile()).exists();
+        assertThat(destDir.resolve("TwoPropsJsonCodec.java").toFile()).doesNotExist();
+        assertThat(destDir.toFile().list()).hasSize(yamlFiles.length);
+    }
+
+    @Test
+    public void test_remove_json_codecs_deletes_their_classes() throws Exception {
+        File[] yamlFiles = testModels();
+        ModelCatalog catalog = ModelCatalog.load(yamlFiles, Model.Mode.REQUIRED, 1);
+        Path destDir = folder.newFolder("generated").toPath();
+        Path classesDir = folder.newFolder("classes").toPath();
+        Path manifestFile = folder.getRoot().toPath().resolve("manifest.properties");
+        GenerationManifest manifest = new GenerationManifest(manifestFile, yamlFiles, codecProperties(yamlFiles, true));
+        Main.generate(new SourceGenerator(codecProperties(yamlFiles, true)), catalog, destDir, classesDir, 2, manifest, GenerationMetrics.NONE);
+        manifest.save();
+        Path packageDir = Files.createDirectories(classesDir.resolve(Path.of("org", "icij", "ftm")));
+        for (String classFile : List.of("TwoProps.class", "TwoPropsJsonCodec.class", "TwoPropsJsonCodec$1.class")) {
+            Files.write(packageDir.resolve(classFile), new byte[] {1});
+        }
+
+        manifest = new GenerationManifest(manifestFile, yamlFiles, codecProperties(yamlFiles, false));
+        Main.generate(new SourceGenerator(codecProperties(yamlFiles, false)), catalog, destDir, classesDir, 2, manifest, GenerationMetrics.NONE);
+
+        assertThat(destDir.resolve("TwoPropsJsonCodec.java").toFile()).doesNotExist();
+        assertThat(packageDir.toFile().list()).containsOnly("TwoProps.class");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_parallelism_should_be_positive() throws Exception {
+        Main.generate(new SourceGenerator(), testModels(), folder.getRoot().toPath(), 0);
+    }
+
+    private static Properties codecProperties(File[] yamlFiles, boolean jsonCodecs) throws IOException {
+        return propertiesFromMap(Map.of(
+                "parents", Utils.findParents(yamlFiles, Model.Mode.REQUIRED),
+                "models", Arrays.stream(yamlFiles).map(File::getName).map(s -> s.substring(0, s.indexOf("."))).toList(),
+                "attributeMode", "REQUIRED",
+                "interfaces", false,
+                "jsonCodecs", jsonCodecs));
+    }
+
+    static File[] testModels() {
+        return Objects.requireNonNull(pathFromLoader("Thing.yaml").getParent().toFile()
+                .listFiles(f -> f.getName().endsWith(".yaml") && !"Illegal.yaml".equals(f.getName())));
+    }
+}
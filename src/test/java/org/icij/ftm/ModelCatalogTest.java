@@ -0,0 +1,71 @@
+package org.icij.ftm;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+import static org.icij.ftm.Utils.propertiesFromMap;
+
+public class ModelCatalogTest {
+    @Test
+    public void test_parents_are_shared_with_models() throws Exception {
+        ModelCatalog catalog = ModelCatalog.load(MainTest.testModels(), Model.Mode.REQUIRED, 1);
+
+        assertThat(catalog.models()).hasSize(MainTest.testModels().length);
+        assertThat(catalog.parents()).isNotEmpty();
+        catalog.parents().forEach((name, parent) -> assertThat(catalog.model(name)).isSameAs(parent));
+    }
+
+    @Test
+    public void test_model_by_file_and_name() throws Exception {
+        File[] yamlFiles = MainTest.testModels();
+        ModelCatalog catalog = ModelCatalog.load(yamlFiles, Model.Mode.REQUIRED, 1);
+
+        assertThat(catalog.yamlFiles()).isEqualTo(yamlFiles);
+        assertThat(catalog.model(yamlFiles[0]).name()).isEqualTo(yamlFiles[0].getName().replace(".yaml", ""));
+        assertThat(catalog.model("Company").getExtends()).containsExactly("Organization", "Asset");
+        assertThat(catalog.model("Unknown")).isNull();
+    }
+
+    @Test
+    public void test_unknown_file() throws Exception {
+        ModelCatalog catalog = ModelCatalog.load(MainTest.testModels(), Model.Mode.REQUIRED, 1);
+        try {
+            catalog.model(new File("Unknown.yaml"));
+            fail("unknown file should not have a model");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("Unknown.yaml");
+        }
+    }
+
+    @Test
+    public void test_parallel_load_is_same_as_sequential() throws Exception {
+        ModelCatalog sequential = ModelCatalog.load(MainTest.testModels(), Model.Mode.FULL, 1);
+        ModelCatalog parallel = ModelCatalog.load(MainTest.testModels(), Model.Mode.FULL, 4);
+
+        assertThat(parallel.models()).isEqualTo(sequential.models());
+        assertThat(parallel.parents()).isEqualTo(sequential.parents());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_parallelism_should_be_positive() throws Exception {
+        ModelCatalog.load(MainTest.testModels(), Model.Mode.FULL, 0);
+    }
+
+    @Test
+    public void test_generate_from_model_is_same_as_from_file() throws Exception {
+        File[] yamlFiles = MainTest.testModels();
+        ModelCatalog catalog = ModelCatalog.load(yamlFiles, Model.Mode.REQUIRED, 1);
+        SourceGenerator sourceGenerator = new SourceGenerator(propertiesFromMap(Map.of(
+                "parents", catalog.parents(),
+                "models", Arrays.stream(yamlFiles).map(File::getName).map(s -> s.substring(0, s.indexOf("."))).toList())));
+
+        for (File yamlFile : yamlFiles) {
+            assertThat(sourceGenerator.generateFiles(catalog.model(yamlFile))).isEqualTo(sourceGenerator.generateFiles(yamlFile.toPath()));
+        }
+    }
+}
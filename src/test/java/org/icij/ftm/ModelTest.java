@@ -4,10 +4,12 @@ package org.icij.ftm;
 import org.junit.Test;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -70,6 +72,17 @@ public class ModelTest {
                 "processedAt"));
     }
 
+    @Test
+    public void test_get_ancestors() throws Exception {
+        Model plainText = new Model(loadYaml("PlainText.yaml"), Utils.findParents(new File[]{
+                getFile("PlainText.yaml"),
+                getFile("Document.yaml"),
+                getFile("Analyzable.yaml"),
+                getFile("Thing.yaml")
+        }));
+        assertThat(plainText.ancestors()).isEqualTo(List.of("Document", "Thing", "Analyzable"));
+    }
+
     @Test
     public void test_get_recursive_property() throws Exception {
         Model document = new Model(loadYaml("Document.yaml"), Utils.findParents(new File[]{
@@ -93,7 +106,45 @@ public class ModelTest {
         assertThat(document.type("title")).isEqualTo("string");
     }
 
-    private static Map<String, Object> loadYaml(String name) throws FileNotFoundException {
+    @Test
+    public void test_get_property_schema() throws Exception {
+        Model document = new Model(loadYaml("Document.yaml"), Utils.findParents(new File[]{
+                getFile("Document.yaml"),
+                getFile("Analyzable.yaml"),
+                getFile("Thing.yaml")
+        }));
+        assertThat(document.schemaOf("parent")).isEqualTo("Document");
+        assertThat(document.schemaOf("ibanMentioned")).isEqualTo("Analyzable");
+        assertThat(document.schemaOf("name")).isEqualTo("Thing");
+        assertThat(document.schemaOf("unknown")).isNull();
+    }
+
+    @Test
+    public void test_synthetic_hierarchy_with_thousands_of_models() {
+        int nbModels = 5000;
+        List<Map<String, Object>> yamls = new ArrayList<>();
+        yamls.add(Map.of("Mixin", Map.of("properties", Map.of("mixinProp", Map.of("type", "url")))));
+        yamls.add(Map.of("M0", Map.of("required", List.of("p0"), "properties", Map.of("p0", Map.of("type", "name")))));
+        for (int i = 1; i < nbModels; i++) {
+            List<String> extendz = i % 10 == 0 ? List.of("M" + (i - 1) / 4, "Mixin") : List.of("M" + (i - 1) / 4);
+            yamls.add(Map.of("M" + i, Map.of(
+                    "extends", extendz,
+                    "required", List.of("p" + i),
+                    "properties", Map.of("p" + i, Map.of("type", "string")))));
+        }
+        Map<String, Model> parents = Utils.findParents(yamls, Model.Mode.REQUIRED);
+
+        // M4999 -> M1249 -> M312 -> M77 -> M19 -> M4 -> M0
+        Model leaf = new Model(yamls.get(nbModels), parents);
+        assertThat(leaf.concreteParent()).isEqualTo(Optional.of("M1249"));
+        assertThat(leaf.parentsAttributes()).isEqualTo(List.of("p0", "p4", "p19", "p77", "p312", "p1249"));
+        assertThat(leaf.type("p0")).isEqualTo("name");
+        assertThat(parents.get("M1240").getImplementsList()).isEqualTo(List.of("Mixin"));
+        assertThat(parents.get("M1240").type("mixinProp")).isEqualTo("url");
+        assertThat(parents.get("Mixin").isConcrete()).isFalse();
+    }
+
+    private static Map<String, Object> loadYaml(String name) throws IOException {
         return Utils.getYamlContent(getFile(name));
     }
 
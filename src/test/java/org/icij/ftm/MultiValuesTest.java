@@ -0,0 +1,139 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MultiValuesTest {
+    private static final String ENTITY = """
+            {"id":"c1","schema":"LegalEntity","properties":{"name":["ICIJ","International Consortium of Investigative Journalists"],\
+            "jurisdiction":["us","fr"],"incorporationDate":["1997","2017-02-01"],"sector":["press"]}}""";
+    private static ClassLoader multi;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        multi = JsonCodecTest.compile(Model.Mode.FULL, Map.of("layout", "MULTI", "typedValues", true));
+    }
+
+    @Test
+    public void test_single_value_is_inline() {
+        Object values = MultiValues.of(new String[] {null, "one"});
+
+        assertThat(values).isEqualTo("one");
+        assertThat(MultiValues.count(values)).isEqualTo(1);
+        assertThat(MultiValues.first(values)).isEqualTo("one");
+        assertThat(MultiValues.get(values, 0)).isEqualTo("one");
+        assertThat(MultiValues.of(new String[0])).isNull();
+        assertThat(MultiValues.count(null)).isEqualTo(0);
+    }
+
+    @Test
+    public void test_several_values_share_the_array() {
+        String[] array = {"one", "two"};
+
+        Object values = MultiValues.of(array);
+
+        assertThat(values).isSameAs(array);
+        assertThat(MultiValues.count(values)).isEqualTo(2);
+        assertThat(MultiValues.get(values, 1)).isEqualTo("two");
+        assertThat((Object[]) MultiValues.of(new String[] {"one", null, "two"})).isEqualTo(array);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void test_get_out_of_bounds() {
+        MultiValues.get("one", 1);
+    }
+
+    @Test
+    public void test_primitive_values() {
+        int[] several = {1, 2, 3};
+
+        assertThat(MultiValues.first(several)).isEqualTo(1);
+        assertThat(MultiValues.several(several)).isSameAs(several);
+        assertThat(MultiValues.several(new int[] {1})).isNull();
+        assertThat(MultiValues.count(1, (int[]) null)).isEqualTo(1);
+        assertThat(MultiValues.count(0, (int[]) null)).isEqualTo(0);
+        assertThat(MultiValues.count(1, several)).isEqualTo(3);
+        assertThat(MultiValues.get(1, several, 2)).isEqualTo(3);
+        assertThat(MultiValues.mapToLong(new String[] {"1", "x"}, FtmJson::parseLong)).isEqualTo(new long[] {1});
+        assertThat(MultiValues.mapToInt(new String[] {"0", "x"}, FtmJson::parseInt)).isEqualTo(new int[0]);
+    }
+
+    @Test
+    public void test_read_all_the_values() throws Exception {
+        Object entity = read(ENTITY).value();
+        Class<?> type = entity.getClass();
+
+        assertThat(type.getMethod("name").invoke(entity)).isEqualTo("ICIJ");
+        assertThat(type.getMethod("nameCount").invoke(entity)).isEqualTo(2);
+        assertThat(type.getMethod("name", int.class).invoke(entity, 1)).isEqualTo("International Consortium of Investigative Journalists");
+        assertThat(type.getMethod("sectorCount").invoke(entity)).isEqualTo(1);
+        assertThat(type.getMethod("websiteCount").invoke(entity)).isEqualTo(0);
+        assertThat(type.getMethod("jurisdiction", int.class).invoke(entity, 1)).isSameAs(FtmCode.of(ValueType.COUNTRY, "fr"));
+        assertThat(type.getMethod("incorporationDateCount").invoke(entity)).isEqualTo(2);
+        assertThat(type.getMethod("incorporationDate", int.class).invoke(entity, 1)).isEqualTo(FtmDate.parse("2017-02-01"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_single_value_constructor() throws Exception {
+        PropertyAccessor<Object> accessor = (PropertyAccessor<Object>) multi.loadClass("org.icij.ftm.LegalEntity" + PropertyAccessorGenerator.SUFFIX).getField("INSTANCE").get(null);
+        Object[] values = new Object[accessor.properties().size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = switch (accessor.types().get(i)) {
+                case INT -> 0;
+                case LONG, DATE -> 0L;
+                case DOUBLE -> 0d;
+                default -> null;
+            };
+        }
+        values[accessor.ordinal("name")] = "ICIJ";
+
+        Object entity = multi.loadClass("org.icij.ftm." + SchemaRegistryGenerator.CLASS_NAME)
+                .getMethod("create", String.class, Object[].class).invoke(null, "LegalEntity", values);
+
+        assertThat(entity.getClass().getMethod("nameCount").invoke(entity)).isEqualTo(1);
+        assertThat(entity.getClass().getMethod("incorporationDateCount").invoke(entity)).isEqualTo(0);
+        assertThat(accessor.get(entity, accessor.ordinal("name"))).isEqualTo("ICIJ");
+    }
+
+    @Test
+    public void test_json_round_trip() throws Exception {
+        FtmEntity<Object> entity = read(ENTITY);
+        StringWriter json = new StringWriter();
+        try (var generator = new JsonFactory().createGenerator(json)) {
+            FtmJson.write(entity, JsonCodecTest.codec(multi, "LegalEntity"), generator, EntityResolver.NONE);
+        }
+
+        assertThat(json.toString()).contains("\"name\":[\"ICIJ\",\"International Consortium of Investigative Journalists\"]");
+        assertThat(json.toString()).contains("\"jurisdiction\":[\"us\",\"fr\"]");
+        assertThat(json.toString()).contains("\"incorporationDate\":[\"1997\",\"2017-02-01\"]");
+        Object copy = read(json.toString()).value();
+        assertThat(copy.getClass().getMethod("name", int.class).invoke(copy, 1)).isEqualTo("International Consortium of Investigative Journalists");
+    }
+
+    @Test
+    public void test_json_round_trip_without_unparseable_values() throws Exception {
+        FtmEntity<Object> entity = read("""
+                {"id":"c1","schema":"LegalEntity","properties":{"incorporationDate":["circa 2001","2002"],\
+                "dissolutionDate":["unknown"],"parent":["unresolved"]}}""");
+        StringWriter json = new StringWriter();
+        try (var generator = new JsonFactory().createGenerator(json)) {
+            FtmJson.write(entity, JsonCodecTest.codec(multi, "LegalEntity"), generator, EntityResolver.NONE);
+        }
+
+        assertThat(json.toString()).isEqualTo("{\"id\":\"c1\",\"schema\":\"LegalEntity\",\"properties\":{\"incorporationDate\":[\"2002\"]}}");
+    }
+
+    private static FtmEntity<Object> read(String json) throws Exception {
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            return FtmJson.read(parser, JsonCodecTest.codec(multi, "LegalEntity"), EntityResolver.NONE);
+        }
+    }
+}
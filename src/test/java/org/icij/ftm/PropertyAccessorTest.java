@@ -0,0 +1,79 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.ftm.Utils.pathFromLoader;
+import static org.icij.ftm.Utils.propertiesFromMap;
+
+public class PropertyAccessorTest {
+    private static ClassLoader classLoader;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        classLoader = JsonCodecTest.compile(Model.Mode.FULL, Map.of("typedValues", true));
+    }
+
+    @Test
+    public void test_generate_accessor_for_record() throws Exception {
+        SourceGenerator sourceGenerator = new SourceGenerator(propertiesFromMap(Map.of("accessors", true)));
+        Map<String, String> files = sourceGenerator.generateFiles(pathFromLoader("TwoProps.yaml"));
+
+        assertThat(files.keySet()).containsOnly("TwoProps", "TwoPropsAccessor");
+        assertThat(files.get("TwoPropsAccessor")).contains("case \"number\" -> 1;");
+        assertThat(files.get("TwoPropsAccessor")).contains("case 1 -> instance.number() == 0 ? null : instance.number();");
+        assertThat(files.get("TwoPropsAccessor")).contains("if (instance.name() != null) visitor.visit(0, instance.name());");
+    }
+
+    @Test
+    public void test_get_by_ordinal() throws Exception {
+        PropertyAccessor<Object> accessor = accessor("LegalEntity");
+        Object entity = read("LegalEntity", """
+                {"id": "e1", "schema": "LegalEntity", "properties": {"name": ["foo"], "website": ["https://icij.org"], "jurisdiction": ["fr"]}}""");
+
+        int website = accessor.ordinal("website");
+        assertThat(accessor.properties().get(website)).isEqualTo("website");
+        assertThat(accessor.types().get(website)).isEqualTo(ValueType.URL);
+        assertThat(accessor.get(entity, website)).isEqualTo(new UrlValue("https://icij.org"));
+        assertThat(accessor.get(entity, accessor.ordinal("jurisdiction"))).isSameAs(FtmCode.of(ValueType.COUNTRY, "fr"));
+        assertThat(accessor.get(entity, accessor.ordinal("incorporationDate"))).isNull();
+        assertThat(accessor.ordinal("unknown")).isEqualTo(-1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void test_get_unknown_ordinal() throws Exception {
+        PropertyAccessor<Object> accessor = accessor("TwoProps");
+        accessor.get(read("TwoProps", "{\"id\": \"e1\", \"schema\": \"TwoProps\", \"properties\": {}}"), accessor.properties().size());
+    }
+
+    @Test
+    public void test_for_each_present() throws Exception {
+        PropertyAccessor<Object> accessor = accessor("TwoProps");
+        List<String> visited = new ArrayList<>();
+
+        accessor.forEachPresent(read("TwoProps", "{\"id\": \"e1\", \"schema\": \"TwoProps\", \"properties\": {\"number\": [\"42\"]}}"),
+                (ordinal, value) -> visited.add(accessor.properties().get(ordinal) + "=" + value));
+        accessor.forEachPresent(read("TwoProps", "{\"id\": \"e2\", \"schema\": \"TwoProps\", \"properties\": {\"name\": [\"foo\"]}}"),
+                (ordinal, value) -> visited.add(accessor.properties().get(ordinal) + "=" + value));
+
+        assertThat(visited).containsExactly("number=42", "name=foo");
+    }
+
+    private static Object read(String schema, String json) throws Exception {
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            return FtmJson.read(parser, JsonCodecTest.codec(classLoader, schema), EntityResolver.NONE).value();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PropertyAccessor<Object> accessor(String modelName) throws ReflectiveOperationException {
+        return (PropertyAccessor<Object>) classLoader.loadClass("org.icij.ftm." + modelName + PropertyAccessorGenerator.SUFFIX).getField("INSTANCE").get(null);
+    }
+}
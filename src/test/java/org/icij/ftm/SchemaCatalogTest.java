@@ -0,0 +1,87 @@
+package org.icij.ftm;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class SchemaCatalogTest {
+    private static SchemaCatalog catalog;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        List<Model> models = new ArrayList<>();
+        for (File yamlFile : MainTest.testModels()) {
+            models.add(new Model(Utils.getYamlContent(yamlFile)));
+        }
+        catalog = SchemaCatalog.load(new ByteArrayInputStream(SchemaCatalogWriter.write(models)));
+    }
+
+    @Test
+    public void test_schema() {
+        SchemaCatalog.Schema company = catalog.schema("Company");
+
+        assertThat(catalog.names()).hasSize(MainTest.testModels().length);
+        assertThat(catalog.names().iterator().next()).isEqualTo("Analyzable");
+        assertThat(company.label()).isEqualTo("Company");
+        assertThat(company.plural()).isEqualTo("Companies");
+        assertThat(company.extendz()).containsExactly("Organization", "Asset");
+        assertThat(company.isAbstract()).isFalse();
+        assertThat(company.isMatchable()).isTrue();
+        assertThat(catalog.schema("Thing").isMatchable()).isFalse();
+        assertThat(catalog.schema("Thing").caption()).containsExactly("name");
+        assertThat(catalog.schema("Interval").temporalStart()).containsExactly("startDate", "date");
+        assertThat(catalog.schema("Unknown")).isNull();
+    }
+
+    @Test
+    public void test_property() {
+        SchemaCatalog.Property voenCode = catalog.schema("Company").property("voenCode");
+        SchemaCatalog.Property parent = catalog.schema("Company").property("parent");
+
+        assertThat(voenCode.type()).isEqualTo("identifier");
+        assertThat(voenCode.maxLength()).isEqualTo(32);
+        assertThat(voenCode.description()).isEqualTo("Azerbaijan taxpayer ID");
+        assertThat(catalog.schema("Company").property("capital").type()).isEqualTo("string");
+        assertThat(parent.schema().name()).isEqualTo("LegalEntity");
+        assertThat(parent.range()).isEqualTo("LegalEntity");
+        assertThat(parent.reverse()).isEqualTo("subsidiaries");
+        assertThat(catalog.schema("LegalEntity").property("legalForm").isMatchable()).isFalse();
+        assertThat(catalog.schema("Company").property("unknown")).isNull();
+    }
+
+    @Test
+    public void test_is_a() {
+        assertThat(catalog.schema("Company").isA("Thing")).isTrue();
+        assertThat(catalog.schema("Company").isA("Value")).isTrue();
+        assertThat(catalog.schema("Thing").isA("Company")).isFalse();
+    }
+
+    @Test
+    public void test_strings_are_shared() {
+        assertThat(catalog.schema("Organization").property("name").type()).isSameAs(catalog.schema("Thing").property("alias").type());
+        assertThat(catalog.schema("LegalEntity").property("parent").range()).isSameAs(catalog.schema("LegalEntity").name());
+    }
+
+    @Test
+    public void test_missing_resource() {
+        try {
+            SchemaCatalog.loadResource("missing.bin");
+            fail("should throw an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).isEqualTo("no missing.bin resource, the jar has been built without catalog");
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void test_not_a_catalog() throws Exception {
+        SchemaCatalog.load(new ByteArrayInputStream("not a catalog".getBytes()));
+    }
+}
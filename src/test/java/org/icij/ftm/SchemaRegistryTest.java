@@ -0,0 +1,111 @@
+package org.icij.ftm;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.ftm.Utils.propertiesFromMap;
+import static org.junit.Assert.fail;
+
+public class SchemaRegistryTest {
+    private static Class<?> registry;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        registry = JsonCodecTest.compile(Model.Mode.FULL).loadClass("org.icij.ftm." + SchemaRegistryGenerator.CLASS_NAME);
+    }
+
+    @Test
+    public void test_dense_ids_sorted_by_name() throws Exception {
+        int count = (int) registry.getField("COUNT").get(null);
+
+        assertThat(count).isEqualTo(MainTest.testModels().length - 1);
+        assertThat(call("id", "Analyzable")).isEqualTo(0);
+        assertThat(call("id", "LegalEntity")).isEqualTo(registry.getField("LEGAL_ENTITY").get(null));
+        assertThat(call("id", "Unknown")).isEqualTo(-1);
+        for (int id = 0; id < count; id++) {
+            assertThat(call("id", (String) call("name", id))).isEqualTo(id);
+        }
+    }
+
+    @Test
+    public void test_is_a() throws Exception {
+        assertThat(call("isA", "Company", "Company")).isEqualTo(true);
+        assertThat(call("isA", "Company", "LegalEntity")).isEqualTo(true);
+        assertThat(call("isA", "Company", "Value")).isEqualTo(true);
+        assertThat(call("isA", "Message", "Analyzable")).isEqualTo(true);
+        assertThat(call("isA", "LegalEntity", "Company")).isEqualTo(false);
+        assertThat(call("isA", "Company", "Unknown")).isEqualTo(false);
+        assertThat(call("isA", call("id", "Passport"), call("id", "Interval"))).isEqualTo(true);
+    }
+
+    @Test
+    public void test_descendants_of() throws Exception {
+        @SuppressWarnings("unchecked")
+        Predicate<String> filter = (Predicate<String>) call("descendantsOf", (Object) new String[] {"LegalEntity", "Folder"});
+
+        assertThat(List.of("LegalEntity", "Organization", "Company", "Folder", "Message", "Thing", "Document", "Unknown").stream().filter(filter).toList())
+                .containsExactly("LegalEntity", "Organization", "Company", "Folder", "Message");
+    }
+
+    @Test
+    public void test_create() throws Exception {
+        Object twoProps = call("create", "TwoProps", new Object[] {"foo", 42});
+
+        assertThat(twoProps.getClass().getSimpleName()).isEqualTo("TwoProps");
+        assertThat(twoProps.toString()).isEqualTo("TwoProps[name=foo, number=42]");
+        try {
+            call("create", "Thing", new Object[0]);
+            fail("Thing is abstract");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).isEqualTo("cannot create Thing: unknown or not instantiable schema");
+        }
+    }
+
+    @Test
+    public void test_create_without_instantiable_schema() throws Exception {
+        ModelCatalog catalog = ModelCatalog.load(MainTest.testModels(), Model.Mode.FULL, 1);
+        SourceGenerator sourceGenerator = new SourceGenerator(propertiesFromMap(Map.of("parents", catalog.parents())));
+        String code = sourceGenerator.generateRegistry(List.of(catalog.model("Thing")));
+        SourceCompiler.Result result = new SourceCompiler().compile(List.of(
+                new SourceCompiler.Source("org.icij.ftm." + SchemaRegistryGenerator.CLASS_NAME, code, null)));
+
+        assertThat(result.diagnostics()).isEmpty();
+        Method create = result.classLoader(getClass().getClassLoader())
+                .loadClass("org.icij.ftm." + SchemaRegistryGenerator.CLASS_NAME).getMethod("create", String.class, Object[].class);
+        try {
+            create.invoke(null, "Thing", new Object[0]);
+            fail("Thing is abstract");
+        } catch (InvocationTargetException e) {
+            assertThat(e.getCause().getMessage()).isEqualTo("cannot create Thing: unknown or not instantiable schema");
+        }
+    }
+
+    @Test
+    public void test_constant_name() {
+        assertThat(SchemaRegistryGenerator.constantName("LegalEntity")).isEqualTo("LEGAL_ENTITY");
+        assertThat(SchemaRegistryGenerator.constantName("HyperText")).isEqualTo("HYPER_TEXT");
+        assertThat(SchemaRegistryGenerator.constantName("Thing")).isEqualTo("THING");
+    }
+
+    // the registry is compiled in another class loader
+    private static Object call(String name, Object... args) throws Exception {
+        for (Method method : registry.getMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == args.length
+                    && (args.length == 0 || method.getParameterTypes()[0].isPrimitive() == args[0] instanceof Integer)) {
+                try {
+                    return method.invoke(null, args);
+                } catch (InvocationTargetException e) {
+                    throw (Exception) e.getCause();
+                }
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+}
@@ -0,0 +1,42 @@
+package org.icij.ftm;
+
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.ftm.Utils.pathFromLoader;
+
+public class SchemaSourceTest {
+    @Test
+    public void test_directory_source() throws Exception {
+        Path directory = pathFromLoader("Thing.yaml").getParent();
+        SchemaSource source = SchemaSource.of(directory.toString(), "main", Path.of("unused"), false);
+        assertThat(source).isInstanceOf(SchemaSource.DirectorySource.class);
+        assertThat(source.fetch().toString()).isEqualTo(directory.toString());
+        assertThat(SchemaSource.yamlFiles(source.fetch())).contains(directory.resolve("Thing.yaml"));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void test_directory_source_not_found() throws Exception {
+        SchemaSource.of("/does/not/exist", "main", Path.of("unused"), false).fetch();
+    }
+
+    @Test
+    public void test_classpath_source() throws Exception {
+        SchemaSource source = SchemaSource.of("classpath:", "main", Path.of("unused"), false);
+        assertThat(source).isInstanceOf(SchemaSource.ClasspathSource.class);
+        assertThat(source.fetch().resolve("Thing.yaml").toFile()).exists();
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void test_classpath_source_not_found() throws Exception {
+        SchemaSource.of("classpath:does/not/exist", "main", Path.of("unused"), false).fetch();
+    }
+
+    @Test
+    public void test_url_source() {
+        assertThat(SchemaSource.of(Main.SCHEMA_URL, "main", Path.of("cache"), false)).isInstanceOf(GithubSchemaSource.class);
+    }
+}
@@ -0,0 +1,70 @@
+package org.icij.ftm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.ftm.Utils.propertiesFromMap;
+
+public class SourceCompilerTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_compile_generated_interfaces() throws Exception {
+        SourceCompiler.Result result = new SourceCompiler().compile(generate(Model.Mode.FULL, true));
+        assertThat(result.diagnostics()).isEmpty();
+        assertThat(result.success()).isTrue();
+        assertThat(result.classes().keySet()).contains("org.icij.ftm.Thing", "org.icij.ftm.Company", "org.icij.ftm.Interval");
+    }
+
+    @Test
+    public void test_compile_generated_classes_and_load_them() throws Exception {
+        SourceCompiler.Result result = new SourceCompiler().compile(generate(Model.Mode.REQUIRED, false));
+        assertThat(result.success()).isTrue();
+
+        Class<?> twoProps = result.classLoader(getClass().getClassLoader()).loadClass("org.icij.ftm.TwoProps");
+        Object record = twoProps.getConstructor(String.class, int.class).newInstance("foo", 12);
+        assertThat(record.toString()).isEqualTo("TwoProps[name=foo, number=12]");
+    }
+
+    @Test
+    public void test_write_classes() throws Exception {
+        SourceCompiler.Result result = new SourceCompiler().compile(generate(Model.Mode.REQUIRED, false));
+        result.writeTo(folder.getRoot().toPath());
+        assertThat(folder.getRoot().toPath().resolve("org/icij/ftm/Thing.class").toFile()).exists();
+    }
+
+    @Test
+    public void test_diagnostics_are_mapped_to_yaml_model() throws Exception {
+        SourceCompiler.Result result = new SourceCompiler().compile(List.of(new SourceCompiler.Source("org.icij.ftm.Broken",
+                "package org.icij.ftm;\npublic record Broken(Unknown name) {}\n", Path.of("schema", "Broken.yaml"))));
+        assertThat(result.success()).isFalse();
+        assertThat(result.classes()).isEmpty();
+        assertThat(result.diagnostics()).hasSize(1);
+        assertThat(result.diagnostics().get(0)).contains("ERROR: Broken.yaml (Broken.java:2)");
+        assertThat(result.diagnostics().get(0)).contains("public record Broken(Unknown name) {}");
+    }
+
+    private static List<SourceCompiler.Source> generate(Model.Mode mode, boolean interfaces) throws Exception {
+        File[] yamlFiles = MainTest.testModels();
+        SourceGenerator sourceGenerator = new SourceGenerator(propertiesFromMap(Map.of(
+                "parents", Utils.findParents(yamlFiles, mode),
+                "models", Arrays.stream(yamlFiles).map(File::getName).map(s -> s.substring(0, s.indexOf("."))).toList(),
+                "attributeMode", mode.name(),
+                "interfaces", interfaces)));
+        List<SourceCompiler.Source> sources = new ArrayList<>();
+        for (File yamlFile : yamlFiles) {
+            String className = "org.icij.ftm." + yamlFile.getName().replace(".yaml", "");
+            sources.add(new SourceCompiler.Source(className, sourceGenerator.generate(yamlFile.toPath()), yamlFile.toPath()));
+        }
+        return sources;
+    }
+}
@@ -47,11 +47,29 @@ public class SourceGeneratorTest {
     }
 
     @Test
-    public void test_generate_thing_with_url_imported() throws IOException {
+    public void test_generate_thing_with_url_value() throws IOException {
         Path path = pathFromLoader("Thing.yaml");
         SourceGenerator sourceGenerator = new SourceGenerator(propertiesFromMap(of("attributeMode", "FULL", "parents", Map.of("Thing", Map.of()))));
-        assertThat(sourceGenerator.generate(path)).contains("final URL sourceUrl;");
-        assertThat(sourceGenerator.generate(path)).contains("import java.net.URL;");
+        assertThat(sourceGenerator.generate(path)).contains("final UrlValue sourceUrl;");
+        assertThat(sourceGenerator.generate(path)).doesNotContain("import java.net.URL;");
+    }
+
+    @Test
+    public void test_generate_typed_values() throws IOException {
+        SourceGenerator sourceGenerator = new SourceGenerator(propertiesFromMap(of("attributeMode", "FULL", "typedValues", true,
+                "parents", Map.of("Thing", Map.of()))));
+        String thing = sourceGenerator.generate(pathFromLoader("Thing.yaml"));
+
+        assertThat(thing).contains("final long createdAt;");
+        assertThat(thing).contains("final FtmCode country;");
+        assertThat(thing).contains("final FtmCode topics;");
+        assertThat(new SourceGenerator(propertiesFromMap(of("numberType", "DECIMAL"))).generate(pathFromLoader("TwoProps.yaml")))
+                .contains("import java.math.BigDecimal;").contains("BigDecimal number");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_number_type_should_be_a_number() throws IOException {
+        new SourceGenerator(propertiesFromMap(of("numberType", "DATE"))).generate(pathFromLoader("TwoProps.yaml"));
     }
 
     @Test
@@ -162,6 +180,25 @@ public class SourceGeneratorTest {
                 "public Organization (String name) {");
     }
 
+    @Test
+    public void test_sparse_layout() throws IOException {
+        SourceGenerator sourceGenerator = new SourceGenerator(propertiesFromMap(of("layout", "SPARSE", "parents", Utils.findParents(new File[]{
+                pathFromLoader("LegalEntity.yaml").toFile(),
+                pathFromLoader("Organization.yaml").toFile(),
+                pathFromLoader("Thing.yaml").toFile()}))));
+        String thing = sourceGenerator.generate(pathFromLoader("Thing.yaml"));
+        String organization = sourceGenerator.generate(pathFromLoader("Organization.yaml"));
+
+        assertThat(thing).contains("public abstract class Thing extends SparseModel {");
+        assertThat(thing).contains("super(new Object[] {name});");
+        assertThat(thing).contains("public String name() {");
+        assertThat(thing).contains("return (String) get(0);");
+        assertThat(organization).contains("public class Organization extends LegalEntity {");
+        assertThat(organization).contains("public Organization(String name) {");
+        assertThat(organization).contains("protected Organization(Object[] values) {");
+        assertThat(organization).doesNotContain("name()");
+    }
+
     @Test
     public void test_fix_call_for_tender() throws IOException {
         Path path = pathFromLoader("CallForTenders.yaml");
@@ -0,0 +1,107 @@
+package org.icij.ftm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.StringWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SparseModelTest {
+    private static final String ENTITY = """
+            {"id":"c1","schema":"LegalEntity","properties":{"name":["ICIJ"],"sector":["press"],"jurisdiction":["us"]}}""";
+    private static ClassLoader sparse;
+    private static ClassLoader fields;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        sparse = JsonCodecTest.compile(Model.Mode.FULL, SourceGenerator.Layout.SPARSE);
+        fields = JsonCodecTest.compile(Model.Mode.FULL, SourceGenerator.Layout.FIELDS);
+    }
+
+    @Test
+    public void test_store_present_values_only() throws Exception {
+        SparseModel entity = (SparseModel) read(sparse, ENTITY).value();
+
+        assertThat(entity.size()).isEqualTo(3);
+        Method name = entity.getClass().getMethod("name");
+        assertThat(name.invoke(entity)).isEqualTo("ICIJ");
+        assertThat(entity.getClass().getMethod("sector").invoke(entity)).isEqualTo("press");
+        assertThat(entity.getClass().getMethod("website").invoke(entity)).isNull();
+    }
+
+    @Test
+    public void test_ordinals_after_64() throws Exception {
+        Object[] values = new Object[150];
+        values[3] = "three";
+        values[64] = "sixty-four";
+        values[70] = 0;
+        values[149] = 149;
+        SparseModel model = new SparseModel(values) {};
+
+        assertThat(model.size()).isEqualTo(3);
+        assertThat(model.get(3)).isEqualTo("three");
+        assertThat(model.get(64)).isEqualTo("sixty-four");
+        assertThat(model.has(70)).isFalse();
+        assertThat(model.intValue(70)).isEqualTo(0);
+        assertThat(model.get(149)).isEqualTo(149);
+        assertThat(model.has(150)).isFalse();
+        assertThat(model.has(-1)).isFalse();
+    }
+
+    @Test
+    public void test_equals_and_hash_code() throws Exception {
+        Object entity = read(sparse, ENTITY).value();
+        Object same = read(sparse, ENTITY).value();
+        Object other = read(sparse, ENTITY.replace("ICIJ", "OCCRP")).value();
+
+        assertThat(entity).isEqualTo(same);
+        assertThat(entity.hashCode()).isEqualTo(same.hashCode());
+        assertThat(entity).isNotEqualTo(other);
+        assertThat(entity.toString()).startsWith("LegalEntity[");
+    }
+
+    @Test
+    public void test_json_round_trip() throws Exception {
+        FtmEntity<Object> entity = read(sparse, ENTITY);
+        StringWriter json = new StringWriter();
+        try (var generator = new JsonFactory().createGenerator(json)) {
+            FtmJson.write(entity, JsonCodecTest.codec(sparse, "LegalEntity"), generator, EntityResolver.NONE);
+        }
+        assertThat(json.toString()).isEqualTo(ENTITY);
+    }
+
+    @Test
+    public void test_same_constructor_as_fields_layout() throws Exception {
+        Constructor<?> sparseConstructor = sparse.loadClass("org.icij.ftm.LegalEntity").getConstructors()[0];
+        Constructor<?> fieldsConstructor = fields.loadClass("org.icij.ftm.LegalEntity").getConstructors()[0];
+
+        assertThat(Arrays.stream(sparseConstructor.getParameterTypes()).map(Class::getName).toList())
+                .isEqualTo(Arrays.stream(fieldsConstructor.getParameterTypes()).map(Class::getName).toList());
+    }
+
+    @Test
+    public void test_footprint_is_smaller_than_fields_layout() throws Exception {
+        Object sparseEntity = read(sparse, ENTITY).value();
+        Object fieldsEntity = read(fields, ENTITY).value();
+
+        long sparseSize = GraphLayout.parseInstance(sparseEntity).totalSize();
+        long fieldsSize = GraphLayout.parseInstance(fieldsEntity).totalSize();
+        long strings = GraphLayout.parseInstance("ICIJ", "us", "press").totalSize();
+        assertThat((sparseSize - strings) * 3).isLessThan(fieldsSize - strings);
+    }
+
+    private static FtmEntity<Object> read(ClassLoader classLoader, String json) throws Exception {
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            assertThat(parser.nextToken()).isEqualTo(JsonToken.START_OBJECT);
+            return FtmJson.read(parser, JsonCodecTest.codec(classLoader, "LegalEntity"), EntityResolver.NONE);
+        }
+    }
+}
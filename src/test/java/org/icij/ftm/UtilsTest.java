@@ -5,6 +5,7 @@ import org.junit.Test;
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,19 @@ public class UtilsTest {
         assertThat(Utils.findParents(modelFiles.toArray(new File[]{})).keySet()).contains("Interval", "Thing");
     }
 
+    @Test
+    public void test_write_if_changed() throws Exception {
+        Path file = Files.createTempFile("ftm", ".java");
+        try {
+            assertThat(Utils.writeIfChanged(file, "foo")).isTrue();
+            assertThat(Utils.writeIfChanged(file, "foo")).isFalse();
+            assertThat(Utils.writeIfChanged(file, "bar")).isTrue();
+            assertThat(Files.readString(file)).isEqualTo("bar");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @Test
     public void test_parse_args() {
         assertThat(Utils.parseArgs(new String[] {"--attributeMode", "FEATURED"})).isEqualTo(propertiesFromMap(Map.of("attributeMode", "FEATURED")));
@@ -44,6 +58,11 @@ public class UtilsTest {
                 )));
     }
 
+    @Test
+    public void test_parse_parallelism() {
+        assertThat(Utils.parseArgs(new String[] {"--parallelism", "4"})).isEqualTo(Map.of("parallelism", "4"));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void test_parse_unknown_args() {
         Utils.parseArgs(new String[] {"--foo", "bar"});